@@ -0,0 +1,66 @@
+package org.dynasty.elasticsearch.demo;
+
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试公用的数据和容器
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 21:30:00
+ */
+final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /**
+     * 固定种子生成的BenchmarkDocument，保证每次运行数据一致
+     */
+    static List<BenchmarkDocument> documents(int size) {
+        Random random = new Random(size);
+        LocalDateTime date = LocalDateTime.of(2020, 6, 4, 22, 20);
+        List<BenchmarkDocument> documents = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            BenchmarkDocument document = new BenchmarkDocument();
+            document.setMysqlId(Integer.toString(i));
+            document.setDate(date.plusSeconds(i));
+            document.setTitle(words(random, 3));
+            document.setContent(words(random, 40));
+            document.setPrice(random.nextInt(100000) / 100.0);
+            document.setPhone(random.nextInt(Integer.MAX_VALUE));
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    /**
+     * 启动连接到指定地址的容器，args为额外的命令行参数
+     */
+    static ConfigurableApplicationContext context(String uri, String... args) {
+        String[] all = Arrays.copyOf(args, args.length + 1);
+        all[args.length] = "--logging.level.org.dynasty=WARN";
+        return LoadTestHarness.context(uri, all);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder builder = new StringBuilder(count * 8);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            int length = 3 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return builder.toString();
+    }
+
+}
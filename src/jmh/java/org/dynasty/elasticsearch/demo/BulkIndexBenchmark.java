@@ -0,0 +1,77 @@
+package org.dynasty.elasticsearch.demo;
+
+import org.dynasty.elasticsearch.demo.bulk.BulkResult;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端的bulkIndex：构建请求、经HTTP发给本地的{@link FakeElasticsearchServer}、解析响应
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 21:30:00
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BulkIndexBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    /**
+     * easy-es.serialization.format，cbor的_bulk会退回smile
+     */
+    @Param({"json", "smile"})
+    private String format;
+
+    private FakeElasticsearchServer server;
+
+    private ConfigurableApplicationContext context;
+
+    private ElasticsearchRepository repository;
+
+    private List<BenchmarkDocument> documents;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = Benchmarks.context(server.getUri(), "--easy-es.serialization.format=" + format);
+        repository = context.getBean(ElasticsearchRepository.class);
+        documents = Benchmarks.documents(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        server.close();
+    }
+
+    @Benchmark
+    public BulkResult bulkIndex() {
+        BulkResult result = repository.bulkIndex("document", documents);
+        if (result.hasFailures()) {
+            throw new IllegalStateException("bulk失败: " + result);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.dynasty.elasticsearch.demo;
+
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * bulkIndex中构建BulkRequest的部分（@Id提取 + 序列化 + 组装），不发请求
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 21:30:00
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BulkRequestBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+
+    private ElasticsearchRepository repository;
+
+    private List<BenchmarkDocument> documents;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // 不会发出请求，地址只用于创建client
+        context = Benchmarks.context("http://127.0.0.1:9200");
+        repository = context.getBean(ElasticsearchRepository.class);
+        documents = Benchmarks.documents(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BulkRequest buildBulkRequest() {
+        BulkRequest request = new BulkRequest();
+        repository.addIndexRequests(request, "document", documents);
+        return request;
+    }
+
+}
@@ -0,0 +1,54 @@
+package org.dynasty.elasticsearch.demo;
+
+import org.dynasty.elasticsearch.demo.metadata.EntityMetadataRegistry;
+import org.dynasty.elasticsearch.demo.serialization.EntitySerializer;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单条数据的@Id提取和序列化
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 21:30:00
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityBenchmark {
+
+    private BenchmarkDocument document;
+
+    private EntitySerializer serializer;
+
+    @Setup
+    public void setup() {
+        document = Benchmarks.documents(1).get(0);
+        serializer = EntitySerializer.json();
+    }
+
+    @Benchmark
+    public String idExtraction() {
+        return EntityMetadataRegistry.of(document).getIdAsString(document);
+    }
+
+    @Benchmark
+    public BytesReference serialize() throws IOException {
+        return serializer.serialize(document);
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.dynasty.elasticsearch.demo;
+
+import org.dynasty.elasticsearch.demo.serialization.EntitySerializer;
+import org.dynasty.elasticsearch.demo.serialization.WireFormat;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同一批BenchmarkDocument在JSON/SMILE/CBOR下的序列化、反序列化耗时，序列化结果中附带一批文档的总字节数
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 09:20:00
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final int SIZE = 1000;
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private WireFormat format;
+
+    private EntitySerializer serializer;
+
+    private List<BenchmarkDocument> documents;
+
+    private BytesReference[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        serializer = EntitySerializer.of(format);
+        documents = Benchmarks.documents(SIZE);
+        encoded = new BytesReference[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            encoded[i] = serializer.serialize(documents.get(i));
+        }
+    }
+
+    @Benchmark
+    public void serialize(EncodedSize size, Blackhole blackhole) throws IOException {
+        long bytes = 0;
+        for (BenchmarkDocument document : documents) {
+            BytesReference source = serializer.serialize(document);
+            bytes += source.length();
+            blackhole.consume(source);
+        }
+        size.bytes = bytes;
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole blackhole) throws IOException {
+        for (BytesReference source : encoded) {
+            blackhole.consume(serializer.deserialize(source, Map.class));
+        }
+    }
+
+    /**
+     * 作为附加指标输出，每次调用覆盖而不是累加，结果即SIZE条文档序列化后的总字节数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+
+        public long bytes;
+    }
+
+}
@@ -0,0 +1,280 @@
+package org.dynasty.elasticsearch.demo;
+
+import org.dynasty.elasticsearch.demo.bulk.BulkResult;
+import org.dynasty.elasticsearch.demo.cache.IndexMetadataCache;
+import org.dynasty.elasticsearch.demo.metadata.MappingGenerator;
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Elasticsearch High Level Api 的异步版本
+ * <p>
+ * 与{@link ElasticsearchRepository}中的同名方法返回相同的结果、遵循相同的错误处理：
+ * 同步版本记录日志后返回false的情况这里同样以false完成，同步版本抛出的异常这里以异常完成。
+ * 请求由客户端的IO线程发出，结果在回调线程池中完成，少量线程即可支撑大量并发请求。
+ * 写入与同步版本走同一条路径：持有写别名的guard直到响应返回，完成后使查询缓存失效。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 17:30:00
+ */
+@Component
+public class AsyncElasticsearchRepository implements DisposableBean {
+
+    private final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(AsyncElasticsearchRepository.class);
+
+    private final ElasticsearchRepository repository;
+
+    private final RestHighLevelClient client;
+
+    private final ExecutorService callbackExecutor;
+
+    @Autowired
+    public AsyncElasticsearchRepository(ElasticsearchRepository repository, AsyncProperties properties) {
+        this.repository = repository;
+        this.client = repository.getClient();
+        this.callbackExecutor = properties.getCallbackThreads() > 0 ? createExecutor(properties) : null;
+    }
+
+    public CompletableFuture<Void> createIndex(String indexName) {
+        ElasticsearchRepository.checkString(indexName, "indexName不能为空");
+        return createIndex(new CreateIndexRequest(indexName));
+    }
+
+    public CompletableFuture<Void> createIndex(String indexName, Map<String, Object> settings, Map<String, Object> mappings) {
+        ElasticsearchRepository.checkString(indexName, "indexName不能为空");
+        return createIndex(repository.createIndexRequest(indexName, settings, mappings));
+    }
+
+    public CompletableFuture<Void> createIndex(String indexName, String settings, String mappings) {
+        ElasticsearchRepository.checkString(indexName, "indexName不能为空");
+        return createIndex(repository.createIndexRequest(indexName, settings, mappings));
+    }
+
+    public CompletableFuture<Void> createIndex(String indexName, Class<?> type) {
+        return createIndex(indexName, Collections.emptyMap(), type);
+    }
+
+    public CompletableFuture<Void> createIndex(String indexName, Map<String, Object> settings, Class<?> type) {
+        ElasticsearchRepository.checkString(indexName, "indexName不能为空");
+        return createIndex(repository.createIndexRequest(indexName, settings, MappingGenerator.mapping(type)));
+    }
+
+    public CompletableFuture<Boolean> indexExists(String indexName) {
+        ElasticsearchRepository.checkString(indexName, "indexName不能为空");
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        repository.getMetadataCache().getAsync(IndexMetadataCache.Kind.EXISTS, indexName, () -> {
+            CompletableFuture<Boolean> exists = new CompletableFuture<>();
+            client.indices().existsAsync(new GetIndexRequest(indexName), RequestOptions.DEFAULT,
+                    ActionListener.wrap(exists::complete, exists::completeExceptionally));
+            return exists;
+        }).whenComplete((exists, e) -> callback(() -> {
+            if (e != null) {
+                LOGGER.error("未知错误:{}", e);
+                future.complete(false);
+            } else {
+                future.complete(exists);
+            }
+        }));
+        return future;
+    }
+
+    public <T> CompletableFuture<Boolean> index(String indexName, T t) {
+        ElasticsearchRepository.checkString(indexName, "indexName不能为空");
+        IndexRequest request;
+        try {
+            request = repository.entityIndexRequest(indexName, ElasticsearchRepository.getEntityMetadata(t), t);
+        } catch (IOException e) {
+            return failed(e);
+        }
+        return index(indexName, request);
+    }
+
+    public CompletableFuture<Boolean> index(String indexName, Map<String, Object> map) {
+        ElasticsearchRepository.checkString(indexName, "indexName不能为空");
+        return index(indexName, repository.mapIndexRequest(indexName, map));
+    }
+
+    public <T> CompletableFuture<BulkResult> bulkIndex(String indexName, List<T> list) {
+        ElasticsearchRepository.checkString(indexName, "indexName不能为空");
+        if (null == list || list.size() == 0) {
+            return CompletableFuture.completedFuture(BulkResult.EMPTY);
+        }
+        ElasticsearchRepository.getEntityMetadata(list.get(0));
+        BulkRequest bulkRequest = new BulkRequest();
+        int dead = repository.addIndexRequests(bulkRequest, indexName, list);
+        CompletableFuture<BulkResult> future = new CompletableFuture<>();
+        CompletableFuture<BulkResult> bulk;
+        try {
+            bulk = repository.executeBulkAsync(indexName, bulkRequest);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        bulk.whenComplete((result, e) -> callback(() -> {
+            if (e != null) {
+                future.completeExceptionally(e);
+            } else {
+                future.complete(repository.bulkResult(indexName, result, dead));
+            }
+        }));
+        return future;
+    }
+
+    public CompletableFuture<Boolean> deleteByQuery(QueryBuilder query, String... indexName) {
+        for (String index : indexName) {
+            ElasticsearchRepository.checkString(index, "indexName不能为空");
+        }
+        Objects.requireNonNull(query, "查询条件不能为空");
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        client.deleteByQueryAsync(repository.deleteByQueryRequest(query, indexName), RequestOptions.DEFAULT,
+                listener("delete_by_query", future, response -> {
+                    repository.written(false, indexName);
+                    return repository.isDeleted(response);
+                }, e -> {
+                    if (e instanceof IOException) {
+                        LOGGER.error("根据条件删除数据失败:{}", e);
+                        return false;
+                    }
+                    throw new CompletionException(e);
+                }));
+        return future;
+    }
+
+    public CompletableFuture<Boolean> deleteIndex(String... indexName) {
+        for (String index : indexName) {
+            ElasticsearchRepository.checkString(index, "indexName不能为空");
+        }
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        client.indices().deleteAsync(repository.deleteIndexRequest(indexName), RequestOptions.DEFAULT,
+                listener("delete_index", future, response -> {
+                    repository.getMetadataCache().invalidate(indexName);
+                    repository.getQueryResultCache().invalidate(indexName);
+                    LOGGER.info(response.toString());
+                    return response.isAcknowledged();
+                }, e -> {
+                    LOGGER.error("删除索引失败:{}", e);
+                    return false;
+                }));
+        return future;
+    }
+
+    @Override
+    public void destroy() {
+        if (callbackExecutor != null) {
+            callbackExecutor.shutdown();
+        }
+    }
+
+    private CompletableFuture<Void> createIndex(CreateIndexRequest request) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        client.indices().createAsync(request, RequestOptions.DEFAULT, listener("create_index", future,
+                response -> {
+                    repository.getMetadataCache().invalidate(request.index());
+                    LOGGER.info("索引创建成功：{}", response);
+                    return null;
+                },
+                e -> {
+                    // 索引可能已经存在（resource_already_exists），缓存的不存在结果不再可信
+                    repository.getMetadataCache().invalidate(request.index());
+                    LOGGER.error("索引创建失败:{}", e);
+                    return null;
+                }));
+        return future;
+    }
+
+    private CompletableFuture<Boolean> index(String indexName, IndexRequest request) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        try {
+            repository.indexAsync(indexName, request, listener("index", future,
+                    response -> repository.isCreated(indexName, response),
+                    e -> {
+                        LOGGER.error("索引数据失败:{}", e);
+                        throw new CompletionException(e);
+                    }));
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        return future;
+    }
+
+    /**
+     * 把客户端回调转为CompletableFuture，onFailure返回值作为结果，抛出异常则以异常完成；
+     * 同时记录该操作的往返耗时和在途数
+     */
+    private <R, T> ActionListener<R> listener(String operation, CompletableFuture<T> future, Function<R, T> onResponse,
+                                              Function<Exception, T> onFailure) {
+        ElasticsearchMetrics metrics = repository.getMetrics();
+        long begin = metrics.begin(operation);
+        return new ActionListener<R>() {
+            @Override
+            public void onResponse(R response) {
+                metrics.end(operation, begin, -1, true);
+                callback(() -> complete(future, () -> onResponse.apply(response)));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                metrics.end(operation, begin, -1, false);
+                callback(() -> complete(future, () -> onFailure.apply(e)));
+            }
+        };
+    }
+
+    private static <T> void complete(CompletableFuture<T> future, Callable<T> result) {
+        try {
+            future.complete(result.call());
+        } catch (CompletionException e) {
+            future.completeExceptionally(e.getCause());
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void callback(Runnable runnable) {
+        if (callbackExecutor == null) {
+            runnable.run();
+            return;
+        }
+        try {
+            callbackExecutor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            runnable.run();
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private static ExecutorService createExecutor(AsyncProperties properties) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(properties.getCallbackThreads(), properties.getCallbackThreads(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(properties.getCallbackQueueCapacity()), r -> {
+            Thread thread = new Thread(r, "es-async-callback-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+}
@@ -0,0 +1,31 @@
+package org.dynasty.elasticsearch.demo;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 异步接口配置
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 17:30:00
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "easy-es.async")
+public class AsyncProperties {
+
+    /**
+     * 完成CompletableFuture的回调线程数，0表示直接在客户端IO线程上回调
+     * （回调中不能有阻塞操作，否则会拖慢所有请求）
+     */
+    private int callbackThreads = 4;
+
+    /**
+     * 回调线程池的队列长度
+     */
+    private int callbackQueueCapacity = 10000;
+
+}
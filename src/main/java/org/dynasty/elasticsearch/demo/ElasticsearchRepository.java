@@ -1,37 +1,100 @@
 package org.dynasty.elasticsearch.demo;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dynasty.elasticsearch.demo.bulk.BulkLoadManager;
+import org.dynasty.elasticsearch.demo.bulk.BulkLoadOptions;
+import org.dynasty.elasticsearch.demo.bulk.BulkLoadSession;
+import org.dynasty.elasticsearch.demo.bulk.BulkProcessorRegistry;
+import org.dynasty.elasticsearch.demo.bulk.BulkProperties;
+import org.dynasty.elasticsearch.demo.bulk.BulkResult;
+import org.dynasty.elasticsearch.demo.bulk.BulkRetryExecutor;
+import org.dynasty.elasticsearch.demo.bulk.DeadLetter;
+import org.dynasty.elasticsearch.demo.bulk.DeadLetterSink;
+import org.dynasty.elasticsearch.demo.bulk.FileCheckpoint;
+import org.dynasty.elasticsearch.demo.bulk.ManagedBulkProcessor;
+import org.dynasty.elasticsearch.demo.bulk.NdjsonFileLoader;
+import org.dynasty.elasticsearch.demo.bulk.StreamingBulkIngester;
+import org.dynasty.elasticsearch.demo.cache.IndexMetadataCache;
+import org.dynasty.elasticsearch.demo.cache.QueryResultCache;
+import org.dynasty.elasticsearch.demo.export.ExportResult;
+import org.dynasty.elasticsearch.demo.export.SlicedScrollExporter;
+import org.dynasty.elasticsearch.demo.loader.DocumentLoader;
+import org.dynasty.elasticsearch.demo.loader.MultiGetBatcher;
+import org.dynasty.elasticsearch.demo.loader.MultiGetProperties;
+import org.dynasty.elasticsearch.demo.metadata.EntityMetadata;
+import org.dynasty.elasticsearch.demo.metadata.EntityMetadataRegistry;
+import org.dynasty.elasticsearch.demo.metadata.MappingGenerator;
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.dynasty.elasticsearch.demo.metrics.SampledLogger;
+import org.dynasty.elasticsearch.demo.rollover.RolloverConditions;
+import org.dynasty.elasticsearch.demo.rollover.RolloverManager;
+import org.dynasty.elasticsearch.demo.rollover.WriteAlias;
+import org.dynasty.elasticsearch.demo.rollover.WriteGuard;
+import org.dynasty.elasticsearch.demo.search.MultiSearchBatcher;
+import org.dynasty.elasticsearch.demo.search.MultiSearchProperties;
+import org.dynasty.elasticsearch.demo.search.SearchHitIterator;
+import org.dynasty.elasticsearch.demo.search.SearchOptions;
+import org.dynasty.elasticsearch.demo.serialization.EntitySerializer;
+import org.dynasty.elasticsearch.demo.serialization.SerializationProperties;
+import org.dynasty.elasticsearch.demo.serialization.WireFormat;
+import org.dynasty.elasticsearch.demo.task.DeleteByQueryOptions;
+import org.dynasty.elasticsearch.demo.task.DeleteByQueryTask;
+import org.dynasty.elasticsearch.demo.task.TaskProgress;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
-import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.indices.CreateIndexRequest;
 import org.elasticsearch.client.indices.CreateIndexResponse;
 import org.elasticsearch.client.indices.GetIndexRequest;
-import org.elasticsearch.common.unit.ByteSizeUnit;
-import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.client.indices.GetMappingsRequest;
+import org.elasticsearch.client.indices.GetMappingsResponse;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.reindex.BulkByScrollResponse;
 import org.elasticsearch.index.reindex.DeleteByQueryRequest;
+import org.elasticsearch.index.reindex.ScrollableHitSource;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
 
 /**
  * Elasticsearch High Level Api
@@ -42,253 +105,1132 @@ import java.util.*;
 @Component
 public class ElasticsearchRepository {
 
+    /**
+     * 按id定位文档所在索引时每次查询的id数
+     */
+    private static final int LOCATE_BATCH_SIZE = 1000;
+
     @Autowired
     private RestHighLevelClient client;
 
-    private final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(ElasticsearchRepository.class);
+    @Autowired
+    private BulkProcessorRegistry bulkProcessorRegistry;
+
+    @Autowired
+    private BulkRetryExecutor bulkRetryExecutor;
+
+    @Autowired
+    private BulkProperties bulkProperties;
+
+    @Autowired
+    private BulkLoadManager bulkLoadManager;
+
+    @Autowired
+    private RolloverManager rolloverManager;
+
+    @Autowired
+    private IndexMetadataCache metadataCache;
+
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private ElasticsearchMetrics metrics;
+
+    @Autowired
+    private SerializationProperties serializationProperties;
+
+    @Autowired
+    private MultiGetProperties multiGetProperties;
+
+    @Autowired
+    private MultiSearchProperties multiSearchProperties;
+
+    private final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(ElasticsearchRepository.class);
+
+    private EntitySerializer serializer = EntitySerializer.json();
+
+    private EntitySerializer bulkSerializer = EntitySerializer.json();
+
+    private EntitySerializer responseSerializer = EntitySerializer.json();
+
+    private RequestOptions requestOptions = RequestOptions.DEFAULT;
+
+    private SampledLogger sampledLogger;
+
+    private MultiGetBatcher multiGetBatcher;
+
+    private MultiSearchBatcher multiSearchBatcher;
+
+    /**
+     * 后台轮询提交的delete_by_query任务，任务完成时使缓存失效并记录失败
+     */
+    private final ScheduledExecutorService taskWatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "es-task-watcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 最近一次加载到的 别名 -> 实际索引，重新加载完成前使用
+     */
+    private volatile Map<String, Set<String>> knownAliases = Collections.emptyMap();
+
+    @PostConstruct
+    void init() {
+        sampledLogger = metrics.sampled(LOGGER);
+        WireFormat format = serializationProperties.getFormat();
+        serializer = EntitySerializer.of(format);
+        bulkSerializer = EntitySerializer.of(format.forBulk());
+        if (format != WireFormat.JSON && serializationProperties.isDecodeResponses()) {
+            responseSerializer = serializer;
+            requestOptions = RequestOptions.DEFAULT.toBuilder().addHeader("Accept", format.getMediaType()).build();
+        }
+        if (!format.isBulkSupported()) {
+            LOGGER.warn("_bulk不支持{}，批量写入使用{}", format, format.forBulk());
+        }
+        queryResultCache.setIndexResolver(this::concreteIndices);
+        // 别名信息提前在后台加载，开启元数据缓存时之后随缓存失效重新加载
+        if (metadataCache.isEnabled()) {
+            aliases();
+        } else {
+            loadAliases();
+        }
+        // 通过BulkProcessor异步写入的数据在bulk完成后使查询缓存失效，有条目写入成功的索引记为存在
+        bulkProcessorRegistry.addWriteListener((indices, succeeded) -> {
+            queryResultCache.invalidate(indices);
+            metadataCache.written(succeeded.toArray(new String[0]));
+        });
+        multiGetBatcher = new MultiGetBatcher(client, requestOptions, responseSerializer, multiGetProperties, metrics,
+                this::isMultiIndexAlias);
+        multiSearchBatcher = new MultiSearchBatcher(client, requestOptions, multiSearchProperties, metrics);
+    }
+
+    @PreDestroy
+    void close() {
+        multiGetBatcher.close();
+        multiSearchBatcher.close();
+        taskWatcher.shutdownNow();
+    }
+
+    /**
+     * 自定义查询可以直接获取client
+     *
+     * @return org.elasticsearch.client.RestHighLevelClient
+     * @author dynasty yq.xiong0320@gmail.com
+     * @since 2020-05-31 22:26:55
+     */
+    public RestHighLevelClient getClient() {
+        return client;
+    }
+
+    /**
+     * 创建索引
+     *
+     * @param indexName
+     */
+    public void createIndex(String indexName) {
+        checkString(indexName, "indexName不能为空");
+        try {
+            CreateIndexRequest request = new CreateIndexRequest(indexName);
+            CreateIndexResponse createIndexResponse = client.indices().create(request, RequestOptions.DEFAULT);
+            metadataCache.invalidate(indexName);
+            LOGGER.info("索引创建成功：{}", createIndexResponse);
+        } catch (Exception e) {
+            // 索引可能已经存在（resource_already_exists），缓存的不存在结果不再可信
+            metadataCache.invalidate(indexName);
+            LOGGER.error("索引创建失败:{}", e);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 创建索引
+     *
+     * @param indexName
+     * @param settings
+     * @param mappings
+     */
+    public void createIndex(String indexName, Map<String, Object> settings, Map<String, Object> mappings) {
+        checkString(indexName, "indexName不能为空");
+        try {
+            CreateIndexRequest request = createIndexRequest(indexName, settings, mappings);
+            CreateIndexResponse createIndexResponse = client.indices().create(request, RequestOptions.DEFAULT);
+            metadataCache.invalidate(indexName);
+            LOGGER.info("索引创建成功：{}", createIndexResponse);
+        } catch (Exception e) {
+            // 索引可能已经存在（resource_already_exists），缓存的不存在结果不再可信
+            metadataCache.invalidate(indexName);
+            LOGGER.error("索引创建失败:{}", e);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 创建索引
+     *
+     * @param indexName
+     * @param settings
+     * @param mappings
+     */
+    public void createIndex(String indexName, String settings, String mappings) {
+        checkString(indexName, "indexName不能为空");
+        try {
+            CreateIndexRequest request = createIndexRequest(indexName, settings, mappings);
+            CreateIndexResponse createIndexResponse = client.indices().create(request, RequestOptions.DEFAULT);
+            metadataCache.invalidate(indexName);
+            LOGGER.info("索引创建成功：{}", createIndexResponse);
+        } catch (Exception e) {
+            // 索引可能已经存在（resource_already_exists），缓存的不存在结果不再可信
+            metadataCache.invalidate(indexName);
+            LOGGER.error("索引创建失败:{}", e);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 按实体类生成的mapping创建索引（dynamic: strict），字段类型由@Field指定或按Java类型推断
+     *
+     * @param indexName
+     * @param type
+     */
+    public void createIndex(String indexName, Class<?> type) {
+        createIndex(indexName, (Map<String, Object>) null, type);
+    }
+
+    /**
+     * 按实体类生成的mapping创建索引
+     *
+     * @param indexName
+     * @param settings
+     * @param type
+     */
+    public void createIndex(String indexName, Map<String, Object> settings, Class<?> type) {
+        createIndex(indexName, settings, MappingGenerator.mapping(type));
+    }
+
+    /**
+     * 创建写别名：别名不存在时创建初始索引 别名-000001 并设为写索引，已存在时沿用当前写索引。
+     * 之后通过本repository写入别名的同步写入与滚动互斥，满足conditions时自动滚动到新索引，
+     * 新索引使用相同的settings/mappings；查询别名覆盖所有滚动出的索引
+     *
+     * @param alias
+     * @param settings
+     * @param mappings
+     * @param conditions
+     * @return org.dynasty.elasticsearch.demo.rollover.WriteAlias
+     */
+    public WriteAlias createWriteAlias(String alias, String settings, String mappings, RolloverConditions conditions)
+            throws IOException {
+        checkString(alias, "alias不能为空");
+        Objects.requireNonNull(conditions, "conditions不能为空");
+        return rolloverManager.register(alias, settings, mappings, conditions);
+    }
+
+    /**
+     * 创建写别名，初始索引和滚动出的新索引使用按实体类生成的mapping
+     *
+     * @param alias
+     * @param settings
+     * @param type
+     * @param conditions
+     * @return org.dynasty.elasticsearch.demo.rollover.WriteAlias
+     */
+    public WriteAlias createWriteAlias(String alias, String settings, Class<?> type, RolloverConditions conditions)
+            throws IOException {
+        return createWriteAlias(alias, settings, MappingGenerator.mappingJson(type), conditions);
+    }
+
+    /**
+     * 不检查条件，立即滚动写别名
+     *
+     * @param alias
+     * @return boolean 是否滚动
+     */
+    public boolean rollover(String alias) throws IOException {
+        checkString(alias, "alias不能为空");
+        try {
+            return rolloverManager.rollover(alias);
+        } finally {
+            queryResultCache.invalidate(alias);
+        }
+    }
+
+    /**
+     * 判断索引是否存在
+     *
+     * @param indexName
+     * @return boolean
+     */
+    public boolean indexExists(String indexName) {
+        checkString(indexName, "indexName不能为空");
+        try {
+            return metadataCache.get(IndexMetadataCache.Kind.EXISTS, indexName,
+                    () -> client.indices().exists(new GetIndexRequest(indexName), RequestOptions.DEFAULT));
+        } catch (Exception e) {
+            LOGGER.error("未知错误:{}", e);
+        }
+        return false;
+    }
+
+    /**
+     * 获取索引settings（带缓存）
+     *
+     * @param indexName
+     * @return org.elasticsearch.common.settings.Settings
+     */
+    public Settings getIndexSettings(String indexName) throws IOException {
+        checkString(indexName, "indexName不能为空");
+        try {
+            return metadataCache.get(IndexMetadataCache.Kind.SETTINGS, indexName, () -> {
+                GetSettingsResponse response = client.indices().getSettings(
+                        new GetSettingsRequest().indices(indexName), RequestOptions.DEFAULT);
+                ImmutableOpenMap<String, Settings> indexToSettings = response.getIndexToSettings();
+                Settings settings = indexToSettings.get(indexName);
+                if (settings == null && indexToSettings.size() == 1) {
+                    settings = indexToSettings.valuesIt().next();
+                }
+                return settings == null ? Settings.EMPTY : settings;
+            });
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ElasticsearchException(e);
+        }
+    }
+
+    /**
+     * 获取索引mappings（带缓存）
+     *
+     * @param indexName
+     * @return java.util.Map
+     */
+    public Map<String, Object> getIndexMappings(String indexName) throws IOException {
+        checkString(indexName, "indexName不能为空");
+        try {
+            return metadataCache.get(IndexMetadataCache.Kind.MAPPINGS, indexName, () -> {
+                GetMappingsResponse response = client.indices().getMapping(
+                        new GetMappingsRequest().indices(indexName), RequestOptions.DEFAULT);
+                MappingMetaData mapping = singleValue(indexName, response.mappings());
+                return mapping == null ? Collections.<String, Object>emptyMap() : mapping.sourceAsMap();
+            });
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ElasticsearchException(e);
+        }
+    }
+
+    /**
+     * 写入后使查询缓存失效（失败的写入也可能部分生效）；有数据写入成功时索引一定存在，记到元数据缓存，
+     * mappings不失效，dynamic mapping新增的字段在缓存ttl后可见
+     */
+    void written(boolean succeeded, String... indexName) {
+        queryResultCache.invalidate(indexName);
+        if (succeeded) {
+            metadataCache.written(indexName);
+        }
+    }
+
+    private void written(BulkResult result, String indexName) {
+        written(result != null && result.getSucceeded() > 0, indexName);
+    }
+
+    /**
+     * 别名换成其指向的实际索引，其余名称原样返回；不阻塞调用线程（写入回调可能在IO线程执行），
+     * 别名信息正在重新加载时使用上一次加载的结果，从未加载成功时名称原样返回
+     */
+    private Collection<String> concreteIndices(String name) {
+        if (IndexMetadataCache.ALL.equals(name) || Regex.isSimpleMatchPattern(name)) {
+            return Collections.singleton(name);
+        }
+        return aliases().getOrDefault(name, Collections.singleton(name));
+    }
+
+    /**
+     * 别名 -> 实际索引；关闭元数据缓存时只使用启动时加载的结果，不在每次调用时查询。
+     * 加载中或加载失败（如连接不上ES）时使用最近一次加载到的结果，不抛出异常
+     */
+    private Map<String, Set<String>> aliases() {
+        if (!metadataCache.isEnabled()) {
+            return knownAliases;
+        }
+        CompletableFuture<Map<String, Set<String>>> aliases = metadataCache.getAsync(
+                IndexMetadataCache.Kind.ALIASES, IndexMetadataCache.ALL, this::loadAliases);
+        if (!aliases.isDone() || aliases.isCompletedExceptionally()) {
+            return knownAliases;
+        }
+        return aliases.join();
+    }
+
+    private CompletableFuture<Map<String, Set<String>>> loadAliases() {
+        CompletableFuture<Map<String, Set<String>>> future = new CompletableFuture<>();
+        client.indices().getAliasAsync(new GetAliasesRequest(), RequestOptions.DEFAULT,
+                ActionListener.wrap(response -> {
+                    Map<String, Set<String>> indices = new HashMap<>();
+                    response.getAliases().forEach((index, metadata) -> metadata.forEach(alias ->
+                            indices.computeIfAbsent(alias.alias(), key -> new HashSet<>()).add(index)));
+                    knownAliases = indices;
+                    future.complete(indices);
+                }, e -> {
+                    LOGGER.warn("加载别名信息失败:{}", e.toString());
+                    future.completeExceptionally(e);
+                }));
+        return future;
+    }
+
+    /**
+     * 按索引名取值，传入的是别名时取其唯一的实际索引
+     */
+    private static <V> V singleValue(String indexName, Map<String, V> values) {
+        V value = values.get(indexName);
+        if (value == null && values.size() == 1) {
+            value = values.values().iterator().next();
+        }
+        return value;
+    }
+
+    /**
+     * 插入数据到指定索引
+     *
+     * @param indexName
+     * @param map
+     * @return boolean
+     */
+    public <T> boolean index(String indexName, T t) throws IOException {
+        checkString(indexName, "indexName不能为空");
+        EntityMetadata metadata = getEntityMetadata(t);
+        try (WriteGuard guard = rolloverManager.guard(indexName)) {
+            IndexRequest request = entityIndexRequest(indexName, metadata, t);
+            IndexResponse response = timed("index", () -> client.index(request, requestOptions), r -> -1);
+            guard.written(1);
+            written(true, indexName);
+            return isCreated(indexName, response);
+        } catch (Exception e) {
+            e.printStackTrace();
+            LOGGER.error("索引数据失败:{}", e);
+            throw e;
+        }
+    }
+
+    /**
+     * 插入数据到指定索引
+     *
+     * @param indexName
+     * @param map
+     * @return boolean
+     */
+    public boolean index(String indexName, Map<String, Object> map) throws Exception {
+        checkString(indexName, "indexName不能为空");
+        try (WriteGuard guard = rolloverManager.guard(indexName)) {
+            IndexRequest request = mapIndexRequest(indexName, map);
+            IndexResponse response = timed("index", () -> client.index(request, requestOptions), r -> -1);
+            guard.written(1);
+            written(true, indexName);
+            return isCreated(indexName, response);
+        } catch (Exception e) {
+            e.printStackTrace();
+            LOGGER.error("索引数据新增失败:{}", e);
+            throw e;
+        }
+    }
+
+    /**
+     * 批量插入数据到指定索引
+     * <p>
+     * 只重试被拒绝（429/503）的条目，重试耗尽或不可重试的条目进入死信
+     *
+     * @param indexName
+     * @param list
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public <T> BulkResult bulkIndex(String indexName, List<T> list) {
+        checkString(indexName, "indexName不能为空");
+        if (null == list || list.size() == 0) {
+            return BulkResult.EMPTY;
+        }
+        getEntityMetadata(list.get(0));
+        BulkRequest bulkRequest = new BulkRequest();
+        int dead = addIndexRequests(bulkRequest, indexName, list);
+        BulkResult result = null;
+        try (WriteGuard guard = rolloverManager.guard(indexName)) {
+            result = bulkRetryExecutor.execute(bulkRequest);
+            guard.written(result.getSucceeded());
+            return bulkResult(indexName, result, dead);
+        } finally {
+            written(result, indexName);
+        }
+    }
+
+    /**
+     * 流式批量插入，按需从Iterator拉取数据并按条数/字节数切分批次，内存中只保留有限个批次
+     *
+     * @param indexName
+     * @param iterator
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public <T> BulkResult bulkIndex(String indexName, Iterator<? extends T> iterator) {
+        checkString(indexName, "indexName不能为空");
+        Objects.requireNonNull(iterator, "iterator不能为空");
+        BulkResult result = new StreamingBulkIngester(batch -> executeBulkAsync(indexName, batch),
+                bulkProperties.getStreaming()).ingest(iterator, data -> buildIndexRequest(indexName, data));
+        if (result.hasFailures()) {
+            LOGGER.error("流式插入索引{}，{}条数据进入死信", indexName, result.getDead());
+        }
+        return result;
+    }
+
+    /**
+     * 流式批量插入，写入完成后关闭stream
+     *
+     * @param indexName
+     * @param stream
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public <T> BulkResult bulkIndex(String indexName, Stream<? extends T> stream) {
+        Objects.requireNonNull(stream, "stream不能为空");
+        try (Stream<? extends T> s = stream) {
+            return bulkIndex(indexName, s.iterator());
+        }
+    }
+
+    /**
+     * 流式批量插入
+     *
+     * @param indexName
+     * @param spliterator
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public <T> BulkResult bulkIndex(String indexName, Spliterator<? extends T> spliterator) {
+        Objects.requireNonNull(spliterator, "spliterator不能为空");
+        return bulkIndex(indexName, Spliterators.iterator(spliterator));
+    }
+
+    /**
+     * 导入NDJSON文件，每行一个文档的_source，检查点文件为 文件名.checkpoint
+     *
+     * @param indexName
+     * @param file
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public BulkResult bulkIndexFile(String indexName, Path file) throws IOException {
+        Objects.requireNonNull(file, "file不能为空");
+        return bulkIndexFile(indexName, file, file.resolveSibling(file.getFileName() + ".checkpoint"));
+    }
+
+    /**
+     * 导入NDJSON文件，原始行字节直接作为_bulk的source发送，客户端不解析文档；
+     * 每个批次确认后记录文件偏移量到检查点，中断后再次调用从检查点继续
+     *
+     * @param indexName
+     * @param file
+     * @param checkpoint
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public BulkResult bulkIndexFile(String indexName, Path file, Path checkpoint) throws IOException {
+        checkString(indexName, "indexName不能为空");
+        Objects.requireNonNull(checkpoint, "checkpoint不能为空");
+        BulkResult result = null;
+        try {
+            result = new NdjsonFileLoader(client.getLowLevelClient(), bulkRetryExecutor, bulkProperties.getFile(), metrics,
+                    () -> rolloverManager.guard(indexName)).load(indexName, file, new FileCheckpoint(checkpoint));
+        } finally {
+            written(result, indexName);
+        }
+        if (result.hasFailures()) {
+            LOGGER.error("文件{}导入索引{}，{}条数据进入死信", file, indexName, result.getDead());
+        }
+        return result;
+    }
+
+    /**
+     * 打开导入会话，关闭自动refresh并去掉副本，会话关闭时恢复原始settings并refresh
+     *
+     * @param indexName
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkLoadSession
+     */
+    public BulkLoadSession openBulkLoad(String indexName) throws IOException {
+        return openBulkLoad(indexName, BulkLoadOptions.defaults());
+    }
+
+    /**
+     * 打开导入会话，会话期间的settings和关闭时的force merge/refresh/等待green由options指定；
+     * 超时未关闭的会话自动恢复原始settings
+     *
+     * @param indexName
+     * @param options
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkLoadSession
+     */
+    public BulkLoadSession openBulkLoad(String indexName, BulkLoadOptions options) throws IOException {
+        checkString(indexName, "indexName不能为空");
+        Objects.requireNonNull(options, "options不能为空");
+        return bulkLoadManager.open(indexName, options);
+    }
+
+    /**
+     * 在导入会话中流式批量插入，写入完成（或失败）后恢复原始settings
+     *
+     * @param indexName
+     * @param iterator
+     * @param options
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public <T> BulkResult bulkLoad(String indexName, Iterator<? extends T> iterator, BulkLoadOptions options)
+            throws IOException {
+        try (BulkLoadSession ignored = openBulkLoad(indexName, options)) {
+            return bulkIndex(indexName, iterator);
+        }
+    }
+
+    /**
+     * 通过共享的BulkProcessor异步写入，数据会和其他调用方的数据合并成大批量请求
+     *
+     * @param indexName
+     * @param list
+     */
+    public <T> void bulkIndexWithProcessor(String indexName, List<T> list) {
+        checkString(indexName, "indexName不能为空");
+        if (null == list || list.size() == 0) {
+            return;
+        }
+        getEntityMetadata(list.get(0));
+
+        ManagedBulkProcessor bulkProcessor = bulkProcessorRegistry.getProcessor(indexName);
+        for (T data : list) {
+            IndexRequest request = buildIndexRequest(indexName, data);
+            if (request != null) {
+                bulkProcessor.add(request);
+            }
+        }
+    }
+
+    /**
+     * 通过共享的BulkProcessor异步删除@Id对应的文档，开启写入合并时会覆盖窗口内同一文档尚未提交的写入
+     *
+     * @param indexName
+     * @param list
+     */
+    public <T> void bulkDeleteWithProcessor(String indexName, List<T> list) {
+        checkString(indexName, "indexName不能为空");
+        if (null == list || list.size() == 0) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(list.size());
+        for (T data : list) {
+            ids.add(requireId(data));
+        }
+        Map<String, String> locations = locate(indexName, ids);
+        ManagedBulkProcessor bulkProcessor = bulkProcessorRegistry.getProcessor(indexName);
+        for (String id : ids) {
+            bulkProcessor.add(new DeleteRequest(locations.getOrDefault(id, indexName), id));
+        }
+    }
+
+    /**
+     * 把数据转为IndexRequest加入bulkRequest
+     *
+     * @param bulkRequest
+     * @param indexName
+     * @param list
+     * @return int 序列化失败进入死信的条数
+     */
+    <T> int addIndexRequests(BulkRequest bulkRequest, String indexName, List<T> list) {
+        int dead = 0;
+        for (T data : list) {
+            IndexRequest request = buildIndexRequest(indexName, data);
+            if (request == null) {
+                dead++;
+            } else {
+                bulkRequest.add(request);
+            }
+        }
+        return dead;
+    }
+
+    /**
+     * 异步执行一个批次：持有写别名的guard直到批次（包括重试）完成，完成后使查询缓存失效
+     *
+     * @param indexName
+     * @param bulkRequest
+     * @return java.util.concurrent.CompletableFuture
+     */
+    CompletableFuture<BulkResult> executeBulkAsync(String indexName, BulkRequest bulkRequest) {
+        WriteGuard guard = rolloverManager.guard(indexName);
+        CompletableFuture<BulkResult> future;
+        try {
+            future = bulkRetryExecutor.executeAsync(bulkRequest);
+        } catch (RuntimeException e) {
+            guard.close();
+            throw e;
+        }
+        return future.whenComplete((result, e) -> {
+            if (result != null) {
+                guard.written(result.getSucceeded());
+            }
+            guard.close();
+            written(result, indexName);
+        });
+    }
+
+    /**
+     * 异步写入单条数据：与{@link #index(String, Map)}相同，持有写别名的guard直到响应返回，完成后使查询缓存失效
+     *
+     * @param indexName
+     * @param request
+     * @param listener
+     */
+    void indexAsync(String indexName, IndexRequest request, ActionListener<IndexResponse> listener) {
+        WriteGuard guard = rolloverManager.guard(indexName);
+        try {
+            client.indexAsync(request, requestOptions, new ActionListener<IndexResponse>() {
+                @Override
+                public void onResponse(IndexResponse response) {
+                    guard.written(1);
+                    guard.close();
+                    written(true, indexName);
+                    listener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    guard.close();
+                    written(false, indexName);
+                    listener.onFailure(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            guard.close();
+            throw e;
+        }
+    }
+
+    private BulkResult executeBulk(String indexName, BulkRequest bulkRequest, int dead) {
+        if (bulkRequest.numberOfActions() == 0) {
+            return bulkResult(indexName, BulkResult.EMPTY, dead);
+        }
+        BulkResult result = null;
+        try (WriteGuard guard = rolloverManager.guard(indexName)) {
+            result = bulkRetryExecutor.execute(bulkRequest);
+            guard.written(result.getSucceeded());
+            return bulkResult(indexName, result, dead);
+        } finally {
+            written(result, indexName);
+        }
+    }
+
+    private UpdateRequest entityUpdateRequest(String indexName, String id, Object doc) {
+        try {
+            long begin = System.nanoTime();
+            UpdateRequest request = bulkSerializer.doc(new UpdateRequest(indexName, id), doc);
+            metrics.recordSerialization(System.nanoTime() - begin, request.doc().source().length());
+            return request;
+        } catch (IOException e) {
+            LOGGER.error("数据序列化失败:{}", doc, e);
+            bulkRetryExecutor.getDeadLetterSink().write(new DeadLetter(indexName, id, "update",
+                    RestStatus.BAD_REQUEST.getStatus(), e.toString(), null, null));
+            return null;
+        }
+    }
+
+    private static List<String> ids(List<?> list) {
+        List<String> ids = new ArrayList<>(list.size());
+        for (Object data : list) {
+            ids.add(requireId(data));
+        }
+        return ids;
+    }
+
+    /**
+     * 受管理的写别名滚动后，写只落到最新的写索引，按id的更新/删除发到别名会落到新索引上找不到旧文档。
+     * 先按id查询别名覆盖的所有索引，得到 id -> 文档实际所在的索引；查不到的文档（不存在或尚未refresh）不在结果中，
+     * 调用方发到写别名。每个批次因此多一次同步的查询往返（每1000个id一次）；
+     * indexName不是受管理的写别名或别名还没有滚动过（只指向一个索引）时不查询，返回空Map
+     */
+    private Map<String, String> locate(String indexName, Collection<String> ids) {
+        if (!isMultiIndexAlias(indexName) || ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> locations = new HashMap<>();
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        for (int from = 0; from < distinct.size(); from += LOCATE_BATCH_SIZE) {
+            List<String> batch = distinct.subList(from, Math.min(distinct.size(), from + LOCATE_BATCH_SIZE));
+            SearchSourceBuilder source = new SearchSourceBuilder()
+                    .query(QueryBuilders.idsQuery().addIds(batch.toArray(new String[0])))
+                    .size(batch.size() * 2)
+                    .fetchSource(false);
+            SearchResponse response;
+            try {
+                response = client.search(new SearchRequest(indexName).source(source), requestOptions);
+            } catch (IOException e) {
+                throw new ElasticsearchException("查询写别名{}下文档所在的索引失败", e, indexName);
+            }
+            for (SearchHit hit : response.getHits().getHits()) {
+                // 同一id存在于多个索引时取最新滚动出的索引
+                locations.merge(hit.getId(), hit.getIndex(), (a, b) -> a.compareTo(b) >= 0 ? a : b);
+            }
+        }
+        return locations;
+    }
+
+    private boolean isMultiIndexAlias(String indexName) {
+        WriteAlias alias = rolloverManager.get(indexName);
+        return alias != null && alias.isMultiIndex();
+    }
+
+    private static String requireId(Object data) {
+        String id = getEntityMetadata(data).getIdAsString(data);
+        if (id == null) {
+            throw new ElasticsearchException("数据缺少@Id的值:{}", data);
+        }
+        return id;
+    }
+
+    BulkResult bulkResult(String indexName, BulkResult result, int dead) {
+        if (dead > 0) {
+            result = result.merge(new BulkResult(dead, 0, 0, dead));
+        }
+        if (result.hasFailures()) {
+            LOGGER.error("批量写入索引{}，{}条数据进入死信", indexName, result.getDead());
+        }
+        return result;
+    }
+
+    /**
+     * 构建IndexRequest，序列化失败时数据进入死信并返回null
+     *
+     * @param indexName
+     * @param data
+     * @return org.elasticsearch.action.index.IndexRequest
+     */
+    private IndexRequest buildIndexRequest(String indexName, Object data) {
+        EntityMetadata metadata = getEntityMetadata(data);
+        try {
+            return entityIndexRequest(bulkSerializer, indexName, metadata, data);
+        } catch (IOException e) {
+            String id = metadata.getIdAsString(data);
+            LOGGER.error("数据序列化失败:{}", data, e);
+            bulkRetryExecutor.getDeadLetterSink().write(new DeadLetter(indexName, id, "index",
+                    RestStatus.BAD_REQUEST.getStatus(), e.toString(), null, null));
+            return null;
+        }
+    }
+
+    /**
+     * 按id查询文档，并发的查询在easy-es.multi-get.window内合并成一个_mget；文档不存在时返回null
+     *
+     * @param indexName
+     * @param id
+     * @param type
+     * @return T
+     */
+    public <T> T getById(String indexName, String id, Class<T> type) throws IOException {
+        try {
+            return getByIdAsync(indexName, id, type).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("按id查询被中断:" + indexName + "/" + id);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 按id异步查询文档，结果在客户端IO线程上完成，追加的回调不能阻塞；
+     * indexName是滚动过的写别名时改为对别名做ids查询，还没有refresh的文档返回null
+     *
+     * @param indexName
+     * @param id
+     * @param type
+     * @return java.util.concurrent.CompletableFuture
+     */
+    public <T> CompletableFuture<T> getByIdAsync(String indexName, String id, Class<T> type) {
+        checkString(indexName, "indexName不能为空");
+        checkString(id, "id不能为空");
+        Objects.requireNonNull(type, "type不能为空");
+        return multiGetBatcher.load(indexName, id, type);
+    }
+
+    /**
+     * 创建带缓存的按id查询器，缓存只在返回的对象内有效，每个请求创建一个
+     *
+     * @return org.dynasty.elasticsearch.demo.loader.DocumentLoader
+     */
+    public DocumentLoader newDocumentLoader() {
+        return new DocumentLoader(multiGetBatcher);
+    }
+
+    MultiGetBatcher getMultiGetBatcher() {
+        return multiGetBatcher;
+    }
+
+    /**
+     * 查询，开启easy-es.cache.query后结果按 索引+查询JSON 缓存，
+     * 通过本repository写入对应索引后缓存失效
+     *
+     * @param source
+     * @param indexName
+     * @return org.elasticsearch.action.search.SearchResponse
+     */
+    public SearchResponse cachedSearch(SearchSourceBuilder source, String... indexName) throws IOException {
+        for (String index : indexName) {
+            checkString(index, "indexName不能为空");
+        }
+        Objects.requireNonNull(source, "查询条件不能为空");
+        if (!queryResultCache.isEnabled()) {
+            return search(new SearchRequest(indexName).source(source));
+        }
+        QueryResultCache.Key key = queryResultCache.key(source, indexName);
+        SearchResponse response = queryResultCache.get(key);
+        if (response == null) {
+            response = search(new SearchRequest(indexName).source(source));
+            queryResultCache.put(key, response);
+        }
+        return response;
+    }
+
+    private SearchResponse search(SearchRequest request) throws IOException {
+        return timed("search", () -> client.search(request, requestOptions), r -> r.getTook().millis());
+    }
 
     /**
-     * 自定义查询可以直接获取client
+     * 查询，并发的查询在easy-es.multi-search.window内合并成一个_msearch，超时使用easy-es.multi-search.timeout
      *
-     * @return org.elasticsearch.client.RestHighLevelClient
-     * @author dynasty yq.xiong0320@gmail.com
-     * @since 2020-05-31 22:26:55
+     * @param source
+     * @param indexName
+     * @return org.elasticsearch.action.search.SearchResponse
      */
-    public RestHighLevelClient getClient() {
-        return client;
+    public SearchResponse batchedSearch(SearchSourceBuilder source, String... indexName) throws IOException {
+        return batchedSearch(source, multiSearchProperties.getTimeout(), indexName);
     }
 
     /**
-     * 创建索引
+     * 查询，并发的查询合并成一个_msearch
      *
+     * @param source
+     * @param timeout 从提交开始计算，包括合并等待的时间
      * @param indexName
+     * @return org.elasticsearch.action.search.SearchResponse
      */
-    public void createIndex(String indexName) {
-        checkString(indexName, "indexName不能为空");
+    public SearchResponse batchedSearch(SearchSourceBuilder source, Duration timeout, String... indexName)
+            throws IOException {
         try {
-            CreateIndexRequest request = new CreateIndexRequest(indexName);
-            CreateIndexResponse createIndexResponse = client.indices().create(request, RequestOptions.DEFAULT);
-            LOGGER.info("索引创建成功：{}", createIndexResponse);
-        } catch (Exception e) {
-            LOGGER.error("索引创建失败:{}", e);
-            e.printStackTrace();
+            return searchAsync(source, timeout, indexName).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("查询被中断:" + Arrays.toString(indexName));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
         }
     }
 
     /**
-     * 创建索引
+     * 异步查询，并发的查询合并成一个_msearch；结果在客户端IO线程上完成，追加的回调不能阻塞
      *
+     * @param source
+     * @param timeout 从提交开始计算，包括合并等待的时间；超时后future以ElasticsearchTimeoutException结束
      * @param indexName
-     * @param settings
-     * @param mappings
+     * @return java.util.concurrent.CompletableFuture
      */
-    public void createIndex(String indexName, Map<String, Object> settings, Map<String, Object> mappings) {
-        checkString(indexName, "indexName不能为空");
-        try {
-            CreateIndexRequest request = new CreateIndexRequest(indexName);
-            buildSetting(request, settings);
-            buildIndexMapping(request, mappings);
-            CreateIndexResponse createIndexResponse = client.indices().create(request, RequestOptions.DEFAULT);
-            LOGGER.info("索引创建成功：{}", createIndexResponse);
-        } catch (Exception e) {
-            LOGGER.error("索引创建失败:{}", e);
-            e.printStackTrace();
+    public CompletableFuture<SearchResponse> searchAsync(SearchSourceBuilder source, Duration timeout,
+                                                         String... indexName) {
+        for (String index : indexName) {
+            checkString(index, "indexName不能为空");
         }
+        Objects.requireNonNull(source, "查询条件不能为空");
+        return multiSearchBatcher.submit(new SearchRequest(indexName).source(source), timeout);
+    }
+
+    MultiSearchBatcher getMultiSearchBatcher() {
+        return multiSearchBatcher;
     }
 
     /**
-     * 创建索引
+     * 查询（带缓存）
      *
+     * @param query
+     * @param size
      * @param indexName
-     * @param settings
-     * @param mappings
+     * @return org.elasticsearch.action.search.SearchResponse
      */
-    public void createIndex(String indexName, String settings, String mappings) {
-        checkString(indexName, "indexName不能为空");
-        try {
-            CreateIndexRequest request = new CreateIndexRequest(indexName);
-            buildSetting(request, settings);
-            buildIndexMapping(request, mappings);
-            CreateIndexResponse createIndexResponse = client.indices().create(request, RequestOptions.DEFAULT);
-            LOGGER.info("索引创建成功：{}", createIndexResponse);
-        } catch (Exception e) {
-            LOGGER.error("索引创建失败:{}", e);
-            e.printStackTrace();
-        }
+    public SearchResponse cachedSearch(QueryBuilder query, int size, String... indexName) throws IOException {
+        return cachedSearch(new SearchSourceBuilder().query(query).size(size), indexName);
     }
 
     /**
-     * 判断索引是否存在
+     * 流式查询，按search_after分页拉取，文档在消费时才反序列化
+     * <p>
+     * 返回的Stream需要关闭（try-with-resources）
      *
+     * @param query
+     * @param type
      * @param indexName
-     * @return boolean
+     * @return java.util.stream.Stream
      */
-    public boolean indexExists(String indexName) {
-        checkString(indexName, "indexName不能为空");
-        try {
-            GetIndexRequest request = new GetIndexRequest(indexName);
-            boolean exists = client.indices().exists(request, RequestOptions.DEFAULT);
-            return exists;
-        } catch (Exception e) {
-            LOGGER.error("未知错误:{}", e);
-        }
-        return false;
+    public <T> Stream<T> search(QueryBuilder query, Class<T> type, String... indexName) {
+        return search(query, type, SearchOptions.defaults(), indexName);
     }
 
     /**
-     * 插入数据到指定索引
+     * 流式查询
      *
+     * @param query
+     * @param type
+     * @param options 分页大小、排序、tiebreaker或改用scroll
      * @param indexName
-     * @param map
-     * @return boolean
+     * @return java.util.stream.Stream
      */
-    public <T> boolean index(String indexName, T t) throws IOException {
-        checkString(indexName, "indexName不能为空");
-        String idFieldName = getIdFieldName(t);
-        if (idFieldName == null) {
-            throw new ElasticsearchException("找不到@Id标注的字段");
+    public <T> Stream<T> search(QueryBuilder query, Class<T> type, SearchOptions options, String... indexName) {
+        for (String index : indexName) {
+            checkString(index, "indexName不能为空");
         }
-        try {
-            IndexRequest request = new IndexRequest(indexName);
-            Object val = getVal(idFieldName, t);
-            if (val != null) {
-                request.id(val.toString());
-            }
-            request.source(getObjectMapper().writeValueAsString(t), XContentType.JSON);
-            IndexResponse response = client.index(request, RequestOptions.DEFAULT);
-            LOGGER.info("索引{}新增数据，响应:{}", indexName, response);
-            if (response.getResult() == DocWriteResponse.Result.CREATED) {
-                return true;
+        Objects.requireNonNull(query, "查询条件不能为空");
+        Objects.requireNonNull(type, "type不能为空");
+        return SearchHitIterator.of(client, requestOptions, responseSerializer, query, type, options, index -> {
+            try {
+                return getIndexMappings(index);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            LOGGER.error("索引{}新增数据失败！", indexName);
-            return false;
-        } catch (Exception e) {
-            e.printStackTrace();
-            LOGGER.error("索引数据失败:{}", e);
-            throw e;
-        }
+        }, indexName).stream();
     }
 
     /**
-     * 插入数据到指定索引
+     * 并行sliced scroll导出索引的_source为NDJSON文件，每个slice一个文件
      *
      * @param indexName
-     * @param map
-     * @return boolean
+     * @param query
+     * @param slices
+     * @param outputDir
+     * @return org.dynasty.elasticsearch.demo.export.ExportResult
      */
-    public boolean index(String indexName, Map<String, Object> map) throws Exception {
+    public ExportResult export(String indexName, QueryBuilder query, int slices, Path outputDir) throws IOException {
         checkString(indexName, "indexName不能为空");
-        try {
-            IndexRequest request = new IndexRequest(indexName);
-            if (map.get("id") != null) {
-                request.id(map.get("id").toString());
-            }
-            request.source(map);
-            IndexResponse response = client.index(request, RequestOptions.DEFAULT);
-            LOGGER.info("索引{}新增数据，响应:{}", indexName, response);
-            if (response.getResult() == DocWriteResponse.Result.CREATED) {
-                return true;
-            }
-            LOGGER.error("索引{}新增数据失败！", indexName);
-            return false;
-        } catch (Exception e) {
-            e.printStackTrace();
-            LOGGER.error("索引数据新增失败:{}", e);
-            throw e;
-        }
+        Objects.requireNonNull(outputDir, "outputDir不能为空");
+        return new SlicedScrollExporter(client).export(indexName, query == null ? QueryBuilders.matchAllQuery() : query,
+                slices, outputDir);
+    }
+
+    /**
+     * 按@Id批量局部更新，整个实体作为doc合并到已有文档；开启detect_noop，内容没有变化的文档服务端不重新索引，
+     * 文档不存在的条目进入死信
+     *
+     * @param indexName
+     * @param list
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public <T> BulkResult bulkUpdate(String indexName, List<T> list) {
+        return bulkUpdate(indexName, list, Collections.emptyMap());
     }
 
-    public <T> BulkResponse bulkIndex(String indexName, List<T> list) {
+    /**
+     * 按@Id批量局部更新，previous中有同一_id修改前的快照时只发送变化的字段，完全没有变化的文档不发送（不计入total）；
+     * 没有快照的文档发送整个实体
+     *
+     * @param indexName
+     * @param list
+     * @param previous  _id -> 修改前的实体
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public <T> BulkResult bulkUpdate(String indexName, List<T> list, Map<String, ? extends T> previous) {
         checkString(indexName, "indexName不能为空");
+        Objects.requireNonNull(previous, "previous不能为空");
         if (null == list || list.size() == 0) {
-            return null;
-        }
-        String idFieldName = getIdFieldName(list.get(0));
-        if (idFieldName == null) {
-            throw new ElasticsearchException("找不到@Id标注的字段");
+            return BulkResult.EMPTY;
         }
-        try {
-            BulkRequest bulkRequest = new BulkRequest();
-            ObjectMapper mapper = getObjectMapper();
-            IndexRequest request = null;
-            for (T data : list) {
-                request = new IndexRequest(indexName);
-                Object val = getVal(idFieldName, data);
-                if (val != null) {
-                    request.id(val.toString());
+        Map<String, String> locations = locate(indexName, ids(list));
+        BulkRequest bulkRequest = new BulkRequest();
+        int dead = 0;
+        int unchanged = 0;
+        for (T data : list) {
+            String id = requireId(data);
+            T old = previous.get(id);
+            Object doc = data;
+            if (old != null) {
+                ObjectNode changed = bulkSerializer.diff(old, data);
+                if (changed.size() == 0) {
+                    unchanged++;
+                    continue;
                 }
-                request.source(mapper.writeValueAsString(data), XContentType.JSON);
-                bulkRequest.add(request);
+                doc = changed;
             }
-            BulkResponse response = client.bulk(bulkRequest, RequestOptions.DEFAULT);
-            if (response.hasFailures()) {
-//                TODO
+            UpdateRequest request = entityUpdateRequest(locations.getOrDefault(id, indexName), id, doc);
+            if (request == null) {
+                dead++;
+            } else {
+                bulkRequest.add(request.detectNoop(true));
             }
-            return response;
-        } catch (Exception e) {
-            LOGGER.error("批量插入索引失败:{}", e);
         }
-        return null;
+        if (unchanged > 0) {
+            sampledLogger.info("批量更新索引{}，{}条数据没有变化，未发送", indexName, unchanged);
+        }
+        return executeBulk(indexName, bulkRequest, dead);
     }
 
-    private BulkProcessor init() {
-        BulkProcessor.Listener listener = new BulkProcessor.Listener() {
-            @Override
-            public void beforeBulk(long executionId, BulkRequest request) {
-                LOGGER.info("---尝试插入{}条数据---", request.numberOfActions());
-            }
-
-            @Override
-            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
-                LOGGER.info("---尝试插入{}条数据成功---", request.numberOfActions());
-            }
-
-            @Override
-            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
-                LOGGER.error("---尝试插入数据失败---", failure);
+    /**
+     * 按@Id批量upsert，文档存在时合并（detect_noop），不存在时以整个实体创建
+     *
+     * @param indexName
+     * @param list
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public <T> BulkResult bulkUpsert(String indexName, List<T> list) {
+        checkString(indexName, "indexName不能为空");
+        if (null == list || list.size() == 0) {
+            return BulkResult.EMPTY;
+        }
+        Map<String, String> locations = locate(indexName, ids(list));
+        BulkRequest bulkRequest = new BulkRequest();
+        int dead = 0;
+        for (T data : list) {
+            String id = requireId(data);
+            UpdateRequest request = entityUpdateRequest(locations.getOrDefault(id, indexName), id, data);
+            if (request == null) {
+                dead++;
+            } else {
+                bulkRequest.add(request.docAsUpsert(true).detectNoop(true));
             }
-        };
-
-        return BulkProcessor.builder((request, bulkListener) ->
-                client.bulkAsync(request, RequestOptions.DEFAULT, bulkListener), listener)
-                .setBulkActions(10000)
-                .setBulkSize(new ByteSizeValue(10, ByteSizeUnit.MB))
-                .setFlushInterval(TimeValue.timeValueSeconds(5))
-                .setConcurrentRequests(2)
-                .build();
+        }
+        return executeBulk(indexName, bulkRequest, dead);
     }
 
-    public <T> void bulkIndexWithProcessor(String indexName, List<T> list) {
+    /**
+     * 按@Id批量删除，文档不存在不视为失败
+     *
+     * @param indexName
+     * @param list
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public <T> BulkResult bulkDelete(String indexName, List<T> list) {
         checkString(indexName, "indexName不能为空");
         if (null == list || list.size() == 0) {
-            return;
-        }
-        String idFieldName = getIdFieldName(list.get(0));
-        if (idFieldName == null) {
-            throw new ElasticsearchException("找不到@Id标注的字段");
+            return BulkResult.EMPTY;
         }
-
-        try {
-            BulkProcessor bulkProcessor = init();
-            ObjectMapper mapper = getObjectMapper();
-            IndexRequest request = null;
-            for (T data : list) {
-                request = new IndexRequest(indexName);
-                Object val = getVal(idFieldName, data);
-                if (val != null) {
-                    request.id(val.toString());
-                }
-                request.source(mapper.writeValueAsString(data), XContentType.JSON);
-                bulkProcessor.add(request);
-            }
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
+        Map<String, String> locations = locate(indexName, ids(list));
+        BulkRequest bulkRequest = new BulkRequest();
+        for (T data : list) {
+            String id = requireId(data);
+            bulkRequest.add(new DeleteRequest(locations.getOrDefault(id, indexName), id));
         }
+        return executeBulk(indexName, bulkRequest, 0);
     }
 
-//    public <T> boolean bulkUpdate();
-//    public <T> boolean bulkDelete();
-
     /**
      * 根据条件删除索引数据
      *
@@ -303,23 +1245,97 @@ public class ElasticsearchRepository {
             checkString(index, "indexName不能为空");
         }
         Objects.requireNonNull(query, "查询条件不能为空");
+        DeleteByQueryRequest request = deleteByQueryRequest(query, indexName);
+        try {
+            BulkByScrollResponse response = timed("delete_by_query",
+                    () -> client.deleteByQuery(request, RequestOptions.DEFAULT), r -> r.getTook().millis());
+            written(false, indexName);
+            return isDeleted(response);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * 以后台任务方式根据条件删除，立即返回任务句柄；默认自动slice、不限速、完成时不refresh
+     *
+     * @param query
+     * @param indexName
+     * @return org.dynasty.elasticsearch.demo.task.DeleteByQueryTask
+     */
+    public DeleteByQueryTask submitDeleteByQuery(QueryBuilder query, String... indexName) throws IOException {
+        return submitDeleteByQuery(query, DeleteByQueryOptions.defaults(), indexName);
+    }
+
+    /**
+     * 以后台任务方式根据条件删除（wait_for_completion=false），通过返回的句柄查询进度、取消或等待完成；
+     * 提交后立即使查询缓存失效，任务在后台跟踪，完成后再次使查询缓存失效，逐条失败写入死信，调用方不需要轮询
+     *
+     * @param query
+     * @param options
+     * @param indexName
+     * @return org.dynasty.elasticsearch.demo.task.DeleteByQueryTask
+     */
+    public DeleteByQueryTask submitDeleteByQuery(QueryBuilder query, DeleteByQueryOptions options, String... indexName)
+            throws IOException {
+        for (String index : indexName) {
+            checkString(index, "indexName不能为空");
+        }
+        Objects.requireNonNull(query, "查询条件不能为空");
+        Objects.requireNonNull(options, "options不能为空");
+        DeleteByQueryRequest request = new DeleteByQueryRequest(indexName);
+        request.setQuery(query);
+        request.setSlices(options.getSlices());
+        request.setBatchSize(options.getBatchSize());
+        request.setRefresh(options.isRefresh());
+        request.setAbortOnVersionConflict(!options.isProceedOnConflicts());
+        if (options.getRequestsPerSecond() > 0) {
+            request.setRequestsPerSecond(options.getRequestsPerSecond());
+        }
+        String taskId = timed("delete_by_query_submit",
+                () -> client.submitDeleteByQueryTask(request, RequestOptions.DEFAULT), r -> -1).getTask();
+        LOGGER.info("提交根据条件删除任务{}，索引:{}", taskId, Arrays.toString(indexName));
+        written(false, indexName);
+        DeleteByQueryTask task = new DeleteByQueryTask(client.getLowLevelClient(), taskId, progress -> {
+            written(false, indexName);
+            progress.getFailures().forEach(bulkRetryExecutor.getDeadLetterSink()::write);
+            if (progress.isSucceeded()) {
+                LOGGER.info("根据条件删除任务完成:{}", progress);
+            } else {
+                LOGGER.error("根据条件删除任务未全部成功:{}, error={}", progress, progress.getError());
+            }
+        });
+        task.watch(taskWatcher);
+        return task;
+    }
+
+    DeleteByQueryRequest deleteByQueryRequest(QueryBuilder query, String... indexName) {
         DeleteByQueryRequest request = new DeleteByQueryRequest(indexName);
         request.setQuery(query);
         request.setTimeout(TimeValue.timeValueSeconds(5));
         request.setRefresh(true);
 //        request.setMaxDocs(10);
-        BulkByScrollResponse response = null;
-        try {
-            response = client.deleteByQuery(request, RequestOptions.DEFAULT);
-            LOGGER.info(response.toString());
-            if (response.getBulkFailures().size() > 0) {
-//                TODO
+        return request;
+    }
+
+    boolean isDeleted(BulkByScrollResponse response) {
+        sampledLogger.info("根据条件删除数据，响应:{}", response);
+        if (response.getBulkFailures().size() > 0 || response.getSearchFailures().size() > 0) {
+            DeadLetterSink deadLetterSink = bulkRetryExecutor.getDeadLetterSink();
+            for (BulkItemResponse.Failure failure : response.getBulkFailures()) {
+                deadLetterSink.write(new DeadLetter(failure.getIndex(), failure.getId(), "delete",
+                        failure.getStatus().getStatus(), failure.getMessage(), null, null));
             }
-            return true;
-        } catch (IOException e) {
-            e.printStackTrace();
+            for (ScrollableHitSource.SearchFailure failure : response.getSearchFailures()) {
+                LOGGER.error("根据条件删除数据时查询失败:index={}, shard={}, node={}", failure.getIndex(),
+                        failure.getShardId(), failure.getNodeId(), failure.getReason());
+            }
+            LOGGER.error("根据条件删除数据部分失败：bulkFailures={}, searchFailures={}",
+                    response.getBulkFailures().size(), response.getSearchFailures().size());
+            return false;
         }
-        return false;
+        return true;
     }
 
     /**
@@ -332,11 +1348,12 @@ public class ElasticsearchRepository {
         for (String index : indexName) {
             checkString(index, "indexName不能为空");
         }
-        DeleteIndexRequest request = new DeleteIndexRequest(indexName);
-        //Timeout to wait for the all the nodes to acknowledge the index deletion as a TimeValue
-        request.timeout(TimeValue.timeValueMinutes(2));
+        DeleteIndexRequest request = deleteIndexRequest(indexName);
         try {
-            AcknowledgedResponse response = client.indices().delete(request, RequestOptions.DEFAULT);
+            AcknowledgedResponse response = timed("delete_index",
+                    () -> client.indices().delete(request, RequestOptions.DEFAULT), r -> -1);
+            metadataCache.invalidate(indexName);
+            queryResultCache.invalidate(indexName);
             LOGGER.info(response.toString());
             return response.isAcknowledged();
         } catch (ElasticsearchException | IOException e) {
@@ -352,7 +1369,104 @@ public class ElasticsearchRepository {
         }
     }
 
-    private static void checkString(String indexName, String message) {
+    DeleteIndexRequest deleteIndexRequest(String... indexName) {
+        DeleteIndexRequest request = new DeleteIndexRequest(indexName);
+        //Timeout to wait for the all the nodes to acknowledge the index deletion as a TimeValue
+        request.timeout(TimeValue.timeValueMinutes(2));
+        return request;
+    }
+
+    CreateIndexRequest createIndexRequest(String indexName, Map<String, Object> settings, Map<String, Object> mappings) {
+        CreateIndexRequest request = new CreateIndexRequest(indexName);
+        buildSetting(request, settings);
+        buildIndexMapping(request, mappings);
+        return request;
+    }
+
+    CreateIndexRequest createIndexRequest(String indexName, String settings, String mappings) {
+        CreateIndexRequest request = new CreateIndexRequest(indexName);
+        buildSetting(request, settings);
+        buildIndexMapping(request, mappings);
+        return request;
+    }
+
+    IndexRequest entityIndexRequest(String indexName, EntityMetadata metadata, Object data) throws IOException {
+        return entityIndexRequest(serializer, indexName, metadata, data);
+    }
+
+    private IndexRequest entityIndexRequest(EntitySerializer serializer, String indexName, EntityMetadata metadata,
+                                            Object data) throws IOException {
+        IndexRequest request = new IndexRequest(indexName);
+        String id = metadata.getIdAsString(data);
+        if (id != null) {
+            request.id(id);
+        }
+        long begin = System.nanoTime();
+        serializer.source(request, data);
+        metrics.recordSerialization(System.nanoTime() - begin, request.source().length());
+        return request;
+    }
+
+    IndexRequest mapIndexRequest(String indexName, Map<String, Object> map) {
+        IndexRequest request = new IndexRequest(indexName);
+        if (map.get("id") != null) {
+            request.id(map.get("id").toString());
+        }
+        return request.source(map, serializer.getXContentType());
+    }
+
+    boolean isCreated(String indexName, IndexResponse response) {
+        sampledLogger.info("索引{}新增数据，响应:{}", indexName, response);
+        if (response.getResult() == DocWriteResponse.Result.CREATED) {
+            return true;
+        }
+        LOGGER.error("索引{}新增数据失败！", indexName);
+        return false;
+    }
+
+    /**
+     * 记录同步调用的往返耗时、服务端耗时和在途数
+     *
+     * @param operation
+     * @param call
+     * @param took      响应中的服务端耗时（毫秒），没有时返回-1
+     * @return R
+     */
+    <R> R timed(String operation, ClientCall<R> call, ToLongFunction<R> took) throws IOException {
+        long begin = metrics.begin(operation);
+        R response;
+        try {
+            response = call.execute();
+        } catch (IOException | RuntimeException e) {
+            metrics.end(operation, begin, -1, false);
+            throw e;
+        }
+        metrics.end(operation, begin, took.applyAsLong(response), true);
+        return response;
+    }
+
+    @FunctionalInterface
+    interface ClientCall<R> {
+        R execute() throws IOException;
+    }
+
+    ElasticsearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    RequestOptions getRequestOptions() {
+        return requestOptions;
+    }
+
+    QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    IndexMetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    static void checkString(String indexName, String message) {
         Objects.requireNonNull(indexName == null ? null : (indexName.length() == 0 ? null : indexName), message);
     }
 
@@ -412,61 +1526,19 @@ public class ElasticsearchRepository {
         }
     }
 
-    private static String getIdFieldName(Object object) {
-        if (null == object) {
-            return null;
-        }
-        List<String> idNameList = new LinkedList<>();
-        for (Field field : getFieldsInherited(object.getClass(), "org.dynasty")) {
-//            System.out.println(field.getName());
-            if (field.isAnnotationPresent(org.dynasty.elasticsearch.demo.annotations.Id.class)) {
-                idNameList.add(field.getName());
-            }
-        }
-        if (idNameList.size() == 0) {
-            return null;
-        }
-        //（若父类和子类都有字段被@Id标记)）优先取当前类@Id标注的字段
-        return idNameList.get(0);
-    }
-
-    private static List<Field> getFieldsInherited(Class clazz, String packageName) {
-        List<Field> fieldList = new LinkedList<>();
-        boolean flag = true;
-        while (flag) {
-            if (clazz.getPackage().toString().contains(packageName)) {
-                fieldList.addAll(Arrays.asList(clazz.getDeclaredFields()));
-                clazz = clazz.getSuperclass();
-            } else {
-                flag = false;
-                break;
-            }
-        }
-        return fieldList;
-    }
-
-    private static Object getVal(String field, Object target) {
-        checkString(field, "field不能为空");
-        Objects.requireNonNull(target, "target不能为空");
-        try {
-            List<Field> fieldsInherited = getFieldsInherited(target.getClass(), "org.dynasty");
-            for (Field f : fieldsInherited) {
-                if (f.getName().equals(field) && !f.isAccessible()) {
-                    f.setAccessible(true);
-                    return f.get(target);
-                }
-            }
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
+    /**
+     * 获取实体元数据（按Class缓存），实体没有@Id标注的字段时抛出异常
+     *
+     * @param object
+     * @return org.dynasty.elasticsearch.demo.metadata.EntityMetadata
+     */
+    static EntityMetadata getEntityMetadata(Object object) {
+        Objects.requireNonNull(object, "数据不能为空");
+        EntityMetadata metadata = EntityMetadataRegistry.of(object);
+        if (!metadata.hasId()) {
+            throw new ElasticsearchException("找不到@Id标注的字段");
         }
-        return null;
-    }
-
-    private ObjectMapper getObjectMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        objectMapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
-        return objectMapper;
+        return metadata;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package org.dynasty.elasticsearch.demo.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * 指定字段生成mapping的方式，没有标注的字段按Java类型推断；只有getter的属性标注在getter上
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 22:00:00
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface Field {
+
+    /**
+     * 字段类型，默认按Java类型推断（String推断为keyword）
+     */
+    FieldType type() default FieldType.AUTO;
+
+    /**
+     * 为false时不建索引，字段不能被查询，只保存在_source中（或只用于聚合/排序）
+     */
+    boolean index() default true;
+
+    /**
+     * 为false时不生成doc_values，字段不能用于排序和聚合
+     */
+    boolean docValues() default true;
+
+    /**
+     * 为false时不保存norms（text字段不需要相关性打分时关闭）
+     */
+    boolean norms() default true;
+
+    /**
+     * text字段的分词器
+     */
+    String analyzer() default "";
+
+    /**
+     * date字段的格式
+     */
+    String format() default "";
+
+    /**
+     * scaled_float字段的缩放系数
+     */
+    double scalingFactor() default 0;
+
+    /**
+     * keyword字段超过该长度（字符数）的值不建索引，只保存在_source中；
+     * 默认与dynamic mapping相同为256，0表示不限制（超过Lucene单个term 32KB的值会使整个文档写入失败）
+     */
+    int ignoreAbove() default -1;
+
+    /**
+     * 为true时不生成该字段的mapping（字段不会被序列化时使用）
+     */
+    boolean ignore() default false;
+
+}
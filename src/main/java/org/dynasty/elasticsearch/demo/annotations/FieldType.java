@@ -0,0 +1,46 @@
+package org.dynasty.elasticsearch.demo.annotations;
+
+/**
+ * 字段在mapping中的类型
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 22:00:00
+ */
+public enum FieldType {
+
+    /**
+     * 按Java类型推断
+     */
+    AUTO(null),
+    TEXT("text"),
+    KEYWORD("keyword"),
+    LONG("long"),
+    INTEGER("integer"),
+    SHORT("short"),
+    BYTE("byte"),
+    DOUBLE("double"),
+    FLOAT("float"),
+    HALF_FLOAT("half_float"),
+    SCALED_FLOAT("scaled_float"),
+    DATE("date"),
+    BOOLEAN("boolean"),
+    BINARY("binary"),
+    OBJECT("object"),
+    NESTED("nested");
+
+    private final String name;
+
+    FieldType(String name) {
+        this.name = name;
+    }
+
+    /**
+     * mapping中的类型名
+     *
+     * @return java.lang.String
+     */
+    public String getName() {
+        return name;
+    }
+
+}
@@ -9,4 +9,9 @@ import java.lang.annotation.*;
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.FIELD})
 public @interface Id {
+
+    /**
+     * 值可以为空，为空时由ES生成_id；search_after翻页时会在@Id字段之后追加_id排序，避免跳过@Id为空的文档
+     */
+    boolean generated() default false;
 }
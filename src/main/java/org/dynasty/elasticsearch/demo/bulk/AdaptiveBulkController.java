@@ -0,0 +1,143 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 根据每次bulk的往返耗时、服务端took和过载的条数调整批大小和并发数（AIMD）
+ * <ul>
+ * <li>条目返回429/503/504，或请求因过载失败（{@link BulkRetryExecutor#isOverloaded(Exception)}）：
+ * 批大小和并发数按衰减系数同时收缩</li>
+ * <li>服务端took超过目标值：集群本身处理慢，批大小和并发数同时收缩</li>
+ * <li>只有往返耗时超过目标值：耗时在传输和排队上，只收缩批大小</li>
+ * <li>其余情况：批大小按步长增加，达到上限后再增加一个并发</li>
+ * </ul>
+ * 其他失败（如请求本身不合法）与负载无关，不调整。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 15:20:00
+ */
+public class AdaptiveBulkController {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(AdaptiveBulkController.class);
+
+    private final String name;
+
+    private final AdaptiveBulkProfile profile;
+
+    private final AdaptiveLimiter limiter;
+
+    private long bulkSizeBytes;
+
+    private int concurrentRequests;
+
+    private long bulks;
+
+    private long rejectedItems;
+
+    private long increases;
+
+    private long decreases;
+
+    private long lastRoundTripMillis;
+
+    private long lastTookMillis;
+
+    private String lastDecision = "init";
+
+    AdaptiveBulkController(String name, AdaptiveBulkProfile profile, long initialBulkSize, int initialConcurrentRequests) {
+        this.name = name;
+        this.profile = profile;
+        this.bulkSizeBytes = clamp(initialBulkSize, profile.getMinBulkSize().toBytes(), profile.getMaxBulkSize().toBytes());
+        this.concurrentRequests = (int) clamp(initialConcurrentRequests,
+                profile.getMinConcurrentRequests(), profile.getMaxConcurrentRequests());
+        this.limiter = new AdaptiveLimiter(concurrentRequests);
+    }
+
+    AdaptiveLimiter getLimiter() {
+        return limiter;
+    }
+
+    public synchronized long getBulkSizeBytes() {
+        return bulkSizeBytes;
+    }
+
+    public synchronized int getConcurrentRequests() {
+        return concurrentRequests;
+    }
+
+    synchronized void onResponse(BulkResponse response, long roundTripNanos) {
+        bulks++;
+        lastRoundTripMillis = TimeUnit.NANOSECONDS.toMillis(roundTripNanos);
+        lastTookMillis = response.getTook().millis();
+        int rejected = 0;
+        for (BulkItemResponse item : response.getItems()) {
+            if (item.isFailed() && BulkRetryExecutor.isRetryable(item.status())) {
+                rejected++;
+            }
+        }
+        rejectedItems += rejected;
+        long target = profile.getTargetLatency().toMillis();
+        if (rejected > 0) {
+            decrease(true, "rejected " + rejected + " items");
+        } else if (lastTookMillis > target) {
+            decrease(true, "took " + lastTookMillis + "ms over target");
+        } else if (lastRoundTripMillis > target) {
+            decrease(false, "round trip " + lastRoundTripMillis + "ms over target");
+        } else {
+            increase();
+        }
+    }
+
+    synchronized void onFailure(Exception failure) {
+        bulks++;
+        if (BulkRetryExecutor.isOverloaded(failure)) {
+            decrease(true, "request failed: " + failure.getClass().getSimpleName());
+        } else {
+            LOGGER.debug("自适应bulk[{}]请求失败，与负载无关，不调整: {}", name, failure.toString());
+        }
+    }
+
+    public synchronized AdaptiveBulkStats stats() {
+        return new AdaptiveBulkStats(bulkSizeBytes, concurrentRequests, limiter.getInFlight(), bulks, rejectedItems,
+                increases, decreases, lastRoundTripMillis, lastTookMillis, lastDecision);
+    }
+
+    private void increase() {
+        long maxBulkSize = profile.getMaxBulkSize().toBytes();
+        if (bulkSizeBytes < maxBulkSize) {
+            bulkSizeBytes = Math.min(maxBulkSize, bulkSizeBytes + profile.getIncreaseStep().toBytes());
+        } else if (concurrentRequests < profile.getMaxConcurrentRequests()) {
+            concurrentRequests++;
+            limiter.setLimit(concurrentRequests);
+        } else {
+            return;
+        }
+        increases++;
+        lastDecision = "increase";
+        LOGGER.debug("自适应bulk[{}]扩大: bulkSize={}B, concurrent={}, rtt={}ms, took={}ms", name,
+                bulkSizeBytes, concurrentRequests, lastRoundTripMillis, lastTookMillis);
+    }
+
+    private void decrease(boolean concurrency, String reason) {
+        bulkSizeBytes = clamp((long) (bulkSizeBytes * profile.getDecreaseFactor()),
+                profile.getMinBulkSize().toBytes(), profile.getMaxBulkSize().toBytes());
+        if (concurrency) {
+            concurrentRequests = (int) clamp((long) Math.floor(concurrentRequests * profile.getDecreaseFactor()),
+                    profile.getMinConcurrentRequests(), profile.getMaxConcurrentRequests());
+            limiter.setLimit(concurrentRequests);
+        }
+        decreases++;
+        lastDecision = "decrease (" + reason + ")";
+        LOGGER.info("自适应bulk[{}]收缩({}): bulkSize={}B, concurrent={}, rtt={}ms, took={}ms", name, reason,
+                bulkSizeBytes, concurrentRequests, lastRoundTripMillis, lastTookMillis);
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 自适应bulk参数，开启后BulkProcessor的bulkSize和concurrentRequests在上下限之间按AIMD动态调整
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 15:20:00
+ */
+@Getter
+@Setter
+public class AdaptiveBulkProfile {
+
+    private boolean enabled = false;
+
+    private DataSize minBulkSize = DataSize.ofMegabytes(1);
+
+    private DataSize maxBulkSize = DataSize.ofMegabytes(20);
+
+    /**
+     * 每次成功后bulkSize的增量
+     */
+    private DataSize increaseStep = DataSize.ofMegabytes(1);
+
+    private int minConcurrentRequests = 1;
+
+    private int maxConcurrentRequests = 8;
+
+    /**
+     * 单次bulk往返耗时超过该值视为过载
+     */
+    private Duration targetLatency = Duration.ofSeconds(2);
+
+    /**
+     * 过载或出现429时的乘性衰减系数
+     */
+    private double decreaseFactor = 0.5;
+
+}
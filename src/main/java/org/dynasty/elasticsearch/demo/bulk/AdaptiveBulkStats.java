@@ -0,0 +1,44 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 自适应bulk当前状态快照
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 15:20:00
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class AdaptiveBulkStats {
+
+    private final long bulkSizeBytes;
+
+    private final int concurrentRequests;
+
+    private final int inFlight;
+
+    private final long bulks;
+
+    private final long rejectedItems;
+
+    private final long increases;
+
+    private final long decreases;
+
+    /**
+     * 最近一次bulk客户端往返耗时
+     */
+    private final long lastRoundTripMillis;
+
+    /**
+     * 最近一次bulk服务端took
+     */
+    private final long lastTookMillis;
+
+    private final String lastDecision;
+
+}
@@ -0,0 +1,40 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+/**
+ * 可动态调整上限的信号量，用于控制在途bulk请求数
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 15:20:00
+ */
+final class AdaptiveLimiter {
+
+    private int limit;
+
+    private int inFlight;
+
+    AdaptiveLimiter(int limit) {
+        this.limit = limit;
+    }
+
+    synchronized void acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    synchronized void setLimit(int limit) {
+        this.limit = limit;
+        notifyAll();
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+}
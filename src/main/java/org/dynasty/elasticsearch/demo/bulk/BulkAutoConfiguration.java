@@ -0,0 +1,27 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+/**
+ * bulk相关的默认组件，可通过定义同类型的bean替换
+ * <p>
+ * 通过META-INF/spring.factories注册为自动配置（组件扫描会跳过），在用户定义的bean全部注册之后才处理，
+ * 保证{@link ConditionalOnMissingBean}能看到用户自定义的bean。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 16:05:00
+ */
+@Configuration
+public class BulkAutoConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(DeadLetterSink.class)
+    public NdjsonFileDeadLetterSink deadLetterSink(BulkProperties properties) {
+        return new NdjsonFileDeadLetterSink(Paths.get(properties.getRetry().getDeadLetterPath()));
+    }
+
+}
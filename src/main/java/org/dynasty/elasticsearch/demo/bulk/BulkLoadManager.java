@@ -0,0 +1,417 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dynasty.elasticsearch.demo.cache.IndexMetadataCache;
+import org.dynasty.elasticsearch.demo.client.ClientProperties;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthRequest;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.ListTasksRequest;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.ListTasksResponse;
+import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeAction;
+import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.tasks.TaskInfo;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导入会话管理
+ * <p>
+ * 打开会话前先把索引原始的refresh_interval和number_of_replicas写入状态文件，再切换为导入设置；
+ * 索引名是别名或通配符时先解析为具体索引，原始settings按具体索引分别保存和恢复，
+ * 会话期间滚动出的新索引不在会话内，保持其创建时的settings。
+ * 会话正常关闭、超时被遗弃或Spring容器关闭时恢复原始settings并删除状态文件。
+ * 进程崩溃遗留的状态文件在下次启动时恢复，保证索引不会一直停留在无副本、不refresh的状态。
+ * 结束时的force merge和等待green可能远超客户端的socket超时（7.6的客户端不支持按请求设置）：
+ * force merge请求超时后合并仍在服务端继续，转为轮询任务列表；等待green拆成多次不超过socket超时的健康检查。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 13:10:00
+ */
+@Component
+public class BulkLoadManager implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(BulkLoadManager.class);
+
+    static final String REFRESH_INTERVAL = "index.refresh_interval";
+
+    static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final RestHighLevelClient client;
+
+    private final BulkLoadProperties properties;
+
+    private final IndexMetadataCache metadataCache;
+
+    private final ClientProperties clientProperties;
+
+    private final Map<String, BulkLoadSession> sessions = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "es-bulk-load-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public BulkLoadManager(RestHighLevelClient client, BulkLoadProperties properties, IndexMetadataCache metadataCache,
+                           ClientProperties clientProperties) {
+        this.client = client;
+        this.properties = properties;
+        this.metadataCache = metadataCache;
+        this.clientProperties = clientProperties;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (properties.isRestoreOnStartup()) {
+            restoreStale();
+        }
+    }
+
+    /**
+     * 打开导入会话，同一索引同时只能有一个会话
+     *
+     * @param indexName
+     * @param options
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkLoadSession
+     */
+    public synchronized BulkLoadSession open(String indexName, BulkLoadOptions options) throws IOException {
+        if (sessions.containsKey(indexName)) {
+            throw new ElasticsearchException("索引{}已有未关闭的导入会话", indexName);
+        }
+        Path state = statePath(indexName);
+        Map<String, Map<String, String>> original;
+        if (Files.exists(state)) {
+            // 上一个会话没有恢复成功，当前settings已经是导入设置，沿用状态文件中的原始值
+            original = readState(state, indexName);
+            LOGGER.warn("---索引{}存在未恢复的导入会话，沿用其原始settings:{}---", indexName, original);
+        } else {
+            original = currentSettings(indexName);
+            checkOverlap(indexName, original.keySet());
+            writeState(state, indexName, original);
+        }
+        try {
+            updateSettings(indexName, original.keySet(), Settings.builder()
+                    .put(REFRESH_INTERVAL, options.getRefreshInterval())
+                    .put(NUMBER_OF_REPLICAS, options.getReplicas())
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            restoreQuietly(indexName, original);
+            throw e;
+        }
+        BulkLoadSession session = new BulkLoadSession(this, indexName, options, original);
+        sessions.put(indexName, session);
+        Duration timeout = options.getTimeout() == null ? properties.getTimeout() : options.getTimeout();
+        session.setWatchdog(watchdog.schedule(() -> abandon(session), timeout.toMillis(), TimeUnit.MILLISECONDS));
+        LOGGER.info("---索引{}开始导入，原始settings:{}---", indexName, original);
+        return session;
+    }
+
+    /**
+     * 当前打开的会话
+     *
+     * @return java.util.List
+     */
+    public List<BulkLoadSession> getSessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    void finish(BulkLoadSession session) throws IOException {
+        if (!session.markClosed()) {
+            return;
+        }
+        String indexName = session.getIndexName();
+        BulkLoadOptions options = session.getOptions();
+        try {
+            // 副本恢复前合并，合并后的段直接复制到副本，避免每个副本各自合并
+            if (options.getMaxNumSegments() > 0) {
+                forceMerge(indexName, options);
+            }
+        } finally {
+            sessions.remove(indexName);
+            restore(indexName, session.getOriginalSettings());
+        }
+        if (options.isRefresh()) {
+            client.indices().refresh(new RefreshRequest(indexName), RequestOptions.DEFAULT);
+        }
+        if (options.getWaitForGreen() != null) {
+            waitForGreen(indexName, options.getWaitForGreen());
+        }
+        LOGGER.info("---索引{}导入结束，耗时{}ms---", indexName, System.currentTimeMillis() - session.getOpenedAt());
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+        for (BulkLoadSession session : getSessions()) {
+            if (session.markClosed()) {
+                sessions.remove(session.getIndexName());
+                restoreQuietly(session.getIndexName(), session.getOriginalSettings());
+            }
+        }
+    }
+
+    /**
+     * 请求在socket超时内返回即合并完成；超时后合并仍在服务端继续，轮询任务列表直到合并结束或超过forceMergeTimeout
+     */
+    private void forceMerge(String indexName, BulkLoadOptions options) throws IOException {
+        Duration timeout = options.getForceMergeTimeout() == null
+                ? properties.getForceMergeTimeout() : options.getForceMergeTimeout();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            client.indices().forcemerge(new ForceMergeRequest(indexName)
+                    .maxNumSegments(options.getMaxNumSegments()), RequestOptions.DEFAULT);
+            return;
+        } catch (SocketTimeoutException e) {
+            LOGGER.info("---索引{}的force merge超过socket超时，等待合并任务结束---", indexName);
+        }
+        while (isForceMerging(indexName)) {
+            if (System.nanoTime() - deadline >= 0) {
+                LOGGER.warn("---索引{}的force merge在{}内未结束，不再等待---", indexName, timeout);
+                return;
+            }
+            try {
+                Thread.sleep(properties.getPollInterval().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待索引" + indexName + "的force merge被中断");
+            }
+        }
+    }
+
+    private boolean isForceMerging(String indexName) throws IOException {
+        ListTasksResponse response = client.tasks().list(new ListTasksRequest()
+                .setActions(ForceMergeAction.NAME + "*").setDetailed(true), RequestOptions.DEFAULT);
+        for (TaskInfo task : response.getTasks()) {
+            // 描述形如 Force-merge indices [index], ...，没有描述时保守地视为该索引的任务
+            String description = task.getDescription();
+            if (Strings.isNullOrEmpty(description) || description.contains("[" + indexName + "]")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 每次健康检查在服务端等待的时间不超过socket超时的一半，直到green或总共等待了waitForGreen
+     */
+    private void waitForGreen(String indexName, TimeValue waitForGreen) throws IOException {
+        long deadline = System.nanoTime() + waitForGreen.nanos();
+        long step = Math.max(1, clientProperties.getSocketTimeout().toMillis() / 2);
+        while (true) {
+            long remaining = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            ClusterHealthResponse health = client.cluster().health(new ClusterHealthRequest(indexName)
+                    .waitForGreenStatus().timeout(TimeValue.timeValueMillis(Math.min(remaining, step))),
+                    RequestOptions.DEFAULT);
+            if (!health.isTimedOut()) {
+                return;
+            }
+            if (remaining <= step) {
+                LOGGER.warn("---索引{}在{}内未恢复为green，当前状态:{}---", indexName, waitForGreen, health.getStatus());
+                return;
+            }
+        }
+    }
+
+    private void abandon(BulkLoadSession session) {
+        if (!session.markClosed()) {
+            return;
+        }
+        LOGGER.warn("---索引{}的导入会话超时未关闭，恢复原始settings---", session.getIndexName());
+        sessions.remove(session.getIndexName());
+        restoreQuietly(session.getIndexName(), session.getOriginalSettings());
+    }
+
+    private void restoreStale() {
+        Path dir = Paths.get(properties.getStateDir());
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path file : files) {
+                String indexName = file.getFileName().toString();
+                indexName = indexName.substring(0, indexName.length() - ".json".length());
+                try {
+                    Map<String, Map<String, String>> original = readState(file, indexName);
+                    LOGGER.warn("---索引{}存在上次遗留的导入会话，恢复原始settings:{}---", indexName, original);
+                    restore(indexName, original);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("---恢复索引{}的原始settings失败，保留状态文件{}---", indexName, file, e);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("---读取导入会话状态目录{}失败---", dir, e);
+        }
+    }
+
+    /**
+     * 别名和具体索引、或多个通配符可能覆盖同一个索引，先关闭的会话会提前恢复另一个会话的settings
+     */
+    private void checkOverlap(String indexName, Set<String> indices) {
+        for (BulkLoadSession session : sessions.values()) {
+            for (String index : session.getOriginalSettings().keySet()) {
+                if (indices.contains(index)) {
+                    throw new ElasticsearchException("索引{}已在{}的导入会话中", index, session.getIndexName());
+                }
+            }
+        }
+    }
+
+    private void restoreQuietly(String indexName, Map<String, Map<String, String>> original) {
+        try {
+            restore(indexName, original);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("---恢复索引{}的原始settings失败，保留状态文件---", indexName, e);
+        }
+    }
+
+    /**
+     * 按具体索引分别恢复原始settings，全部成功后删除状态文件；已被删除的索引跳过
+     */
+    private void restore(String indexName, Map<String, Map<String, String>> original) throws IOException {
+        for (Map.Entry<String, Map<String, String>> entry : original.entrySet()) {
+            Settings.Builder settings = Settings.builder();
+            entry.getValue().forEach((key, value) -> {
+                if (value == null) {
+                    settings.putNull(key);
+                } else {
+                    settings.put(key, value);
+                }
+            });
+            try {
+                updateSettings(indexName, Collections.singleton(entry.getKey()), settings.build());
+            } catch (ElasticsearchException e) {
+                if (e.status() != RestStatus.NOT_FOUND) {
+                    throw e;
+                }
+                LOGGER.warn("---索引{}已不存在，无需恢复settings---", entry.getKey());
+            }
+        }
+        Files.deleteIfExists(statePath(indexName));
+    }
+
+    private void updateSettings(String indexName, Set<String> indices, Settings settings) throws IOException {
+        try {
+            client.indices().putSettings(new UpdateSettingsRequest(indices.toArray(new String[0])).settings(settings),
+                    RequestOptions.DEFAULT);
+        } finally {
+            metadataCache.invalidate(indexName);
+            indices.forEach(metadataCache::invalidate);
+        }
+    }
+
+    /**
+     * 响应按具体索引返回，别名和通配符在这里展开
+     */
+    private Map<String, Map<String, String>> currentSettings(String indexName) throws IOException {
+        GetSettingsResponse response = client.indices().getSettings(new GetSettingsRequest().indices(indexName),
+                RequestOptions.DEFAULT);
+        Map<String, Map<String, String>> original = new TreeMap<>();
+        Iterator<String> indices = response.getIndexToSettings().keysIt();
+        while (indices.hasNext()) {
+            String index = indices.next();
+            Map<String, String> settings = new LinkedHashMap<>();
+            settings.put(REFRESH_INTERVAL, response.getSetting(index, REFRESH_INTERVAL));
+            settings.put(NUMBER_OF_REPLICAS, response.getSetting(index, NUMBER_OF_REPLICAS));
+            original.put(index, settings);
+        }
+        if (original.isEmpty()) {
+            throw new ElasticsearchException("{}没有匹配到任何索引", indexName);
+        }
+        return original;
+    }
+
+    Path statePath(String indexName) {
+        return Paths.get(properties.getStateDir(), indexName + ".json");
+    }
+
+    private void writeState(Path state, String indexName, Map<String, Map<String, String>> original)
+            throws IOException {
+        Files.createDirectories(state.toAbsolutePath().getParent());
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("index", indexName);
+        node.put("opened", System.currentTimeMillis());
+        ObjectNode indices = node.putObject("indices");
+        original.forEach((index, settings) -> settings.forEach(indices.putObject(index)::put));
+        Path tmp = state.resolveSibling(state.getFileName() + ".tmp");
+        Files.write(tmp, MAPPER.writeValueAsBytes(node));
+        try {
+            Files.move(tmp, state, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, state, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 旧格式的状态文件只有一组settings，按会话的索引名恢复
+     */
+    private static Map<String, Map<String, String>> readState(Path state, String indexName) throws IOException {
+        JsonNode node = MAPPER.readTree(state.toFile());
+        Map<String, Map<String, String>> original = new TreeMap<>();
+        if (node.path("indices").isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> indices = node.path("indices").fields();
+            while (indices.hasNext()) {
+                Map.Entry<String, JsonNode> index = indices.next();
+                original.put(index.getKey(), readSettings(state, index.getValue()));
+            }
+        } else {
+            original.put(indexName, readSettings(state, node.path("settings")));
+        }
+        return original;
+    }
+
+    private static Map<String, String> readSettings(Path state, JsonNode settings) {
+        if (!settings.isObject()) {
+            throw new ElasticsearchException("导入会话状态文件{}内容无效", state);
+        }
+        Map<String, String> original = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = settings.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            original.put(field.getKey(), field.getValue().isNull() ? null : field.getValue().asText());
+        }
+        return original;
+    }
+
+}
@@ -0,0 +1,121 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * 导入会话参数
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 13:10:00
+ */
+public class BulkLoadOptions {
+
+    /**
+     * 导入期间的refresh_interval，-1表示关闭自动refresh
+     */
+    private String refreshInterval = "-1";
+
+    /**
+     * 导入期间的副本数
+     */
+    private int replicas = 0;
+
+    /**
+     * 结束时force merge到的段数，小于等于0表示不合并
+     */
+    private int maxNumSegments = 0;
+
+    /**
+     * 等待force merge完成的最长时间，为null时使用easy-es.bulk-load.force-merge-timeout
+     */
+    private Duration forceMergeTimeout;
+
+    /**
+     * 结束时是否refresh，使数据立即可查
+     */
+    private boolean refresh = true;
+
+    /**
+     * 结束时等待索引变为green的最长时间，为null表示不等待
+     */
+    private TimeValue waitForGreen;
+
+    /**
+     * 超过该时间仍未关闭的会话视为被遗弃，自动恢复原始settings，为null时使用easy-es.bulk-load.timeout
+     */
+    private Duration timeout;
+
+    public static BulkLoadOptions defaults() {
+        return new BulkLoadOptions();
+    }
+
+    public String getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public BulkLoadOptions refreshInterval(String refreshInterval) {
+        this.refreshInterval = Objects.requireNonNull(refreshInterval, "refreshInterval不能为空");
+        return this;
+    }
+
+    public int getReplicas() {
+        return replicas;
+    }
+
+    public BulkLoadOptions replicas(int replicas) {
+        if (replicas < 0) {
+            throw new IllegalArgumentException("replicas不能小于0");
+        }
+        this.replicas = replicas;
+        return this;
+    }
+
+    public int getMaxNumSegments() {
+        return maxNumSegments;
+    }
+
+    public BulkLoadOptions forceMerge(int maxNumSegments) {
+        this.maxNumSegments = maxNumSegments;
+        return this;
+    }
+
+    public Duration getForceMergeTimeout() {
+        return forceMergeTimeout;
+    }
+
+    public BulkLoadOptions forceMergeTimeout(Duration forceMergeTimeout) {
+        this.forceMergeTimeout = forceMergeTimeout;
+        return this;
+    }
+
+    public boolean isRefresh() {
+        return refresh;
+    }
+
+    public BulkLoadOptions refresh(boolean refresh) {
+        this.refresh = refresh;
+        return this;
+    }
+
+    public TimeValue getWaitForGreen() {
+        return waitForGreen;
+    }
+
+    public BulkLoadOptions waitForGreen(TimeValue waitForGreen) {
+        this.waitForGreen = waitForGreen;
+        return this;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public BulkLoadOptions timeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+}
@@ -0,0 +1,47 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 导入会话配置
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 13:10:00
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "easy-es.bulk-load")
+public class BulkLoadProperties {
+
+    /**
+     * 保存会话开始前原始settings的目录，进程崩溃后下次启动时据此恢复
+     */
+    private String stateDir = "bulk-load-state";
+
+    /**
+     * 会话最长持续时间，超时未关闭视为被遗弃并自动恢复原始settings
+     */
+    private Duration timeout = Duration.ofHours(4);
+
+    /**
+     * 结束时等待force merge完成的最长时间，合并大索引可能需要几十分钟，远超客户端的socket超时
+     */
+    private Duration forceMergeTimeout = Duration.ofHours(1);
+
+    /**
+     * force merge请求超时后轮询合并任务的间隔
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    /**
+     * 启动时恢复上次异常退出遗留的会话
+     */
+    private boolean restoreOnStartup = true;
+
+}
@@ -0,0 +1,90 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 导入会话，打开时关闭索引的自动refresh并去掉副本，关闭时恢复原始settings
+ * <p>
+ * 用try-with-resources包住导入过程；close可重复调用，只有第一次生效。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 13:10:00
+ */
+public class BulkLoadSession implements Closeable {
+
+    private final BulkLoadManager manager;
+
+    private final String indexName;
+
+    private final BulkLoadOptions options;
+
+    private final Map<String, Map<String, String>> originalSettings;
+
+    private final long openedAt = System.currentTimeMillis();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private volatile ScheduledFuture<?> watchdog;
+
+    BulkLoadSession(BulkLoadManager manager, String indexName, BulkLoadOptions options,
+                    Map<String, Map<String, String>> originalSettings) {
+        this.manager = manager;
+        this.indexName = indexName;
+        this.options = options;
+        this.originalSettings = Collections.unmodifiableMap(originalSettings);
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public BulkLoadOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * 会话开始前各个具体索引的settings，值为null表示索引上原本没有显式设置
+     *
+     * @return java.util.Map 具体索引名 -> settings
+     */
+    public Map<String, Map<String, String>> getOriginalSettings() {
+        return originalSettings;
+    }
+
+    public long getOpenedAt() {
+        return openedAt;
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * 按options执行force merge，恢复原始settings，再refresh并等待green
+     */
+    @Override
+    public void close() throws IOException {
+        manager.finish(this);
+    }
+
+    void setWatchdog(ScheduledFuture<?> watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    boolean markClosed() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        ScheduledFuture<?> future = watchdog;
+        if (future != null) {
+            future.cancel(false);
+        }
+        return true;
+    }
+
+}
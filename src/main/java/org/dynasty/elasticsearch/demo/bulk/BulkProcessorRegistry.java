@@ -0,0 +1,190 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.dynasty.elasticsearch.demo.rollover.RolloverManager;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * BulkProcessor注册表
+ * <p>
+ * 每个profile（或未配置profile的索引）共用一个BulkProcessor，使零散的调用汇聚成大批量请求；
+ * Spring容器关闭时提交剩余数据并等待在途请求完成。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 14:40:00
+ */
+@Component
+public class BulkProcessorRegistry implements DisposableBean {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(BulkProcessorRegistry.class);
+
+    private final RestHighLevelClient client;
+
+    private final BulkProperties properties;
+
+    private final BulkRetryExecutor retryExecutor;
+
+    private final ElasticsearchMetrics metrics;
+
+    private final RolloverManager rolloverManager;
+
+    private final Map<String, ManagedBulkProcessor> processors = new ConcurrentHashMap<>();
+
+    private final List<BiConsumer<Set<String>, Set<String>>> writeListeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean closed;
+
+    @Autowired
+    public BulkProcessorRegistry(RestHighLevelClient client, BulkProperties properties, BulkRetryExecutor retryExecutor,
+                                 ElasticsearchMetrics metrics, RolloverManager rolloverManager) {
+        this.client = client;
+        this.properties = properties;
+        this.retryExecutor = retryExecutor;
+        this.metrics = metrics;
+        this.rolloverManager = rolloverManager;
+    }
+
+    /**
+     * 获取写入指定索引使用的BulkProcessor
+     *
+     * @param indexName
+     * @return org.dynasty.elasticsearch.demo.bulk.ManagedBulkProcessor
+     */
+    public ManagedBulkProcessor getProcessor(String indexName) {
+        Objects.requireNonNull(indexName, "indexName不能为空");
+        String profileName = properties.getIndices().get(indexName);
+        if (profileName == null) {
+            return getOrCreate(indexName, properties);
+        }
+        BulkProfile profile = properties.getProfiles().get(profileName);
+        if (profile == null) {
+            throw new IllegalStateException("索引" + indexName + "配置的profile不存在:" + profileName);
+        }
+        return getOrCreate("profile:" + profileName, profile);
+    }
+
+    /**
+     * 已有的BulkProcessor直接返回；创建和关闭都持有processors的锁，关闭开始后不会再创建
+     */
+    private ManagedBulkProcessor getOrCreate(String name, BulkProfile profile) {
+        ManagedBulkProcessor processor = processors.get(name);
+        if (processor != null && !closed) {
+            return processor;
+        }
+        synchronized (processors) {
+            if (closed) {
+                throw new IllegalStateException("BulkProcessorRegistry已关闭");
+            }
+            return processors.computeIfAbsent(name, key -> create(key, profile));
+        }
+    }
+
+    /**
+     * 注册写入监听，每次bulk完成后收到写入涉及的索引和其中有条目写入成功的索引（用于缓存失效等）
+     *
+     * @param listener
+     */
+    public void addWriteListener(BiConsumer<Set<String>, Set<String>> listener) {
+        writeListeners.add(Objects.requireNonNull(listener, "listener不能为空"));
+    }
+
+    /**
+     * 立即提交指定索引缓冲中的数据
+     *
+     * @param indexName
+     */
+    public void flush(String indexName) {
+        getProcessor(indexName).flush();
+    }
+
+    public void flushAll() {
+        processors.values().forEach(ManagedBulkProcessor::flush);
+    }
+
+    /**
+     * 开启了自适应模式的BulkProcessor当前的批大小、并发数和最近一次调整
+     *
+     * @return java.util.Map
+     */
+    public Map<String, AdaptiveBulkStats> getAdaptiveStats() {
+        Map<String, AdaptiveBulkStats> stats = new TreeMap<>();
+        processors.forEach((name, processor) -> {
+            AdaptiveBulkStats adaptiveStats = processor.getAdaptiveStats();
+            if (adaptiveStats != null) {
+                stats.put(name, adaptiveStats);
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * 开启了写入合并的BulkProcessor的收到/提交条数和去重率
+     *
+     * @return java.util.Map
+     */
+    public Map<String, CoalesceStats> getCoalesceStats() {
+        Map<String, CoalesceStats> stats = new TreeMap<>();
+        processors.forEach((name, processor) -> {
+            CoalesceStats coalesceStats = processor.getCoalesceStats();
+            if (coalesceStats != null) {
+                stats.put(name, coalesceStats);
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * 关闭所有BulkProcessor，提交剩余数据并等待在途请求完成
+     *
+     * @param timeout
+     * @param unit
+     * @return boolean 是否全部在超时前完成
+     */
+    public boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+        List<ManagedBulkProcessor> closing;
+        synchronized (processors) {
+            closed = true;
+            closing = new ArrayList<>(processors.values());
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean completed = true;
+        for (ManagedBulkProcessor processor : closing) {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            if (!processor.awaitClose(remaining, TimeUnit.NANOSECONDS)) {
+                LOGGER.warn("BulkProcessor[{}]未能在超时前写完缓冲数据", processor.getName());
+                completed = false;
+            }
+        }
+        processors.clear();
+        return completed;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        awaitClose(properties.getAwaitCloseTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private ManagedBulkProcessor create(String name, BulkProfile profile) {
+        LOGGER.info("创建BulkProcessor[{}]: actions={}, size={}, concurrent={}, flushInterval={}", name,
+                profile.getBulkActions(), profile.getBulkSize(), profile.getConcurrentRequests(), profile.getFlushInterval());
+        return new ManagedBulkProcessor(name, profile, client, retryExecutor, metrics, rolloverManager::guard,
+                (indices, succeeded) -> writeListeners.forEach(listener -> listener.accept(indices, succeeded)),
+                rolloverManager::resolveWriteIndex);
+    }
+
+}
@@ -0,0 +1,49 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * BulkProcessor参数
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 14:40:00
+ */
+@Getter
+@Setter
+public class BulkProfile {
+
+    /**
+     * 累计多少条请求后提交
+     */
+    private int bulkActions = 10000;
+
+    /**
+     * 累计多大的请求体后提交
+     */
+    private DataSize bulkSize = DataSize.ofMegabytes(10);
+
+    /**
+     * 同时在途的bulk请求数，0表示同步提交
+     */
+    private int concurrentRequests = 2;
+
+    /**
+     * 定时提交间隔
+     */
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    /**
+     * 自适应模式，开启后bulkSize和concurrentRequests作为初始值
+     */
+    private AdaptiveBulkProfile adaptive = new AdaptiveBulkProfile();
+
+    /**
+     * 写入合并，同一文档在窗口内的多次写入只提交最后一次
+     */
+    private CoalesceProfile coalesce = new CoalesceProfile();
+
+}
@@ -0,0 +1,64 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * BulkProcessor配置，顶层参数为默认profile
+ * <pre>
+ * easy-es:
+ *   bulk:
+ *     bulk-actions: 10000
+ *     profiles:
+ *       small:
+ *         bulk-actions: 500
+ *     indices:
+ *       document: small
+ * </pre>
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 14:40:00
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "easy-es.bulk")
+public class BulkProperties extends BulkProfile {
+
+    /**
+     * 关闭时等待缓冲数据写完的最长时间
+     */
+    private Duration awaitCloseTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 失败条目的重试和死信
+     */
+    private BulkRetryProperties retry = new BulkRetryProperties();
+
+    /**
+     * Iterator/Stream流式写入
+     */
+    private StreamingBulkProperties streaming = new StreamingBulkProperties();
+
+    /**
+     * NDJSON文件导入
+     */
+    private FileBulkProperties file = new FileBulkProperties();
+
+    /**
+     * 命名profile，多个索引可以共用同一个profile下的BulkProcessor
+     */
+    private Map<String, BulkProfile> profiles = new LinkedHashMap<>();
+
+    /**
+     * 索引名 -> profile名，未配置的索引使用默认参数并独占一个BulkProcessor
+     */
+    private Map<String, String> indices = new LinkedHashMap<>();
+
+}
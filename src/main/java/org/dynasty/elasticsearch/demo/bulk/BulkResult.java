@@ -0,0 +1,54 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 批量写入结果
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 16:05:00
+ */
+@Getter
+@ToString
+public final class BulkResult {
+
+    public static final BulkResult EMPTY = new BulkResult(0, 0, 0, 0);
+
+    /**
+     * 提交的文档数
+     */
+    private final long total;
+
+    /**
+     * 最终写入成功的文档数
+     */
+    private final long succeeded;
+
+    /**
+     * 重试的次数（同一条文档重试多次累计多次）
+     */
+    private final long retried;
+
+    /**
+     * 重试耗尽或不可重试、已交给死信处理的文档数
+     */
+    private final long dead;
+
+    public BulkResult(long total, long succeeded, long retried, long dead) {
+        this.total = total;
+        this.succeeded = succeeded;
+        this.retried = retried;
+        this.dead = dead;
+    }
+
+    public boolean hasFailures() {
+        return dead > 0;
+    }
+
+    public BulkResult merge(BulkResult other) {
+        return new BulkResult(total + other.total, succeeded + other.succeeded,
+                retried + other.retried, dead + other.dead);
+    }
+
+}
@@ -0,0 +1,347 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 执行BulkRequest，只重试失败的条目
+ * <p>
+ * 429/503等可重试的条目按指数退避（带随机抖动）重新组成BulkRequest提交，
+ * 重试耗尽或不可重试（如mapping错误）的条目交给{@link DeadLetterSink}。
+ * 整个请求IO失败（如超时）时请求可能已经在服务端执行，只重发带_id的条目，
+ * 自动生成id的index请求重发会产生重复文档，直接进入死信。
+ * 关闭时等待退避的重试不再发送，其中的条目进入死信，对应的future正常完成。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 16:05:00
+ */
+@Component
+public class BulkRetryExecutor implements DisposableBean {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(BulkRetryExecutor.class);
+
+    private final RestHighLevelClient client;
+
+    private final BulkRetryProperties properties;
+
+    private final DeadLetterSink deadLetterSink;
+
+    private final ElasticsearchMetrics metrics;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "es-bulk-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 等待退避后重发的请求
+     */
+    private final Set<Attempt> waiting = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean closed;
+
+    @Autowired
+    public BulkRetryExecutor(RestHighLevelClient client, BulkProperties properties, DeadLetterSink deadLetterSink,
+                             ElasticsearchMetrics metrics) {
+        this.client = client;
+        this.properties = properties.getRetry();
+        this.deadLetterSink = deadLetterSink;
+        this.metrics = metrics;
+    }
+
+    public DeadLetterSink getDeadLetterSink() {
+        return deadLetterSink;
+    }
+
+    public int getMaxRetries() {
+        return properties.getMaxRetries();
+    }
+
+    /**
+     * 同步执行
+     *
+     * @param request
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public BulkResult execute(BulkRequest request) {
+        try {
+            return executeAsync(request).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ExceptionsHelper.convertToRuntime((Exception) cause);
+        }
+    }
+
+    /**
+     * 异步执行，所有条目都成功或进入死信后完成
+     *
+     * @param request
+     * @return java.util.concurrent.CompletableFuture
+     */
+    public CompletableFuture<BulkResult> executeAsync(BulkRequest request) {
+        CompletableFuture<BulkResult> future = new CompletableFuture<>();
+        if (request.numberOfActions() == 0) {
+            future.complete(BulkResult.EMPTY);
+            return future;
+        }
+        new Attempt(request, future).run();
+        return future;
+    }
+
+    /**
+     * 重试已经发送过一次的请求（如BulkProcessor中失败的条目）：退避后作为第1次重试发送
+     *
+     * @param request
+     * @return java.util.concurrent.CompletableFuture
+     */
+    CompletableFuture<BulkResult> retryAsync(BulkRequest request) {
+        CompletableFuture<BulkResult> future = new CompletableFuture<>();
+        if (request.numberOfActions() == 0) {
+            future.complete(BulkResult.EMPTY);
+            return future;
+        }
+        new Attempt(request, future).retryLater(request);
+        return future;
+    }
+
+    /**
+     * 条目状态是否可以重试
+     *
+     * @param status
+     * @return boolean
+     */
+    public static boolean isRetryable(RestStatus status) {
+        return status == RestStatus.TOO_MANY_REQUESTS
+                || status == RestStatus.SERVICE_UNAVAILABLE
+                || status == RestStatus.GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * 请求是否因过载（被拒绝或IO超时等）失败
+     *
+     * @param e
+     * @return boolean
+     */
+    static boolean isOverloaded(Exception e) {
+        return isRetryable(ExceptionsHelper.status(e)) || ExceptionsHelper.unwrap(e, IOException.class) != null;
+    }
+
+    /**
+     * 整个请求失败后条目是否可以重发：被拒绝或连接没有建立时请求没有执行，都可以重发；
+     * 其他IO失败时请求可能已经执行，只重发带_id的条目（重复执行结果相同）
+     *
+     * @param e
+     * @param itemRequest
+     * @return boolean
+     */
+    static boolean isRetryable(Exception e, DocWriteRequest<?> itemRequest) {
+        if (isRetryable(ExceptionsHelper.status(e)) || ExceptionsHelper.unwrap(e, ConnectException.class) != null) {
+            return true;
+        }
+        return itemRequest.id() != null && ExceptionsHelper.unwrap(e, IOException.class) != null;
+    }
+
+    /**
+     * 全抖动的指数退避：[0, min(max, initial * 2^retry))
+     */
+    long backoffMillis(int retry) {
+        long initial = properties.getInitialBackoff().toMillis();
+        long max = properties.getMaxBackoff().toMillis();
+        long ceiling = retry >= 30 ? max : Math.min(max, initial << retry);
+        return ThreadLocalRandom.current().nextLong(Math.max(1, ceiling));
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        scheduler.shutdownNow();
+        for (Attempt attempt : waiting) {
+            attempt.abort();
+        }
+    }
+
+    private final class Attempt implements ActionListener<BulkResponse>, Runnable {
+
+        private final long total;
+
+        private final CompletableFuture<BulkResult> future;
+
+        private BulkRequest request;
+
+        private int retry;
+
+        private long begin;
+
+        private long succeeded;
+
+        private long retried;
+
+        private long dead;
+
+        Attempt(BulkRequest request, CompletableFuture<BulkResult> future) {
+            this.total = request.numberOfActions();
+            this.request = request;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            if (!waiting.remove(this) && retry > 0) {
+                // 已经在destroy中进入死信
+                return;
+            }
+            metrics.recordBulk(request.numberOfActions(), request.estimatedSizeInBytes());
+            begin = metrics.begin("bulk");
+            try {
+                client.bulkAsync(request, RequestOptions.DEFAULT, this);
+            } catch (RuntimeException e) {
+                onFailure(e);
+            }
+        }
+
+        @Override
+        public void onResponse(BulkResponse response) {
+            metrics.end("bulk", begin, response.getTook().millis(), !response.hasFailures());
+            BulkRequest retryRequest = null;
+            List<DocWriteRequest<?>> requests = request.requests();
+            for (BulkItemResponse item : response.getItems()) {
+                if (!item.isFailed()) {
+                    succeeded++;
+                    continue;
+                }
+                DocWriteRequest<?> itemRequest = requests.get(item.getItemId());
+                if (item.status() == RestStatus.TOO_MANY_REQUESTS) {
+                    metrics.recordRejected(1);
+                }
+                if (isRetryable(item.status()) && retry < properties.getMaxRetries()) {
+                    if (retryRequest == null) {
+                        retryRequest = emptyCopy(request);
+                    }
+                    retryRequest.add(itemRequest);
+                } else {
+                    dead(itemRequest, item.status().getStatus(), item.getFailureMessage());
+                }
+            }
+            if (retryRequest == null) {
+                complete();
+            } else {
+                retryLater(retryRequest);
+            }
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            metrics.end("bulk", begin, -1, false);
+            if (ExceptionsHelper.status(e) == RestStatus.TOO_MANY_REQUESTS) {
+                metrics.recordRejected(request.numberOfActions());
+            }
+            BulkRequest retryRequest = null;
+            int failed = 0;
+            for (DocWriteRequest<?> itemRequest : request.requests()) {
+                if (retry < properties.getMaxRetries() && isRetryable(e, itemRequest)) {
+                    if (retryRequest == null) {
+                        retryRequest = emptyCopy(request);
+                    }
+                    retryRequest.add(itemRequest);
+                } else {
+                    failed++;
+                    dead(itemRequest, ExceptionsHelper.status(e).getStatus(), e.toString());
+                }
+            }
+            if (failed > 0) {
+                LOGGER.error("bulk请求失败，{}条数据进入死信", failed, e);
+            }
+            if (retryRequest == null) {
+                complete();
+                return;
+            }
+            LOGGER.warn("bulk请求失败，{}条数据准备第{}次重试:{}", retryRequest.numberOfActions(), retry + 1, e.toString());
+            retryLater(retryRequest);
+        }
+
+        private void retryLater(BulkRequest retryRequest) {
+            retried += retryRequest.numberOfActions();
+            metrics.recordRetried(retryRequest.numberOfActions());
+            long delay = backoffMillis(retry++);
+            request = retryRequest;
+            waiting.add(this);
+            try {
+                scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                abort();
+                return;
+            }
+            if (closed) {
+                abort();
+            }
+        }
+
+        /**
+         * 关闭后不再重发，等待重试的条目进入死信
+         */
+        private void abort() {
+            if (!waiting.remove(this)) {
+                return;
+            }
+            LOGGER.error("BulkRetryExecutor已关闭，等待重试的{}条数据进入死信", request.numberOfActions());
+            for (DocWriteRequest<?> itemRequest : request.requests()) {
+                dead(itemRequest, RestStatus.SERVICE_UNAVAILABLE.getStatus(), "BulkRetryExecutor已关闭");
+            }
+            complete();
+        }
+
+        private void dead(DocWriteRequest<?> itemRequest, int status, String reason) {
+            dead++;
+            metrics.recordDead(1);
+            try {
+                deadLetterSink.write(DeadLetter.of(itemRequest, status, reason));
+            } catch (RuntimeException e) {
+                LOGGER.error("死信处理失败:{}", itemRequest, e);
+            }
+        }
+
+        private void complete() {
+            future.complete(new BulkResult(total, succeeded, retried, dead));
+        }
+    }
+
+    /**
+     * 复制请求级参数，不含条目
+     */
+    static BulkRequest emptyCopy(BulkRequest source) {
+        BulkRequest copy = new BulkRequest();
+        copy.timeout(source.timeout());
+        copy.setRefreshPolicy(source.getRefreshPolicy());
+        copy.waitForActiveShards(source.waitForActiveShards());
+        return copy;
+    }
+
+}
@@ -0,0 +1,29 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * bulk单条失败的重试参数，只有429/503等可重试状态会被重试
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 16:05:00
+ */
+@Getter
+@Setter
+public class BulkRetryProperties {
+
+    private int maxRetries = 5;
+
+    private Duration initialBackoff = Duration.ofMillis(200);
+
+    private Duration maxBackoff = Duration.ofSeconds(30);
+
+    /**
+     * 死信文件路径（NDJSON），仅在使用默认的{@link NdjsonFileDeadLetterSink}时生效
+     */
+    private String deadLetterPath = "dead-letter.ndjson";
+
+}
@@ -0,0 +1,30 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * 写入合并参数，开启后同一索引+id在一个窗口内只保留最后一次写入
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 11:40:00
+ */
+@Getter
+@Setter
+public class CoalesceProfile {
+
+    private boolean enabled = false;
+
+    /**
+     * 请求在合并缓冲中停留的最长时间，到期后交给BulkProcessor
+     */
+    private Duration window = Duration.ofSeconds(1);
+
+    /**
+     * 缓冲中不同文档数的上限，达到后立即提交
+     */
+    private int maxEntries = 10000;
+
+}
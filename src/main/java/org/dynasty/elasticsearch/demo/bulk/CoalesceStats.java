@@ -0,0 +1,40 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 写入合并缓冲的累计统计
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 11:40:00
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class CoalesceStats {
+
+    /**
+     * 收到的写请求数
+     */
+    private final long received;
+
+    /**
+     * 合并后交给BulkProcessor的请求数
+     */
+    private final long emitted;
+
+    /**
+     * 当前缓冲中的文档数
+     */
+    private final int buffered;
+
+    /**
+     * 被后续写入覆盖而丢弃的比例：(received - emitted - buffered) / received
+     */
+    public double getDedupeRatio() {
+        return received == 0 ? 0 : (double) (received - emitted - buffered) / received;
+    }
+
+}
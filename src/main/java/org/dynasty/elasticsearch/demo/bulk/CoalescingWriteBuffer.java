@@ -0,0 +1,201 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.dynasty.elasticsearch.demo.metrics.SampledLogger;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.seqno.SequenceNumbers;
+import org.slf4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * BulkProcessor前的写入合并缓冲，按 索引+id 只保留窗口内最后一次写入
+ * <p>
+ * index和delete直接覆盖缓冲中的旧请求（index后delete只剩delete，delete后index只剩index）；
+ * 写别名按当前写索引识别，发到别名的index与按定位结果发到写索引的delete视为同一文档。
+ * update是局部修改、op_type=create在文档存在时失败、带if_seq_no或外部版本号的请求依赖前一次写入的结果，
+ * 都不能覆盖或被覆盖：遇到这些请求时先提交缓冲中同一文档的请求再提交它们，保证顺序；
+ * 没有id的请求（自动生成id）直接提交。窗口到期、缓冲达到上限或flush时按顺序交给下游。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 11:40:00
+ */
+public class CoalescingWriteBuffer {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(CoalescingWriteBuffer.class);
+
+    private final String name;
+
+    private final int maxEntries;
+
+    private final Consumer<DocWriteRequest<?>> downstream;
+
+    private final ElasticsearchMetrics metrics;
+
+    private final SampledLogger sampledLogger;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Function<String, String> writeIndices;
+
+    private Map<Key, DocWriteRequest<?>> pending = new LinkedHashMap<>();
+
+    private long windowReceived;
+
+    private long windowEmitted;
+
+    private long received;
+
+    private long emitted;
+
+    private boolean closed;
+
+    CoalescingWriteBuffer(String name, CoalesceProfile profile, Consumer<DocWriteRequest<?>> downstream,
+                          ElasticsearchMetrics metrics) {
+        this(name, profile, downstream, metrics, Function.identity());
+    }
+
+    /**
+     * @param writeIndices 把写别名换成当前写索引
+     */
+    CoalescingWriteBuffer(String name, CoalesceProfile profile, Consumer<DocWriteRequest<?>> downstream,
+                          ElasticsearchMetrics metrics, Function<String, String> writeIndices) {
+        this.name = name;
+        this.writeIndices = writeIndices;
+        this.maxEntries = profile.getMaxEntries();
+        this.downstream = downstream;
+        this.metrics = metrics;
+        this.sampledLogger = metrics.sampled(LOGGER);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "es-coalesce-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long window = profile.getWindow().toMillis();
+        scheduler.scheduleWithFixedDelay(this::drainQuietly, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void add(DocWriteRequest<?> request) {
+        if (closed) {
+            throw new IllegalStateException("合并缓冲[" + name + "]已关闭");
+        }
+        received++;
+        windowReceived++;
+        if (request.id() == null) {
+            emit(request);
+            return;
+        }
+        Key key = new Key(writeIndices.apply(request.index()), request.id());
+        if (!isReplaceable(request)) {
+            DocWriteRequest<?> previous = pending.remove(key);
+            if (previous != null) {
+                emit(previous);
+            }
+            emit(request);
+            return;
+        }
+        pending.put(key, request);
+        if (pending.size() >= maxEntries) {
+            drain();
+        }
+    }
+
+    /**
+     * 把缓冲中的请求按顺序交给下游
+     */
+    public synchronized void drain() {
+        if (windowReceived == 0) {
+            return;
+        }
+        Map<Key, DocWriteRequest<?>> requests = pending;
+        pending = new LinkedHashMap<>();
+        for (DocWriteRequest<?> request : requests.values()) {
+            emit(request);
+        }
+        metrics.recordCoalesced(windowReceived, windowEmitted);
+        sampledLogger.info("---[{}]合并窗口收到{}条，提交{}条---", name, windowReceived, windowEmitted);
+        windowReceived = 0;
+        windowEmitted = 0;
+    }
+
+    public synchronized CoalesceStats stats() {
+        return new CoalesceStats(received, emitted, pending.size());
+    }
+
+    /**
+     * 停止定时提交并提交剩余请求
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        scheduler.shutdownNow();
+        drain();
+    }
+
+    /**
+     * 只有无条件的index和delete可以互相覆盖
+     */
+    private static boolean isReplaceable(DocWriteRequest<?> request) {
+        if (request instanceof UpdateRequest || request.opType() == DocWriteRequest.OpType.CREATE) {
+            return false;
+        }
+        return request.ifSeqNo() == SequenceNumbers.UNASSIGNED_SEQ_NO && request.version() == Versions.MATCH_ANY
+                && request.versionType() == VersionType.INTERNAL;
+    }
+
+    private void emit(DocWriteRequest<?> request) {
+        windowEmitted++;
+        emitted++;
+        downstream.accept(request);
+    }
+
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            LOGGER.error("---[{}]合并缓冲提交失败---", name, e);
+        }
+    }
+
+    private static final class Key {
+
+        private final String index;
+
+        private final String id;
+
+        Key(String index, String id) {
+            this.index = index;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return index.equals(key.index) && id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(index, id);
+        }
+    }
+
+}
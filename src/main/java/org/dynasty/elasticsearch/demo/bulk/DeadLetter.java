@@ -0,0 +1,65 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentType;
+
+/**
+ * 无法写入的文档
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 16:05:00
+ */
+@Getter
+@ToString(exclude = "source")
+public final class DeadLetter {
+
+    private final long timestamp = System.currentTimeMillis();
+
+    private final String index;
+
+    private final String id;
+
+    private final String opType;
+
+    private final int status;
+
+    private final String reason;
+
+    /**
+     * 原始请求体，删除请求或序列化失败时为null
+     */
+    private final BytesReference source;
+
+    private final XContentType xContentType;
+
+    public DeadLetter(String index, String id, String opType, int status, String reason,
+                      BytesReference source, XContentType xContentType) {
+        this.index = index;
+        this.id = id;
+        this.opType = opType;
+        this.status = status;
+        this.reason = reason;
+        this.source = source;
+        this.xContentType = xContentType;
+    }
+
+    public static DeadLetter of(DocWriteRequest<?> request, int status, String reason) {
+        BytesReference source = null;
+        XContentType xContentType = null;
+        if (request instanceof IndexRequest) {
+            source = ((IndexRequest) request).source();
+            xContentType = ((IndexRequest) request).getContentType();
+        } else if (request instanceof UpdateRequest && ((UpdateRequest) request).doc() != null) {
+            source = ((UpdateRequest) request).doc().source();
+            xContentType = ((UpdateRequest) request).doc().getContentType();
+        }
+        return new DeadLetter(request.index(), request.id(), request.opType().getLowercase(), status, reason,
+                source, xContentType);
+    }
+
+}
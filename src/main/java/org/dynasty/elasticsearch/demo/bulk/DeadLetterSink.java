@@ -0,0 +1,13 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+/**
+ * 死信处理，接收重试耗尽或不可重试（如mapping错误）的文档
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 16:05:00
+ */
+public interface DeadLetterSink {
+
+    void write(DeadLetter deadLetter);
+
+}
@@ -0,0 +1,40 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * NDJSON文件导入参数
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 10:30:00
+ */
+@Getter
+@Setter
+public class FileBulkProperties {
+
+    private int batchActions = 10000;
+
+    /**
+     * 单个_bulk请求体的大小上限
+     */
+    private DataSize batchSize = DataSize.ofMegabytes(10);
+
+    /**
+     * 每次映射到内存的文件区域大小，单行超过该值时临时扩大，最大到maxLineLength
+     */
+    private DataSize mapWindow = DataSize.ofMegabytes(64);
+
+    /**
+     * 单行（一个文档）的大小上限，超过时导入失败；默认与ES的http.max_content_length一致，
+     * 避免损坏或没有换行的文件不断扩大映射窗口
+     */
+    private DataSize maxLineLength = DataSize.ofMegabytes(100);
+
+    /**
+     * 作为文档_id的顶层字段，不设置时由服务端生成_id
+     */
+    private String idField;
+
+}
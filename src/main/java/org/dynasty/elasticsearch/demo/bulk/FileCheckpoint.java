@@ -0,0 +1,62 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.elasticsearch.ElasticsearchException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+
+/**
+ * 文件导入的检查点，记录已确认写入的字节偏移量
+ * <p>
+ * 先写临时文件再原子替换，进程在写检查点时崩溃也不会留下半个数字。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 10:30:00
+ */
+public class FileCheckpoint {
+
+    private final Path path;
+
+    private final Path tmp;
+
+    public FileCheckpoint(Path path) {
+        this.path = Objects.requireNonNull(path, "path不能为空");
+        this.tmp = path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 读取偏移量，检查点不存在时返回0
+     *
+     * @return long
+     */
+    public long load() throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        String value = new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim();
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ElasticsearchException("检查点文件{}内容无效:{}", path, value);
+        }
+    }
+
+    public void save(long offset) throws IOException {
+        Files.write(tmp, Long.toString(offset).getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+}
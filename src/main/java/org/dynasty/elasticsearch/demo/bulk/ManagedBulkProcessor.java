@@ -0,0 +1,446 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.dynasty.elasticsearch.demo.metrics.SampledLogger;
+import org.dynasty.elasticsearch.demo.rollover.WriteGuard;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 长期存活的BulkProcessor，由{@link BulkProcessorRegistry}创建和关闭
+ * <p>
+ * 开启自适应模式时，BulkProcessor按上限构建，实际的批大小由本类按字节数触发flush控制，
+ * 在途请求数由{@link AdaptiveLimiter}控制。开启合并时请求先经过{@link CoalescingWriteBuffer}去重。
+ * <p>
+ * BulkProcessor不设置退避：它的重试会把失败条目组成新的请求，响应中的itemId只对应该请求中的位置，
+ * 无法再对应回原请求。可重试的失败条目在afterBulk中按位置取出，交给{@link BulkRetryExecutor}
+ * 退避重试，重试耗尽或不可重试的条目进入死信。
+ * <p>
+ * 每个flush出的bulk在beforeBulk中为涉及的每个索引获取{@link WriteGuard}，bulk及其重试完成后关闭，
+ * 写别名滚动时等待在途的bulk完成，滚动期间新的bulk等待。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 14:40:00
+ */
+public class ManagedBulkProcessor {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(ManagedBulkProcessor.class);
+
+    /**
+     * 与BulkRequest估算每条请求大小时的额外开销保持一致
+     */
+    private static final int REQUEST_OVERHEAD = 50;
+
+    private final String name;
+
+    private final BulkProcessor processor;
+
+    private final AdaptiveBulkController adaptive;
+
+    private final CoalescingWriteBuffer coalescing;
+
+    private final BulkRetryExecutor retryExecutor;
+
+    /**
+     * 每次bulk完成（无论成功与否）后通知写入涉及的索引，以及其中有条目写入成功的索引
+     */
+    private final BiConsumer<Set<String>, Set<String>> onWritten;
+
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    /**
+     * 交给BulkRetryExecutor尚未完成的重试，关闭时一并等待
+     */
+    private final Set<CompletableFuture<BulkResult>> retries = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 按索引获取写入批次的guard
+     */
+    private final Function<String, WriteGuard> guards;
+
+    /**
+     * 在途bulk持有的guard，按executionId
+     */
+    private final Map<Long, Map<String, WriteGuard>> heldGuards = new ConcurrentHashMap<>();
+
+    private final ElasticsearchMetrics metrics;
+
+    private final SampledLogger sampledLogger;
+
+    ManagedBulkProcessor(String name, BulkProfile profile, RestHighLevelClient client, BulkRetryExecutor retryExecutor,
+                         ElasticsearchMetrics metrics, Function<String, WriteGuard> guards,
+                         BiConsumer<Set<String>, Set<String>> onWritten) {
+        this(name, profile, client, retryExecutor, metrics, guards, onWritten, Function.identity());
+    }
+
+    /**
+     * @param writeIndices 把写别名换成当前写索引，写入合并按换后的索引识别同一文档
+     */
+    ManagedBulkProcessor(String name, BulkProfile profile, RestHighLevelClient client, BulkRetryExecutor retryExecutor,
+                         ElasticsearchMetrics metrics, Function<String, WriteGuard> guards,
+                         BiConsumer<Set<String>, Set<String>> onWritten, Function<String, String> writeIndices) {
+        this.name = name;
+        this.guards = guards;
+        this.retryExecutor = retryExecutor;
+        this.metrics = metrics;
+        this.sampledLogger = metrics.sampled(LOGGER);
+        this.onWritten = onWritten;
+        AdaptiveBulkProfile adaptiveProfile = profile.getAdaptive();
+        BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer = (request, bulkListener) -> {
+            metrics.recordBulk(request.numberOfActions(), request.estimatedSizeInBytes());
+            long begin = metrics.begin("bulk");
+            client.bulkAsync(request, RequestOptions.DEFAULT, ActionListener.wrap(response -> {
+                metrics.end("bulk", begin, response.getTook().millis(), !response.hasFailures());
+                bulkListener.onResponse(response);
+            }, e -> {
+                metrics.end("bulk", begin, -1, false);
+                bulkListener.onFailure(e);
+            }));
+        };
+        BulkProcessor.Builder builder;
+        if (adaptiveProfile != null && adaptiveProfile.isEnabled()) {
+            this.adaptive = new AdaptiveBulkController(name, adaptiveProfile,
+                    profile.getBulkSize().toBytes(), profile.getConcurrentRequests());
+            builder = BulkProcessor.builder(adaptiveConsumer(consumer), new Listener())
+                    .setBulkSize(new ByteSizeValue(adaptiveProfile.getMaxBulkSize().toBytes()))
+                    .setConcurrentRequests(adaptiveProfile.getMaxConcurrentRequests());
+        } else {
+            this.adaptive = null;
+            builder = BulkProcessor.builder(consumer, new Listener())
+                    .setBulkSize(new ByteSizeValue(profile.getBulkSize().toBytes()))
+                    .setConcurrentRequests(profile.getConcurrentRequests());
+        }
+        this.processor = builder
+                .setBulkActions(profile.getBulkActions())
+                .setFlushInterval(TimeValue.timeValueMillis(profile.getFlushInterval().toMillis()))
+                // 重试由afterBulk交给BulkRetryExecutor，保证响应条目与请求条目按位置对应
+                .setBackoffPolicy(BackoffPolicy.noBackoff())
+                .build();
+        CoalesceProfile coalesceProfile = profile.getCoalesce();
+        this.coalescing = coalesceProfile != null && coalesceProfile.isEnabled()
+                ? new CoalescingWriteBuffer(name, coalesceProfile, this::submit, metrics, writeIndices) : null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ManagedBulkProcessor add(DocWriteRequest<?> request) {
+        if (coalescing != null) {
+            coalescing.add(request);
+        } else {
+            submit(request);
+        }
+        return this;
+    }
+
+    /**
+     * 立即提交缓冲中的请求（异步，不等待响应）
+     */
+    public void flush() {
+        if (coalescing != null) {
+            coalescing.drain();
+        }
+        processor.flush();
+    }
+
+    /**
+     * 提交缓冲中的请求并等待所有在途请求完成
+     *
+     * @param timeout
+     * @param unit
+     * @return boolean 是否在超时前全部完成
+     */
+    public boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (coalescing != null) {
+            coalescing.close();
+        }
+        if (!processor.awaitClose(timeout, unit)) {
+            return false;
+        }
+        try {
+            CompletableFuture.allOf(retries.toArray(new CompletableFuture<?>[0]))
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 自适应模式的当前状态，未开启时返回null
+     *
+     * @return org.dynasty.elasticsearch.demo.bulk.AdaptiveBulkStats
+     */
+    public AdaptiveBulkStats getAdaptiveStats() {
+        return adaptive == null ? null : adaptive.stats();
+    }
+
+    /**
+     * 写入合并的累计统计，未开启时返回null
+     *
+     * @return org.dynasty.elasticsearch.demo.bulk.CoalesceStats
+     */
+    public CoalesceStats getCoalesceStats() {
+        return coalescing == null ? null : coalescing.stats();
+    }
+
+    private void submit(DocWriteRequest<?> request) {
+        processor.add(request);
+        if (adaptive != null && pendingBytes.addAndGet(estimateSize(request)) >= adaptive.getBulkSizeBytes()) {
+            processor.flush();
+        }
+    }
+
+    private BiConsumer<BulkRequest, ActionListener<BulkResponse>> adaptiveConsumer(
+            BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer) {
+        AdaptiveLimiter limiter = adaptive.getLimiter();
+        return (request, bulkListener) -> {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                bulkListener.onFailure(e);
+                return;
+            }
+            long start = System.nanoTime();
+            consumer.accept(request, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    limiter.release();
+                    adaptive.onResponse(response, System.nanoTime() - start);
+                    bulkListener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    limiter.release();
+                    adaptive.onFailure(e);
+                    bulkListener.onFailure(e);
+                }
+            });
+        };
+    }
+
+    static long estimateSize(DocWriteRequest<?> request) {
+        if (request instanceof IndexRequest) {
+            IndexRequest indexRequest = (IndexRequest) request;
+            return REQUEST_OVERHEAD + (indexRequest.source() == null ? 0 : indexRequest.source().length());
+        }
+        if (request instanceof UpdateRequest) {
+            UpdateRequest updateRequest = (UpdateRequest) request;
+            long size = REQUEST_OVERHEAD;
+            if (updateRequest.doc() != null && updateRequest.doc().source() != null) {
+                size += updateRequest.doc().source().length();
+            }
+            if (updateRequest.upsertRequest() != null && updateRequest.upsertRequest().source() != null) {
+                size += updateRequest.upsertRequest().source().length();
+            }
+            return size;
+        }
+        return REQUEST_OVERHEAD;
+    }
+
+    private class Listener implements BulkProcessor.Listener {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            pendingBytes.set(0);
+            // 按索引名排序获取，正在滚动的别名在这里等待滚动结束
+            Map<String, WriteGuard> held = new TreeMap<>();
+            for (DocWriteRequest<?> itemRequest : request.requests()) {
+                held.put(itemRequest.index(), null);
+            }
+            held.replaceAll((index, ignored) -> guards.apply(index));
+            heldGuards.put(executionId, held);
+            LOGGER.debug("---[{}]尝试插入{}条数据---", name, request.numberOfActions());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            Map<String, WriteGuard> held = heldGuards.remove(executionId);
+            if (!response.hasFailures()) {
+                written(request, response, held);
+                release(held);
+                sampledLogger.info("---[{}]尝试插入{}条数据成功---", name, request.numberOfActions());
+                return;
+            }
+            // 没有退避重试，响应条目的itemId就是原请求中的位置
+            List<DocWriteRequest<?>> requests = request.requests();
+            BulkRequest retryRequest = null;
+            int dead = 0;
+            for (BulkItemResponse item : response.getItems()) {
+                if (!item.isFailed()) {
+                    continue;
+                }
+                DocWriteRequest<?> itemRequest = requests.get(item.getItemId());
+                if (item.status() == RestStatus.TOO_MANY_REQUESTS) {
+                    metrics.recordRejected(1);
+                }
+                if (BulkRetryExecutor.isRetryable(item.status()) && retryExecutor.getMaxRetries() > 0) {
+                    if (retryRequest == null) {
+                        retryRequest = BulkRetryExecutor.emptyCopy(request);
+                    }
+                    retryRequest.add(itemRequest);
+                } else {
+                    dead++;
+                    deadLetter(itemRequest, item.status().getStatus(), item.getFailureMessage());
+                }
+            }
+            int retried = retryRequest == null ? 0 : retryRequest.numberOfActions();
+            LOGGER.error("---[{}]尝试插入{}条数据，{}条重试，{}条进入死信---", name, request.numberOfActions(), retried, dead);
+            written(request, response, held);
+            if (retryRequest != null) {
+                retry(retryRequest, held);
+            } else {
+                release(held);
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            Map<String, WriteGuard> held = heldGuards.remove(executionId);
+            written(request, null, held);
+            // IO失败时请求可能已经执行，只重试带_id的条目
+            BulkRequest retryRequest = null;
+            int dead = 0;
+            int status = ExceptionsHelper.status(failure).getStatus();
+            for (DocWriteRequest<?> itemRequest : request.requests()) {
+                if (failure instanceof Exception && retryExecutor.getMaxRetries() > 0
+                        && BulkRetryExecutor.isRetryable((Exception) failure, itemRequest)) {
+                    if (retryRequest == null) {
+                        retryRequest = BulkRetryExecutor.emptyCopy(request);
+                    }
+                    retryRequest.add(itemRequest);
+                } else {
+                    dead++;
+                    deadLetter(itemRequest, status, failure.toString());
+                }
+            }
+            if (dead > 0) {
+                LOGGER.error("---[" + name + "]尝试插入数据失败，" + dead + "条数据进入死信---", failure);
+            }
+            if (retryRequest != null) {
+                LOGGER.warn("---[{}]尝试插入{}条数据失败，{}条准备重试:{}---", name, request.numberOfActions(),
+                        retryRequest.numberOfActions(), failure.toString());
+                retry(retryRequest, held);
+            } else {
+                release(held);
+            }
+        }
+
+        /**
+         * 重试完成后才释放guard，重试的条目和原bulk落在同一个写索引上
+         */
+        private void retry(BulkRequest retryRequest, Map<String, WriteGuard> held) {
+            CompletableFuture<BulkResult> future;
+            try {
+                future = retryExecutor.retryAsync(retryRequest);
+            } catch (RuntimeException e) {
+                release(held);
+                throw e;
+            }
+            retries.add(future);
+            future.whenComplete((result, e) -> {
+                retries.remove(future);
+                if (e != null) {
+                    LOGGER.error("---[{}]重试{}条数据失败---", name, retryRequest.numberOfActions(), e);
+                }
+                retried(retryRequest, result);
+                release(held);
+            });
+        }
+
+        /**
+         * 通知写入涉及的索引和有条目写入成功的索引，并把成功条数记到对应的guard上
+         */
+        private void written(BulkRequest request, BulkResponse response, Map<String, WriteGuard> held) {
+            try {
+                Set<String> indices = new HashSet<>();
+                Set<String> succeeded = new HashSet<>();
+                List<DocWriteRequest<?>> requests = request.requests();
+                for (int i = 0; i < requests.size(); i++) {
+                    String index = requests.get(i).index();
+                    indices.add(index);
+                    if (response == null || response.getItems()[i].isFailed()) {
+                        continue;
+                    }
+                    succeeded.add(index);
+                    WriteGuard guard = held == null ? null : held.get(index);
+                    if (guard != null) {
+                        guard.written(1);
+                    }
+                }
+                onWritten.accept(indices, succeeded);
+            } catch (RuntimeException e) {
+                LOGGER.warn("---[{}]写入通知失败---", name, e);
+            }
+        }
+
+        /**
+         * 重试只有汇总结果：全部成功或只涉及一个索引时才能确定哪些索引有条目写入成功
+         */
+        private void retried(BulkRequest request, BulkResult result) {
+            try {
+                Set<String> indices = new HashSet<>();
+                for (DocWriteRequest<?> itemRequest : request.requests()) {
+                    indices.add(itemRequest.index());
+                }
+                boolean succeeded = result != null && (result.getSucceeded() == request.numberOfActions()
+                        || result.getSucceeded() > 0 && indices.size() == 1);
+                onWritten.accept(indices, succeeded ? indices : Collections.emptySet());
+            } catch (RuntimeException e) {
+                LOGGER.warn("---[{}]写入通知失败---", name, e);
+            }
+        }
+
+        private void release(Map<String, WriteGuard> held) {
+            if (held != null) {
+                held.values().forEach(WriteGuard::close);
+            }
+        }
+
+        private void deadLetter(DocWriteRequest<?> itemRequest, int status, String reason) {
+            metrics.recordDead(1);
+            try {
+                retryExecutor.getDeadLetterSink().write(DeadLetter.of(itemRequest, status, reason));
+            } catch (RuntimeException e) {
+                LOGGER.error("死信处理失败:{}", itemRequest, e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 把死信追加写入本地NDJSON文件，每行一条：
+ * <pre>
+ * {"timestamp":..,"index":"..","id":"..","op_type":"index","status":400,"reason":"..","source":{..}}
+ * </pre>
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 16:05:00
+ */
+public class NdjsonFileDeadLetterSink implements DeadLetterSink, Closeable {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(NdjsonFileDeadLetterSink.class);
+
+    private final Path path;
+
+    private FileChannel channel;
+
+    public NdjsonFileDeadLetterSink(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void write(DeadLetter deadLetter) {
+        try {
+            byte[] line = toLine(deadLetter);
+            synchronized (this) {
+                FileChannel fileChannel = channel();
+                ByteBuffer buffer = ByteBuffer.wrap(line);
+                while (buffer.hasRemaining()) {
+                    fileChannel.write(buffer);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("死信写入失败:{}", deadLetter, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    static byte[] toLine(DeadLetter deadLetter) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject()
+                .field("timestamp", deadLetter.getTimestamp())
+                .field("index", deadLetter.getIndex())
+                .field("id", deadLetter.getId())
+                .field("op_type", deadLetter.getOpType())
+                .field("status", deadLetter.getStatus())
+                .field("reason", deadLetter.getReason());
+        BytesReference source = deadLetter.getSource();
+        if (source != null && deadLetter.getXContentType() != null) {
+            try (InputStream in = source.streamInput();
+                 XContentParser parser = deadLetter.getXContentType().xContent().createParser(
+                         NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, in)) {
+                parser.nextToken();
+                builder.field("source");
+                builder.copyCurrentStructure(parser);
+            }
+        }
+        builder.endObject();
+        BytesReference bytes = BytesReference.bytes(builder);
+        byte[] line = new byte[bytes.length() + 1];
+        System.arraycopy(BytesReference.toBytes(bytes), 0, line, 0, bytes.length());
+        line[line.length - 1] = '\n';
+        return line;
+    }
+
+}
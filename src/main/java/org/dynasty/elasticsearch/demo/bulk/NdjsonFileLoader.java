@@ -0,0 +1,614 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.dynasty.elasticsearch.demo.rollover.WriteGuard;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * NDJSON文件直接导入，每行一个文档的_source
+ * <p>
+ * 文件按窗口映射到内存，按换行切分后把原始行字节拼上固定的action行组成_bulk请求体，
+ * 经低级RestClient发送，客户端不解析、不反序列化文档。每个批次确认写入后把文件偏移量写入检查点，
+ * 进程崩溃后使用同一个检查点重新导入会从上次确认的位置继续；导入完成后检查点停在文件末尾。
+ * <p>
+ * 429/503等可重试的条目按{@link BulkRetryExecutor}的退避参数只重发失败的行，其余失败条目进入死信；
+ * 整个请求失败（如某行不是合法JSON时的400）在重试耗尽后抛出异常，检查点保留在上一个批次。
+ * <p>
+ * 设置了easy-es.bulk.file.id-field时取每行该顶层字段的值作为_id，重复写入只会覆盖。
+ * 不设置时由服务端生成_id，导入是至少一次的：超时等IO失败时请求可能已经执行，批次中有没有_id的行时不整体重发，
+ * 直接抛出异常；在bulk成功与写入检查点之间崩溃、或IO失败后用同一个检查点重新导入，都会重复写入最后一个批次。
+ * 每个批次（包括重试）发送期间持有batchGuard返回的{@link WriteGuard}，写别名只需等待当前批次即可滚动。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 10:30:00
+ */
+public class NdjsonFileLoader {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(NdjsonFileLoader.class);
+
+    private static final byte[] INDEX_ACTION = "{\"index\":{}}\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] INDEX_ACTION_ID_PREFIX = "{\"index\":{\"_id\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] INDEX_ACTION_ID_SUFFIX = "\"}}\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte NEW_LINE = '\n';
+
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson");
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * 只返回解析结果需要的字段，成功条目的_index/_id/_version等不再传输
+     */
+    private static final String FILTER_PATH = "took,errors,items.*.status,items.*.error.type,items.*.error.reason";
+
+    private final RestClient client;
+
+    private final BulkRetryExecutor retryExecutor;
+
+    private final FileBulkProperties properties;
+
+    private final ElasticsearchMetrics metrics;
+
+    private final Supplier<WriteGuard> batchGuard;
+
+    public NdjsonFileLoader(RestClient client, BulkRetryExecutor retryExecutor, FileBulkProperties properties,
+                            ElasticsearchMetrics metrics) {
+        this(client, retryExecutor, properties, metrics, () -> WriteGuard.NONE);
+    }
+
+    public NdjsonFileLoader(RestClient client, BulkRetryExecutor retryExecutor, FileBulkProperties properties,
+                            ElasticsearchMetrics metrics, Supplier<WriteGuard> batchGuard) {
+        this.batchGuard = Objects.requireNonNull(batchGuard, "batchGuard不能为空");
+        this.client = Objects.requireNonNull(client, "client不能为空");
+        this.retryExecutor = Objects.requireNonNull(retryExecutor, "retryExecutor不能为空");
+        this.properties = Objects.requireNonNull(properties, "properties不能为空");
+        this.metrics = Objects.requireNonNull(metrics, "metrics不能为空");
+    }
+
+    /**
+     * 从检查点记录的偏移量开始导入文件的剩余部分
+     *
+     * @param indexName
+     * @param file
+     * @param checkpoint
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public BulkResult load(String indexName, Path file, FileCheckpoint checkpoint) throws IOException {
+        Objects.requireNonNull(file, "file不能为空");
+        Objects.requireNonNull(checkpoint, "checkpoint不能为空");
+        long start = System.nanoTime();
+        long first = checkpoint.load();
+        Session session = new Session(indexName, file, checkpoint, first);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (first > size) {
+                throw new ElasticsearchException("检查点{}的偏移量{}超出文件{}的大小{}", checkpoint.getPath(), first, file, size);
+            }
+            long position = first;
+            long window = properties.getMapWindow().toBytes();
+            int scanned = 0;
+            while (position < size) {
+                long length = Math.min(window, size - position);
+                if (length > Integer.MAX_VALUE) {
+                    throw new ElasticsearchException("文件{}在偏移量{}处的单行超过2GB", file, position);
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int lineStart = session.split(buffer, position, scanned, position + length == size);
+                if (lineStart == 0) {
+                    // 窗口内没有完整的一行，扩大窗口重新映射，已扫描过的部分不再扫描
+                    session.checkLineLength(position, length);
+                    scanned = (int) length;
+                    window = Math.min(length * 2, session.maxLineLength + 1);
+                    continue;
+                }
+                position += lineStart;
+                scanned = 0;
+                window = properties.getMapWindow().toBytes();
+            }
+            session.flush();
+        }
+        BulkResult result = session.result();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        LOGGER.info("文件{}导入索引{}完成：偏移量{}~{}，{}字节，耗时{}ms，{}", file, indexName, first, session.offset,
+                session.offset - first, elapsed, result);
+        return result;
+    }
+
+    private final class Session {
+
+        private final String indexName;
+
+        private final Path file;
+
+        private final FileCheckpoint checkpoint;
+
+        private final Batch batch = new Batch();
+
+        private final long maxBytes = properties.getBatchSize().toBytes();
+
+        private final long maxLineLength = properties.getMaxLineLength().toBytes();
+
+        private final String idField = properties.getIdField();
+
+        /**
+         * 解析_id时复制行内容的缓冲区
+         */
+        private byte[] line = new byte[0];
+
+        /**
+         * 已确认并写入检查点的偏移量
+         */
+        private long offset;
+
+        private long total;
+
+        private long succeeded;
+
+        private long retried;
+
+        private long dead;
+
+        Session(String indexName, Path file, FileCheckpoint checkpoint, long offset) {
+            this.indexName = indexName;
+            this.file = file;
+            this.checkpoint = checkpoint;
+            this.offset = offset;
+        }
+
+        /**
+         * 切分窗口内的完整行加入批次
+         *
+         * @param buffer
+         * @param base   窗口在文件中的起始偏移量
+         * @param from   从该位置开始查找换行，之前的部分已确认没有换行
+         * @param last   窗口是否到达文件末尾，末尾没有换行的最后一行也算完整
+         * @return int 下一个未处理行在窗口内的起始位置
+         */
+        int split(MappedByteBuffer buffer, long base, int from, boolean last) throws IOException {
+            int limit = buffer.limit();
+            int lineStart = 0;
+            for (int i = from; i < limit; i++) {
+                if (buffer.get(i) == NEW_LINE) {
+                    checkLineLength(base + lineStart, i - lineStart);
+                    add(buffer, lineStart, i, base + i + 1);
+                    lineStart = i + 1;
+                }
+            }
+            if (last && lineStart < limit) {
+                checkLineLength(base + lineStart, limit - lineStart);
+                add(buffer, lineStart, limit, base + limit);
+                lineStart = limit;
+            }
+            return lineStart;
+        }
+
+        /**
+         * 超过单行上限时直接失败，不再扩大窗口
+         *
+         * @param position 行在文件中的起始偏移量
+         * @param length   行的长度（至少）
+         */
+        void checkLineLength(long position, long length) {
+            if (length > maxLineLength) {
+                throw new ElasticsearchException("文件{}在偏移量{}处的单行超过{}字节，文件可能已损坏或缺少换行", file,
+                        position, maxLineLength);
+            }
+        }
+
+        private void add(MappedByteBuffer buffer, int from, int to, long end) throws IOException {
+            if (to > from && buffer.get(to - 1) == CARRIAGE_RETURN) {
+                to--;
+            }
+            int length = to - from;
+            if (length == 0) {
+                batch.end = end;
+                return;
+            }
+            String id = idField == null ? null : id(buffer, from, length);
+            byte[] action = action(id);
+            if (batch.actions > 0 && (batch.actions >= properties.getBatchActions()
+                    || batch.length + action.length + length + 1 > maxBytes)) {
+                flush();
+            }
+            batch.add(action, id, buffer, from, length, end);
+        }
+
+        private byte[] action(String id) {
+            if (id == null) {
+                return INDEX_ACTION;
+            }
+            byte[] quoted = JsonStringEncoder.getInstance().quoteAsUTF8(id);
+            byte[] action = new byte[INDEX_ACTION_ID_PREFIX.length + quoted.length + INDEX_ACTION_ID_SUFFIX.length];
+            System.arraycopy(INDEX_ACTION_ID_PREFIX, 0, action, 0, INDEX_ACTION_ID_PREFIX.length);
+            System.arraycopy(quoted, 0, action, INDEX_ACTION_ID_PREFIX.length, quoted.length);
+            System.arraycopy(INDEX_ACTION_ID_SUFFIX, 0, action, INDEX_ACTION_ID_PREFIX.length + quoted.length,
+                    INDEX_ACTION_ID_SUFFIX.length);
+            return action;
+        }
+
+        /**
+         * 只解析顶层字段，找到idField即停止；字段缺失、不是字符串或数字、或行不是合法JSON时返回null
+         */
+        private String id(MappedByteBuffer buffer, int from, int length) throws IOException {
+            if (line.length < length) {
+                line = new byte[Math.max(length, line.length * 2)];
+            }
+            buffer.position(from);
+            buffer.get(line, 0, length);
+            try (JsonParser parser = JSON_FACTORY.createParser(line, 0, length)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return null;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if (idField.equals(field)) {
+                        return value == JsonToken.VALUE_STRING || value.isNumeric() ? parser.getText() : null;
+                    }
+                    parser.skipChildren();
+                }
+                return null;
+            } catch (JsonProcessingException e) {
+                return null;
+            }
+        }
+
+        void flush() throws IOException {
+            if (batch.actions > 0) {
+                send();
+            }
+            if (batch.end > offset) {
+                checkpoint.save(batch.end);
+                offset = batch.end;
+            }
+            batch.clear();
+        }
+
+        private void send() {
+            long before = succeeded;
+            try (WriteGuard guard = batchGuard.get()) {
+                sendBatch();
+                guard.written(succeeded - before);
+            }
+        }
+
+        private void sendBatch() {
+            total += batch.actions;
+            int[] pending = null;
+            byte[] body = batch.body;
+            int length = batch.length;
+            int count = batch.actions;
+            for (int retry = 0; ; retry++) {
+                metrics.recordBulk(count, length);
+                long begin = metrics.begin("bulk");
+                Outcome outcome;
+                try {
+                    outcome = execute(body, length, count);
+                    metrics.end("bulk", begin, outcome.took, !outcome.errors);
+                } catch (IOException e) {
+                    metrics.end("bulk", begin, -1, false);
+                    RestStatus status = e instanceof ResponseException ? RestStatus.fromCode(
+                            ((ResponseException) e).getResponse().getStatusLine().getStatusCode()) : null;
+                    if (status == RestStatus.TOO_MANY_REQUESTS) {
+                        metrics.recordRejected(count);
+                    }
+                    if (isRetryable(e, status, pending) && retry < retryExecutor.getMaxRetries()) {
+                        LOGGER.warn("文件{}的bulk请求失败，准备第{}次重试:{}", file, retry + 1, e.toString());
+                        retried += count;
+                        metrics.recordRetried(count);
+                        sleep(retry);
+                        continue;
+                    }
+                    throw new ElasticsearchException("文件{}导入索引{}失败，已确认的偏移量:{}", e, file, indexName, offset);
+                }
+                int[] next = new int[count];
+                int retries = 0;
+                for (int i = 0; i < count; i++) {
+                    int item = pending == null ? i : pending[i];
+                    int status = outcome.statuses[i];
+                    if (status < 300) {
+                        succeeded++;
+                        continue;
+                    }
+                    if (status == RestStatus.TOO_MANY_REQUESTS.getStatus()) {
+                        metrics.recordRejected(1);
+                    }
+                    if (BulkRetryExecutor.isRetryable(RestStatus.fromCode(status)) && retry < retryExecutor.getMaxRetries()) {
+                        next[retries++] = item;
+                    } else {
+                        dead(item, status, outcome.reasons[i]);
+                    }
+                }
+                if (retries == 0) {
+                    return;
+                }
+                retried += retries;
+                metrics.recordRetried(retries);
+                sleep(retry);
+                pending = Arrays.copyOf(next, retries);
+                body = batch.copy(pending);
+                length = body.length;
+                count = retries;
+            }
+        }
+
+        /**
+         * 与{@link BulkRetryExecutor#isRetryable(Exception, org.elasticsearch.action.DocWriteRequest)}相同：
+         * 被拒绝或连接没有建立时整体重发，其他IO失败只在所有行都有_id时整体重发
+         */
+        private boolean isRetryable(IOException e, RestStatus status, int[] items) {
+            if (status != null) {
+                return BulkRetryExecutor.isRetryable(status);
+            }
+            return ExceptionsHelper.unwrap(e, ConnectException.class) != null || batch.hasIds(items);
+        }
+
+        private Outcome execute(byte[] body, int length, int count) throws IOException {
+            Request request = new Request("POST", "/" + indexName + "/_bulk");
+            request.addParameter("filter_path", FILTER_PATH);
+            request.setEntity(new NByteArrayEntity(body, 0, length, NDJSON));
+            Response response = client.performRequest(request);
+            Outcome outcome;
+            try (InputStream in = response.getEntity().getContent()) {
+                outcome = Outcome.parse(in, count);
+            }
+            if (outcome.items != count) {
+                throw new ElasticsearchException("bulk响应条目数{}与请求条目数{}不一致", outcome.items, count);
+            }
+            return outcome;
+        }
+
+        private void sleep(int retry) {
+            try {
+                Thread.sleep(retryExecutor.backoffMillis(retry));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ElasticsearchException("文件{}导入被中断，已确认的偏移量:{}", e, file, offset);
+            }
+        }
+
+        private void dead(int item, int status, String reason) {
+            dead++;
+            metrics.recordDead(1);
+            BytesArray source = new BytesArray(Arrays.copyOfRange(batch.body, batch.sourceOffsets[item],
+                    batch.sourceOffsets[item] + batch.sourceLengths[item]));
+            try {
+                retryExecutor.getDeadLetterSink().write(new DeadLetter(indexName, batch.ids[item], "index", status,
+                        reason, source, XContentType.JSON));
+            } catch (RuntimeException e) {
+                LOGGER.error("死信处理失败:{}", file, e);
+            }
+        }
+
+        BulkResult result() {
+            return new BulkResult(total, succeeded, retried, dead);
+        }
+    }
+
+    /**
+     * 一个批次的请求体，缓冲区在批次之间复用
+     */
+    private static final class Batch {
+
+        private byte[] body = new byte[8192];
+
+        private int length;
+
+        private int actions;
+
+        private int[] itemOffsets = new int[256];
+
+        private int[] sourceOffsets = new int[256];
+
+        private int[] sourceLengths = new int[256];
+
+        /**
+         * 各行的_id，服务端生成时为null
+         */
+        private String[] ids = new String[256];
+
+        private int withoutIds;
+
+        /**
+         * 批次最后一行之后的文件偏移量
+         */
+        private long end;
+
+        void add(byte[] action, String id, MappedByteBuffer buffer, int from, int sourceLength, long end) {
+            ensureCapacity(length + action.length + sourceLength + 1);
+            if (actions == sourceOffsets.length) {
+                itemOffsets = Arrays.copyOf(itemOffsets, actions * 2);
+                sourceOffsets = Arrays.copyOf(sourceOffsets, actions * 2);
+                sourceLengths = Arrays.copyOf(sourceLengths, actions * 2);
+                ids = Arrays.copyOf(ids, actions * 2);
+            }
+            itemOffsets[actions] = length;
+            ids[actions] = id;
+            if (id == null) {
+                withoutIds++;
+            }
+            System.arraycopy(action, 0, body, length, action.length);
+            length += action.length;
+            buffer.position(from);
+            buffer.get(body, length, sourceLength);
+            sourceOffsets[actions] = length;
+            sourceLengths[actions] = sourceLength;
+            length += sourceLength;
+            body[length++] = NEW_LINE;
+            actions++;
+            this.end = end;
+        }
+
+        /**
+         * 只包含指定条目的请求体
+         */
+        byte[] copy(int[] items) {
+            int size = 0;
+            for (int item : items) {
+                size += itemLength(item);
+            }
+            byte[] copy = new byte[size];
+            int position = 0;
+            for (int item : items) {
+                System.arraycopy(body, itemOffsets[item], copy, position, itemLength(item));
+                position += itemLength(item);
+            }
+            return copy;
+        }
+
+        /**
+         * 指定的条目（null为整个批次）是否都有_id
+         */
+        boolean hasIds(int[] items) {
+            if (items == null) {
+                return withoutIds == 0;
+            }
+            for (int item : items) {
+                if (ids[item] == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void clear() {
+            length = 0;
+            actions = 0;
+            withoutIds = 0;
+            Arrays.fill(ids, null);
+        }
+
+        /**
+         * action行、_source和换行
+         */
+        private int itemLength(int item) {
+            return sourceOffsets[item] + sourceLengths[item] + 1 - itemOffsets[item];
+        }
+
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > body.length) {
+                body = Arrays.copyOf(body, Math.max(capacity, body.length * 2));
+            }
+        }
+    }
+
+    /**
+     * 流式解析经filter_path裁剪的bulk响应
+     */
+    private static final class Outcome {
+
+        private long took = -1;
+
+        private boolean errors;
+
+        private int items;
+
+        private final int[] statuses;
+
+        private final String[] reasons;
+
+        private Outcome(int count) {
+            this.statuses = new int[count];
+            this.reasons = new String[count];
+        }
+
+        static Outcome parse(InputStream in, int count) throws IOException {
+            Outcome outcome = new Outcome(count);
+            try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new ElasticsearchException("无法解析bulk响应");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("took".equals(field)) {
+                        outcome.took = parser.getLongValue();
+                    } else if ("errors".equals(field)) {
+                        outcome.errors = parser.getBooleanValue();
+                    } else if ("items".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            outcome.item(parser);
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+            return outcome;
+        }
+
+        /**
+         * {"index":{"status":201}} 或 {"index":{"status":400,"error":{"type":"...","reason":"..."}}}
+         */
+        private void item(JsonParser parser) throws IOException {
+            int index = items++;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                parser.nextToken();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if (index >= statuses.length) {
+                        parser.skipChildren();
+                    } else if ("status".equals(field)) {
+                        statuses[index] = parser.getIntValue();
+                    } else if ("error".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                        reasons[index] = error(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+        private static String error(JsonParser parser) throws IOException {
+            String type = null;
+            String reason = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("type".equals(field)) {
+                    type = parser.getText();
+                } else if ("reason".equals(field)) {
+                    reason = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return type + ": " + reason;
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * 从Iterator中按需拉取数据，按条数和字节数切分批次写入
+ * <p>
+ * 在途批次数受信号量限制，集群处理不过来时调用线程会阻塞在拉取下一条数据之前（背压），
+ * 因此内存占用与数据源大小无关。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 16:50:00
+ */
+public class StreamingBulkIngester {
+
+    private final Function<BulkRequest, CompletableFuture<BulkResult>> sender;
+
+    private final StreamingBulkProperties properties;
+
+    public StreamingBulkIngester(BulkRetryExecutor executor, StreamingBulkProperties properties) {
+        this(Objects.requireNonNull(executor, "executor不能为空")::executeAsync, properties);
+    }
+
+    /**
+     * @param sender     发送一个批次，返回的future在批次（包括重试）完成后完成
+     * @param properties
+     */
+    public StreamingBulkIngester(Function<BulkRequest, CompletableFuture<BulkResult>> sender,
+                                 StreamingBulkProperties properties) {
+        this.sender = Objects.requireNonNull(sender, "sender不能为空");
+        this.properties = Objects.requireNonNull(properties, "properties不能为空");
+    }
+
+    /**
+     * 写入全部数据并等待所有批次完成
+     *
+     * @param source
+     * @param toRequest 数据转为写请求，返回null表示该条数据已进入死信
+     * @return org.dynasty.elasticsearch.demo.bulk.BulkResult
+     */
+    public <T> BulkResult ingest(Iterator<? extends T> source, Function<? super T, DocWriteRequest<?>> toRequest) {
+        Objects.requireNonNull(source, "source不能为空");
+        Session session = new Session(properties.getMaxInFlightBatches());
+        try {
+            BulkRequest batch = new BulkRequest();
+            long maxBytes = properties.getBatchSize().toBytes();
+            while (source.hasNext()) {
+                session.checkFailure();
+                DocWriteRequest<?> request = toRequest.apply(source.next());
+                if (request == null) {
+                    session.add(new BulkResult(1, 0, 0, 1));
+                    continue;
+                }
+                batch.add(request);
+                if (batch.numberOfActions() >= properties.getBatchActions() || batch.estimatedSizeInBytes() >= maxBytes) {
+                    session.submit(batch);
+                    batch = new BulkRequest();
+                }
+            }
+            if (batch.numberOfActions() > 0) {
+                session.submit(batch);
+            }
+            return session.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("流式写入被中断", e);
+        }
+    }
+
+    private final class Session {
+
+        private final int permits;
+
+        private final Semaphore inFlight;
+
+        private BulkResult result = BulkResult.EMPTY;
+
+        private volatile Throwable failure;
+
+        Session(int permits) {
+            this.permits = Math.max(1, permits);
+            this.inFlight = new Semaphore(this.permits);
+        }
+
+        void submit(BulkRequest batch) throws InterruptedException {
+            inFlight.acquire();
+            CompletableFuture<BulkResult> future;
+            try {
+                future = sender.apply(batch);
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+            future.whenComplete((batchResult, e) -> {
+                try {
+                    if (e != null) {
+                        failure = e;
+                    } else {
+                        add(batchResult);
+                    }
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        synchronized void add(BulkResult batchResult) {
+            result = result.merge(batchResult);
+        }
+
+        void checkFailure() {
+            if (failure != null) {
+                throw ExceptionsHelper.convertToRuntime(failure instanceof Exception
+                        ? (Exception) failure : new IllegalStateException(failure));
+            }
+        }
+
+        BulkResult await() throws InterruptedException {
+            inFlight.acquire(permits);
+            inFlight.release(permits);
+            checkFailure();
+            synchronized (this) {
+                return result;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 流式写入参数，内存中最多保留 maxInFlightBatches + 1 个批次
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 16:50:00
+ */
+@Getter
+@Setter
+public class StreamingBulkProperties {
+
+    private int batchActions = 1000;
+
+    private DataSize batchSize = DataSize.ofMegabytes(5);
+
+    /**
+     * 同时在途的批次数，超过后生产方阻塞等待
+     */
+    private int maxInFlightBatches = 2;
+
+}
@@ -0,0 +1,70 @@
+package org.dynasty.elasticsearch.demo.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 客户端缓存配置
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 19:20:00
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "easy-es.cache")
+public class CacheProperties {
+
+    /**
+     * 索引是否存在、settings、mappings
+     */
+    private Metadata metadata = new Metadata();
+
+    /**
+     * 查询结果
+     */
+    private Query query = new Query();
+
+    @Getter
+    @Setter
+    public static class Metadata {
+
+        private boolean enabled = true;
+
+        private Duration ttl = Duration.ofSeconds(30);
+
+        private long maxSize = 1000;
+
+    }
+
+    @Getter
+    @Setter
+    public static class Query {
+
+        private boolean enabled = false;
+
+        /**
+         * 缓存总大小上限，按响应中_source字节数估算
+         */
+        private DataSize maxWeight = DataSize.ofMegabytes(64);
+
+        private Duration ttl = Duration.ofMinutes(5);
+
+        /**
+         * 记录写入代数的索引数上限，超过后清空重新计数（已缓存的条目全部失效）
+         */
+        private int maxTrackedIndices = 10000;
+
+        /**
+         * 写入后等待refresh可见的时间，应不小于索引的refresh_interval；写入后这段时间内开始的查询结果不缓存
+         */
+        private Duration refreshInterval = Duration.ofSeconds(1);
+
+    }
+
+}
@@ -0,0 +1,176 @@
+package org.dynasty.elasticsearch.demo.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.elasticsearch.ExceptionsHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * 索引元数据缓存（是否存在、settings、mappings、别名）
+ * <p>
+ * 条目在ttl后过期，总数受maxSize限制；同一个key的并发查询只会发出一次请求，
+ * 查询失败的结果不缓存。同一个repository内createIndex/deleteIndex/滚动后对应索引的条目失效；
+ * 写入成功后EXISTS直接记为存在（写入可能自动创建了索引），MAPPINGS不失效，dynamic mapping新增的字段在ttl后可见。
+ * <p>
+ * 索引不存在的结果同样缓存：经过repository的写入（包括BulkProcessor）只要有条目成功就会把EXISTS改为存在，
+ * 其他客户端创建的索引在ttl后可见。
+ * 别名是集群级的一个条目（key为{@link #ALL}），任何索引的条目失效时一并失效。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 19:20:00
+ */
+@Component
+public class IndexMetadataCache {
+
+    public enum Kind {
+        EXISTS, SETTINGS, MAPPINGS, ALIASES
+    }
+
+    /**
+     * 集群级条目使用的索引名
+     */
+    public static final String ALL = "_all";
+
+    private final boolean enabled;
+
+    private final AsyncCache<Key, Object> cache;
+
+    @Autowired
+    public IndexMetadataCache(CacheProperties properties) {
+        CacheProperties.Metadata metadata = properties.getMetadata();
+        this.enabled = metadata.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(metadata.getTtl())
+                .maximumSize(metadata.getMaxSize())
+                .recordStats()
+                // 同步loader在调用线程执行，异步loader本身立即返回future
+                .executor(Runnable::run)
+                .buildAsync();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 同步获取，缓存未命中时在调用线程执行loader
+     *
+     * @param kind
+     * @param indexName
+     * @param loader
+     * @return T
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Kind kind, String indexName, Callable<T> loader) throws Exception {
+        if (!enabled) {
+            return loader.call();
+        }
+        Key key = new Key(kind, indexName);
+        CompletableFuture<Object> future = cache.get(key, k -> {
+            try {
+                return loader.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+        try {
+            return (T) future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : ExceptionsHelper.convertToRuntime(e);
+        }
+    }
+
+    /**
+     * 异步获取，缓存未命中时由loader发起异步请求
+     *
+     * @param kind
+     * @param indexName
+     * @param loader
+     * @return java.util.concurrent.CompletableFuture
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> getAsync(Kind kind, String indexName, Supplier<CompletableFuture<T>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Key key = new Key(kind, indexName);
+        return (CompletableFuture<T>) (CompletableFuture<?>) cache.get(key,
+                (k, executor) -> (CompletableFuture<Object>) (CompletableFuture<?>) loader.get());
+    }
+
+    /**
+     * 写入成功后调用，索引一定存在（可能是被自动创建的）
+     *
+     * @param indexName
+     */
+    public void written(String... indexName) {
+        if (!enabled) {
+            return;
+        }
+        for (String index : indexName) {
+            cache.put(new Key(Kind.EXISTS, index), CompletableFuture.completedFuture(Boolean.TRUE));
+        }
+    }
+
+    /**
+     * 使索引的所有元数据条目失效
+     *
+     * @param indexName
+     */
+    public void invalidate(String... indexName) {
+        for (String index : indexName) {
+            for (Kind kind : Kind.values()) {
+                cache.synchronous().invalidate(new Key(kind, index));
+            }
+        }
+        // 创建、删除、滚动索引都可能改变别名
+        cache.synchronous().invalidate(new Key(Kind.ALIASES, ALL));
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    private static final class Key {
+
+        private final Kind kind;
+
+        private final String index;
+
+        Key(Kind kind, String index) {
+            this.kind = kind;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return kind == key.kind && index.equals(key.index);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, index);
+        }
+    }
+
+}
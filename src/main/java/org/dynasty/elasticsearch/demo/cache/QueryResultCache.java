@@ -0,0 +1,302 @@
+package org.dynasty.elasticsearch.demo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 查询结果缓存
+ * <p>
+ * key为目标索引加上SearchSourceBuilder的JSON（包含query、sort、size等）以及目标索引的写入代数，
+ * 按估算的字节数加权、W-TinyLFU淘汰。通过{@code ElasticsearchRepository}写入某个索引时只递增该索引的代数，
+ * 之后的查询使用新的key，旧条目不再命中并随淘汰或ttl释放，失效的开销与缓存条目数无关。
+ * <p>
+ * 写入和查询的索引名都先经过indexResolver换成实际索引（别名换成其指向的索引），通过别名写入也会使直接查询索引的条目失效，
+ * 反之亦然；resolver抛出异常或返回空集合的名称按_all处理。目标含通配符、_all或为空的查询无法确定具体索引，任何写入后都失效。
+ * 写入响应返回时数据要等到下一次refresh才可见，写入后refreshInterval内开始的查询结果不缓存，
+ * 避免把refresh之前的旧结果缓存到ttl过期。绕过repository写入的数据无法感知，只能等待ttl过期。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 19:55:00
+ */
+@Component
+public class QueryResultCache {
+
+    /**
+     * 每条命中在_source之外的估算开销
+     */
+    private static final int HIT_OVERHEAD = 256;
+
+    private final boolean enabled;
+
+    private final Cache<Key, SearchResponse> cache;
+
+    /**
+     * 每个索引最后一次写入时的代数，取自单调递增的counter，因此多个索引的代数取最大值即可判断是否有写入
+     */
+    private final ConcurrentMap<String, Generation> generations = new ConcurrentHashMap<>();
+
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * 所有索引共同的最低代数：generations清空或写入了无法确定具体索引的目标时提高，任何索引的代数不小于它
+     */
+    private volatile Generation floor;
+
+    /**
+     * 最近一次写入，用于目标无法确定具体索引的查询
+     */
+    private volatile Generation last;
+
+    private final int maxTrackedIndices;
+
+    private final long refreshIntervalNanos;
+
+    private volatile Function<String, Collection<String>> indexResolver = Collections::singleton;
+
+    @Autowired
+    public QueryResultCache(CacheProperties properties) {
+        CacheProperties.Query query = properties.getQuery();
+        this.enabled = query.isEnabled();
+        this.maxTrackedIndices = query.getMaxTrackedIndices();
+        this.refreshIntervalNanos = query.getRefreshInterval().toNanos();
+        // 初始状态视为很久之前写入过，不影响缓存
+        this.floor = new Generation(0, System.nanoTime() - refreshIntervalNanos);
+        this.last = floor;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(query.getMaxWeight().toBytes())
+                .weigher(QueryResultCache::weigh)
+                .expireAfterWrite(query.getTtl())
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 把索引名换成实际索引，返回空集合或包含_all表示无法确定
+     *
+     * @param indexResolver
+     */
+    public void setIndexResolver(Function<String, Collection<String>> indexResolver) {
+        this.indexResolver = Objects.requireNonNull(indexResolver, "indexResolver不能为空");
+    }
+
+    public Key key(SearchSourceBuilder source, String... indices) {
+        String[] resolved = resolve(Arrays.asList(indices)).toArray(new String[0]);
+        return new Key(resolved, Strings.toString(source), generation(resolved), System.nanoTime());
+    }
+
+    public SearchResponse get(Key key) {
+        return enabled ? cache.getIfPresent(key) : null;
+    }
+
+    public void put(Key key, SearchResponse response) {
+        if (!enabled || response.getFailedShards() > 0 || response.isTimedOut()) {
+            return;
+        }
+        if (generation(key.indices) != key.generation
+                || key.startNanos - lastWrite(key.indices).nanos < refreshIntervalNanos) {
+            return;
+        }
+        cache.put(key, response);
+    }
+
+    /**
+     * 使目标索引包含indexName的条目失效
+     *
+     * @param indexName
+     */
+    public void invalidate(String... indexName) {
+        invalidate(Arrays.asList(indexName));
+    }
+
+    public void invalidate(Collection<String> indexNames) {
+        if (!enabled || indexNames.isEmpty()) {
+            return;
+        }
+        Set<String> indices = resolve(indexNames);
+        synchronized (generations) {
+            Generation generation = new Generation(counter.incrementAndGet(), System.nanoTime());
+            last = generation;
+            if (isWildcard(indices)) {
+                floor = generation;
+                return;
+            }
+            for (String index : indices) {
+                generations.put(index, generation);
+            }
+            if (generations.size() > maxTrackedIndices) {
+                // 先提高floor再清空，读到空记录的线程一定能看到新的floor
+                floor = generation;
+                generations.clear();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (generations) {
+            Generation generation = new Generation(counter.incrementAndGet(), System.nanoTime());
+            floor = generation;
+            last = generation;
+            generations.clear();
+        }
+        cache.invalidateAll();
+    }
+
+    /**
+     * 命中、未命中、淘汰等统计
+     *
+     * @return com.github.benmanes.caffeine.cache.stats.CacheStats
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedWeight() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    int trackedIndices() {
+        return generations.size();
+    }
+
+    private long generation(String[] indices) {
+        return lastWrite(indices).value;
+    }
+
+    /**
+     * 目标索引中最近一次写入，通配符无法确定具体索引，只能使用全局的最近一次写入
+     */
+    private Generation lastWrite(String[] indices) {
+        if (isWildcard(Arrays.asList(indices))) {
+            return last;
+        }
+        Generation latest = floor;
+        for (String index : indices) {
+            Generation generation = generations.get(index);
+            if (generation != null && generation.value > latest.value) {
+                latest = generation;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * 排序去重后的实际索引，解析失败时按_all处理
+     */
+    private Set<String> resolve(Collection<String> indexNames) {
+        Set<String> resolved = new TreeSet<>();
+        for (String index : indexNames) {
+            Collection<String> indices;
+            try {
+                indices = indexResolver.apply(index);
+            } catch (RuntimeException e) {
+                indices = null;
+            }
+            if (indices == null || indices.isEmpty()) {
+                resolved.add("_all");
+            } else {
+                resolved.addAll(indices);
+            }
+        }
+        return resolved;
+    }
+
+    private static boolean isWildcard(Collection<String> indices) {
+        if (indices.isEmpty()) {
+            return true;
+        }
+        for (String index : indices) {
+            if ("_all".equals(index) || Regex.isSimpleMatchPattern(index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int weigh(Key key, SearchResponse response) {
+        long weight = key.source.length() * 2L;
+        for (SearchHit hit : response.getHits().getHits()) {
+            BytesReference source = hit.getSourceRef();
+            weight += HIT_OVERHEAD + (source == null ? 0 : source.length());
+        }
+        return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+
+    private static final class Generation {
+
+        private final long value;
+
+        private final long nanos;
+
+        Generation(long value, long nanos) {
+            this.value = value;
+            this.nanos = nanos;
+        }
+    }
+
+    public static final class Key {
+
+        private final String[] indices;
+
+        private final String source;
+
+        private final long generation;
+
+        /**
+         * 查询开始的时间，不参与比较
+         */
+        private final long startNanos;
+
+        private final int hash;
+
+        Key(String[] indices, String source, long generation, long startNanos) {
+            this.indices = indices;
+            this.source = source;
+            this.generation = generation;
+            this.startNanos = startNanos;
+            this.hash = 31 * (31 * Arrays.hashCode(indices) + source.hashCode()) + Long.hashCode(generation);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash && generation == key.generation && Arrays.equals(indices, key.indices)
+                    && source.equals(key.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package org.dynasty.elasticsearch.demo.client;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * HTTP客户端配置，集群地址和账号仍使用spring.elasticsearch.rest.*
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 23:00:00
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "easy-es.client")
+public class ClientProperties {
+
+    /**
+     * IO reactor线程数
+     */
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 连接池总连接数（RestClient默认30）
+     */
+    private int maxConnTotal = 100;
+
+    /**
+     * 每个节点的连接数（RestClient默认10），应不小于bulk并发数
+     */
+    private int maxConnPerRoute = 50;
+
+    /**
+     * 空闲连接保留时间，ES不返回Keep-Alive头，不设置时连接会一直复用直到被负载均衡等中间设备断开
+     */
+    private Duration keepAlive = Duration.ofSeconds(60);
+
+    private Duration connectTimeout = Duration.ofSeconds(1);
+
+    private Duration socketTimeout = Duration.ofSeconds(30);
+
+    private Compression compression = new Compression();
+
+    @Getter
+    @Setter
+    public static class Compression {
+
+        /**
+         * 请求体gzip压缩，ES服务端总是支持解压Content-Encoding: gzip的请求
+         */
+        private boolean enabled = false;
+
+        /**
+         * 请求体达到该大小才压缩，小请求压缩的CPU开销大于节省的传输时间
+         */
+        private DataSize minSize = DataSize.ofKilobytes(16);
+
+        /**
+         * 压缩级别1~9，级别越高CPU开销越大，bulk请求用1即可获得大部分收益
+         */
+        private int level = 1;
+
+    }
+
+}
@@ -0,0 +1,137 @@
+package org.dynasty.elasticsearch.demo.client;
+
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.elasticsearch.rest.RestClientBuilderCustomizer;
+import org.springframework.boot.autoconfigure.elasticsearch.rest.RestClientProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.net.ssl.SSLContext;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 替换Spring Boot自动配置的RestHighLevelClient，连接池、IO线程、keep-alive、超时和请求压缩由easy-es.client.*配置
+ * <p>
+ * 自动配置会分别为RestClient和RestHighLevelClient各创建一个连接池，这里RestClient直接复用RestHighLevelClient的底层客户端。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 23:00:00
+ */
+@Configuration
+@EnableConfigurationProperties(RestClientProperties.class)
+public class ElasticsearchClientConfiguration {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(ElasticsearchClientConfiguration.class);
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RestClientBuilder restClientBuilder(RestClientProperties restProperties, ClientProperties properties,
+                                               ElasticsearchMetrics metrics,
+                                               ObjectProvider<RestClientBuilderCustomizer> customizers) {
+        HttpHost[] hosts = restProperties.getUris().stream().map(HttpHost::create).toArray(HttpHost[]::new);
+        RestClientBuilder builder = RestClient.builder(hosts);
+        builder.setHttpClientConfigCallback(httpClientBuilder -> {
+            ClientProperties.Compression compression = properties.getCompression();
+            if (compression.isEnabled()) {
+                httpClientBuilder = new GzipCompressingBuilder(compression.getMinSize().toBytes(),
+                        compression.getLevel(), metrics);
+            }
+            return configure(httpClientBuilder, restProperties, properties);
+        });
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        LOGGER.info("创建RestClient: uris={}, ioThreads={}, maxConnTotal={}, maxConnPerRoute={}, keepAlive={}, "
+                        + "connectTimeout={}, socketTimeout={}, compression={}(>={})", restProperties.getUris(),
+                properties.getIoThreads(), properties.getMaxConnTotal(), properties.getMaxConnPerRoute(),
+                properties.getKeepAlive(), properties.getConnectTimeout(), properties.getSocketTimeout(),
+                properties.getCompression().isEnabled(), properties.getCompression().getMinSize());
+        return builder;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public RestHighLevelClient restHighLevelClient(RestClientBuilder restClientBuilder) {
+        return new RestHighLevelClient(restClientBuilder);
+    }
+
+    /**
+     * 与RestHighLevelClient共用连接池，由RestHighLevelClient负责关闭
+     */
+    @Bean(destroyMethod = "")
+    @ConditionalOnMissingBean
+    public RestClient restClient(RestHighLevelClient restHighLevelClient) {
+        return restHighLevelClient.getLowLevelClient();
+    }
+
+    static HttpAsyncClientBuilder configure(HttpAsyncClientBuilder builder, RestClientProperties restProperties,
+                                            ClientProperties properties) {
+        long keepAlive = properties.getKeepAlive().toMillis();
+        builder.setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout((int) properties.getConnectTimeout().toMillis())
+                        .setSocketTimeout((int) properties.getSocketTimeout().toMillis())
+                        .build())
+                .setMaxConnTotal(properties.getMaxConnTotal())
+                .setMaxConnPerRoute(properties.getMaxConnPerRoute())
+                .setDefaultIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(properties.getIoThreads())
+                        .setSoKeepAlive(true)
+                        .setTcpNoDelay(true)
+                        .build())
+                .setKeepAliveStrategy((response, context) -> {
+                    long server = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return server > 0 ? Math.min(server, keepAlive) : keepAlive;
+                });
+        try {
+            builder.setSSLContext(SSLContext.getDefault());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("无法获取默认SSLContext", e);
+        }
+        if (restProperties.getUsername() != null) {
+            CredentialsProvider credentials = new BasicCredentialsProvider();
+            credentials.setCredentials(AuthScope.ANY,
+                    new UsernamePasswordCredentials(restProperties.getUsername(), restProperties.getPassword()));
+            builder.setDefaultCredentialsProvider(credentials);
+        }
+        return builder;
+    }
+
+    /**
+     * RestClient只允许在回调中修改它创建的builder，压缩需要包装最终的客户端，因此用子类替换该builder
+     */
+    private static final class GzipCompressingBuilder extends HttpAsyncClientBuilder {
+
+        private final long minSize;
+
+        private final int level;
+
+        private final ElasticsearchMetrics metrics;
+
+        GzipCompressingBuilder(long minSize, int level, ElasticsearchMetrics metrics) {
+            this.minSize = minSize;
+            this.level = level;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public CloseableHttpAsyncClient build() {
+            return new GzipCompressingHttpAsyncClient(super.build(), minSize, level, metrics);
+        }
+    }
+
+}
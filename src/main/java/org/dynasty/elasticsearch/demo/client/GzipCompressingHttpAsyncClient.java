@@ -0,0 +1,114 @@
+package org.dynasty.elasticsearch.demo.client;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.dynasty.elasticsearch.demo.metrics.MetricsRecorder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 对超过阈值的请求体做gzip压缩
+ * <p>
+ * 异步HTTP客户端从最初的RequestProducer读取请求体，拦截器中替换entity不会改变实际发送的字节，
+ * 因此在提交给底层客户端前替换RequestProducer。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 23:00:00
+ */
+class GzipCompressingHttpAsyncClient extends CloseableHttpAsyncClient {
+
+    private final CloseableHttpAsyncClient delegate;
+
+    private final long minSize;
+
+    private final int level;
+
+    private final MetricsRecorder metrics;
+
+    GzipCompressingHttpAsyncClient(CloseableHttpAsyncClient delegate, long minSize, int level, MetricsRecorder metrics) {
+        this.delegate = delegate;
+        this.minSize = minSize;
+        this.level = level;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void start() {
+        delegate.start();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return delegate.isRunning();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer, HttpAsyncResponseConsumer<T> responseConsumer,
+                                 HttpContext context, FutureCallback<T> callback) {
+        HttpAsyncRequestProducer producer;
+        try {
+            producer = compress(requestProducer);
+        } catch (IOException | HttpException | RuntimeException e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            if (callback != null) {
+                callback.failed(e);
+            }
+            return failed;
+        }
+        return delegate.execute(producer, responseConsumer, context, callback);
+    }
+
+    private HttpAsyncRequestProducer compress(HttpAsyncRequestProducer producer) throws IOException, HttpException {
+        HttpRequest request = producer.generateRequest();
+        if (!(request instanceof HttpEntityEnclosingRequest)) {
+            return producer;
+        }
+        HttpEntityEnclosingRequest enclosingRequest = (HttpEntityEnclosingRequest) request;
+        HttpEntity entity = enclosingRequest.getEntity();
+        // 已压缩（RestClient换节点重试时复用同一个请求）、长度未知或不可重复读取的请求体原样发送
+        if (entity == null || entity.getContentEncoding() != null || entity.getContentLength() < minSize
+                || !entity.isRepeatable()) {
+            return producer;
+        }
+        long originalBytes = entity.getContentLength();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, originalBytes / 4 + 64));
+        try (GZIPOutputStream gzip = new LevelGzipOutputStream(buffer, level)) {
+            entity.writeTo(gzip);
+        }
+        NByteArrayEntity compressed = new NByteArrayEntity(buffer.toByteArray());
+        compressed.setContentType(entity.getContentType());
+        compressed.setContentEncoding("gzip");
+        enclosingRequest.setEntity(compressed);
+        metrics.recordCompression(originalBytes, compressed.getContentLength());
+        producer.close();
+        return new BasicAsyncRequestProducer(producer.getTarget(), request);
+    }
+
+    private static final class LevelGzipOutputStream extends GZIPOutputStream {
+
+        LevelGzipOutputStream(ByteArrayOutputStream out, int level) throws IOException {
+            super(out, 8192);
+            def.setLevel(level);
+        }
+    }
+
+}
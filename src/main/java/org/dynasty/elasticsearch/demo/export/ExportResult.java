@@ -0,0 +1,53 @@
+package org.dynasty.elasticsearch.demo.export;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 导出结果，包含每个slice的统计
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 18:45:00
+ */
+public class ExportResult {
+
+    private final List<SliceStats> slices;
+
+    private final long elapsedMillis;
+
+    public ExportResult(List<SliceStats> slices, long elapsedMillis) {
+        this.slices = Collections.unmodifiableList(slices);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<SliceStats> getSlices() {
+        return slices;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getDocs() {
+        return slices.stream().mapToLong(SliceStats::getDocs).sum();
+    }
+
+    public long getBytes() {
+        return slices.stream().mapToLong(SliceStats::getBytes).sum();
+    }
+
+    public double getDocsPerSecond() {
+        return elapsedMillis == 0 ? getDocs() : getDocs() * 1000.0 / elapsedMillis;
+    }
+
+    public double getBytesPerSecond() {
+        return elapsedMillis == 0 ? getBytes() : getBytes() * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d docs, %d bytes in %dms (%.0f docs/s, %.0f bytes/s), slices=%s",
+                getDocs(), getBytes(), elapsedMillis, getDocsPerSecond(), getBytesPerSecond(), slices);
+    }
+
+}
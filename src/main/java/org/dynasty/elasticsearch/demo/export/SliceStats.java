@@ -0,0 +1,42 @@
+package org.dynasty.elasticsearch.demo.export;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * 单个slice的导出统计
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 18:45:00
+ */
+@Getter
+@AllArgsConstructor
+public class SliceStats {
+
+    private final int slice;
+
+    private final Path file;
+
+    private final long docs;
+
+    private final long bytes;
+
+    private final long elapsedMillis;
+
+    public double getDocsPerSecond() {
+        return elapsedMillis == 0 ? docs : docs * 1000.0 / elapsedMillis;
+    }
+
+    public double getBytesPerSecond() {
+        return elapsedMillis == 0 ? bytes : bytes * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("slice %d: %d docs, %d bytes in %dms (%.0f docs/s, %.0f bytes/s) -> %s",
+                slice, docs, bytes, elapsedMillis, getDocsPerSecond(), getBytesPerSecond(), file);
+    }
+
+}
@@ -0,0 +1,206 @@
+package org.dynasty.elasticsearch.demo.export;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行sliced scroll导出为NDJSON
+ * <p>
+ * 每个slice一个线程、一个输出文件，命中的原始_source字节经缓冲后直接写入FileChannel，不反序列化为对象。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 18:45:00
+ */
+public class SlicedScrollExporter {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(SlicedScrollExporter.class);
+
+    private static final byte NEW_LINE = '\n';
+
+    private final RestHighLevelClient client;
+
+    private int pageSize = 1000;
+
+    private TimeValue keepAlive = TimeValue.timeValueMinutes(5);
+
+    private int bufferSize = 1024 * 1024;
+
+    public SlicedScrollExporter(RestHighLevelClient client) {
+        this.client = client;
+    }
+
+    public SlicedScrollExporter pageSize(int pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    public SlicedScrollExporter keepAlive(TimeValue keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    public SlicedScrollExporter bufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * 导出索引，输出文件为 outputDir/{indexName}-slice-{n}.ndjson
+     *
+     * @param indexName
+     * @param query
+     * @param slices    并行数，一般不超过主分片数
+     * @param outputDir
+     * @return org.dynasty.elasticsearch.demo.export.ExportResult
+     */
+    public ExportResult export(String indexName, QueryBuilder query, int slices, Path outputDir) throws IOException {
+        if (slices <= 0) {
+            throw new IllegalArgumentException("slices必须大于0");
+        }
+        Files.createDirectories(outputDir);
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(slices, r -> {
+            Thread thread = new Thread(r, "es-export-" + indexName + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        try {
+            List<Future<SliceStats>> futures = new ArrayList<>(slices);
+            for (int i = 0; i < slices; i++) {
+                int slice = i;
+                Path file = outputDir.resolve(indexName + "-slice-" + slice + ".ndjson");
+                futures.add(executor.submit(() -> exportSlice(indexName, query, slice, slices, file)));
+            }
+            List<SliceStats> stats = new ArrayList<>(slices);
+            for (Future<SliceStats> future : futures) {
+                stats.add(future.get());
+            }
+            ExportResult result = new ExportResult(stats, (System.nanoTime() - start) / 1_000_000);
+            LOGGER.info("索引{}导出完成：{}", indexName, result);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("索引导出被中断", e);
+        } catch (ExecutionException e) {
+            throw new ElasticsearchException("索引导出失败", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private SliceStats exportSlice(String indexName, QueryBuilder query, int slice, int slices, Path file) throws IOException {
+        long start = System.nanoTime();
+        long docs = 0;
+        long bytes = 0;
+        String scrollId = null;
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(query)
+                .size(pageSize)
+                .sort(SortBuilders.fieldSort("_doc"));
+        if (slices > 1) {
+            source.slice(new SliceBuilder(slice, slices));
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            SearchResponse response = client.search(new SearchRequest(indexName).source(source).scroll(keepAlive),
+                    RequestOptions.DEFAULT);
+            while (true) {
+                scrollId = response.getScrollId();
+                SearchHit[] hits = response.getHits().getHits();
+                if (hits.length == 0) {
+                    break;
+                }
+                for (SearchHit hit : hits) {
+                    BytesReference sourceRef = hit.getSourceRef();
+                    if (sourceRef == null) {
+                        continue;
+                    }
+                    bytes += write(channel, buffer, sourceRef) + 1;
+                    docs++;
+                }
+                response = client.scroll(new SearchScrollRequest(scrollId).scroll(keepAlive), RequestOptions.DEFAULT);
+            }
+            flush(channel, buffer);
+        } finally {
+            clearScroll(scrollId);
+        }
+        SliceStats stats = new SliceStats(slice, file, docs, bytes, (System.nanoTime() - start) / 1_000_000);
+        LOGGER.info("索引{}导出{}", indexName, stats);
+        return stats;
+    }
+
+    /**
+     * 写入一行（source + 换行），返回source字节数
+     */
+    private static int write(FileChannel channel, ByteBuffer buffer, BytesReference sourceRef) throws IOException {
+        BytesRef ref = sourceRef.toBytesRef();
+        int offset = ref.offset;
+        int remaining = ref.length;
+        while (remaining > 0) {
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            int length = Math.min(remaining, buffer.remaining());
+            buffer.put(ref.bytes, offset, length);
+            offset += length;
+            remaining -= length;
+        }
+        if (!buffer.hasRemaining()) {
+            flush(channel, buffer);
+        }
+        buffer.put(NEW_LINE);
+        return ref.length;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void clearScroll(String scrollId) {
+        if (scrollId == null) {
+            return;
+        }
+        ClearScrollRequest request = new ClearScrollRequest();
+        request.addScrollId(scrollId);
+        try {
+            client.clearScroll(request, RequestOptions.DEFAULT);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("释放scroll上下文失败，将在{}后过期:{}", keepAlive, e.toString());
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.dynasty.elasticsearch.demo.loader;
+
+import org.elasticsearch.common.bytes.BytesReference;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 带缓存的按id查询，查询经由{@link MultiGetBatcher}合并成_mget
+ * <p>
+ * 缓存只在这个对象内有效，按一次请求（或一个任务）创建、用完丢弃：同一请求内重复查询同一文档只发一次，
+ * 不会读到其他请求的旧数据。查询失败的结果不缓存。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 17:30:00
+ */
+public class DocumentLoader {
+
+    private final MultiGetBatcher batcher;
+
+    private final Map<String, CompletableFuture<BytesReference>> cache = new ConcurrentHashMap<>();
+
+    public DocumentLoader(MultiGetBatcher batcher) {
+        this.batcher = batcher;
+    }
+
+    /**
+     * 查询文档，文档不存在时结果为null
+     *
+     * @param indexName
+     * @param id
+     * @param type
+     * @return java.util.concurrent.CompletableFuture
+     */
+    public <T> CompletableFuture<T> load(String indexName, String id, Class<T> type) {
+        String key = indexName + '/' + id;
+        CompletableFuture<BytesReference> source = cache.get(key);
+        if (source == null) {
+            CompletableFuture<BytesReference> created = batcher.loadSource(indexName, id);
+            source = cache.putIfAbsent(key, created);
+            if (source == null) {
+                source = created;
+                created.whenComplete((value, e) -> {
+                    if (e != null) {
+                        cache.remove(key, created);
+                    }
+                });
+            }
+        }
+        return source.thenApply(value -> batcher.decode(value, type));
+    }
+
+    /**
+     * 查询多个文档，结果按ids的顺序，不存在的文档值为null
+     *
+     * @param indexName
+     * @param ids
+     * @param type
+     * @return java.util.concurrent.CompletableFuture
+     */
+    public <T> CompletableFuture<Map<String, T>> loadMany(String indexName, Collection<String> ids, Class<T> type) {
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (String id : ids) {
+            futures.put(id, load(indexName, id, type));
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<String, T> result = new LinkedHashMap<>();
+            futures.forEach((id, future) -> result.put(id, future.join()));
+            return result;
+        });
+    }
+
+    /**
+     * 使缓存的文档失效，写入该文档后调用
+     *
+     * @param indexName
+     * @param id
+     */
+    public void clear(String indexName, String id) {
+        cache.remove(indexName + '/' + id);
+    }
+
+    public void clearAll() {
+        cache.clear();
+    }
+
+}
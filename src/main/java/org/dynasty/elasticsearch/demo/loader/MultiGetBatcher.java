@@ -0,0 +1,309 @@
+package org.dynasty.elasticsearch.demo.loader;
+
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.dynasty.elasticsearch.demo.serialization.EntitySerializer;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 把并发的按id查询合并成_mget
+ * <p>
+ * 第一个查询到达时开始计时，窗口结束或攒够maxBatchSize个查询时发送一次_mget；
+ * 同一批次中重复的 索引+id 只查询一次，结果分发给所有等待者。
+ * 指向多个索引的别名（滚动过的写别名）不能用_mget，这些查询按别名合并成一次ids查询，
+ * 同一id在多个索引中存在时取索引名最大（最新滚动出）的；查询是近实时的，还没有refresh的文档返回null。
+ * 结果在客户端IO线程上完成，在返回的CompletableFuture上追加的回调不能阻塞。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 17:30:00
+ */
+public class MultiGetBatcher implements Closeable {
+
+    private final RestHighLevelClient client;
+
+    private final RequestOptions requestOptions;
+
+    private final EntitySerializer serializer;
+
+    private final ElasticsearchMetrics metrics;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Predicate<String> multiIndex;
+
+    private final LongAdder requested = new LongAdder();
+
+    private final LongAdder fetched = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private List<Pending> pending = new ArrayList<>();
+
+    private ScheduledFuture<?> scheduled;
+
+    private boolean closed;
+
+    public MultiGetBatcher(RestHighLevelClient client, RequestOptions requestOptions, EntitySerializer serializer,
+                           MultiGetProperties properties, ElasticsearchMetrics metrics) {
+        this(client, requestOptions, serializer, properties, metrics, index -> false);
+    }
+
+    /**
+     * @param multiIndex 索引名是否是指向多个索引的别名
+     */
+    public MultiGetBatcher(RestHighLevelClient client, RequestOptions requestOptions, EntitySerializer serializer,
+                           MultiGetProperties properties, ElasticsearchMetrics metrics, Predicate<String> multiIndex) {
+        this.client = client;
+        this.requestOptions = requestOptions;
+        this.serializer = serializer;
+        this.metrics = metrics;
+        this.windowNanos = properties.getWindow().toNanos();
+        this.maxBatchSize = Math.max(1, properties.getMaxBatchSize());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "es-multi-get");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.multiIndex = multiIndex;
+    }
+
+    /**
+     * 查询文档并反序列化，文档不存在时结果为null
+     *
+     * @param indexName
+     * @param id
+     * @param type
+     * @return java.util.concurrent.CompletableFuture
+     */
+    public <T> CompletableFuture<T> load(String indexName, String id, Class<T> type) {
+        return loadSource(indexName, id).thenApply(source -> decode(source, type));
+    }
+
+    /**
+     * 查询文档_source，文档不存在时结果为null
+     *
+     * @param indexName
+     * @param id
+     * @return java.util.concurrent.CompletableFuture
+     */
+    public CompletableFuture<BytesReference> loadSource(String indexName, String id) {
+        Objects.requireNonNull(indexName, "indexName不能为空");
+        Objects.requireNonNull(id, "id不能为空");
+        CompletableFuture<BytesReference> future = new CompletableFuture<>();
+        List<Pending> batch = null;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("MultiGetBatcher已关闭");
+            }
+            requested.increment();
+            pending.add(new Pending(indexName, id, future));
+            if (pending.size() >= maxBatchSize) {
+                batch = take();
+            } else if (pending.size() == 1) {
+                scheduled = scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (batch != null) {
+            send(batch);
+        }
+        return future;
+    }
+
+    /**
+     * 立即发送已收集的查询
+     */
+    public void flush() {
+        List<Pending> batch;
+        synchronized (this) {
+            batch = take();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    /**
+     * 调用方发起的查询数
+     *
+     * @return long
+     */
+    public long getRequested() {
+        return requested.sum();
+    }
+
+    /**
+     * 去重后实际查询的文档数
+     *
+     * @return long
+     */
+    public long getFetched() {
+        return fetched.sum();
+    }
+
+    /**
+     * 发送的批次数，一个批次是一个_mget加上每个多索引别名一次ids查询
+     *
+     * @return long
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * 停止接收新查询，发送剩余的查询
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flush();
+        scheduler.shutdownNow();
+    }
+
+    <T> T decode(BytesReference source, Class<T> type) {
+        if (source == null) {
+            return null;
+        }
+        try {
+            return serializer.deserialize(source, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Pending> take() {
+        List<Pending> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        return batch;
+    }
+
+    private void send(List<Pending> batch) {
+        Map<String, List<Pending>> waiters = new LinkedHashMap<>();
+        for (Pending item : batch) {
+            waiters.computeIfAbsent(item.indexName + '/' + item.id, key -> new ArrayList<>()).add(item);
+        }
+        Map<String, List<Pending>> gets = new LinkedHashMap<>();
+        Map<String, Map<String, List<Pending>>> searches = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Pending>> entry : waiters.entrySet()) {
+            Pending first = entry.getValue().get(0);
+            if (multiIndex.test(first.indexName)) {
+                searches.computeIfAbsent(first.indexName, key -> new LinkedHashMap<>()).put(first.id, entry.getValue());
+            } else {
+                gets.put(entry.getKey(), entry.getValue());
+            }
+        }
+        batches.increment();
+        fetched.add(waiters.size());
+        metrics.recordBatch("mget", waiters.size());
+        if (!gets.isEmpty()) {
+            multiGet(gets);
+        }
+        searches.forEach(this::searchByIds);
+    }
+
+    private void multiGet(Map<String, List<Pending>> waiters) {
+        MultiGetRequest request = new MultiGetRequest();
+        for (List<Pending> items : waiters.values()) {
+            request.add(items.get(0).indexName, items.get(0).id);
+        }
+        long begin = metrics.begin("mget");
+        client.mgetAsync(request, requestOptions, ActionListener.wrap((MultiGetResponse response) -> {
+            metrics.end("mget", begin, -1, true);
+            MultiGetItemResponse[] items = response.getResponses();
+            int i = 0;
+            for (List<Pending> targets : waiters.values()) {
+                MultiGetItemResponse item = items[i++];
+                if (item.isFailed()) {
+                    Exception failure = item.getFailure().getFailure();
+                    targets.forEach(target -> target.future.completeExceptionally(failure));
+                    continue;
+                }
+                GetResponse get = item.getResponse();
+                BytesReference source = get.isExists() ? get.getSourceAsBytesRef() : null;
+                targets.forEach(target -> target.future.complete(source));
+            }
+        }, e -> {
+            metrics.end("mget", begin, -1, false);
+            waiters.values().forEach(targets -> targets.forEach(target -> target.future.completeExceptionally(e)));
+        }));
+    }
+
+    private void searchByIds(String indexName, Map<String, List<Pending>> waiters) {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(QueryBuilders.idsQuery().addIds(waiters.keySet().toArray(new String[0])))
+                .size(waiters.size() * 2);
+        long begin = metrics.begin("mget_search");
+        client.searchAsync(new SearchRequest(indexName).source(source), requestOptions,
+                ActionListener.wrap((SearchResponse response) -> {
+                    metrics.end("mget_search", begin, response.getTook().millis(), true);
+                    Map<String, SearchHit> hits = new HashMap<>();
+                    for (SearchHit hit : response.getHits().getHits()) {
+                        hits.merge(hit.getId(), hit, (a, b) -> a.getIndex().compareTo(b.getIndex()) >= 0 ? a : b);
+                    }
+                    waiters.forEach((id, targets) -> {
+                        SearchHit hit = hits.get(id);
+                        BytesReference found = hit == null ? null : hit.getSourceRef();
+                        targets.forEach(target -> target.future.complete(found));
+                    });
+                }, e -> {
+                    metrics.end("mget_search", begin, -1, false);
+                    waiters.values().forEach(targets -> targets.forEach(target -> target.future.completeExceptionally(e)));
+                }));
+    }
+
+    private static final class Pending {
+
+        private final String indexName;
+
+        private final String id;
+
+        private final CompletableFuture<BytesReference> future;
+
+        Pending(String indexName, String id, CompletableFuture<BytesReference> future) {
+            this.indexName = indexName;
+            this.id = id;
+            this.future = future;
+        }
+    }
+
+}
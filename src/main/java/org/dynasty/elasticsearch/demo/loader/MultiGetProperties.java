@@ -0,0 +1,32 @@
+package org.dynasty.elasticsearch.demo.loader;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 按id查询的合并配置
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 17:30:00
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "easy-es.multi-get")
+public class MultiGetProperties {
+
+    /**
+     * 收集窗口，窗口内的并发查询合并成一个_mget
+     */
+    private Duration window = Duration.ofMillis(2);
+
+    /**
+     * 单个_mget最多包含的查询数，达到后不等窗口结束立即发送
+     */
+    private int maxBatchSize = 100;
+
+}
@@ -0,0 +1,92 @@
+package org.dynasty.elasticsearch.demo.metadata;
+
+import org.elasticsearch.ElasticsearchException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 实体类元数据（按Class缓存，只在第一次使用时解析）
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 12:10:00
+ */
+public final class EntityMetadata {
+
+    private final Class<?> type;
+
+    /**
+     * 从当前类到父类依次扫描得到的字段（仅限org.dynasty包下的类）
+     */
+    private final List<Field> fields;
+
+    /**
+     * 被@Id标注的字段，找不到时为null
+     */
+    private final Field idField;
+
+    /**
+     * 编译好的@Id字段getter，签名为 (Object)Object
+     */
+    private final MethodHandle idGetter;
+
+    EntityMetadata(Class<?> type, List<Field> fields, Field idField, MethodHandle idGetter) {
+        this.type = type;
+        this.fields = Collections.unmodifiableList(fields);
+        this.idField = idField;
+        this.idGetter = idGetter;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public List<Field> getFields() {
+        return fields;
+    }
+
+    public boolean hasId() {
+        return idField != null;
+    }
+
+    public Field getIdField() {
+        return idField;
+    }
+
+    public String getIdFieldName() {
+        return idField == null ? null : idField.getName();
+    }
+
+    /**
+     * 读取实体的@Id字段值
+     *
+     * @param target
+     * @return java.lang.Object
+     */
+    public Object getId(Object target) {
+        if (idGetter == null) {
+            throw new ElasticsearchException("找不到@Id标注的字段");
+        }
+        try {
+            return idGetter.invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("读取@Id字段失败:" + idField, e);
+        }
+    }
+
+    /**
+     * 读取实体的@Id字段值并转为文档_id，字段值为null时返回null（由ES生成_id）
+     *
+     * @param target
+     * @return java.lang.String
+     */
+    public String getIdAsString(Object target) {
+        Object val = getId(target);
+        return val == null ? null : val.toString();
+    }
+
+}
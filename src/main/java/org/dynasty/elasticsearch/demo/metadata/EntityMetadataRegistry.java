@@ -0,0 +1,92 @@
+package org.dynasty.elasticsearch.demo.metadata;
+
+import org.dynasty.elasticsearch.demo.annotations.Id;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 实体元数据注册表，每个Class只解析一次
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 12:10:00
+ */
+public final class EntityMetadataRegistry {
+
+    /**
+     * 只扫描该包下的类，到达其他包（如java.lang.Object）时停止向上查找
+     */
+    private static final String SCAN_PACKAGE = "org.dynasty";
+
+    private static final MethodType ID_GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<EntityMetadata> CACHE = new ClassValue<EntityMetadata>() {
+        @Override
+        protected EntityMetadata computeValue(Class<?> type) {
+            return build(type);
+        }
+    };
+
+    private EntityMetadataRegistry() {
+    }
+
+    public static EntityMetadata of(Class<?> type) {
+        Objects.requireNonNull(type, "type不能为空");
+        return CACHE.get(type);
+    }
+
+    public static EntityMetadata of(Object entity) {
+        Objects.requireNonNull(entity, "entity不能为空");
+        return CACHE.get(entity.getClass());
+    }
+
+    private static EntityMetadata build(Class<?> type) {
+        List<Field> fields = getFieldsInherited(type);
+        Field idField = null;
+        //（若父类和子类都有字段被@Id标记)）优先取当前类@Id标注的字段
+        for (Field field : fields) {
+            if (field.isAnnotationPresent(Id.class)) {
+                idField = field;
+                break;
+            }
+        }
+        return new EntityMetadata(type, fields, idField, idField == null ? null : compileGetter(idField));
+    }
+
+    private static List<Field> getFieldsInherited(Class<?> clazz) {
+        List<Field> fieldList = new ArrayList<>();
+        while (clazz != null && isScanned(clazz)) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                    fieldList.add(field);
+                }
+            }
+            clazz = clazz.getSuperclass();
+        }
+        return fieldList;
+    }
+
+    static boolean isScanned(Class<?> clazz) {
+        return clazz.getName().startsWith(SCAN_PACKAGE);
+    }
+
+    /**
+     * 生成 (Object)Object 形式的getter，调用时不再经过反射检查
+     */
+    private static MethodHandle compileGetter(Field field) {
+        try {
+            // 无论字段当前是否已经accessible都直接设置，避免依赖isAccessible()的状态
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field).asType(ID_GETTER_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalStateException("无法访问@Id字段:" + field, e);
+        }
+    }
+
+}
@@ -0,0 +1,286 @@
+package org.dynasty.elasticsearch.demo.metadata;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import org.dynasty.elasticsearch.demo.annotations.FieldType;
+import org.dynasty.elasticsearch.demo.serialization.EntitySerializer;
+import org.elasticsearch.ElasticsearchException;
+
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.Temporal;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 根据实体类生成显式的mapping
+ * <p>
+ * 字段来自{@link EntitySerializer}的ObjectMapper对实体的内省结果，与实际写入_source的属性一一对应：
+ * 属性名遵循@JsonProperty和命名策略，@JsonIgnore的字段不生成，只有getter的属性也会生成，
+ * 字段和getter上的{@link org.dynasty.elasticsearch.demo.annotations.Field}都生效（字段上的优先）。
+ * 生成的mapping为dynamic: strict，未声明的字段写入时直接报错，不会触发mapping更新。
+ * 没有{@link org.dynasty.elasticsearch.demo.annotations.Field}标注的字段按Java类型推断：
+ * String推断为keyword（需要全文检索的字段标注为text），集合和数组取元素类型，org.dynasty包下的类生成object。
+ * keyword字段默认带ignore_above: 256，与dynamic mapping一致，超长的值不建索引而不是使整个文档写入失败。
+ * 序列化器写成对象而无法对应到ES类型的字段（Map、未注册时间模块时的java.time类型等）生成enabled: false的object，
+ * 只保存在_source中，不建索引。以_开头的字段是ES的元数据字段，不生成mapping。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 22:00:00
+ */
+public final class MappingGenerator {
+
+    private static final ObjectMapper MAPPER = EntitySerializer.json().getObjectMapper();
+
+    private MappingGenerator() {
+    }
+
+    /**
+     * keyword字段默认的ignore_above，与dynamic mapping的keyword子字段相同
+     */
+    static final int DEFAULT_IGNORE_ABOVE = 256;
+
+    /**
+     * 生成mapping，可直接用于创建索引
+     *
+     * @param type
+     * @return java.util.Map
+     */
+    public static Map<String, Object> mapping(Class<?> type) {
+        Objects.requireNonNull(type, "type不能为空");
+        Map<String, Object> mapping = new LinkedHashMap<>();
+        mapping.put("dynamic", "strict");
+        Set<Class<?>> path = new HashSet<>();
+        path.add(type);
+        mapping.put("properties", properties(type, path));
+        return mapping;
+    }
+
+    /**
+     * 生成mapping的JSON
+     *
+     * @param type
+     * @return java.lang.String
+     */
+    public static String mappingJson(Class<?> type) {
+        try {
+            return MAPPER.writeValueAsString(mapping(type));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 实体字段序列化后的属性名，字段不会被序列化时返回null
+     *
+     * @param type
+     * @param field
+     * @return java.lang.String
+     */
+    public static String propertyName(Class<?> type, Field field) {
+        Objects.requireNonNull(field, "field不能为空");
+        for (BeanPropertyDefinition property : introspect(type).findProperties()) {
+            if (property.couldSerialize() && property.hasField() && field.equals(property.getField().getAnnotated())) {
+                return property.getName();
+            }
+        }
+        return null;
+    }
+
+    private static BeanDescription introspect(Class<?> type) {
+        return MAPPER.getSerializationConfig().introspect(MAPPER.constructType(type));
+    }
+
+    private static Map<String, Object> properties(Class<?> type, Set<Class<?>> path) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (BeanPropertyDefinition definition : introspect(type).findProperties()) {
+            if (!definition.couldSerialize() || definition.getName().startsWith("_")
+                    || properties.containsKey(definition.getName())) {
+                continue;
+            }
+            Map<String, Object> property = property(type.getName() + "." + definition.getName(), definition, path);
+            if (property != null) {
+                properties.put(definition.getName(), property);
+            }
+        }
+        return properties;
+    }
+
+    private static Map<String, Object> property(String name, BeanPropertyDefinition definition, Set<Class<?>> path) {
+        org.dynasty.elasticsearch.demo.annotations.Field annotation = annotation(definition);
+        if (annotation != null && annotation.ignore()) {
+            return null;
+        }
+        Class<?> valueType = elementType(definition.getPrimaryType());
+        FieldType type = annotation == null ? FieldType.AUTO : annotation.type();
+        if (type == FieldType.AUTO) {
+            type = infer(valueType);
+        }
+        Map<String, Object> property = new LinkedHashMap<>();
+        if (type == null) {
+            property.put("type", "object");
+            property.put("enabled", false);
+            return property;
+        }
+        if (type == FieldType.OBJECT || type == FieldType.NESTED) {
+            if (type == FieldType.NESTED) {
+                property.put("type", type.getName());
+            }
+            if (!path.add(valueType)) {
+                throw new ElasticsearchException("字段{}的类型{}存在循环引用，无法生成mapping", name, valueType.getName());
+            }
+            property.put("properties", properties(valueType, path));
+            path.remove(valueType);
+            return property;
+        }
+        property.put("type", type.getName());
+        if (annotation != null) {
+            applyOptions(name, type, annotation, property);
+        } else if (type == FieldType.SCALED_FLOAT) {
+            throw new ElasticsearchException("scaled_float字段{}需要指定scalingFactor", name);
+        } else if (type == FieldType.KEYWORD) {
+            property.put("ignore_above", DEFAULT_IGNORE_ABOVE);
+        }
+        return property;
+    }
+
+    /**
+     * 字段上的注解优先，其次是getter
+     */
+    private static org.dynasty.elasticsearch.demo.annotations.Field annotation(BeanPropertyDefinition definition) {
+        for (AnnotatedMember member : new AnnotatedMember[]{definition.getField(), definition.getGetter()}) {
+            if (member != null && member.getAnnotated() != null) {
+                org.dynasty.elasticsearch.demo.annotations.Field annotation = member.getAnnotated()
+                        .getAnnotation(org.dynasty.elasticsearch.demo.annotations.Field.class);
+                if (annotation != null) {
+                    return annotation;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void applyOptions(String name, FieldType type, org.dynasty.elasticsearch.demo.annotations.Field annotation,
+                                     Map<String, Object> property) {
+        boolean text = type == FieldType.TEXT;
+        if (!annotation.index()) {
+            property.put("index", false);
+        }
+        if (!annotation.docValues()) {
+            check(!text, name, "docValues");
+            property.put("doc_values", false);
+        }
+        if (!annotation.norms()) {
+            check(text || type == FieldType.KEYWORD, name, "norms");
+            // keyword默认不保存norms
+            if (text) {
+                property.put("norms", false);
+            }
+        }
+        if (!annotation.analyzer().isEmpty()) {
+            check(text, name, "analyzer");
+            property.put("analyzer", annotation.analyzer());
+        }
+        if (!annotation.format().isEmpty()) {
+            check(type == FieldType.DATE, name, "format");
+            property.put("format", annotation.format());
+        }
+        if (type == FieldType.SCALED_FLOAT) {
+            check(annotation.scalingFactor() > 0, name, "scalingFactor<=0");
+            property.put("scaling_factor", annotation.scalingFactor());
+        }
+        int ignoreAbove = annotation.ignoreAbove();
+        if (ignoreAbove >= 0) {
+            check(type == FieldType.KEYWORD, name, "ignoreAbove");
+        }
+        // 既不建索引也没有doc_values的keyword不受term长度限制
+        boolean indexed = annotation.index() || annotation.docValues();
+        if (type == FieldType.KEYWORD && ignoreAbove != 0 && indexed) {
+            property.put("ignore_above", ignoreAbove > 0 ? ignoreAbove : DEFAULT_IGNORE_ABOVE);
+        }
+    }
+
+    private static void check(boolean supported, String name, String option) {
+        if (!supported) {
+            throw new ElasticsearchException("字段{}的类型不支持{}", name, option);
+        }
+    }
+
+    /**
+     * 集合和数组取元素类型（byte[]除外，对应binary）
+     */
+    private static Class<?> elementType(JavaType type) {
+        if (type.isArrayType() && type.getRawClass() != byte[].class || type.isCollectionLikeType()) {
+            return type.getContentType().getRawClass();
+        }
+        return type.getRawClass();
+    }
+
+    /**
+     * 按Java类型推断，无法对应时返回null
+     */
+    private static FieldType infer(Class<?> type) {
+        if (type == String.class || type == Character.class || type == char.class || type == UUID.class
+                || type.isEnum()) {
+            return FieldType.KEYWORD;
+        }
+        if (type == Long.class || type == long.class || type == BigInteger.class) {
+            return FieldType.LONG;
+        }
+        if (type == Integer.class || type == int.class) {
+            return FieldType.INTEGER;
+        }
+        if (type == Short.class || type == short.class) {
+            return FieldType.SHORT;
+        }
+        if (type == Byte.class || type == byte.class) {
+            return FieldType.BYTE;
+        }
+        if (type == Double.class || type == double.class || type == BigDecimal.class) {
+            return FieldType.DOUBLE;
+        }
+        if (type == Float.class || type == float.class) {
+            return FieldType.FLOAT;
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return FieldType.BOOLEAN;
+        }
+        if (type == byte[].class) {
+            return FieldType.BINARY;
+        }
+        if (Date.class.isAssignableFrom(type) || Calendar.class.isAssignableFrom(type)) {
+            // 序列化为epoch毫秒
+            return FieldType.DATE;
+        }
+        if (Temporal.class.isAssignableFrom(type)) {
+            return isWrittenAsObject(type) ? null : FieldType.DATE;
+        }
+        if (EntityMetadataRegistry.isScanned(type) && !type.isEnum()) {
+            return FieldType.OBJECT;
+        }
+        return null;
+    }
+
+    private static boolean isWrittenAsObject(Class<?> type) {
+        try {
+            return MAPPER.getSerializerProviderInstance().findValueSerializer(type) instanceof BeanSerializer;
+        } catch (JsonMappingException e) {
+            return true;
+        }
+    }
+
+}
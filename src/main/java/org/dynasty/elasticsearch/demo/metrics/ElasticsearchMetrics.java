@@ -0,0 +1,388 @@
+package org.dynasty.elasticsearch.demo.metrics;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内置指标：每个操作的客户端往返/服务端took延迟直方图、在途请求数，
+ * bulk的文档数/字节数、拒绝/重试/死信条数和序列化耗时。
+ * <p>
+ * 通过JMX暴露，同时转发给容器中其他{@link MetricsRecorder}（可对接外部指标系统）。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 20:40:00
+ */
+@Component
+public class ElasticsearchMetrics implements MetricsRecorder, InitializingBean, SmartInitializingSingleton,
+        DisposableBean {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(ElasticsearchMetrics.class);
+
+    private final MetricsProperties properties;
+
+    private final ApplicationContext applicationContext;
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private final List<MetricsRecorder> recorders = new CopyOnWriteArrayList<>();
+
+    private final Histogram bulkDocs = new Histogram();
+
+    private final Histogram bulkBytes = new Histogram();
+
+    private final Histogram serializationNanos = new Histogram();
+
+    private final LongAdder serializedBytes = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder retried = new LongAdder();
+
+    private final LongAdder dead = new LongAdder();
+
+    private final LongAdder compressedRequests = new LongAdder();
+
+    private final LongAdder compressionOriginalBytes = new LongAdder();
+
+    private final LongAdder compressionWireBytes = new LongAdder();
+
+    private final LongAdder coalesceReceived = new LongAdder();
+
+    private final LongAdder coalesceEmitted = new LongAdder();
+
+    private ObjectName objectName;
+
+    @Autowired
+    public ElasticsearchMetrics(MetricsProperties properties, ApplicationContext applicationContext) {
+        this.properties = properties;
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * 不依赖Spring时使用（测试、基准）
+     */
+    public ElasticsearchMetrics() {
+        this(new MetricsProperties(), null);
+    }
+
+    public void addRecorder(MetricsRecorder recorder) {
+        recorders.add(Objects.requireNonNull(recorder, "recorder不能为空"));
+    }
+
+    /**
+     * 创建采样日志
+     *
+     * @param logger
+     * @return org.dynasty.elasticsearch.demo.metrics.SampledLogger
+     */
+    public SampledLogger sampled(Logger logger) {
+        return new SampledLogger(logger, properties.getLogSampleInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 开始一次请求，返回开始时间，请求结束后调用{@link #end}
+     *
+     * @param operation
+     * @return long
+     */
+    public long begin(String operation) {
+        recordInFlight(operation, 1);
+        return System.nanoTime();
+    }
+
+    public void end(String operation, long begin, long tookMillis, boolean success) {
+        recordInFlight(operation, -1);
+        recordOperation(operation, System.nanoTime() - begin, tookMillis, success);
+    }
+
+    @Override
+    public void recordOperation(String operation, long roundTripNanos, long tookMillis, boolean success) {
+        OperationMetrics metrics = operation(operation);
+        metrics.roundTrip.record(roundTripNanos);
+        if (tookMillis >= 0) {
+            metrics.took.record(tookMillis);
+        }
+        if (!success) {
+            metrics.failures.increment();
+        }
+        for (MetricsRecorder recorder : recorders) {
+            recorder.recordOperation(operation, roundTripNanos, tookMillis, success);
+        }
+    }
+
+    @Override
+    public void recordInFlight(String operation, int delta) {
+        operation(operation).inFlight.addAndGet(delta);
+        for (MetricsRecorder recorder : recorders) {
+            recorder.recordInFlight(operation, delta);
+        }
+    }
+
+    @Override
+    public void recordBatch(String operation, int size) {
+        operation(operation).batchSize.record(size);
+        for (MetricsRecorder recorder : recorders) {
+            recorder.recordBatch(operation, size);
+        }
+    }
+
+    @Override
+    public void recordBulk(int docs, long bytes) {
+        bulkDocs.record(docs);
+        bulkBytes.record(bytes);
+        for (MetricsRecorder recorder : recorders) {
+            recorder.recordBulk(docs, bytes);
+        }
+    }
+
+    @Override
+    public void recordRejected(long items) {
+        rejected.add(items);
+        for (MetricsRecorder recorder : recorders) {
+            recorder.recordRejected(items);
+        }
+    }
+
+    @Override
+    public void recordRetried(long items) {
+        retried.add(items);
+        for (MetricsRecorder recorder : recorders) {
+            recorder.recordRetried(items);
+        }
+    }
+
+    @Override
+    public void recordDead(long items) {
+        dead.add(items);
+        for (MetricsRecorder recorder : recorders) {
+            recorder.recordDead(items);
+        }
+    }
+
+    @Override
+    public void recordSerialization(long nanos, long bytes) {
+        serializationNanos.record(nanos);
+        serializedBytes.add(bytes);
+        for (MetricsRecorder recorder : recorders) {
+            recorder.recordSerialization(nanos, bytes);
+        }
+    }
+
+    @Override
+    public void recordCompression(long originalBytes, long wireBytes) {
+        compressedRequests.increment();
+        compressionOriginalBytes.add(originalBytes);
+        compressionWireBytes.add(wireBytes);
+        for (MetricsRecorder recorder : recorders) {
+            recorder.recordCompression(originalBytes, wireBytes);
+        }
+    }
+
+    @Override
+    public void recordCoalesced(long received, long emitted) {
+        coalesceReceived.add(received);
+        coalesceEmitted.add(emitted);
+        for (MetricsRecorder recorder : recorders) {
+            recorder.recordCoalesced(received, emitted);
+        }
+    }
+
+    /**
+     * 合并缓冲丢弃的中间版本占收到请求数的比例
+     */
+    public double getDedupeRatio() {
+        long received = coalesceReceived.sum();
+        return received == 0 ? 0 : (double) (received - coalesceEmitted.sum()) / received;
+    }
+
+    /**
+     * 请求体压缩节省的字节数
+     */
+    public long getCompressionSavedBytes() {
+        return compressionOriginalBytes.sum() - compressionWireBytes.sum();
+    }
+
+    public Histogram getRoundTrip(String operation) {
+        return operation(operation).roundTrip;
+    }
+
+    public Histogram getTook(String operation) {
+        return operation(operation).took;
+    }
+
+    public int getInFlight(String operation) {
+        return operation(operation).inFlight.get();
+    }
+
+    /**
+     * 合并请求（_mget、_msearch）每次包含的子请求数
+     */
+    public Histogram getBatchSize(String operation) {
+        return operation(operation).batchSize;
+    }
+
+    public Map<String, Double> getOperations() {
+        Map<String, Double> result = new TreeMap<>();
+        operations.forEach((name, metrics) -> {
+            result.put(name + ".count", (double) metrics.roundTrip.getCount());
+            result.put(name + ".failures", (double) metrics.failures.sum());
+            result.put(name + ".in_flight", (double) metrics.inFlight.get());
+            putNanos(result, name + ".client", metrics.roundTrip);
+            putMillis(result, name + ".took", metrics.took);
+            if (metrics.batchSize.getCount() > 0) {
+                result.put(name + ".batch_size.mean", metrics.batchSize.getMean());
+                result.put(name + ".batch_size.p99", (double) metrics.batchSize.percentile(0.99));
+                result.put(name + ".batch_size.max", (double) metrics.batchSize.getMax());
+            }
+        });
+        return result;
+    }
+
+    public Map<String, Double> getBulk() {
+        Map<String, Double> result = new TreeMap<>();
+        result.put("bulks", (double) bulkDocs.getCount());
+        result.put("docs", (double) bulkDocs.getSum());
+        result.put("bytes", (double) bulkBytes.getSum());
+        result.put("docs_per_bulk.mean", bulkDocs.getMean());
+        result.put("docs_per_bulk.p99", (double) bulkDocs.percentile(0.99));
+        result.put("bytes_per_bulk.mean", bulkBytes.getMean());
+        result.put("bytes_per_bulk.p99", (double) bulkBytes.percentile(0.99));
+        result.put("rejected", (double) rejected.sum());
+        result.put("retried", (double) retried.sum());
+        result.put("dead", (double) dead.sum());
+        result.put("serialized_docs", (double) serializationNanos.getCount());
+        result.put("serialized_bytes", (double) serializedBytes.sum());
+        putNanos(result, "serialization", serializationNanos);
+        result.put("compression.requests", (double) compressedRequests.sum());
+        result.put("compression.original_bytes", (double) compressionOriginalBytes.sum());
+        result.put("compression.wire_bytes", (double) compressionWireBytes.sum());
+        result.put("compression.saved_bytes", (double) getCompressionSavedBytes());
+        result.put("coalesce.received", (double) coalesceReceived.sum());
+        result.put("coalesce.emitted", (double) coalesceEmitted.sum());
+        result.put("coalesce.dedupe_ratio", getDedupeRatio());
+        return result;
+    }
+
+    public void reset() {
+        operations.values().forEach(metrics -> {
+            metrics.roundTrip.reset();
+            metrics.took.reset();
+            metrics.failures.reset();
+            metrics.batchSize.reset();
+        });
+        bulkDocs.reset();
+        bulkBytes.reset();
+        serializationNanos.reset();
+        serializedBytes.reset();
+        rejected.reset();
+        retried.reset();
+        dead.reset();
+        compressedRequests.reset();
+        compressionOriginalBytes.reset();
+        compressionWireBytes.reset();
+        coalesceReceived.reset();
+        coalesceEmitted.reset();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (!properties.isJmxEnabled()) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(properties.getJmxName());
+        if (server.isRegistered(name)) {
+            LOGGER.warn("MBean {} 已注册，跳过", name);
+            return;
+        }
+        // 注册单独的视图对象：本类自身不是MBean，避免被Spring的MBeanExporter再注册一次
+        server.registerMBean(new MXBeanView(), name);
+        objectName = name;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (applicationContext == null) {
+            return;
+        }
+        applicationContext.getBeansOfType(MetricsRecorder.class).values().stream()
+                .filter(recorder -> recorder != this)
+                .forEach(this::addRecorder);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    private OperationMetrics operation(String operation) {
+        return operations.computeIfAbsent(operation, name -> new OperationMetrics());
+    }
+
+    private static void putNanos(Map<String, Double> result, String prefix, Histogram histogram) {
+        result.put(prefix + ".mean_ms", histogram.getMean() / 1_000_000);
+        result.put(prefix + ".p50_ms", histogram.percentile(0.5) / 1_000_000.0);
+        result.put(prefix + ".p99_ms", histogram.percentile(0.99) / 1_000_000.0);
+        result.put(prefix + ".max_ms", histogram.getMax() / 1_000_000.0);
+    }
+
+    private static void putMillis(Map<String, Double> result, String prefix, Histogram histogram) {
+        result.put(prefix + ".mean_ms", histogram.getMean());
+        result.put(prefix + ".p50_ms", (double) histogram.percentile(0.5));
+        result.put(prefix + ".p99_ms", (double) histogram.percentile(0.99));
+        result.put(prefix + ".max_ms", (double) histogram.getMax());
+    }
+
+    private final class MXBeanView implements ElasticsearchMetricsMXBean {
+
+        @Override
+        public Map<String, Double> getOperations() {
+            return ElasticsearchMetrics.this.getOperations();
+        }
+
+        @Override
+        public Map<String, Double> getBulk() {
+            return ElasticsearchMetrics.this.getBulk();
+        }
+
+        @Override
+        public void reset() {
+            ElasticsearchMetrics.this.reset();
+        }
+    }
+
+    private static final class OperationMetrics {
+
+        private final Histogram roundTrip = new Histogram();
+
+        private final Histogram took = new Histogram();
+
+        private final LongAdder failures = new LongAdder();
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final Histogram batchSize = new Histogram();
+    }
+
+}
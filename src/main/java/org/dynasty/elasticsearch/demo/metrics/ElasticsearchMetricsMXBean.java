@@ -0,0 +1,25 @@
+package org.dynasty.elasticsearch.demo.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX视图
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 20:40:00
+ */
+public interface ElasticsearchMetricsMXBean {
+
+    /**
+     * 各操作的请求数、失败数、在途数和延迟分位数（毫秒），key形如 bulk.client.p99_ms
+     */
+    Map<String, Double> getOperations();
+
+    /**
+     * bulk文档数/字节数、拒绝/重试/死信条数、序列化耗时、请求体压缩节省的字节数
+     */
+    Map<String, Double> getBulk();
+
+    void reset();
+
+}
@@ -0,0 +1,34 @@
+package org.dynasty.elasticsearch.demo.metrics;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 指标配置
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 20:40:00
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "easy-es.metrics")
+public class MetricsProperties {
+
+    /**
+     * 注册到平台MBeanServer
+     */
+    private boolean jmxEnabled = true;
+
+    private String jmxName = "org.dynasty.elasticsearch:type=ElasticsearchMetrics";
+
+    /**
+     * 热点路径（单条写入、bulk完成）日志的采样间隔
+     */
+    private Duration logSampleInterval = Duration.ofSeconds(10);
+
+}
@@ -0,0 +1,78 @@
+package org.dynasty.elasticsearch.demo.metrics;
+
+/**
+ * 指标记录接口，实现该接口的bean会收到repository和bulk链路上的所有指标（如对接Micrometer等）
+ * <p>
+ * 实现必须是线程安全且不阻塞的。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 20:40:00
+ */
+public interface MetricsRecorder {
+
+    /**
+     * 一次请求完成
+     *
+     * @param operation      操作名，如index、bulk、search
+     * @param roundTripNanos 客户端往返耗时
+     * @param tookMillis     服务端took，未知时为-1
+     * @param success
+     */
+    default void recordOperation(String operation, long roundTripNanos, long tookMillis, boolean success) {
+    }
+
+    /**
+     * 在途请求数变化
+     */
+    default void recordInFlight(String operation, int delta) {
+    }
+
+    /**
+     * 一次合并请求（_mget、_msearch）包含的子请求数
+     */
+    default void recordBatch(String operation, int size) {
+    }
+
+    /**
+     * 一次bulk请求的文档数和请求体字节数
+     */
+    default void recordBulk(int docs, long bytes) {
+    }
+
+    /**
+     * 被拒绝（429）的条目数
+     */
+    default void recordRejected(long items) {
+    }
+
+    /**
+     * 重试的条目数
+     */
+    default void recordRetried(long items) {
+    }
+
+    /**
+     * 进入死信的条目数
+     */
+    default void recordDead(long items) {
+    }
+
+    /**
+     * 单个文档的序列化耗时和字节数
+     */
+    default void recordSerialization(long nanos, long bytes) {
+    }
+
+    /**
+     * 一个请求体压缩前后的字节数
+     */
+    default void recordCompression(long originalBytes, long wireBytes) {
+    }
+
+    /**
+     * 合并缓冲一次提交：窗口内收到的请求数和合并后实际提交的请求数
+     */
+    default void recordCoalesced(long received, long emitted) {
+    }
+
+}
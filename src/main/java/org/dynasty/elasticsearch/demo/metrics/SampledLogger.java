@@ -0,0 +1,56 @@
+package org.dynasty.elasticsearch.demo.metrics;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 采样日志，每个间隔内最多输出一条，并附带被跳过的条数
+ * <p>
+ * 用于替代热点路径上逐条输出的info日志；未到间隔时只有一次原子读，不会格式化参数。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 20:40:00
+ */
+public class SampledLogger {
+
+    private final Logger logger;
+
+    private final long intervalNanos;
+
+    private final AtomicLong next = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public SampledLogger(Logger logger, long interval, TimeUnit unit) {
+        this.logger = logger;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    public void info(String format, Object... args) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long due = next.get();
+        if (now - due < 0 || !next.compareAndSet(due, now + intervalNanos)) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        long skipped = suppressed.getAndSet(0);
+        if (skipped > 0) {
+            logger.info(format + " (此前{}条已省略)", append(args, skipped));
+        } else {
+            logger.info(format, args);
+        }
+    }
+
+    private static Object[] append(Object[] args, Object value) {
+        Object[] result = new Object[args.length + 1];
+        System.arraycopy(args, 0, result, 0, args.length);
+        result[args.length] = value;
+        return result;
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.dynasty.elasticsearch.demo.rollover;
+
+import org.elasticsearch.client.indices.rollover.RolloverRequest;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * 滚动条件，满足任意一个即滚动到新索引；都不设置时只能手动滚动
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 20:30:00
+ */
+public class RolloverConditions {
+
+    /**
+     * 写索引的文档数上限，小于等于0表示不限制
+     */
+    private long maxDocs;
+
+    /**
+     * 写索引的主分片总大小上限
+     */
+    private ByteSizeValue maxSize;
+
+    /**
+     * 写索引创建后的最长时间
+     */
+    private TimeValue maxAge;
+
+    public static RolloverConditions defaults() {
+        return new RolloverConditions();
+    }
+
+    public long getMaxDocs() {
+        return maxDocs;
+    }
+
+    public RolloverConditions maxDocs(long maxDocs) {
+        this.maxDocs = maxDocs;
+        return this;
+    }
+
+    public ByteSizeValue getMaxSize() {
+        return maxSize;
+    }
+
+    public RolloverConditions maxSize(ByteSizeValue maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    public TimeValue getMaxAge() {
+        return maxAge;
+    }
+
+    public RolloverConditions maxAge(TimeValue maxAge) {
+        this.maxAge = maxAge;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return maxDocs <= 0 && maxSize == null && maxAge == null;
+    }
+
+    void applyTo(RolloverRequest request) {
+        if (maxDocs > 0) {
+            request.addMaxIndexDocsCondition(maxDocs);
+        }
+        if (maxSize != null) {
+            request.addMaxIndexSizeCondition(maxSize);
+        }
+        if (maxAge != null) {
+            request.addMaxIndexAgeCondition(maxAge);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RolloverConditions{maxDocs=" + maxDocs + ", maxSize=" + maxSize + ", maxAge=" + maxAge + '}';
+    }
+
+}
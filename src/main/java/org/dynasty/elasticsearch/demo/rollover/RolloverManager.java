@@ -0,0 +1,292 @@
+package org.dynasty.elasticsearch.demo.rollover;
+
+import org.dynasty.elasticsearch.demo.cache.IndexMetadataCache;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.admin.indices.alias.Alias;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.client.GetAliasesResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.rollover.RolloverRequest;
+import org.elasticsearch.client.indices.rollover.RolloverResponse;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写别名滚动管理
+ * <p>
+ * 受管理的别名创建时建立 别名-000001 并设为写索引，之后所有写入经由别名；
+ * 按easy-es.rollover.check-interval定时、以及写入条数接近maxDocs时检查滚动条件，满足时调用_rollover，
+ * 新索引使用与初始索引相同的settings/mappings。
+ * <p>
+ * 所有写入（同步、异步、BulkProcessor、流式和文件导入）按批次通过{@link #guard(String)}登记，
+ * 滚动前阻止新的批次并等待在途批次完成，滚动期间新的批次等待；
+ * 这样一个批次（包括其中的重试）不会一部分写入旧索引、一部分写入新索引。
+ * 长时间的流式导入按批次登记，滚动只需等待当前在途的批次。
+ * <p>
+ * 滚动后别名指向所有滚动出的索引（只有最新的是写索引），按id的更新/删除发到写别名会落到新索引上找不到旧文档，
+ * _mget/get发到别名则因别名指向多个索引而失败。因此对滚动过的别名，repository的bulkUpdate/bulkUpsert/bulkDelete
+ * 每个批次先多一次按id的查询确定文档实际所在的索引再发送，getById改为对别名做ids查询；还没有refresh的文档查不到，
+ * 更新/删除仍发到写别名，读取返回null。没有滚动过的别名只指向一个索引，不需要这次查询。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 20:30:00
+ */
+@Component
+public class RolloverManager implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(RolloverManager.class);
+
+    private final RestHighLevelClient client;
+
+    private final RolloverProperties properties;
+
+    private final IndexMetadataCache metadataCache;
+
+    private final Map<String, WriteAlias> aliases = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "es-rollover");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public RolloverManager(RestHighLevelClient client, RolloverProperties properties, IndexMetadataCache metadataCache) {
+        this.client = client;
+        this.properties = properties;
+        this.metadataCache = metadataCache;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        long interval = properties.getCheckInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 注册写别名，别名不存在时创建初始索引 别名-000001 并设为写索引
+     *
+     * @param alias
+     * @param settings   初始索引和滚动出的新索引的settings（JSON）
+     * @param mappings   初始索引和滚动出的新索引的mappings（JSON）
+     * @param conditions
+     * @return org.dynasty.elasticsearch.demo.rollover.WriteAlias
+     */
+    public synchronized WriteAlias register(String alias, String settings, String mappings,
+                                            RolloverConditions conditions) throws IOException {
+        if (aliases.containsKey(alias)) {
+            throw new ElasticsearchException("写别名{}已注册", alias);
+        }
+        Map<String, Set<AliasMetaData>> indices = aliasedIndices(alias);
+        String writeIndex = writeIndex(alias, indices);
+        if (writeIndex == null) {
+            writeIndex = alias + "-000001";
+            CreateIndexRequest request = new CreateIndexRequest(writeIndex);
+            applyTemplate(request, settings, mappings);
+            request.alias(new Alias(alias).writeIndex(true));
+            client.indices().create(request, RequestOptions.DEFAULT);
+            metadataCache.invalidate(writeIndex);
+            metadataCache.invalidate(alias);
+            LOGGER.info("---创建写别名{}，写索引:{}---", alias, writeIndex);
+        } else {
+            LOGGER.info("---写别名{}已存在，写索引:{}---", alias, writeIndex);
+        }
+        WriteAlias writeAlias = new WriteAlias(alias, settings, mappings, conditions, writeIndex, indices.size() > 1);
+        aliases.put(alias, writeAlias);
+        return writeAlias;
+    }
+
+    /**
+     * 受管理的写别名，不存在时返回null
+     *
+     * @param alias
+     * @return org.dynasty.elasticsearch.demo.rollover.WriteAlias
+     */
+    public WriteAlias get(String alias) {
+        return aliases.get(alias);
+    }
+
+    /**
+     * 受管理的写别名换成当前的写索引，其他索引名原样返回
+     *
+     * @param indexName
+     * @return java.lang.String
+     */
+    public String resolveWriteIndex(String indexName) {
+        WriteAlias alias = aliases.get(indexName);
+        return alias == null ? indexName : alias.getWriteIndex();
+    }
+
+    public List<WriteAlias> getAliases() {
+        return new ArrayList<>(aliases.values());
+    }
+
+    /**
+     * 开始一个写入批次，indexName是受管理的写别名时阻止滚动直到返回的guard关闭（正在滚动时等待滚动结束），
+     * 否则返回{@link WriteGuard#NONE}
+     *
+     * @param indexName
+     * @return org.dynasty.elasticsearch.demo.rollover.WriteGuard
+     */
+    public WriteGuard guard(String indexName) {
+        WriteAlias alias = aliases.get(indexName);
+        if (alias == null) {
+            return WriteGuard.NONE;
+        }
+        alias.acquire();
+        return new WriteGuard(this, alias);
+    }
+
+    /**
+     * 满足滚动条件时滚动，没有设置条件时不滚动
+     *
+     * @param alias
+     * @return boolean 是否滚动
+     */
+    public boolean maybeRollover(String alias) throws IOException {
+        WriteAlias writeAlias = require(alias);
+        return !writeAlias.getConditions().isEmpty() && rollover(writeAlias, false);
+    }
+
+    /**
+     * 无条件滚动
+     *
+     * @param alias
+     * @return boolean 是否滚动（等待在途写入超时时不滚动）
+     */
+    public boolean rollover(String alias) throws IOException {
+        return rollover(require(alias), true);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 自上次检查以来写入的条数达到maxDocs的1/10时提前检查，文档数最多超出maxDocs约10%
+     */
+    void afterWrite(WriteAlias alias, long docs) {
+        long maxDocs = alias.getConditions().getMaxDocs();
+        if (docs <= 0 || maxDocs <= 0) {
+            return;
+        }
+        long threshold = Math.max(1, maxDocs / 10);
+        long total = alias.written(docs);
+        if (total >= threshold && total - docs < threshold) {
+            scheduler.execute(() -> check(alias));
+        }
+    }
+
+    private boolean rollover(WriteAlias alias, boolean force) throws IOException {
+        try {
+            if (!alias.beginRollover(properties.getLockTimeout().toMillis())) {
+                LOGGER.warn("---写别名{}在{}内没有等到在途写入完成，本次不滚动---", alias.getAlias(),
+                        properties.getLockTimeout());
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待写别名" + alias.getAlias() + "的在途写入被中断");
+        }
+        try {
+            alias.checked();
+            RolloverRequest request = new RolloverRequest(alias.getAlias(), null);
+            if (!force) {
+                alias.getConditions().applyTo(request);
+            }
+            applyTemplate(request.getCreateIndexRequest(), alias.getSettings(), alias.getMappings());
+            RolloverResponse response = client.indices().rollover(request, RequestOptions.DEFAULT);
+            if (!response.isRolledOver()) {
+                return false;
+            }
+            alias.rolledOver(response.getNewIndex());
+            metadataCache.invalidate(alias.getAlias());
+            metadataCache.invalidate(response.getOldIndex());
+            metadataCache.invalidate(response.getNewIndex());
+            LOGGER.info("---写别名{}滚动:{} -> {}，条件:{}---", alias.getAlias(), response.getOldIndex(),
+                    response.getNewIndex(), response.getConditionStatus());
+            return true;
+        } finally {
+            alias.endRollover();
+        }
+    }
+
+    private void checkAll() {
+        aliases.values().forEach(this::check);
+    }
+
+    private void check(WriteAlias alias) {
+        if (alias.getConditions().isEmpty()) {
+            return;
+        }
+        try {
+            rollover(alias, false);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("---写别名{}检查滚动条件失败---", alias.getAlias(), e);
+        }
+    }
+
+    private WriteAlias require(String alias) {
+        WriteAlias writeAlias = aliases.get(alias);
+        if (writeAlias == null) {
+            throw new ElasticsearchException("写别名{}未注册", alias);
+        }
+        return writeAlias;
+    }
+
+    private Map<String, Set<AliasMetaData>> aliasedIndices(String alias) throws IOException {
+        GetAliasesResponse response = client.indices().getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT);
+        if (response.status() == RestStatus.NOT_FOUND) {
+            return Collections.emptyMap();
+        }
+        return response.getAliases();
+    }
+
+    private static String writeIndex(String alias, Map<String, Set<AliasMetaData>> indices) {
+        if (indices.isEmpty()) {
+            return null;
+        }
+        for (Map.Entry<String, Set<AliasMetaData>> entry : indices.entrySet()) {
+            for (AliasMetaData metaData : entry.getValue()) {
+                if (alias.equals(metaData.alias()) && Boolean.TRUE.equals(metaData.writeIndex())) {
+                    return entry.getKey();
+                }
+            }
+        }
+        if (indices.size() == 1) {
+            return indices.keySet().iterator().next();
+        }
+        throw new ElasticsearchException("别名{}指向多个索引且没有写索引:{}", alias, indices.keySet());
+    }
+
+    private static void applyTemplate(CreateIndexRequest request, String settings, String mappings) {
+        if (settings != null && settings.length() > 0) {
+            request.settings(settings, XContentType.JSON);
+        }
+        if (mappings != null && mappings.length() > 0) {
+            request.mapping(mappings, XContentType.JSON);
+        }
+    }
+
+}
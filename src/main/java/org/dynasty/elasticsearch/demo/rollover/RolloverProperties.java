@@ -0,0 +1,33 @@
+package org.dynasty.elasticsearch.demo.rollover;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 写别名滚动配置
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 20:30:00
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "easy-es.rollover")
+public class RolloverProperties {
+
+    /**
+     * 定时检查滚动条件的间隔
+     */
+    private Duration checkInterval = Duration.ofMinutes(1);
+
+    /**
+     * 滚动前等待在途写入批次完成的最长时间，超时本次不滚动，等下一次检查；
+     * 等待期间新的批次会被阻塞
+     */
+    private Duration lockTimeout = Duration.ofSeconds(30);
+
+}
@@ -0,0 +1,187 @@
+package org.dynasty.elasticsearch.demo.rollover;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 受管理的写别名
+ * <p>
+ * 每个在途的写入批次计数一次，滚动开始后新的批次等待，滚动在在途批次完成后进行：
+ * 一个批次（包括其中的重试）只会落在同一个写索引上。
+ * 计数与线程无关，批次可以在提交线程上开始、在回调线程上结束。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 20:30:00
+ */
+public class WriteAlias {
+
+    private final String alias;
+
+    private final String settings;
+
+    private final String mappings;
+
+    private final RolloverConditions conditions;
+
+    /**
+     * 在途的写入批次数
+     */
+    private int inFlight;
+
+    /**
+     * 正在滚动（或等待在途批次完成以便滚动）
+     */
+    private boolean rolling;
+
+    private final AtomicLong writtenSinceCheck = new AtomicLong();
+
+    private final AtomicLong rollovers = new AtomicLong();
+
+    private volatile String writeIndex;
+
+    private volatile boolean multiIndex;
+
+    WriteAlias(String alias, String settings, String mappings, RolloverConditions conditions, String writeIndex,
+               boolean multiIndex) {
+        this.alias = alias;
+        this.settings = settings;
+        this.mappings = mappings;
+        this.conditions = conditions;
+        this.writeIndex = writeIndex;
+        this.multiIndex = multiIndex;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public RolloverConditions getConditions() {
+        return conditions;
+    }
+
+    /**
+     * 当前的写索引
+     *
+     * @return java.lang.String
+     */
+    public String getWriteIndex() {
+        return writeIndex;
+    }
+
+    /**
+     * 别名是否指向多个索引（本进程或之前滚动过），此时按id的读写需要先确定文档所在的索引
+     *
+     * @return boolean
+     */
+    public boolean isMultiIndex() {
+        return multiIndex;
+    }
+
+    /**
+     * 本进程执行的滚动次数
+     *
+     * @return long
+     */
+    public long getRollovers() {
+        return rollovers.get();
+    }
+
+    String getSettings() {
+        return settings;
+    }
+
+    String getMappings() {
+        return mappings;
+    }
+
+    /**
+     * 开始一个写入批次，正在滚动时等待滚动结束
+     */
+    synchronized void acquire() {
+        boolean interrupted = false;
+        while (rolling) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        inFlight++;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 结束一个写入批次，可以在任意线程上调用
+     */
+    synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * 开始滚动：阻止新的批次，等待在途批次完成
+     *
+     * @param timeoutMillis
+     * @return boolean 超时返回false，此时不阻止新的批次
+     */
+    synchronized boolean beginRollover(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        // 同一别名同时只有一次滚动
+        while (rolling) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        rolling = true;
+        try {
+            while (inFlight > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    endRollover();
+                    return false;
+                }
+                wait(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            endRollover();
+            throw e;
+        }
+    }
+
+    synchronized void endRollover() {
+        rolling = false;
+        notifyAll();
+    }
+
+    /**
+     * 在途的写入批次数
+     *
+     * @return int
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * 累计写入条数，返回上次检查以来的写入条数
+     */
+    long written(long docs) {
+        return writtenSinceCheck.addAndGet(docs);
+    }
+
+    void checked() {
+        writtenSinceCheck.set(0);
+    }
+
+    void rolledOver(String newIndex) {
+        writeIndex = newIndex;
+        multiIndex = true;
+        rollovers.incrementAndGet();
+    }
+
+}
@@ -0,0 +1,51 @@
+package org.dynasty.elasticsearch.demo.rollover;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个写入批次（包括其中的重试）期间持有，阻止写别名滚动；批次完成后关闭，可以在任意线程上关闭，重复关闭无效
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 20:30:00
+ */
+public final class WriteGuard implements Closeable {
+
+    /**
+     * 写入的不是受管理的写别名时返回的空实现
+     */
+    public static final WriteGuard NONE = new WriteGuard(null, null);
+
+    private final RolloverManager manager;
+
+    private final WriteAlias alias;
+
+    private final AtomicLong written = new AtomicLong();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    WriteGuard(RolloverManager manager, WriteAlias alias) {
+        this.manager = manager;
+        this.alias = alias;
+    }
+
+    /**
+     * 记录写入的文档数，用于在达到maxDocs前提前检查滚动条件
+     *
+     * @param docs
+     */
+    public void written(long docs) {
+        written.addAndGet(docs);
+    }
+
+    @Override
+    public void close() {
+        if (alias == null || !closed.compareAndSet(false, true)) {
+            return;
+        }
+        alias.release();
+        manager.afterWrite(alias, written.get());
+    }
+
+}
@@ -0,0 +1,298 @@
+package org.dynasty.elasticsearch.demo.search;
+
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.elasticsearch.ElasticsearchTimeoutException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 把并发的查询合并成_msearch
+ * <p>
+ * 第一个查询到达时开始计时，窗口结束、攒够maxBatchSize个查询或请求体将超过maxBatchBytes时发送一次_msearch，
+ * 每个子查询的结果或错误分别完成各自的future，一个子查询失败不影响同批次的其他查询。
+ * 每个查询有独立的超时（从提交时开始计算，包括在窗口内等待的时间），超时的查询如果还没发送就不再发送；
+ * 发送时剩余的时间作为子查询的timeout传给服务端（调用方没有设置时），客户端放弃的查询在服务端也尽快停止。
+ * 结果在客户端IO线程上完成，在返回的CompletableFuture上追加的回调不能阻塞。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 19:00:00
+ */
+public class MultiSearchBatcher implements Closeable {
+
+    private final RestHighLevelClient client;
+
+    private final RequestOptions requestOptions;
+
+    private final ElasticsearchMetrics metrics;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final long maxBatchBytes;
+
+    private final int maxConcurrentSearches;
+
+    private final Duration defaultTimeout;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder requested = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder timedOut = new LongAdder();
+
+    private List<Pending> pending = new ArrayList<>();
+
+    private long pendingBytes;
+
+    private ScheduledFuture<?> scheduled;
+
+    private boolean closed;
+
+    public MultiSearchBatcher(RestHighLevelClient client, RequestOptions requestOptions,
+                              MultiSearchProperties properties, ElasticsearchMetrics metrics) {
+        this.client = client;
+        this.requestOptions = requestOptions;
+        this.metrics = metrics;
+        this.windowNanos = properties.getWindow().toNanos();
+        this.maxBatchSize = Math.max(1, properties.getMaxBatchSize());
+        this.maxBatchBytes = properties.getMaxBatchBytes().toBytes();
+        this.maxConcurrentSearches = properties.getMaxConcurrentSearches();
+        this.defaultTimeout = properties.getTimeout();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "es-multi-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 超时任务持有future（以及完成后的SearchResponse），取消后立即移出队列，不保留到原定的超时时间
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 提交查询，使用默认超时
+     *
+     * @param request
+     * @return java.util.concurrent.CompletableFuture
+     */
+    public CompletableFuture<SearchResponse> submit(SearchRequest request) {
+        return submit(request, defaultTimeout);
+    }
+
+    /**
+     * 提交查询，超时后future以{@link ElasticsearchTimeoutException}结束
+     *
+     * @param request
+     * @param timeout 为null或0时不超时
+     * @return java.util.concurrent.CompletableFuture
+     */
+    public CompletableFuture<SearchResponse> submit(SearchRequest request, Duration timeout) {
+        Objects.requireNonNull(request, "request不能为空");
+        if (request.scroll() != null) {
+            throw new IllegalArgumentException("_msearch不支持scroll");
+        }
+        long bytes = estimate(request);
+        boolean timed = timeout != null && !timeout.isZero() && !timeout.isNegative();
+        long deadline = timed ? System.nanoTime() + timeout.toNanos() : 0;
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        List<List<Pending>> ready = new ArrayList<>(2);
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("MultiSearchBatcher已关闭");
+            }
+            requested.increment();
+            if (!pending.isEmpty() && pendingBytes + bytes > maxBatchBytes) {
+                ready.add(take());
+            }
+            pending.add(new Pending(request, future, deadline));
+            pendingBytes += bytes;
+            if (pending.size() >= maxBatchSize || pendingBytes >= maxBatchBytes) {
+                ready.add(take());
+            } else if (pending.size() == 1) {
+                scheduled = scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (timed) {
+            ScheduledFuture<?> timer = scheduler.schedule(() -> {
+                if (future.completeExceptionally(new ElasticsearchTimeoutException("查询超时:{}", timeout))) {
+                    timedOut.increment();
+                }
+            }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+            future.whenComplete((response, e) -> timer.cancel(false));
+        }
+        ready.forEach(this::send);
+        return future;
+    }
+
+    /**
+     * 立即发送已收集的查询
+     */
+    public void flush() {
+        List<Pending> batch;
+        synchronized (this) {
+            batch = take();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    /**
+     * 调用方提交的查询数
+     *
+     * @return long
+     */
+    public long getRequested() {
+        return requested.sum();
+    }
+
+    /**
+     * 发送的_msearch请求数
+     *
+     * @return long
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * 超时的查询数
+     *
+     * @return long
+     */
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    /**
+     * 停止接收新查询，发送剩余的查询
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flush();
+        scheduler.shutdownNow();
+    }
+
+    private static long estimate(SearchRequest request) {
+        if (request.source() == null) {
+            return 2;
+        }
+        try {
+            return XContentHelper.toXContent(request.source(), XContentType.JSON, false).length();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Pending> take() {
+        List<Pending> batch = pending;
+        pending = new ArrayList<>();
+        pendingBytes = 0;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        return batch;
+    }
+
+    private void send(List<Pending> batch) {
+        // 等待期间已超时的查询不再发送
+        List<Pending> live = new ArrayList<>(batch.size());
+        MultiSearchRequest request = new MultiSearchRequest();
+        if (maxConcurrentSearches > 0) {
+            request.maxConcurrentSearchRequests(maxConcurrentSearches);
+        }
+        long now = System.nanoTime();
+        for (Pending item : batch) {
+            if (!item.future.isDone()) {
+                live.add(item);
+                request.add(withTimeout(item.request, item.deadline, now));
+            }
+        }
+        if (live.isEmpty()) {
+            return;
+        }
+        batches.increment();
+        metrics.recordBatch("msearch", live.size());
+        long begin = metrics.begin("msearch");
+        client.msearchAsync(request, requestOptions, ActionListener.wrap((MultiSearchResponse response) -> {
+            metrics.end("msearch", begin, response.getTook().millis(), true);
+            MultiSearchResponse.Item[] items = response.getResponses();
+            for (int i = 0; i < live.size(); i++) {
+                MultiSearchResponse.Item item = items[i];
+                if (item.isFailure()) {
+                    live.get(i).future.completeExceptionally(item.getFailure());
+                } else {
+                    live.get(i).future.complete(item.getResponse());
+                }
+            }
+        }, e -> {
+            metrics.end("msearch", begin, -1, false);
+            live.forEach(target -> target.future.completeExceptionally(e));
+        }));
+    }
+
+    /**
+     * 把剩余时间设置为服务端的查询timeout，调用方已经设置了timeout的不覆盖；复制source，不修改调用方的对象
+     */
+    private static SearchRequest withTimeout(SearchRequest request, long deadline, long now) {
+        if (deadline == 0 || (request.source() != null && request.source().timeout() != null)) {
+            return request;
+        }
+        // copyWithNewSlice传入原slice即浅复制
+        SearchSourceBuilder source = request.source() == null ? new SearchSourceBuilder()
+                : request.source().copyWithNewSlice(request.source().slice());
+        long remainingMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - now));
+        return request.source(source.timeout(TimeValue.timeValueMillis(remainingMillis)));
+    }
+
+    private static final class Pending {
+
+        private final SearchRequest request;
+
+        private final CompletableFuture<SearchResponse> future;
+
+        /**
+         * 超时的时间点（System.nanoTime），0表示不超时
+         */
+        private final long deadline;
+
+        Pending(SearchRequest request, CompletableFuture<SearchResponse> future, long deadline) {
+            this.request = request;
+            this.future = future;
+            this.deadline = deadline;
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.dynasty.elasticsearch.demo.search;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 查询合并配置
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 19:00:00
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "easy-es.multi-search")
+public class MultiSearchProperties {
+
+    /**
+     * 收集窗口，窗口内的并发查询合并成一个_msearch
+     */
+    private Duration window = Duration.ofMillis(2);
+
+    /**
+     * 单个_msearch最多包含的查询数
+     */
+    private int maxBatchSize = 50;
+
+    /**
+     * 单个_msearch请求体的上限（按查询JSON估算）
+     */
+    private DataSize maxBatchBytes = DataSize.ofKilobytes(512);
+
+    /**
+     * 服务端同时执行的子查询数上限，0表示使用服务端默认值
+     */
+    private int maxConcurrentSearches = 0;
+
+    /**
+     * 调用方未指定超时时的默认超时，包括在窗口内等待的时间
+     */
+    private Duration timeout = Duration.ofSeconds(30);
+
+}
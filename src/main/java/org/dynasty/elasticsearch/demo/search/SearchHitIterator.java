@@ -0,0 +1,341 @@
+package org.dynasty.elasticsearch.demo.search;
+
+import org.dynasty.elasticsearch.demo.annotations.Field;
+import org.dynasty.elasticsearch.demo.annotations.FieldType;
+import org.dynasty.elasticsearch.demo.annotations.Id;
+import org.dynasty.elasticsearch.demo.metadata.EntityMetadata;
+import org.dynasty.elasticsearch.demo.metadata.EntityMetadataRegistry;
+import org.dynasty.elasticsearch.demo.metadata.MappingGenerator;
+import org.dynasty.elasticsearch.demo.serialization.EntitySerializer;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 分页遍历查询结果，默认按 search_after + tiebreaker 排序翻页，也可退回到scroll
+ * （tiebreaker的选择见{@link SearchOptions}）
+ * <p>
+ * 每次只在内存中保留一页命中，文档在next()时才反序列化；遍历结束、出错或close()时释放scroll上下文。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 18:10:00
+ */
+public class SearchHitIterator<T> implements Iterator<T>, Closeable {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(SearchHitIterator.class);
+
+    /**
+     * 没有可用的tiebreaker时的兜底排序字段，需要加载fielddata
+     */
+    static final String ID_TIEBREAKER = "_id";
+
+    private final RestHighLevelClient client;
+
+    private final String[] indices;
+
+    private final SearchOptions options;
+
+    private final RequestOptions requestOptions;
+
+    private final SearchSourceBuilder source;
+
+    private final Function<SearchHit, T> mapper;
+
+    private SearchHit[] page;
+
+    private int position;
+
+    private Object[] searchAfter;
+
+    private String scrollId;
+
+    private boolean exhausted;
+
+    private boolean closed;
+
+    public SearchHitIterator(RestHighLevelClient client, QueryBuilder query, SearchOptions options,
+                             Function<SearchHit, T> mapper, String... indices) {
+        this(client, RequestOptions.DEFAULT, query, options, mapper, indices);
+    }
+
+    public SearchHitIterator(RestHighLevelClient client, RequestOptions requestOptions, QueryBuilder query,
+                             SearchOptions options, Function<SearchHit, T> mapper, String... indices) {
+        this(client, requestOptions, query, options, ID_TIEBREAKER, false, mapper, indices);
+    }
+
+    /**
+     * @param defaultTiebreaker options未指定tiebreaker时使用的排序字段
+     * @param nullable          defaultTiebreaker的值可能为空，需要追加_id排序
+     */
+    private SearchHitIterator(RestHighLevelClient client, RequestOptions requestOptions, QueryBuilder query,
+                              SearchOptions options, String defaultTiebreaker, boolean nullable,
+                              Function<SearchHit, T> mapper, String... indices) {
+        this.client = client;
+        this.requestOptions = requestOptions;
+        this.indices = indices;
+        this.options = options;
+        this.mapper = mapper;
+        this.source = new SearchSourceBuilder()
+                .query(query)
+                .size(options.getPageSize());
+        if (options.isScroll()) {
+            // scroll不允许关闭track_total_hits
+            source.sort(SortBuilders.fieldSort("_doc"));
+        } else {
+            source.trackTotalHits(false);
+            for (SortBuilder<?> sort : options.getSorts()) {
+                source.sort(sort);
+            }
+            String tiebreaker = options.getTiebreaker() == null ? defaultTiebreaker : options.getTiebreaker();
+            boolean appendId = options.isIdTiebreaker() || options.getTiebreaker() == null && nullable;
+            if (ID_TIEBREAKER.equals(tiebreaker) || appendId) {
+                LOGGER.debug("search_after按_id排序，需要加载_id的fielddata，建议指定有doc_values的唯一字段");
+            }
+            source.sort(SortBuilders.fieldSort(tiebreaker).order(SortOrder.ASC));
+            // tiebreaker值缺失（如@Id为空由ES生成_id）或重复时，靠_id区分，避免翻页跳过文档
+            if (appendId && !ID_TIEBREAKER.equals(tiebreaker)) {
+                source.sort(SortBuilders.fieldSort(ID_TIEBREAKER).order(SortOrder.ASC));
+            }
+        }
+    }
+
+    /**
+     * 按实体类型反序列化
+     */
+    public static <T> SearchHitIterator<T> of(RestHighLevelClient client, EntitySerializer serializer, QueryBuilder query,
+                                              Class<T> type, SearchOptions options, String... indices) {
+        return of(client, RequestOptions.DEFAULT, serializer, query, type, options, indices);
+    }
+
+    /**
+     * 按实体类型反序列化，serializer的格式需要与requestOptions要求的响应格式（Accept）一致；
+     * options未指定tiebreaker时按_id排序
+     */
+    public static <T> SearchHitIterator<T> of(RestHighLevelClient client, RequestOptions requestOptions,
+                                              EntitySerializer serializer, QueryBuilder query, Class<T> type,
+                                              SearchOptions options, String... indices) {
+        return of(client, requestOptions, serializer, query, type, options, index -> Collections.emptyMap(), indices);
+    }
+
+    /**
+     * 按实体类型反序列化，options未指定tiebreaker时按实体的@Id字段排序，
+     * 字段在每个索引的实际mapping中都可排序时才使用（dynamic mapping生成的text字段改用其keyword子字段），否则退回_id
+     *
+     * @param mappings 按索引名获取mappings，获取失败时抛出的RuntimeException视为不可用
+     */
+    public static <T> SearchHitIterator<T> of(RestHighLevelClient client, RequestOptions requestOptions,
+                                              EntitySerializer serializer, QueryBuilder query, Class<T> type,
+                                              SearchOptions options, Function<String, Map<String, Object>> mappings,
+                                              String... indices) {
+        String tiebreaker = options.getTiebreaker() != null || options.isScroll()
+                ? ID_TIEBREAKER : tiebreaker(type, mappings, indices);
+        return new SearchHitIterator<>(client, requestOptions, query, options, tiebreaker, isIdNullable(type), hit -> {
+            try {
+                return serializer.deserialize(hit.getSourceRef(), type);
+            } catch (IOException e) {
+                throw new ElasticsearchException("文档反序列化失败:{}/{}", e, hit.getIndex(), hit.getId());
+            }
+        }, indices);
+    }
+
+    /**
+     * 实体的@Id字段（写入时作为_id，索引内唯一）序列化后的属性名，
+     * 没有@Id、字段不写入_source或不可排序（text或关闭了doc_values）时退回_id
+     */
+    static String tiebreaker(Class<?> type) {
+        EntityMetadata metadata = EntityMetadataRegistry.of(type);
+        if (!metadata.hasId()) {
+            return ID_TIEBREAKER;
+        }
+        String name = MappingGenerator.propertyName(type, metadata.getIdField());
+        // 以_开头的字段不生成mapping
+        if (name == null || name.startsWith("_")) {
+            return ID_TIEBREAKER;
+        }
+        Field annotation = metadata.getIdField().getAnnotation(Field.class);
+        if (annotation != null && (annotation.type() == FieldType.TEXT || !annotation.docValues()
+                || annotation.ignore())) {
+            return ID_TIEBREAKER;
+        }
+        return name;
+    }
+
+    /**
+     * 标注了@Id(generated = true)且不是基本类型时@Id可能为空
+     */
+    static boolean isIdNullable(Class<?> type) {
+        EntityMetadata metadata = EntityMetadataRegistry.of(type);
+        if (!metadata.hasId() || metadata.getIdField().getType().isPrimitive()) {
+            return false;
+        }
+        return metadata.getIdField().getAnnotation(Id.class).generated();
+    }
+
+    /**
+     * 实体@Id字段在所有索引的mapping中对应的可排序字段，任何一个索引不可排序时退回_id
+     */
+    static String tiebreaker(Class<?> type, Function<String, Map<String, Object>> mappings, String... indices) {
+        String field = tiebreaker(type);
+        if (ID_TIEBREAKER.equals(field) || indices.length == 0) {
+            return ID_TIEBREAKER;
+        }
+        String resolved = null;
+        for (String index : indices) {
+            String sortable;
+            try {
+                sortable = sortableField(field, mappings.apply(index));
+            } catch (RuntimeException e) {
+                LOGGER.debug("获取索引{}的mapping失败，tiebreaker退回_id", index, e);
+                return ID_TIEBREAKER;
+            }
+            if (sortable == null || resolved != null && !resolved.equals(sortable)) {
+                return ID_TIEBREAKER;
+            }
+            resolved = sortable;
+        }
+        return resolved;
+    }
+
+    /**
+     * 按mapping判断顶层字段能否排序：text字段取有doc_values的keyword子字段，未映射、对象或关闭了doc_values时返回null
+     */
+    @SuppressWarnings("unchecked")
+    static String sortableField(String field, Map<String, Object> mapping) {
+        Object properties = mapping == null ? null : mapping.get("properties");
+        Object property = properties instanceof Map ? ((Map<String, Object>) properties).get(field) : null;
+        if (!(property instanceof Map)) {
+            return null;
+        }
+        Map<String, Object> definition = (Map<String, Object>) property;
+        if ("text".equals(definition.get("type"))) {
+            Object fields = definition.get("fields");
+            if (!(fields instanceof Map)) {
+                return null;
+            }
+            for (Map.Entry<String, Object> subField : ((Map<String, Object>) fields).entrySet()) {
+                if (subField.getValue() instanceof Map && isSortable((Map<String, Object>) subField.getValue())) {
+                    return field + "." + subField.getKey();
+                }
+            }
+            return null;
+        }
+        return isSortable(definition) ? field : null;
+    }
+
+    private static boolean isSortable(Map<String, Object> definition) {
+        Object type = definition.get("type");
+        return type != null && !"text".equals(type) && !"object".equals(type) && !"nested".equals(type)
+                && !"binary".equals(type) && !"false".equals(String.valueOf(definition.get("doc_values")));
+    }
+
+    /**
+     * 包装为Stream，Stream关闭时释放scroll上下文，调用方应使用try-with-resources
+     *
+     * @return java.util.stream.Stream
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page != null && position < page.length) {
+            return true;
+        }
+        if (exhausted || closed) {
+            return false;
+        }
+        fetch();
+        return page.length > 0;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SearchHit hit = page[position];
+        page[position++] = null;
+        return mapper.apply(hit);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        page = null;
+        clearScroll();
+    }
+
+    private void fetch() {
+        SearchResponse response;
+        try {
+            if (scrollId != null) {
+                response = client.scroll(new SearchScrollRequest(scrollId).scroll(options.getKeepAlive()), requestOptions);
+            } else {
+                SearchRequest request = new SearchRequest(indices).source(source);
+                if (options.isScroll()) {
+                    request.scroll(options.getKeepAlive());
+                } else if (searchAfter != null) {
+                    source.searchAfter(searchAfter);
+                }
+                response = client.search(request, requestOptions);
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw new ElasticsearchException("分页查询失败", e);
+        }
+        if (options.isScroll()) {
+            scrollId = response.getScrollId();
+        }
+        page = response.getHits().getHits();
+        position = 0;
+        if (page.length < options.getPageSize()) {
+            exhausted = true;
+            clearScroll();
+        } else if (!options.isScroll()) {
+            searchAfter = page[page.length - 1].getSortValues();
+        }
+    }
+
+    private void clearScroll() {
+        if (scrollId == null) {
+            return;
+        }
+        ClearScrollRequest request = new ClearScrollRequest();
+        request.addScrollId(scrollId);
+        scrollId = null;
+        try {
+            client.clearScroll(request, requestOptions);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("释放scroll上下文失败，将在{}后过期:{}", options.getKeepAlive(), e.toString());
+        }
+    }
+
+}
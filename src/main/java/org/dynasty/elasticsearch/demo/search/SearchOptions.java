@@ -0,0 +1,116 @@
+package org.dynasty.elasticsearch.demo.search;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.sort.SortBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 流式查询参数
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 18:10:00
+ */
+public class SearchOptions {
+
+    /**
+     * 每页拉取条数
+     */
+    private int pageSize = 1000;
+
+    /**
+     * search_after的排序字段，应在索引内唯一且有doc_values（放在所有排序字段最后）
+     * <p>
+     * 未指定时按实体的@Id字段排序，字段在目标索引的mapping中必须可排序（dynamic mapping生成的text字段使用其keyword子字段）；
+     * 实体没有@Id、mapping中不可排序或按SearchHit遍历时退回_id。
+     * tiebreaker的值为空或重复的文档会在翻页时被跳过：@Id可能为空（由ES生成_id）时标注@Id(generated = true)，
+     * 自定义tiebreaker不唯一时设置idTiebreaker，都会追加_id作为最后的排序字段。
+     * _id没有doc_values，排序时需要把_id加载为堆内的fielddata，大索引上内存开销很大（ES 8默认禁止）。
+     */
+    private String tiebreaker;
+
+    /**
+     * 在tiebreaker之后追加_id排序
+     */
+    private boolean idTiebreaker = false;
+
+    private final List<SortBuilder<?>> sorts = new ArrayList<>();
+
+    /**
+     * 使用scroll代替search_after（不支持自定义排序）
+     */
+    private boolean scroll = false;
+
+    /**
+     * scroll上下文保留时间，同时也是放弃遍历而没有关闭stream时上下文的最长残留时间
+     */
+    private TimeValue keepAlive = TimeValue.timeValueMinutes(1);
+
+    public static SearchOptions defaults() {
+        return new SearchOptions();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public SearchOptions pageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize必须大于0");
+        }
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * 显式指定的tiebreaker，未指定时为null
+     */
+    public String getTiebreaker() {
+        return tiebreaker;
+    }
+
+    public SearchOptions tiebreaker(String tiebreaker) {
+        this.tiebreaker = Objects.requireNonNull(tiebreaker, "tiebreaker不能为空");
+        return this;
+    }
+
+    public boolean isIdTiebreaker() {
+        return idTiebreaker;
+    }
+
+    public SearchOptions idTiebreaker(boolean idTiebreaker) {
+        this.idTiebreaker = idTiebreaker;
+        return this;
+    }
+
+    public List<SortBuilder<?>> getSorts() {
+        return Collections.unmodifiableList(sorts);
+    }
+
+    public SearchOptions sort(SortBuilder<?> sort) {
+        sorts.add(Objects.requireNonNull(sort, "sort不能为空"));
+        return this;
+    }
+
+    public boolean isScroll() {
+        return scroll;
+    }
+
+    public SearchOptions scroll(boolean scroll) {
+        this.scroll = scroll;
+        return this;
+    }
+
+    public TimeValue getKeepAlive() {
+        return keepAlive;
+    }
+
+    public SearchOptions keepAlive(TimeValue keepAlive) {
+        this.keepAlive = Objects.requireNonNull(keepAlive, "keepAlive不能为空");
+        return this;
+    }
+
+}
@@ -0,0 +1,235 @@
+package org.dynasty.elasticsearch.demo.serialization;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 实体序列化
+ * <p>
+ * ObjectMapper/ObjectWriter配置完成后线程安全，全局共享；每个实体Class缓存一个ObjectWriter。
+ * 文档直接写入线程复用的字节缓冲，再按实际长度拷贝为请求体，中间不产生String。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 14:02:00
+ */
+public final class EntitySerializer {
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private static final EntitySerializer JSON = new EntitySerializer(createObjectMapper(), XContentType.JSON);
+
+    private static final EntitySerializer SMILE = new EntitySerializer(createObjectMapper(WireFormat.SMILE), XContentType.SMILE);
+
+    private static final EntitySerializer CBOR = new EntitySerializer(createObjectMapper(WireFormat.CBOR), XContentType.CBOR);
+
+    private final ObjectMapper mapper;
+
+    private final XContentType xContentType;
+
+    private final ClassValue<ObjectWriter> writers = new ClassValue<ObjectWriter>() {
+        @Override
+        protected ObjectWriter computeValue(Class<?> type) {
+            return mapper.writerFor(type);
+        }
+    };
+
+    private final ClassValue<ObjectReader> readers = new ClassValue<ObjectReader>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+            return mapper.readerFor(type);
+        }
+    };
+
+    private final ThreadLocal<RecyclableByteArrayOutputStream> buffers =
+            ThreadLocal.withInitial(() -> new RecyclableByteArrayOutputStream(INITIAL_BUFFER_SIZE));
+
+    public EntitySerializer(ObjectMapper mapper, XContentType xContentType) {
+        this.mapper = Objects.requireNonNull(mapper, "mapper不能为空");
+        this.xContentType = Objects.requireNonNull(xContentType, "xContentType不能为空");
+    }
+
+    /**
+     * 默认的JSON序列化器
+     *
+     * @return org.dynasty.elasticsearch.demo.serialization.EntitySerializer
+     */
+    public static EntitySerializer json() {
+        return JSON;
+    }
+
+    /**
+     * SMILE序列化器
+     *
+     * @return org.dynasty.elasticsearch.demo.serialization.EntitySerializer
+     */
+    public static EntitySerializer smile() {
+        return SMILE;
+    }
+
+    /**
+     * CBOR序列化器，7.6的_bulk不支持CBOR，只能用于单条请求
+     *
+     * @return org.dynasty.elasticsearch.demo.serialization.EntitySerializer
+     */
+    public static EntitySerializer cbor() {
+        return CBOR;
+    }
+
+    /**
+     * 指定格式的序列化器
+     *
+     * @param format
+     * @return org.dynasty.elasticsearch.demo.serialization.EntitySerializer
+     */
+    public static EntitySerializer of(WireFormat format) {
+        switch (Objects.requireNonNull(format, "format不能为空")) {
+            case SMILE:
+                return SMILE;
+            case CBOR:
+                return CBOR;
+            default:
+                return JSON;
+        }
+    }
+
+    public static ObjectMapper createObjectMapper() {
+        return createObjectMapper(WireFormat.JSON);
+    }
+
+    public static ObjectMapper createObjectMapper(WireFormat format) {
+        ObjectMapper objectMapper = new ObjectMapper(format.createFactory());
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+        return objectMapper;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return mapper;
+    }
+
+    public XContentType getXContentType() {
+        return xContentType;
+    }
+
+    /**
+     * 序列化实体
+     *
+     * @param entity
+     * @return org.elasticsearch.common.bytes.BytesReference
+     */
+    public BytesReference serialize(Object entity) throws IOException {
+        Objects.requireNonNull(entity, "entity不能为空");
+        RecyclableByteArrayOutputStream out = buffers.get();
+        try {
+            writers.get(entity.getClass()).writeValue(out, entity);
+            return out.toBytesArray();
+        } finally {
+            if (out.isRetainable()) {
+                out.reset();
+            } else {
+                buffers.remove();
+            }
+        }
+    }
+
+    /**
+     * 反序列化文档
+     *
+     * @param source
+     * @param type
+     * @return T
+     */
+    public <T> T deserialize(BytesReference source, Class<T> type) throws IOException {
+        Objects.requireNonNull(source, "source不能为空");
+        try (InputStream in = source.streamInput()) {
+            return readers.get(type).readValue(in);
+        }
+    }
+
+    /**
+     * 序列化实体并设置为IndexRequest的source
+     *
+     * @param request
+     * @param entity
+     * @return org.elasticsearch.action.index.IndexRequest
+     */
+    public IndexRequest source(IndexRequest request, Object entity) throws IOException {
+        return request.source(serialize(entity), xContentType);
+    }
+
+    /**
+     * 序列化实体（或diff得到的ObjectNode）并设置为UpdateRequest的局部doc
+     *
+     * @param request
+     * @param doc
+     * @return org.elasticsearch.action.update.UpdateRequest
+     */
+    public UpdateRequest doc(UpdateRequest request, Object doc) throws IOException {
+        BytesRef bytes = serialize(doc).toBytesRef();
+        return request.doc(bytes.bytes, bytes.offset, bytes.length, xContentType);
+    }
+
+    /**
+     * 比较同一文档修改前后的两个实体，返回需要发送的局部doc：值不同的字段、当前实体中已去掉的字段（置为null），
+     * 嵌套对象递归比较只保留变化的子字段，数组整体替换。没有变化时返回空ObjectNode
+     *
+     * @param previous
+     * @param current
+     * @return com.fasterxml.jackson.databind.node.ObjectNode
+     */
+    public ObjectNode diff(Object previous, Object current) {
+        Objects.requireNonNull(previous, "previous不能为空");
+        Objects.requireNonNull(current, "current不能为空");
+        JsonNode before = mapper.valueToTree(previous);
+        JsonNode after = mapper.valueToTree(current);
+        if (!before.isObject() || !after.isObject()) {
+            throw new IllegalArgumentException("只能比较序列化为对象的实体:" + current.getClass().getName());
+        }
+        return diff((ObjectNode) before, (ObjectNode) after);
+    }
+
+    private static ObjectNode diff(ObjectNode before, ObjectNode after) {
+        ObjectNode changed = after.objectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = after.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode old = before.get(field.getKey());
+            JsonNode value = field.getValue();
+            if (value.equals(old)) {
+                continue;
+            }
+            if (value.isObject() && old != null && old.isObject()) {
+                ObjectNode nested = diff((ObjectNode) old, (ObjectNode) value);
+                if (nested.size() > 0) {
+                    changed.set(field.getKey(), nested);
+                }
+            } else {
+                changed.set(field.getKey(), value);
+            }
+        }
+        Iterator<String> names = before.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!after.has(name) && !before.get(name).isNull()) {
+                changed.putNull(name);
+            }
+        }
+        return changed;
+    }
+
+}
@@ -0,0 +1,38 @@
+package org.dynasty.elasticsearch.demo.serialization;
+
+import org.elasticsearch.common.bytes.BytesArray;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * 可复用的字节缓冲，每个线程持有一个，避免每条文档都重新扩容
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 14:02:00
+ */
+final class RecyclableByteArrayOutputStream extends ByteArrayOutputStream {
+
+    /**
+     * 超过该大小的缓冲用完后不再保留，防止个别大文档让线程长期占用内存
+     */
+    static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+    RecyclableByteArrayOutputStream(int size) {
+        super(size);
+    }
+
+    /**
+     * 按实际长度拷贝出一份，作为请求体交给IndexRequest
+     *
+     * @return org.elasticsearch.common.bytes.BytesArray
+     */
+    BytesArray toBytesArray() {
+        return new BytesArray(Arrays.copyOf(buf, count));
+    }
+
+    boolean isRetainable() {
+        return buf.length <= MAX_RETAINED_SIZE;
+    }
+
+}
@@ -0,0 +1,30 @@
+package org.dynasty.elasticsearch.demo.serialization;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文档编码配置
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 09:20:00
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "easy-es.serialization")
+public class SerializationProperties {
+
+    /**
+     * 写入文档的编码：json、smile、cbor
+     */
+    private WireFormat format = WireFormat.JSON;
+
+    /**
+     * 查询和写入的响应是否也按format编码返回（请求头Accept）
+     */
+    private boolean decodeResponses = true;
+
+}
@@ -0,0 +1,73 @@
+package org.dynasty.elasticsearch.demo.serialization;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+
+/**
+ * 文档在请求/响应中的编码格式
+ * <p>
+ * SMILE和CBOR是二进制编码，数值和日期不再转成文本，序列化更快、请求体更小。
+ * 7.6的_bulk只接受JSON和SMILE，配置为CBOR时批量写入退回SMILE，单条写入仍使用CBOR。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 09:20:00
+ */
+public enum WireFormat {
+
+    JSON(XContentType.JSON),
+
+    SMILE(XContentType.SMILE),
+
+    CBOR(XContentType.CBOR);
+
+    private final XContentType xContentType;
+
+    WireFormat(XContentType xContentType) {
+        this.xContentType = xContentType;
+    }
+
+    public XContentType getXContentType() {
+        return xContentType;
+    }
+
+    /**
+     * 请求头Accept，要求Elasticsearch以同样的格式返回响应
+     *
+     * @return java.lang.String
+     */
+    public String getMediaType() {
+        return xContentType.mediaTypeWithoutParameters();
+    }
+
+    /**
+     * _bulk请求是否支持该格式
+     *
+     * @return boolean
+     */
+    public boolean isBulkSupported() {
+        return this != CBOR;
+    }
+
+    /**
+     * _bulk请求实际使用的格式
+     *
+     * @return org.dynasty.elasticsearch.demo.serialization.WireFormat
+     */
+    public WireFormat forBulk() {
+        return isBulkSupported() ? this : SMILE;
+    }
+
+    JsonFactory createFactory() {
+        switch (this) {
+            case SMILE:
+                return new SmileFactory();
+            case CBOR:
+                return new CBORFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+
+}
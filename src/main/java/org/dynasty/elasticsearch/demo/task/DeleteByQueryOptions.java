@@ -0,0 +1,93 @@
+package org.dynasty.elasticsearch.demo.task;
+
+import org.elasticsearch.index.reindex.AbstractBulkByScrollRequest;
+
+/**
+ * 后台delete_by_query任务参数
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 15:00:00
+ */
+public class DeleteByQueryOptions {
+
+    /**
+     * slice数，0表示auto（每个分片一个slice）
+     */
+    private int slices = AbstractBulkByScrollRequest.AUTO_SLICES;
+
+    /**
+     * 每秒处理的文档数上限，小于等于0表示不限速
+     */
+    private float requestsPerSecond = 0;
+
+    /**
+     * 每批scroll/删除的文档数
+     */
+    private int batchSize = 1000;
+
+    /**
+     * 完成时是否refresh涉及的索引
+     */
+    private boolean refresh = false;
+
+    /**
+     * 版本冲突时是否继续，false时遇到冲突中止任务
+     */
+    private boolean proceedOnConflicts = true;
+
+    public static DeleteByQueryOptions defaults() {
+        return new DeleteByQueryOptions();
+    }
+
+    public int getSlices() {
+        return slices;
+    }
+
+    public DeleteByQueryOptions slices(int slices) {
+        if (slices < 0) {
+            throw new IllegalArgumentException("slices不能小于0");
+        }
+        this.slices = slices;
+        return this;
+    }
+
+    public float getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public DeleteByQueryOptions requestsPerSecond(float requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+        return this;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public DeleteByQueryOptions batchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize必须大于0");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public boolean isRefresh() {
+        return refresh;
+    }
+
+    public DeleteByQueryOptions refresh(boolean refresh) {
+        this.refresh = refresh;
+        return this;
+    }
+
+    public boolean isProceedOnConflicts() {
+        return proceedOnConflicts;
+    }
+
+    public DeleteByQueryOptions proceedOnConflicts(boolean proceedOnConflicts) {
+        this.proceedOnConflicts = proceedOnConflicts;
+        return this;
+    }
+
+}
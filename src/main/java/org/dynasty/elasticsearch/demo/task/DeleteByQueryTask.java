@@ -0,0 +1,188 @@
+package org.dynasty.elasticsearch.demo.task;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dynasty.elasticsearch.demo.bulk.DeadLetter;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 后台运行的delete_by_query任务句柄，可查询进度、取消或等待完成
+ * <p>
+ * 进度通过 GET _tasks/{taskId} 查询；第一次观察到任务完成时回调onComplete（用于缓存失效和记录失败），只回调一次。
+ * 调用方不一定会查询进度，{@link #watch(ScheduledExecutorService)}在后台轮询直到任务完成，保证onComplete被回调。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 15:00:00
+ */
+public class DeleteByQueryTask {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(DeleteByQueryTask.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final long MIN_POLL_INTERVAL_MILLIS = 100;
+
+    private static final long MAX_POLL_INTERVAL_MILLIS = 2000;
+
+    private final RestClient client;
+
+    private final String taskId;
+
+    private final Consumer<TaskProgress> onComplete;
+
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    public DeleteByQueryTask(RestClient client, String taskId, Consumer<TaskProgress> onComplete) {
+        this.client = Objects.requireNonNull(client, "client不能为空");
+        this.taskId = Objects.requireNonNull(taskId, "taskId不能为空");
+        this.onComplete = onComplete;
+    }
+
+    /**
+     * 任务id，形如 nodeId:taskNumber，进程重启后可以用它重新构造句柄
+     *
+     * @return java.lang.String
+     */
+    public String getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * 查询当前进度
+     *
+     * @return org.dynasty.elasticsearch.demo.task.TaskProgress
+     */
+    public TaskProgress progress() throws IOException {
+        JsonNode body;
+        try {
+            body = perform(new Request("GET", "/_tasks/" + taskId));
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == RestStatus.NOT_FOUND.getStatus()) {
+                throw new ElasticsearchException("任务{}不存在", e, taskId);
+            }
+            throw e;
+        }
+        TaskProgress progress = parse(body);
+        if (progress.isCompleted() && onComplete != null && completed.compareAndSet(false, true)) {
+            onComplete.accept(progress);
+        }
+        return progress;
+    }
+
+    /**
+     * 取消任务，已删除的文档不会恢复
+     *
+     * @return boolean 任务仍在运行并收到取消请求时返回true
+     */
+    public boolean cancel() throws IOException {
+        JsonNode body = perform(new Request("POST", "/_tasks/" + taskId + "/_cancel"));
+        return body.path("nodes").size() > 0;
+    }
+
+    /**
+     * 等待任务完成，查询间隔从100ms逐步增加到2s
+     *
+     * @param timeout
+     * @return org.dynasty.elasticsearch.demo.task.TaskProgress 超时返回时isCompleted为false
+     */
+    public TaskProgress await(Duration timeout) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long interval = MIN_POLL_INTERVAL_MILLIS;
+        TaskProgress progress = progress();
+        while (!progress.isCompleted()) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return progress;
+            }
+            TimeUnit.MILLISECONDS.sleep(Math.min(interval, remaining));
+            interval = Math.min(interval * 2, MAX_POLL_INTERVAL_MILLIS);
+            progress = progress();
+        }
+        return progress;
+    }
+
+    /**
+     * 在scheduler上后台轮询直到任务完成，间隔从100ms逐步增加到2s；查询失败时按最大间隔继续，任务不存在时停止
+     *
+     * @param scheduler
+     */
+    public void watch(ScheduledExecutorService scheduler) {
+        watch(scheduler, MIN_POLL_INTERVAL_MILLIS);
+    }
+
+    private void watch(ScheduledExecutorService scheduler, long interval) {
+        try {
+            scheduler.schedule(() -> {
+                long next = Math.min(interval * 2, MAX_POLL_INTERVAL_MILLIS);
+                try {
+                    if (progress().isCompleted()) {
+                        return;
+                    }
+                } catch (ElasticsearchException e) {
+                    LOGGER.warn("---任务{}已不存在，停止轮询---", taskId, e);
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("---查询任务{}进度失败，稍后重试---", taskId, e);
+                    next = MAX_POLL_INTERVAL_MILLIS;
+                }
+                if (!completed.get()) {
+                    watch(scheduler, next);
+                }
+            }, interval, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("---轮询线程已关闭，不再跟踪任务{}---", taskId);
+        }
+    }
+
+    private JsonNode perform(Request request) throws IOException {
+        Response response = client.performRequest(request);
+        try (InputStream in = response.getEntity().getContent()) {
+            return MAPPER.readTree(in);
+        }
+    }
+
+    /**
+     * 完成的任务以response为准（包含逐条失败），运行中的任务读取task.status
+     */
+    private TaskProgress parse(JsonNode body) {
+        boolean done = body.path("completed").asBoolean(false);
+        JsonNode task = body.path("task");
+        JsonNode status = done && body.has("response") ? body.get("response") : task.path("status");
+        String cancelled = status.hasNonNull("canceled") ? status.get("canceled").asText() : null;
+        String error = body.has("error") ? body.get("error").path("reason").asText(body.get("error").toString()) : null;
+        List<DeadLetter> failures = new ArrayList<>();
+        for (JsonNode failure : status.path("failures")) {
+            JsonNode cause = failure.has("cause") ? failure.get("cause") : failure.path("reason");
+            failures.add(new DeadLetter(failure.path("index").asText(null), failure.path("id").asText(null),
+                    "delete", failure.path("status").asInt(RestStatus.INTERNAL_SERVER_ERROR.getStatus()),
+                    cause.path("type").asText("") + ": " + cause.path("reason").asText(cause.toString()), null, null));
+        }
+        return new TaskProgress(taskId, done, cancelled, error,
+                status.path("total").asLong(),
+                status.path("deleted").asLong(),
+                status.path("batches").asLong(),
+                status.path("version_conflicts").asLong(),
+                status.path("noops").asLong(),
+                failures,
+                TimeUnit.NANOSECONDS.toMillis(task.path("running_time_in_nanos").asLong()));
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.dynasty.elasticsearch.demo.task;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.dynasty.elasticsearch.demo.bulk.DeadLetter;
+
+import java.util.List;
+
+/**
+ * 后台任务进度快照，任务完成后为最终结果
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 15:00:00
+ */
+@Getter
+@AllArgsConstructor
+public class TaskProgress {
+
+    private final String taskId;
+
+    private final boolean completed;
+
+    /**
+     * 被取消时为取消原因，否则为null
+     */
+    private final String cancelled;
+
+    /**
+     * 任务本身失败（不是单条文档失败）时的错误信息，否则为null
+     */
+    private final String error;
+
+    private final long total;
+
+    private final long deleted;
+
+    private final long batches;
+
+    private final long versionConflicts;
+
+    private final long noops;
+
+    private final List<DeadLetter> failures;
+
+    private final long runningTimeMillis;
+
+    public boolean isCancelled() {
+        return cancelled != null;
+    }
+
+    /**
+     * 任务已完成且没有被取消、没有任何失败
+     *
+     * @return boolean
+     */
+    public boolean isSucceeded() {
+        return completed && cancelled == null && error == null && failures.isEmpty();
+    }
+
+    /**
+     * 已处理比例，total未知时为0
+     *
+     * @return double
+     */
+    public double getPercent() {
+        return total == 0 ? (completed ? 100 : 0) : 100.0 * (deleted + versionConflicts + noops) / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("task %s: %s, %d/%d deleted (%.1f%%), %d batches, %d conflicts, %d failures in %dms%s",
+                taskId, completed ? "completed" : "running", deleted, total, getPercent(), batches, versionConflicts,
+                failures.size(), runningTimeMillis, cancelled == null ? "" : ", cancelled: " + cancelled);
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.dynasty.elasticsearch.demo;
+
+import org.dynasty.elasticsearch.demo.bulk.BulkProcessorRegistry;
+import org.dynasty.elasticsearch.demo.cache.QueryResultCache;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-20 16:30:00
+ */
+public class CachedSearchTest {
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    private static ElasticsearchRepository repository;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri(), "--easy-es.cache.query.enabled=true",
+                "--easy-es.cache.query.refresh-interval=0s");
+        repository = context.getBean(ElasticsearchRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @Test
+    public void writesWhileAliasesReloadOnlyInvalidateTheirIndex() throws Exception {
+        repository.bulkIndex("cached-a", LoadTestHarness.documents(0, 5));
+        repository.bulkIndex("cached-b", LoadTestHarness.documents(0, 5));
+        QueryResultCache cache = repository.getQueryResultCache();
+        repository.cachedSearch(QueryBuilders.matchAllQuery(), 10, "cached-a");
+        repository.cachedSearch(QueryBuilders.matchAllQuery(), 10, "cached-a");
+        Assert.assertEquals(1, cache.stats().hitCount());
+
+        // 别名信息失效后重新加载，加载完成前写入的索引名原样使用，不按_all使所有条目失效
+        repository.getMetadataCache().invalidate("cached-c");
+        repository.bulkIndex("cached-b", LoadTestHarness.documents(5, 5));
+        repository.cachedSearch(QueryBuilders.matchAllQuery(), 10, "cached-a");
+        Assert.assertEquals(2, cache.stats().hitCount());
+
+        repository.bulkIndex("cached-a", LoadTestHarness.documents(5, 5));
+        Assert.assertEquals(10, repository.cachedSearch(QueryBuilders.matchAllQuery(), 10, "cached-a")
+                .getHits().getTotalHits().value);
+        Assert.assertEquals(2, cache.stats().hitCount());
+    }
+
+    @Test
+    public void processorWritesMarkIndexExisting() throws Exception {
+        // 索引不存在的结果会缓存，BulkProcessor写入自动创建索引后要记为存在
+        Assert.assertFalse(repository.indexExists("cached-p"));
+        repository.bulkIndexWithProcessor("cached-p", LoadTestHarness.documents(0, 5));
+        context.getBean(BulkProcessorRegistry.class).flush("cached-p");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!repository.indexExists("cached-p") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(5, server.count("cached-p"));
+        Assert.assertTrue(repository.indexExists("cached-p"));
+    }
+
+    @Test
+    public void startsWhenAliasesCannotBeLoaded() {
+        // 启动时后台加载别名失败不影响容器启动，之后的写入按原样的索引名使缓存失效
+        try (ConfigurableApplicationContext unreachable = LoadTestHarness.context("http://unknown-host.invalid:9200",
+                "--easy-es.cache.query.enabled=true")) {
+            ElasticsearchRepository unreachableRepository = unreachable.getBean(ElasticsearchRepository.class);
+            unreachableRepository.getQueryResultCache().invalidate("cached-a");
+            Assert.assertFalse(unreachableRepository.indexExists("cached-a"));
+        }
+    }
+
+}
@@ -1,6 +1,8 @@
 package org.dynasty.elasticsearch.demo;
 
 import lombok.Data;
+import org.dynasty.elasticsearch.demo.annotations.Field;
+import org.dynasty.elasticsearch.demo.annotations.FieldType;
 
 import java.time.LocalDateTime;
 
@@ -17,10 +19,13 @@ public class Document {
 
     private LocalDateTime date;
 
+    @Field(type = FieldType.TEXT)
     private String title;
 
+    @Field(type = FieldType.TEXT, norms = false)
     private String content;
 
+    @Field(index = false, docValues = false)
     private String richText;
 
     private Double price;
@@ -0,0 +1,57 @@
+package org.dynasty.elasticsearch.demo;
+
+import org.dynasty.elasticsearch.demo.annotations.Id;
+import org.dynasty.elasticsearch.demo.metadata.EntityMetadata;
+import org.dynasty.elasticsearch.demo.metadata.EntityMetadataRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 12:10:00
+ */
+public class EntityMetadataRegistryTest {
+
+    @Test
+    public void subclassIdTakesPrecedence() {
+        SuperUser u = new SuperUser();
+        u.setId("1");
+        u.setSex("M");
+        EntityMetadata metadata = EntityMetadataRegistry.of(u);
+        Assert.assertEquals("sex", metadata.getIdFieldName());
+        Assert.assertEquals("M", metadata.getIdAsString(u));
+        Assert.assertSame(metadata, EntityMetadataRegistry.of(SuperUser.class));
+    }
+
+    @Test
+    public void privateFieldWithoutGetterIsReadable() {
+        // 只能通过编译好的handle读取，registry持有的Field被其他代码设为accessible后读取结果不变
+        EntityMetadata metadata = EntityMetadataRegistry.of(PrivateId.class);
+        Assert.assertEquals("2", metadata.getIdAsString(new PrivateId("2")));
+        metadata.getIdField().setAccessible(true);
+        Assert.assertEquals("3", metadata.getIdAsString(new PrivateId("3")));
+    }
+
+    @Test
+    public void missingId() {
+        EntityMetadata metadata = EntityMetadataRegistry.of(NoId.class);
+        Assert.assertFalse(metadata.hasId());
+        Assert.assertNull(metadata.getIdFieldName());
+    }
+
+    static class NoId {
+
+        private String name;
+    }
+
+    static class PrivateId {
+
+        @Id
+        private final String key;
+
+        PrivateId(String key) {
+            this.key = key;
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.dynasty.elasticsearch.demo;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dynasty.elasticsearch.demo.serialization.EntitySerializer;
+import org.dynasty.elasticsearch.demo.serialization.WireFormat;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 14:02:00
+ */
+public class EntitySerializerTest {
+
+    @Test
+    public void serializeWithoutIntermediateString() throws Exception {
+        EntitySerializer serializer = EntitySerializer.json();
+        for (int i = 0; i < 3; i++) {
+            SuperUser u = new SuperUser();
+            u.setId(String.valueOf(i));
+            u.setName("name" + i);
+            u.setSex("M");
+            BytesReference bytes = serializer.serialize(u);
+            Assert.assertArrayEquals(serializer.getObjectMapper().writeValueAsBytes(u), BytesReference.toBytes(bytes));
+        }
+        IndexRequest request = serializer.source(new IndexRequest("test-index1"), new SuperUser());
+        Assert.assertEquals(XContentType.JSON, request.getContentType());
+    }
+
+    @Test
+    public void binaryFormatsRoundTrip() throws Exception {
+        SuperUser u = new SuperUser();
+        u.setId("1");
+        u.setName("name");
+        u.setSex("M");
+        for (WireFormat format : new WireFormat[]{WireFormat.SMILE, WireFormat.CBOR}) {
+            EntitySerializer serializer = EntitySerializer.of(format);
+            BytesReference bytes = serializer.serialize(u);
+            SuperUser copy = serializer.deserialize(bytes, SuperUser.class);
+            Assert.assertEquals("1", copy.getId());
+            Assert.assertEquals("name", copy.getName());
+            Assert.assertEquals("M", copy.getSex());
+            IndexRequest request = serializer.source(new IndexRequest("test-index1"), u);
+            Assert.assertEquals(format.getXContentType(), request.getContentType());
+        }
+        Assert.assertEquals(WireFormat.SMILE, WireFormat.CBOR.forBulk());
+        Assert.assertEquals(WireFormat.SMILE, WireFormat.SMILE.forBulk());
+    }
+
+    @Test
+    public void diffKeepsOnlyChangedFields() {
+        Map<String, Object> before = new HashMap<>();
+        before.put("title", "a");
+        before.put("price", 1);
+        before.put("removed", "x");
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("city", "wuhan");
+        nested.put("zip", "430000");
+        before.put("address", nested);
+
+        Map<String, Object> after = new HashMap<>(before);
+        after.put("price", 2);
+        after.remove("removed");
+        Map<String, Object> moved = new HashMap<>(nested);
+        moved.put("city", "shanghai");
+        after.put("address", moved);
+
+        ObjectNode diff = EntitySerializer.json().diff(before, after);
+        Assert.assertEquals(3, diff.size());
+        Assert.assertEquals(2, diff.get("price").asInt());
+        Assert.assertTrue(diff.get("removed").isNull());
+        Assert.assertEquals(1, diff.get("address").size());
+        Assert.assertEquals("shanghai", diff.get("address").get("city").asText());
+        Assert.assertEquals(0, EntitySerializer.json().diff(before, new HashMap<>(before)).size());
+    }
+
+}
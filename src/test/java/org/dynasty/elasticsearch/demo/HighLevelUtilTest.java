@@ -2,7 +2,9 @@ package org.dynasty.elasticsearch.demo;
 
 import com.github.jsonzou.jmockdata.JMockData;
 import com.github.jsonzou.jmockdata.MockConfig;
-import org.elasticsearch.action.bulk.BulkResponse;
+import org.dynasty.elasticsearch.demo.bulk.BulkResult;
+import org.dynasty.elasticsearch.demo.export.ExportResult;
+import org.dynasty.elasticsearch.demo.search.SearchOptions;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.junit.Assert;
@@ -12,9 +14,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * @author dynasty xiongyuqiao@fishsaying.com yq.xiong0320@gmail.com
@@ -29,6 +34,9 @@ public class HighLevelUtilTest {
     @Autowired
     private ElasticsearchRepository repository;
 
+    @Autowired
+    private AsyncElasticsearchRepository asyncRepository;
+
     @Test
     public void createIndexTest() {
         repository.createIndex("test-index1");
@@ -95,6 +103,21 @@ public class HighLevelUtilTest {
         Assert.assertTrue(insert);
     }
 
+    @Test
+    public void asyncIndexObjectTest() {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            SuperUser u = new SuperUser();
+            u.setId(UUID.randomUUID().toString());
+            u.setName(JMockData.mock(String.class));
+            u.setSex(UUID.randomUUID().toString());
+            futures.add(asyncRepository.index("test-index1", u));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        futures.forEach(f -> Assert.assertTrue(f.join()));
+        Assert.assertTrue(asyncRepository.indexExists("test-index1").join());
+    }
+
     @Test
     public void buldIndexTest() {
         List<SuperUser> list = new LinkedList<>();
@@ -105,8 +128,8 @@ public class HighLevelUtilTest {
             u.setSex(JMockData.mock(String.class));
             list.add(u);
         }
-        BulkResponse bulkItemResponses = repository.bulkIndex("test-index1", list);
-        System.out.println(bulkItemResponses);
+        BulkResult result = repository.bulkIndex("test-index1", list);
+        System.out.println(result);
     }
 
     @Test
@@ -123,6 +146,29 @@ public class HighLevelUtilTest {
         Thread.sleep(3000);
     }
 
+    @Test
+    public void streamingBulkIndexTest() {
+        Stream<SuperUser> stream = IntStream.range(0, 5000).mapToObj(i -> {
+            SuperUser u = new SuperUser();
+            u.setId(UUID.randomUUID().toString());
+            u.setName(JMockData.mock(String.class));
+            u.setSex(String.valueOf(i));
+            return u;
+        });
+        BulkResult result = repository.bulkIndex("test-index1", stream);
+        Assert.assertEquals(5000, result.getTotal());
+        Assert.assertFalse(result.hasFailures());
+    }
+
+    @Test
+    public void searchTest() {
+        try (Stream<SuperUser> stream = repository.search(QueryBuilders.matchAllQuery(), SuperUser.class,
+                SearchOptions.defaults().pageSize(100), "test-index1")) {
+            long count = stream.limit(250).filter(u -> u.getSex() != null).count();
+            Assert.assertTrue(count > 0);
+        }
+    }
+
     @Test
     public void deleteByQueryTest() {
         BoolQueryBuilder bool = QueryBuilders.boolQuery();
@@ -159,6 +205,13 @@ public class HighLevelUtilTest {
         repository.bulkIndex("document", documentList);
     }
 
+    @Test
+    public void exportTest() throws Exception {
+        ExportResult result = repository.export("document", null, 4, Paths.get("target", "export"));
+        System.out.println(result);
+        Assert.assertEquals(4, result.getSlices().size());
+    }
+
     @Test
     public void mockTest() {
         System.out.println(JMockData.mock(String.class, MockConfig.newInstance().stringRegex("[A-Z][a-z]{3,9} [A-Z][a-z]{3,9} [A-Z][a-z]{3,9}")));
@@ -0,0 +1,217 @@
+package org.dynasty.elasticsearch.demo;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.dynasty.elasticsearch.demo.annotations.Field;
+import org.dynasty.elasticsearch.demo.annotations.FieldType;
+import org.dynasty.elasticsearch.demo.annotations.Id;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.dynasty.elasticsearch.demo.metadata.MappingGenerator;
+import org.dynasty.elasticsearch.demo.serialization.EntitySerializer;
+import org.elasticsearch.ElasticsearchException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 22:00:00
+ */
+public class MappingGeneratorTest {
+
+    @Test
+    public void documentMappingIsStrictAndLean() {
+        Map<String, Object> mapping = MappingGenerator.mapping(Document.class);
+        Assert.assertEquals("strict", mapping.get("dynamic"));
+        Map<String, Object> properties = properties(mapping);
+        Assert.assertEquals("{type=keyword, ignore_above=256}", properties.get("mysqlId").toString());
+        Assert.assertEquals("{type=text}", properties.get("title").toString());
+        Assert.assertEquals("{type=text, norms=false}", properties.get("content").toString());
+        Assert.assertEquals("{type=keyword, index=false, doc_values=false}", properties.get("richText").toString());
+        Assert.assertEquals("{type=double}", properties.get("price").toString());
+        Assert.assertEquals("{type=integer}", properties.get("phone").toString());
+        // 没有注册时间模块，LocalDateTime被序列化为对象
+        Assert.assertEquals("{type=object, enabled=false}", properties.get("date").toString());
+        Assert.assertFalse(properties.containsKey("_id"));
+    }
+
+    @Test
+    public void nestedObjectsAndCollections() {
+        Map<String, Object> properties = properties(MappingGenerator.mapping(Order.class));
+        Assert.assertEquals("{properties={sku={type=keyword, ignore_above=256}, quantity={type=integer}}}",
+                properties.get("lines").toString());
+        Assert.assertEquals("nested", ((Map<?, ?>) properties.get("nestedLines")).get("type"));
+        Assert.assertEquals("{type=keyword, ignore_above=256}", properties.get("tags").toString());
+        Assert.assertEquals("{type=keyword, ignore_above=256}", properties.get("status").toString());
+        Assert.assertEquals("{type=date}", properties.get("created").toString());
+        Assert.assertEquals("{type=scaled_float, scaling_factor=100.0}", properties.get("amount").toString());
+        Assert.assertEquals("{type=object, enabled=false}", properties.get("extra").toString());
+        Assert.assertEquals("{type=keyword, ignore_above=1024}", properties.get("code").toString());
+        Assert.assertEquals("{type=keyword}", properties.get("digest").toString());
+        Assert.assertFalse(properties.containsKey("secret"));
+        Assert.assertFalse(properties.containsKey("internal"));
+        Assert.assertTrue(properties.containsKey("tenant"));
+        // 与序列化写入_source的属性及顺序一致
+        List<String> serialized = serializedNames(new Order());
+        serialized.remove("internal");
+        Assert.assertEquals(serialized, new ArrayList<>(properties.keySet()));
+    }
+
+    @Test
+    public void followsJacksonPropertyNames() throws Exception {
+        Map<String, Object> properties = properties(MappingGenerator.mapping(Renamed.class));
+        Assert.assertEquals(serializedNames(new Renamed()), new ArrayList<>(properties.keySet()));
+        Assert.assertEquals("{type=keyword, ignore_above=256}", properties.get("sku_code").toString());
+        // 命名策略生效，getter上的注解同样生效
+        Assert.assertEquals("{type=text}", properties.get("display_name").toString());
+        Assert.assertEquals("{type=integer, index=false}", properties.get("stock_level").toString());
+        // 只有getter的属性也会写入_source
+        Assert.assertEquals("{type=keyword, ignore_above=256}", properties.get("summary").toString());
+        Assert.assertFalse(properties.containsKey("code"));
+        Assert.assertFalse(properties.containsKey("password"));
+        Assert.assertEquals("sku_code", MappingGenerator.propertyName(Renamed.class, Renamed.class.getDeclaredField("code")));
+        Assert.assertNull(MappingGenerator.propertyName(Renamed.class, Renamed.class.getDeclaredField("password")));
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void rejectsUnsupportedOptions() {
+        MappingGenerator.mapping(Invalid.class);
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void rejectsIgnoreAboveOnText() {
+        MappingGenerator.mapping(LongText.class);
+    }
+
+    @Test
+    public void createIndexFromEntity() throws Exception {
+        try (FakeElasticsearchServer server = new FakeElasticsearchServer();
+             ConfigurableApplicationContext context = LoadTestHarness.context(server.getUri())) {
+            ElasticsearchRepository repository = context.getBean(ElasticsearchRepository.class);
+            repository.createIndex("typed", Document.class);
+            Map<String, Object> mappings = repository.getIndexMappings("typed");
+            Assert.assertEquals("strict", mappings.get("dynamic"));
+            Assert.assertEquals("text", ((Map<?, ?>) properties(mappings).get("title")).get("type"));
+
+            context.getBean(AsyncElasticsearchRepository.class).createIndex("typed-async", Document.class).get();
+            Assert.assertEquals(mappings, repository.getIndexMappings("typed-async"));
+        }
+    }
+
+    private static List<String> serializedNames(Object entity) {
+        List<String> names = new ArrayList<>();
+        EntitySerializer.json().getObjectMapper().valueToTree(entity).fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> properties(Map<String, Object> mapping) {
+        return (Map<String, Object>) mapping.get("properties");
+    }
+
+    enum Status {
+        NEW, PAID
+    }
+
+    @Data
+    static class Line {
+
+        private String sku;
+
+        private int quantity;
+    }
+
+    @Data
+    static class Tenant {
+
+        private String tenant;
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    static class Order extends Tenant {
+
+        @Id
+        private String id;
+
+        private List<Line> lines;
+
+        @Field(type = FieldType.NESTED)
+        private List<Line> nestedLines;
+
+        private Set<String> tags;
+
+        private Status status;
+
+        private Date created;
+
+        @Field(type = FieldType.SCALED_FLOAT, scalingFactor = 100)
+        private Double amount;
+
+        private Map<String, Object> extra;
+
+        @Field(ignoreAbove = 1024)
+        private String code;
+
+        @Field(ignoreAbove = 0)
+        private String digest;
+
+        @JsonIgnore
+        private String secret;
+
+        @Field(ignore = true)
+        private String internal;
+    }
+
+    @Data
+    static class Invalid {
+
+        @Field(type = FieldType.TEXT, docValues = false)
+        private String title;
+    }
+
+    @Data
+    static class LongText {
+
+        @Field(type = FieldType.TEXT, ignoreAbove = 256)
+        private String body;
+    }
+
+    @Data
+    @JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+    static class Renamed {
+
+        @Id
+        @JsonProperty("sku_code")
+        private String code;
+
+        @Field(type = FieldType.TEXT)
+        private String displayName;
+
+        private Integer stockLevel;
+
+        @JsonIgnore
+        private String password;
+
+        @Field(index = false)
+        public Integer getStockLevel() {
+            return stockLevel;
+        }
+
+        public String getSummary() {
+            return code + ":" + displayName;
+        }
+    }
+
+}
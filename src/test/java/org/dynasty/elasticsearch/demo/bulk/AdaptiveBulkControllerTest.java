@@ -0,0 +1,91 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 15:20:00
+ */
+public class AdaptiveBulkControllerTest {
+
+    private AdaptiveBulkController controller() {
+        AdaptiveBulkProfile profile = new AdaptiveBulkProfile();
+        profile.setMinBulkSize(DataSize.ofMegabytes(1));
+        profile.setMaxBulkSize(DataSize.ofMegabytes(4));
+        profile.setIncreaseStep(DataSize.ofMegabytes(1));
+        profile.setMinConcurrentRequests(1);
+        profile.setMaxConcurrentRequests(4);
+        profile.setTargetLatency(Duration.ofSeconds(1));
+        return new AdaptiveBulkController("test", profile, DataSize.ofMegabytes(2).toBytes(), 2);
+    }
+
+    @Test
+    public void growsSizeThenConcurrency() {
+        AdaptiveBulkController controller = controller();
+        for (int i = 0; i < 3; i++) {
+            controller.onResponse(response(false), TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        Assert.assertEquals(DataSize.ofMegabytes(4).toBytes(), controller.getBulkSizeBytes());
+        Assert.assertEquals(3, controller.getConcurrentRequests());
+    }
+
+    @Test
+    public void shrinksOnRejection() {
+        AdaptiveBulkController controller = controller();
+        controller.onResponse(response(true), TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertEquals(DataSize.ofMegabytes(1).toBytes(), controller.getBulkSizeBytes());
+        Assert.assertEquals(1, controller.getConcurrentRequests());
+        Assert.assertEquals(1, controller.stats().getRejectedItems());
+    }
+
+    @Test
+    public void slowResponseShrinksSizeOnly() {
+        AdaptiveBulkController controller = controller();
+        controller.onResponse(response(false), TimeUnit.SECONDS.toNanos(3));
+        Assert.assertEquals(DataSize.ofMegabytes(1).toBytes(), controller.getBulkSizeBytes());
+        Assert.assertEquals(2, controller.getConcurrentRequests());
+    }
+
+    @Test
+    public void slowServerShrinksSizeAndConcurrency() {
+        AdaptiveBulkController controller = controller();
+        controller.onResponse(new BulkResponse(new BulkItemResponse[0], 1500), TimeUnit.MILLISECONDS.toNanos(1600));
+        Assert.assertEquals(DataSize.ofMegabytes(1).toBytes(), controller.getBulkSizeBytes());
+        Assert.assertEquals(1, controller.getConcurrentRequests());
+    }
+
+    @Test
+    public void shrinksOnOverloadFailuresOnly() {
+        AdaptiveBulkController controller = controller();
+        controller.onFailure(new ElasticsearchStatusException("bad request", RestStatus.BAD_REQUEST));
+        Assert.assertEquals(DataSize.ofMegabytes(2).toBytes(), controller.getBulkSizeBytes());
+        Assert.assertEquals(2, controller.getConcurrentRequests());
+        controller.onFailure(new ElasticsearchStatusException("unavailable", RestStatus.SERVICE_UNAVAILABLE));
+        Assert.assertEquals(DataSize.ofMegabytes(1).toBytes(), controller.getBulkSizeBytes());
+        Assert.assertEquals(1, controller.getConcurrentRequests());
+    }
+
+    private static BulkResponse response(boolean rejected) {
+        BulkItemResponse item;
+        if (rejected) {
+            item = new BulkItemResponse(0, DocWriteRequest.OpType.INDEX, new BulkItemResponse.Failure("test", "_doc", "1",
+                    new EsRejectedExecutionException("rejected"), RestStatus.TOO_MANY_REQUESTS));
+        } else {
+            item = new BulkItemResponse(0, DocWriteRequest.OpType.INDEX, (DocWriteResponse) null);
+        }
+        return new BulkResponse(new BulkItemResponse[]{item}, 10);
+    }
+
+}
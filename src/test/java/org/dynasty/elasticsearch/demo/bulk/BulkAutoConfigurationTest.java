@@ -0,0 +1,47 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-20 10:30:00
+ */
+public class BulkAutoConfigurationTest {
+
+    @Test
+    public void defaultDeadLetterSink() throws Exception {
+        try (FakeElasticsearchServer server = new FakeElasticsearchServer();
+             ConfigurableApplicationContext context = LoadTestHarness.context(server.getUri())) {
+            Assert.assertTrue(context.getBean(BulkRetryExecutor.class).getDeadLetterSink()
+                    instanceof NdjsonFileDeadLetterSink);
+        }
+    }
+
+    @Test
+    public void userDefinedDeadLetterSinkReplacesDefault() throws Exception {
+        try (FakeElasticsearchServer server = new FakeElasticsearchServer();
+             ConfigurableApplicationContext context = LoadTestHarness.context(server.getUri(),
+                     "--spring.main.sources=" + CustomSink.class.getName())) {
+            Assert.assertSame(context.getBean("customSink"), context.getBean(BulkRetryExecutor.class).getDeadLetterSink());
+            Assert.assertEquals(0, context.getBeansOfType(NdjsonFileDeadLetterSink.class).size());
+        }
+    }
+
+    /**
+     * 不标注@Configuration，避免被其他测试的组件扫描加载
+     */
+    public static class CustomSink {
+
+        @Bean
+        public DeadLetterSink customSink() {
+            return deadLetter -> {
+            };
+        }
+    }
+
+}
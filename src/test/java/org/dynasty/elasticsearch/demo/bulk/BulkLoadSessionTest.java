@@ -0,0 +1,193 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.cache.IndexMetadataCache;
+import org.dynasty.elasticsearch.demo.client.ClientProperties;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.dynasty.elasticsearch.demo.rollover.RolloverConditions;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 13:10:00
+ */
+public class BulkLoadSessionTest {
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    private static ElasticsearchRepository repository;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri());
+        repository = context.getBean(ElasticsearchRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @After
+    public void reset() {
+        server.reset();
+    }
+
+    @Test
+    public void togglesAndRestoresSettings() throws Exception {
+        repository.createIndex("load");
+        BulkLoadManager manager = context.getBean(BulkLoadManager.class);
+        BulkResult result;
+        try (BulkLoadSession session = repository.openBulkLoad("load", BulkLoadOptions.defaults()
+                .forceMerge(1).waitForGreen(TimeValue.timeValueSeconds(1)))) {
+            Assert.assertEquals("-1", server.getSettings("load").get("index.refresh_interval"));
+            Assert.assertEquals("0", server.getSettings("load").get("index.number_of_replicas"));
+            Assert.assertEquals("1s", session.getOriginalSettings().get("load").get("index.refresh_interval"));
+            Assert.assertTrue(Files.exists(manager.statePath("load")));
+            try {
+                repository.openBulkLoad("load");
+                Assert.fail();
+            } catch (ElasticsearchException expected) {
+            }
+            result = repository.bulkIndex("load", LoadTestHarness.documents(0, 100).iterator());
+        }
+        Assert.assertEquals(100, result.getSucceeded());
+        Assert.assertEquals("1s", server.getSettings("load").get("index.refresh_interval"));
+        Assert.assertEquals("1", server.getSettings("load").get("index.number_of_replicas"));
+        Assert.assertEquals(1, server.getForceMergeRequests());
+        Assert.assertEquals(1, server.getRefreshRequests());
+        Assert.assertFalse(Files.exists(manager.statePath("load")));
+        Assert.assertTrue(manager.getSessions().isEmpty());
+    }
+
+    @Test
+    public void slowFinishOutlivesClientSocketTimeout() throws Exception {
+        // 客户端在IO reactor的select间隔（1s）上检查socket超时，处理时间需要明显超过1s
+        server.forceMergeDuration(Duration.ofMillis(2500));
+        try (ConfigurableApplicationContext shortTimeout = LoadTestHarness.context(server.getUri(),
+                "--easy-es.client.socket-timeout=300ms", "--easy-es.bulk-load.poll-interval=50ms")) {
+            ElasticsearchRepository shortRepository = shortTimeout.getBean(ElasticsearchRepository.class);
+            shortRepository.createIndex("merge");
+            try {
+                shortRepository.getClient().indices().forcemerge(new ForceMergeRequest("merge"), RequestOptions.DEFAULT);
+                Assert.fail();
+            } catch (SocketTimeoutException expected) {
+            }
+
+            // force merge和等待green都超过了客户端默认的socket超时
+            BulkLoadSession session = shortRepository.openBulkLoad("merge", BulkLoadOptions.defaults()
+                    .forceMerge(1).waitForGreen(TimeValue.timeValueSeconds(2)));
+            shortRepository.bulkIndex("merge", LoadTestHarness.documents(0, 10).iterator());
+            long begin = System.nanoTime();
+            session.close();
+            // 等到了合并任务结束，以及green的整个等待时间
+            Assert.assertTrue(System.nanoTime() - begin >= TimeUnit.MILLISECONDS.toNanos(4000));
+            Assert.assertEquals(2, server.getForceMergeRequests());
+            Assert.assertEquals("1s", server.getSettings("merge").get("index.refresh_interval"));
+            Assert.assertEquals(10, server.count("merge"));
+        } finally {
+            server.forceMergeDuration(Duration.ZERO);
+        }
+    }
+
+    @Test
+    public void aliasRestoresEachIndexSettings() throws Exception {
+        repository.createWriteAlias("loads", null, (String) null, RolloverConditions.defaults());
+        repository.rollover("loads");
+        repository.getClient().indices().putSettings(new UpdateSettingsRequest("loads-000001")
+                .settings(Settings.builder().put("index.refresh_interval", "30s").build()), RequestOptions.DEFAULT);
+        try (BulkLoadSession session = repository.openBulkLoad("loads", BulkLoadOptions.defaults().refresh(false))) {
+            Assert.assertEquals("30s", session.getOriginalSettings().get("loads-000001").get("index.refresh_interval"));
+            Assert.assertEquals("-1", server.getSettings("loads-000001").get("index.refresh_interval"));
+            Assert.assertEquals("-1", server.getSettings("loads-000002").get("index.refresh_interval"));
+            try {
+                repository.openBulkLoad("loads-000002");
+                Assert.fail();
+            } catch (ElasticsearchException expected) {
+            }
+        }
+        Assert.assertEquals("30s", server.getSettings("loads-000001").get("index.refresh_interval"));
+        Assert.assertEquals("1s", server.getSettings("loads-000002").get("index.refresh_interval"));
+        Assert.assertEquals("1", server.getSettings("loads-000002").get("index.number_of_replicas"));
+    }
+
+    @Test
+    public void restoresUnsetSettingsAsDefaults() throws Exception {
+        repository.createIndex("unset");
+        repository.getClient().indices().putSettings(new UpdateSettingsRequest("unset")
+                .settings(Settings.builder().putNull("index.refresh_interval").build()), RequestOptions.DEFAULT);
+        repository.bulkLoad("unset", LoadTestHarness.documents(0, 10).iterator(),
+                BulkLoadOptions.defaults().refresh(false));
+        Assert.assertFalse(server.getSettings("unset").containsKey("index.refresh_interval"));
+        Assert.assertEquals("1", server.getSettings("unset").get("index.number_of_replicas"));
+        Assert.assertEquals(0, server.getRefreshRequests());
+    }
+
+    @Test
+    public void abandonedSessionIsRestored() throws Exception {
+        repository.createIndex("abandoned");
+        BulkLoadSession session = repository.openBulkLoad("abandoned",
+                BulkLoadOptions.defaults().timeout(Duration.ofMillis(200)));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"1s".equals(server.getSettings("abandoned").get("index.refresh_interval"))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertTrue(session.isClosed());
+        Assert.assertEquals("1s", server.getSettings("abandoned").get("index.refresh_interval"));
+        Assert.assertEquals("1", server.getSettings("abandoned").get("index.number_of_replicas"));
+        // 已被遗弃的会话再关闭不会有任何动作
+        session.close();
+        Assert.assertEquals(0, server.getRefreshRequests());
+    }
+
+    @Test
+    public void restoresStaleStateOnStartup() throws Exception {
+        repository.createIndex("crashed");
+        BulkLoadProperties properties = new BulkLoadProperties();
+        properties.setStateDir(folder.getRoot().getAbsolutePath());
+        RestHighLevelClient client = repository.getClient();
+        IndexMetadataCache cache = context.getBean(IndexMetadataCache.class);
+
+        // 模拟打开会话后进程崩溃：settings已切换，状态文件留在磁盘上
+        BulkLoadManager crashed = new BulkLoadManager(client, properties, cache, new ClientProperties());
+        crashed.open("crashed", BulkLoadOptions.defaults());
+        Assert.assertEquals("-1", server.getSettings("crashed").get("index.refresh_interval"));
+        Assert.assertTrue(Files.exists(crashed.statePath("crashed")));
+
+        BulkLoadManager restarted = new BulkLoadManager(client, properties, cache, new ClientProperties());
+        restarted.afterPropertiesSet();
+        Assert.assertEquals("1s", server.getSettings("crashed").get("index.refresh_interval"));
+        Assert.assertEquals("1", server.getSettings("crashed").get("index.number_of_replicas"));
+        Assert.assertFalse(Files.exists(crashed.statePath("crashed")));
+        restarted.destroy();
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-21 11:20:00
+ */
+public class BulkProcessorRegistryTest {
+
+    @Test
+    public void processorsCreatedDuringCloseAreFlushed() throws Exception {
+        try (FakeElasticsearchServer server = new FakeElasticsearchServer();
+             ConfigurableApplicationContext context = LoadTestHarness.context(server.getUri(),
+                     "--easy-es.bulk.flush-interval=1h")) {
+            BulkProcessorRegistry registry = context.getBean(BulkProcessorRegistry.class);
+            // 每次写入一个新索引，关闭过程中不断创建新的BulkProcessor
+            List<String> accepted = new CopyOnWriteArrayList<>();
+            CountDownLatch started = new CountDownLatch(4);
+            Thread[] writers = new Thread[4];
+            for (int t = 0; t < writers.length; t++) {
+                String prefix = "race-" + t + "-";
+                writers[t] = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 100; i++) {
+                        String index = prefix + i;
+                        try {
+                            registry.getProcessor(index).add(new IndexRequest(index).id("1")
+                                    .source("{\"n\":1}", XContentType.JSON));
+                        } catch (IllegalStateException e) {
+                            return;
+                        }
+                        accepted.add(index);
+                    }
+                });
+                writers[t].start();
+            }
+            started.await();
+            Thread.sleep(20);
+            Assert.assertTrue(registry.awaitClose(30, TimeUnit.SECONDS));
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            // 被接受的数据在关闭后都已写入，关闭后不能再创建
+            for (String index : accepted) {
+                Assert.assertEquals(index, 1, server.count(index));
+            }
+            try {
+                registry.getProcessor("race-after-close");
+                Assert.fail("关闭后不能再创建BulkProcessor");
+            } catch (IllegalStateException e) {
+                Assert.assertTrue(e.getMessage().contains("已关闭"));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.apache.http.HttpHost;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-20 16:00:00
+ */
+public class BulkRetryExecutorTest {
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    private final List<DeadLetter> deadLetters = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        // 超时在IO reactor每次select时检查，默认间隔1s
+        client = new RestHighLevelClient(RestClient.builder(HttpHost.create(server.getUri()))
+                .setRequestConfigCallback(config -> config.setSocketTimeout(200))
+                .setHttpClientConfigCallback(builder -> builder.setDefaultIOReactorConfig(
+                        IOReactorConfig.custom().setSelectInterval(20).build())));
+    }
+
+    @After
+    public void stop() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void timeoutsRetryOnlyItemsWithIds() {
+        // 每次请求都超时，但服务端仍然执行了
+        server.latency(Duration.ofMillis(500), Duration.ZERO);
+        BulkRetryExecutor executor = executor(2, Duration.ofMillis(1));
+        try {
+            BulkRequest request = new BulkRequest();
+            for (int i = 0; i < 5; i++) {
+                IndexRequest item = new IndexRequest("timeout").source("{\"n\":" + i + "}", XContentType.JSON);
+                request.add(i < 3 ? item.id(Integer.toString(i)) : item);
+            }
+            BulkResult result = executor.execute(request);
+            Assert.assertEquals(5, result.getDead());
+            // 自动生成id的2条不重发，带_id的3条各重发2次
+            Assert.assertEquals(6, result.getRetried());
+            Assert.assertEquals(5, deadLetters.size());
+        } finally {
+            executor.destroy();
+        }
+    }
+
+    @Test
+    public void destroyDeadLettersWaitingRetries() throws Exception {
+        server.rejectionRate(1);
+        BulkRetryExecutor executor = executor(5, Duration.ofHours(1));
+        BulkRequest request = new BulkRequest();
+        for (int i = 0; i < 3; i++) {
+            request.add(new IndexRequest("shutdown").id(Integer.toString(i)).source("{}", XContentType.JSON));
+        }
+        CompletableFuture<BulkResult> future = executor.executeAsync(request);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getRejectedItems() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        Assert.assertFalse(future.isDone());
+
+        executor.destroy();
+        BulkResult result = future.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(3, result.getDead());
+        Assert.assertEquals(3, deadLetters.size());
+    }
+
+    private BulkRetryExecutor executor(int maxRetries, Duration backoff) {
+        BulkProperties properties = new BulkProperties();
+        properties.getRetry().setMaxRetries(maxRetries);
+        properties.getRetry().setInitialBackoff(backoff);
+        properties.getRetry().setMaxBackoff(backoff);
+        return new BulkRetryExecutor(client, properties, deadLetters::add, new ElasticsearchMetrics());
+    }
+
+}
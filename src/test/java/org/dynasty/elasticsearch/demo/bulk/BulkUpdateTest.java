@@ -0,0 +1,123 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadDocument;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 16:20:00
+ */
+public class BulkUpdateTest {
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    private static ElasticsearchRepository repository;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri());
+        repository = context.getBean(ElasticsearchRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @After
+    public void reset() {
+        server.reset();
+    }
+
+    @Test
+    public void sendsOnlyChangedFields() throws Exception {
+        List<LoadDocument> documents = LoadTestHarness.documents(0, 10);
+        repository.bulkIndex("update", documents);
+        Map<String, LoadDocument> previous = documents.stream().map(BulkUpdateTest::copy)
+                .collect(Collectors.toMap(LoadDocument::getMysqlId, d -> d));
+        // 服务端的phone被其他写入方修改过，局部更新不能覆盖它
+        repository.getClient().update(new UpdateRequest("update", "0").doc("{\"phone\":7}", XContentType.JSON),
+                RequestOptions.DEFAULT);
+        for (int i = 0; i < 3; i++) {
+            documents.get(i).setTitle("changed " + i);
+        }
+        documents.get(2).setContent(null);
+        long written = server.getWrittenDocs();
+
+        BulkResult result = repository.bulkUpdate("update", documents, previous);
+        Assert.assertEquals(3, result.getTotal());
+        Assert.assertEquals(3, result.getSucceeded());
+        Assert.assertEquals(written + 3, server.getWrittenDocs());
+        Assert.assertEquals("changed 0", server.get("update", "0").get("title").asText());
+        Assert.assertEquals(7, server.get("update", "0").get("phone").asInt());
+        Assert.assertTrue(server.get("update", "2").get("content").isNull());
+        Assert.assertEquals("title 3", server.get("update", "3").get("title").asText());
+    }
+
+    @Test
+    public void unchangedDocumentsAreNoops() {
+        List<LoadDocument> documents = LoadTestHarness.documents(0, 5);
+        repository.bulkIndex("noop", documents);
+        long written = server.getWrittenDocs();
+
+        BulkResult result = repository.bulkUpdate("noop", documents);
+        Assert.assertEquals(5, result.getSucceeded());
+        Assert.assertEquals(written, server.getWrittenDocs());
+
+        Map<String, LoadDocument> previous = new HashMap<>();
+        documents.forEach(d -> previous.put(d.getMysqlId(), copy(d)));
+        Assert.assertEquals(BulkResult.EMPTY.getTotal(), repository.bulkUpdate("noop", documents, previous).getTotal());
+    }
+
+    @Test
+    public void upsertAndDelete() {
+        List<LoadDocument> documents = LoadTestHarness.documents(0, 4);
+        repository.bulkIndex("upsert", documents.subList(0, 2));
+
+        BulkResult missing = repository.bulkUpdate("upsert", documents.subList(2, 4));
+        Assert.assertEquals(2, missing.getDead());
+
+        BulkResult upserted = repository.bulkUpsert("upsert", documents);
+        Assert.assertEquals(4, upserted.getSucceeded());
+        Assert.assertEquals(4, server.count("upsert"));
+
+        BulkResult deleted = repository.bulkDelete("upsert", Arrays.asList(documents.get(0), documents.get(3)));
+        Assert.assertEquals(2, deleted.getSucceeded());
+        Assert.assertEquals(2, server.count("upsert"));
+        Assert.assertNull(server.get("upsert", "3"));
+    }
+
+    private static LoadDocument copy(LoadDocument source) {
+        LoadDocument copy = new LoadDocument();
+        copy.setMysqlId(source.getMysqlId());
+        copy.setDate(source.getDate());
+        copy.setTitle(source.getTitle());
+        copy.setContent(source.getContent());
+        copy.setRichText(source.getRichText());
+        copy.setPrice(source.getPrice());
+        copy.setPhone(source.getPhone());
+        return copy;
+    }
+
+}
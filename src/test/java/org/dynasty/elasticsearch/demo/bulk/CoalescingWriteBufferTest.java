@@ -0,0 +1,130 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.VersionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 11:40:00
+ */
+public class CoalescingWriteBufferTest {
+
+    private final List<DocWriteRequest<?>> emitted = new ArrayList<>();
+
+    private final ElasticsearchMetrics metrics = new ElasticsearchMetrics();
+
+    @Test
+    public void keepsLastWritePerDocument() {
+        CoalescingWriteBuffer buffer = buffer(100);
+        for (int version = 0; version < 3; version++) {
+            buffer.add(index("1", version));
+        }
+        buffer.add(index("2", 0));
+        buffer.add(index("3", 0));
+        buffer.add(new DeleteRequest("document", "3"));
+        Assert.assertTrue(emitted.isEmpty());
+
+        buffer.drain();
+        Assert.assertEquals(3, emitted.size());
+        Assert.assertEquals("{\"version\":2}", ((IndexRequest) emitted.get(0)).source().utf8ToString());
+        Assert.assertEquals("2", emitted.get(1).id());
+        Assert.assertTrue(emitted.get(2) instanceof DeleteRequest);
+
+        CoalesceStats stats = buffer.stats();
+        Assert.assertEquals(6, stats.getReceived());
+        Assert.assertEquals(3, stats.getEmitted());
+        Assert.assertEquals(0.5, stats.getDedupeRatio(), 0.0001);
+        Assert.assertEquals(0.5, metrics.getDedupeRatio(), 0.0001);
+        buffer.close();
+    }
+
+    @Test
+    public void updatesAndAutoIdsPassThroughInOrder() {
+        CoalescingWriteBuffer buffer = buffer(100);
+        buffer.add(index("1", 0));
+        buffer.add(new UpdateRequest("document", "1").doc("{\"price\":1}", XContentType.JSON));
+        buffer.add(new IndexRequest("document").source("{}", XContentType.JSON));
+        Assert.assertEquals(3, emitted.size());
+        Assert.assertTrue(emitted.get(0) instanceof IndexRequest);
+        Assert.assertTrue(emitted.get(1) instanceof UpdateRequest);
+        Assert.assertNull(emitted.get(2).id());
+        buffer.close();
+    }
+
+    @Test
+    public void aliasWritesCollapseWithLocatedDeletes() {
+        CoalesceProfile profile = new CoalesceProfile();
+        profile.setEnabled(true);
+        profile.setWindow(Duration.ofHours(1));
+        CoalescingWriteBuffer buffer = new CoalescingWriteBuffer("test", profile, emitted::add, metrics,
+                index -> "orders".equals(index) ? "orders-000002" : index);
+        buffer.add(new IndexRequest("orders").id("1").source("{}", XContentType.JSON));
+        buffer.add(new DeleteRequest("orders-000002", "1"));
+        buffer.add(new DeleteRequest("orders-000001", "1"));
+        buffer.drain();
+        Assert.assertEquals(2, emitted.size());
+        Assert.assertEquals("orders-000002", emitted.get(0).index());
+        Assert.assertEquals("orders-000001", emitted.get(1).index());
+        buffer.close();
+    }
+
+    @Test
+    public void createAndVersionedWritesPassThroughInOrder() {
+        CoalescingWriteBuffer buffer = buffer(100);
+        buffer.add(index("1", 0));
+        buffer.add(index("1", 1).create(true));
+        buffer.add(index("2", 0));
+        buffer.add(index("2", 1).setIfSeqNo(3).setIfPrimaryTerm(1));
+        buffer.add(new DeleteRequest("document", "3").version(5).versionType(VersionType.EXTERNAL));
+        Assert.assertEquals(5, emitted.size());
+        Assert.assertEquals("{\"version\":0}", ((IndexRequest) emitted.get(0)).source().utf8ToString());
+        Assert.assertEquals(DocWriteRequest.OpType.CREATE, emitted.get(1).opType());
+        Assert.assertEquals(3, emitted.get(3).ifSeqNo());
+
+        // create之后的index不会覆盖它
+        buffer.add(index("1", 2));
+        buffer.drain();
+        Assert.assertEquals(6, emitted.size());
+        buffer.close();
+    }
+
+    @Test
+    public void drainsWhenFullAndOnClose() {
+        CoalescingWriteBuffer buffer = buffer(2);
+        buffer.add(index("1", 0));
+        buffer.add(index("2", 0));
+        Assert.assertEquals(2, emitted.size());
+        buffer.add(index("3", 0));
+        buffer.close();
+        Assert.assertEquals(3, emitted.size());
+        try {
+            buffer.add(index("4", 0));
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private CoalescingWriteBuffer buffer(int maxEntries) {
+        CoalesceProfile profile = new CoalesceProfile();
+        profile.setEnabled(true);
+        profile.setWindow(Duration.ofHours(1));
+        profile.setMaxEntries(maxEntries);
+        return new CoalescingWriteBuffer("test", profile, emitted::add, metrics);
+    }
+
+    private static IndexRequest index(String id, int version) {
+        return new IndexRequest("document").id(id).source("{\"version\":" + version + "}", XContentType.JSON);
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.apache.http.HttpHost;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.dynasty.elasticsearch.demo.rollover.WriteGuard;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-20 10:00:00
+ */
+public class ManagedBulkProcessorTest {
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    private BulkRetryExecutor retryExecutor;
+
+    private final List<DeadLetter> deadLetters = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        client = new RestHighLevelClient(RestClient.builder(HttpHost.create(server.getUri())));
+        BulkProperties properties = new BulkProperties();
+        properties.getRetry().setMaxRetries(20);
+        properties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+        properties.getRetry().setMaxBackoff(Duration.ofMillis(10));
+        retryExecutor = new BulkRetryExecutor(client, properties, deadLetters::add, new ElasticsearchMetrics());
+    }
+
+    @After
+    public void stop() throws Exception {
+        retryExecutor.destroy();
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void deadLettersTheItemsThatActuallyFailed() throws Exception {
+        server.rejectionRate(0.3);
+        BulkProfile profile = new BulkProfile();
+        profile.setBulkActions(50);
+        ManagedBulkProcessor processor = new ManagedBulkProcessor("test", profile, client, retryExecutor,
+                new ElasticsearchMetrics(), index -> WriteGuard.NONE, (indices, succeeded) -> {
+        });
+        for (int i = 0; i < 200; i++) {
+            processor.add(new IndexRequest("retry").id(Integer.toString(i))
+                    .source("{\"n\":" + i + "}", XContentType.JSON));
+            if (i % 20 == 0) {
+                // 更新不存在的文档返回404，不可重试
+                processor.add(new UpdateRequest("retry", "missing-" + i).doc("{\"n\":0}", XContentType.JSON));
+            }
+        }
+        Assert.assertTrue(processor.awaitClose(30, TimeUnit.SECONDS));
+
+        Assert.assertTrue(server.getRejectedItems() > 0);
+        Assert.assertEquals(200, server.count("retry"));
+        Set<String> dead = new TreeSet<>();
+        for (DeadLetter deadLetter : deadLetters) {
+            Assert.assertEquals(404, deadLetter.getStatus());
+            dead.add(deadLetter.getId());
+        }
+        Set<String> expected = new TreeSet<>();
+        for (int i = 0; i < 200; i += 20) {
+            expected.add("missing-" + i);
+        }
+        Assert.assertEquals(expected, dead);
+    }
+
+}
@@ -0,0 +1,39 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 16:05:00
+ */
+public class NdjsonFileDeadLetterSinkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendsOneLinePerDeadLetter() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("dlq/dead.ndjson");
+        try (NdjsonFileDeadLetterSink sink = new NdjsonFileDeadLetterSink(path)) {
+            IndexRequest request = new IndexRequest("test-index1").id("1").source("{\"name\":\"a\"}", XContentType.JSON);
+            sink.write(DeadLetter.of(request, 400, "mapper_parsing_exception"));
+            sink.write(new DeadLetter("test-index1", "2", "delete", 404, "not found", null, null));
+        }
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        Assert.assertEquals(2, lines.size());
+        Assert.assertTrue(lines.get(0).contains("\"source\":{\"name\":\"a\"}"));
+        Assert.assertTrue(lines.get(0).contains("\"status\":400"));
+        Assert.assertTrue(lines.get(1).contains("\"op_type\":\"delete\""));
+    }
+
+}
@@ -0,0 +1,225 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.apache.http.HttpHost;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 10:30:00
+ */
+public class NdjsonFileLoaderTest {
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    private static ElasticsearchRepository repository;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri(),
+                "--easy-es.bulk.file.batch-size=2KB",
+                "--easy-es.bulk.file.map-window=1KB",
+                "--easy-es.bulk.file.max-line-length=4KB",
+                "--easy-es.bulk.retry.initial-backoff=1ms",
+                "--easy-es.bulk.retry.max-retries=50");
+        repository = context.getBean(ElasticsearchRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @After
+    public void reset() {
+        server.rejectionRate(0).reset();
+    }
+
+    @Test
+    public void loadsRawLinesAcrossWindows() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            content.append(line(i)).append(i % 50 == 0 ? "\r\n" : "\n");
+            if (i == 100) {
+                content.append("\n");
+            }
+        }
+        // 超过映射窗口的单行，最后一行没有换行
+        content.append("{\"n\":300,\"text\":\"").append(repeat('x', 3000)).append("\"}");
+        Path file = write(content.toString());
+
+        BulkResult result = repository.bulkIndexFile("file", file);
+        Assert.assertEquals(301, result.getTotal());
+        Assert.assertEquals(301, result.getSucceeded());
+        Assert.assertEquals(301, server.count("file"));
+        Assert.assertTrue(server.getBulkRequests() > 5);
+        Path checkpoint = file.resolveSibling(file.getFileName() + ".checkpoint");
+        Assert.assertEquals(Files.size(file), new FileCheckpoint(checkpoint).load());
+
+        // 已完成的文件再次导入不会重复写入
+        Assert.assertEquals(0, repository.bulkIndexFile("file", file).getTotal());
+        Assert.assertEquals(301, server.count("file"));
+    }
+
+    @Test
+    public void rejectsLinesOverMaxLength() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            content.append(line(i)).append('\n');
+        }
+        long offset = content.toString().getBytes(StandardCharsets.UTF_8).length;
+        content.append(repeat('x', 5000)).append('\n').append(line(10)).append('\n');
+        Path file = write(content.toString());
+        try {
+            repository.bulkIndexFile("long-line", file);
+            Assert.fail("单行超过上限");
+        } catch (ElasticsearchException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("偏移量" + offset + "处"));
+        }
+
+        // 没有换行的文件在窗口扩大到上限时失败
+        Path noNewLine = write(repeat('x', 100_000));
+        try {
+            repository.bulkIndexFile("no-new-line", noNewLine);
+            Assert.fail("单行超过上限");
+        } catch (ElasticsearchException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("偏移量0处"));
+        }
+    }
+
+    @Test
+    public void resumesFromCheckpoint() throws Exception {
+        StringBuilder content = new StringBuilder();
+        long offset = 0;
+        for (int i = 0; i < 200; i++) {
+            content.append(line(i)).append('\n');
+            if (i == 79) {
+                offset = content.toString().getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        Path file = write(content.toString());
+        Path checkpoint = folder.getRoot().toPath().resolve("resume.checkpoint");
+        new FileCheckpoint(checkpoint).save(offset);
+
+        BulkResult result = repository.bulkIndexFile("resume", file, checkpoint);
+        Assert.assertEquals(120, result.getSucceeded());
+        Assert.assertEquals(120, server.count("resume"));
+    }
+
+    @Test
+    public void retriesRejectedLinesOnly() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            content.append(line(i)).append('\n');
+        }
+        Path file = write(content.toString());
+        server.rejectionRate(0.3);
+
+        BulkResult result = repository.bulkIndexFile("rejected", file);
+        Assert.assertEquals(200, result.getSucceeded());
+        Assert.assertTrue(result.getRetried() > 0);
+        Assert.assertEquals(200, server.count("rejected"));
+    }
+
+    @Test
+    public void timeoutsResendOnlyBatchesWithIds() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            content.append(line(i)).append('\n');
+        }
+        Path file = write(content.toString());
+        // 每次请求都超时，但服务端仍然执行了
+        server.latency(Duration.ofMillis(500), Duration.ZERO);
+        try (RestHighLevelClient client = new RestHighLevelClient(RestClient.builder(HttpHost.create(server.getUri()))
+                .setRequestConfigCallback(config -> config.setSocketTimeout(200))
+                .setHttpClientConfigCallback(builder -> builder.setDefaultIOReactorConfig(
+                        IOReactorConfig.custom().setSelectInterval(20).build())))) {
+            BulkProperties properties = new BulkProperties();
+            properties.getRetry().setMaxRetries(2);
+            properties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+            BulkRetryExecutor executor = new BulkRetryExecutor(client, properties, letter -> {
+            }, new ElasticsearchMetrics());
+            try {
+                // 服务端生成_id时不整体重发
+                try {
+                    load(client, executor, properties, "generated", file);
+                    Assert.fail();
+                } catch (ElasticsearchException expected) {
+                }
+                // 等待服务端处理完超时的请求
+                Thread.sleep(700);
+                Assert.assertEquals(1, server.getBulkRequests());
+                Assert.assertEquals(20, server.count("generated"));
+
+                // 按字段取_id时重发只会覆盖
+                properties.getFile().setIdField("n");
+                try {
+                    load(client, executor, properties, "keyed", file);
+                    Assert.fail();
+                } catch (ElasticsearchException expected) {
+                }
+                // 等待服务端处理完超时的请求
+                Thread.sleep(700);
+                Assert.assertEquals(4, server.getBulkRequests());
+                Assert.assertEquals(20, server.count("keyed"));
+                Assert.assertEquals(7, server.get("keyed", "7").path("n").asInt());
+            } finally {
+                executor.destroy();
+            }
+        } finally {
+            server.latency(Duration.ZERO, Duration.ZERO);
+        }
+    }
+
+    private BulkResult load(RestHighLevelClient client, BulkRetryExecutor executor, BulkProperties properties,
+                            String indexName, Path file) throws IOException {
+        FileCheckpoint checkpoint = new FileCheckpoint(folder.getRoot().toPath().resolve(indexName + ".checkpoint"));
+        return new NdjsonFileLoader(client.getLowLevelClient(), executor, properties.getFile(),
+                new ElasticsearchMetrics()).load(indexName, file, checkpoint);
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String line(int n) {
+        return "{\"n\":" + n + ",\"title\":\"标题" + n + "\",\"price\":" + n * 1.5 + "}";
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,97 @@
+package org.dynasty.elasticsearch.demo.bulk;
+
+import org.apache.http.HttpHost;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-20 11:00:00
+ */
+public class StreamingBulkIngesterTest {
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    private BulkRetryExecutor retryExecutor;
+
+    @Before
+    public void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        client = new RestHighLevelClient(RestClient.builder(HttpHost.create(server.getUri())));
+        retryExecutor = new BulkRetryExecutor(client, new BulkProperties(), deadLetter -> {
+        }, new ElasticsearchMetrics());
+    }
+
+    @After
+    public void stop() throws Exception {
+        retryExecutor.destroy();
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void producerWaitsForInFlightBatches() {
+        server.latency(Duration.ofMillis(30), Duration.ZERO);
+        StreamingBulkProperties properties = new StreamingBulkProperties();
+        properties.setBatchActions(10);
+        properties.setMaxInFlightBatches(2);
+        CountingSource source = new CountingSource(300);
+
+        BulkResult result = new StreamingBulkIngester(retryExecutor, properties).ingest(source,
+                i -> i == 7 ? null : new IndexRequest("stream").id(Integer.toString(i))
+                        .source("{\"n\":" + i + "}", XContentType.JSON));
+
+        Assert.assertEquals(300, result.getTotal());
+        Assert.assertEquals(299, result.getSucceeded());
+        Assert.assertEquals(1, result.getDead());
+        Assert.assertEquals(299, server.count("stream"));
+        // 在途的批次不超过上限，且确实达到了上限
+        Assert.assertEquals(2, server.getMaxInFlightBulks());
+        // 已拉取但未写入的数据不超过 (maxInFlightBatches + 1) 个批次
+        Assert.assertTrue("pending " + source.maxPending, source.maxPending <= 30);
+    }
+
+    private final class CountingSource implements Iterator<Integer> {
+
+        private final int size;
+
+        private int next;
+
+        private long maxPending;
+
+        CountingSource(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Integer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            // 跳过的第7条不会写入
+            long written = server.getWrittenDocs() + (next > 7 ? 1 : 0);
+            maxPending = Math.max(maxPending, next - written);
+            return next++;
+        }
+    }
+
+}
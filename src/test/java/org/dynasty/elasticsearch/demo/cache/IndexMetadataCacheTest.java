@@ -0,0 +1,92 @@
+package org.dynasty.elasticsearch.demo.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 19:20:00
+ */
+public class IndexMetadataCacheTest {
+
+    @Test
+    public void concurrentLookupsShareOneRequest() throws Exception {
+        IndexMetadataCache cache = new IndexMetadataCache(new CacheProperties());
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> cache.get(IndexMetadataCache.Kind.EXISTS, "test-index1", () -> {
+                    requests.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return true;
+                })));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<Boolean> future : futures) {
+                Assert.assertTrue(future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void invalidateAndFailures() throws Exception {
+        IndexMetadataCache cache = new IndexMetadataCache(new CacheProperties());
+        AtomicInteger requests = new AtomicInteger();
+        Assert.assertTrue(cache.get(IndexMetadataCache.Kind.EXISTS, "a", () -> requests.incrementAndGet() > 0));
+        Assert.assertTrue(cache.get(IndexMetadataCache.Kind.EXISTS, "a", () -> requests.incrementAndGet() > 0));
+        Assert.assertEquals(1, requests.get());
+        cache.invalidate("a");
+        Assert.assertFalse(cache.get(IndexMetadataCache.Kind.EXISTS, "a", () -> requests.incrementAndGet() < 0));
+        Assert.assertEquals(2, requests.get());
+
+        try {
+            cache.get(IndexMetadataCache.Kind.SETTINGS, "b", () -> {
+                throw new IOException("boom");
+            });
+            Assert.fail();
+        } catch (IOException expected) {
+            // 失败不缓存
+        }
+        Assert.assertEquals("ok", cache.get(IndexMetadataCache.Kind.SETTINGS, "b", () -> "ok"));
+    }
+
+    @Test
+    public void missingIndexCachedUntilWrittenAndWritesKeepMappings() throws Exception {
+        IndexMetadataCache cache = new IndexMetadataCache(new CacheProperties());
+        AtomicInteger requests = new AtomicInteger();
+        Assert.assertFalse(cache.get(IndexMetadataCache.Kind.EXISTS, "a", () -> requests.incrementAndGet() < 0));
+        Assert.assertFalse(cache.getAsync(IndexMetadataCache.Kind.EXISTS, "a",
+                () -> CompletableFuture.completedFuture(requests.incrementAndGet() < 0)).get());
+        Assert.assertEquals(1, requests.get());
+
+        Assert.assertEquals("v1", cache.get(IndexMetadataCache.Kind.MAPPINGS, "a", () -> "v1"));
+        Assert.assertEquals("s1", cache.get(IndexMetadataCache.Kind.SETTINGS, "a", () -> "s1"));
+        // 写入自动创建了索引，不需要再查询
+        cache.written("a");
+        Assert.assertTrue(cache.get(IndexMetadataCache.Kind.EXISTS, "a", () -> requests.incrementAndGet() < 0));
+        Assert.assertTrue(cache.getAsync(IndexMetadataCache.Kind.EXISTS, "a",
+                () -> CompletableFuture.completedFuture(requests.incrementAndGet() < 0)).get());
+        Assert.assertEquals(1, requests.get());
+        Assert.assertEquals("v1", cache.get(IndexMetadataCache.Kind.MAPPINGS, "a", () -> "v2"));
+        Assert.assertEquals("s1", cache.get(IndexMetadataCache.Kind.SETTINGS, "a", () -> "s2"));
+    }
+
+}
@@ -0,0 +1,157 @@
+package org.dynasty.elasticsearch.demo.cache;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 19:55:00
+ */
+public class QueryResultCacheTest {
+
+    private static QueryResultCache cache() {
+        return cache(10000);
+    }
+
+    private static QueryResultCache cache(int maxTrackedIndices) {
+        return cache(maxTrackedIndices, Duration.ZERO);
+    }
+
+    private static QueryResultCache cache(int maxTrackedIndices, Duration refreshInterval) {
+        CacheProperties properties = new CacheProperties();
+        properties.getQuery().setEnabled(true);
+        properties.getQuery().setMaxTrackedIndices(maxTrackedIndices);
+        properties.getQuery().setRefreshInterval(refreshInterval);
+        return new QueryResultCache(properties);
+    }
+
+    private static SearchResponse response() {
+        return new SearchResponse(InternalSearchResponse.empty(), null, 1, 1, 0, 1,
+                ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+    }
+
+    private static SearchSourceBuilder source(String value) {
+        return new SearchSourceBuilder().query(QueryBuilders.termQuery("sex", value)).size(10);
+    }
+
+    @Test
+    public void keyedOnIndicesAndQuery() {
+        QueryResultCache cache = cache();
+        SearchResponse response = response();
+        cache.put(cache.key(source("M"), "a", "b"), response);
+        Assert.assertSame(response, cache.get(cache.key(source("M"), "b", "a")));
+        Assert.assertNull(cache.get(cache.key(source("F"), "a", "b")));
+        Assert.assertEquals(1, cache.stats().hitCount());
+        Assert.assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    public void writeInvalidatesMatchingIndices() {
+        QueryResultCache cache = cache();
+        cache.put(cache.key(source("M"), "a"), response());
+        cache.put(cache.key(source("M"), "b"), response());
+        cache.put(cache.key(source("M"), "doc-*"), response());
+        cache.invalidate("a", "doc-2026");
+        Assert.assertNull(cache.get(cache.key(source("M"), "a")));
+        Assert.assertNull(cache.get(cache.key(source("M"), "doc-*")));
+        Assert.assertNotNull(cache.get(cache.key(source("M"), "b")));
+    }
+
+    @Test
+    public void wildcardEntriesInvalidatedByAnyWrite() {
+        QueryResultCache cache = cache();
+        cache.put(cache.key(source("M"), "doc-*"), response());
+        cache.put(cache.key(source("M"), "_all"), response());
+        cache.put(cache.key(source("M"), "a", "b"), response());
+        cache.invalidate("c");
+        Assert.assertNull(cache.get(cache.key(source("M"), "doc-*")));
+        Assert.assertNull(cache.get(cache.key(source("M"), "_all")));
+        Assert.assertNotNull(cache.get(cache.key(source("M"), "a", "b")));
+        cache.invalidate("b");
+        Assert.assertNull(cache.get(cache.key(source("M"), "a", "b")));
+    }
+
+    @Test
+    public void trackedIndicesAreBounded() {
+        QueryResultCache cache = cache(3);
+        cache.put(cache.key(source("M"), "a"), response());
+        cache.invalidate("a");
+        QueryResultCache.Key stale = cache.key(source("M"), "a");
+        cache.put(cache.key(source("F"), "a"), response());
+        cache.invalidate("a");
+        for (int i = 0; i < 10; i++) {
+            cache.invalidate("index-" + i);
+            Assert.assertTrue(cache.trackedIndices() <= 3);
+        }
+        // 代数被清空后，旧条目也不会重新命中
+        Assert.assertNull(cache.get(cache.key(source("M"), "a")));
+        Assert.assertNull(cache.get(cache.key(source("F"), "a")));
+        cache.put(stale, response());
+        Assert.assertNull(cache.get(cache.key(source("M"), "a")));
+        cache.put(cache.key(source("M"), "a"), response());
+        Assert.assertNotNull(cache.get(cache.key(source("M"), "a")));
+    }
+
+    @Test
+    public void resultOfSearchRacingWithWriteIsNotCached() {
+        QueryResultCache cache = cache();
+        QueryResultCache.Key key = cache.key(source("M"), "a");
+        cache.invalidate("a");
+        cache.put(key, response());
+        Assert.assertNull(cache.get(cache.key(source("M"), "a")));
+    }
+
+    @Test
+    public void searchesBeforeRefreshAreNotCached() throws Exception {
+        QueryResultCache cache = cache(10000, Duration.ofMillis(200));
+        cache.invalidate("a");
+        // 写入响应已返回但还没有refresh，查询结果可能不包含刚写入的文档
+        cache.put(cache.key(source("M"), "a"), response());
+        Assert.assertNull(cache.get(cache.key(source("M"), "a")));
+        cache.put(cache.key(source("M"), "b"), response());
+        Assert.assertNotNull(cache.get(cache.key(source("M"), "b")));
+        Thread.sleep(250);
+        cache.put(cache.key(source("M"), "a"), response());
+        Assert.assertNotNull(cache.get(cache.key(source("M"), "a")));
+    }
+
+    @Test
+    public void aliasesResolvedToConcreteIndices() {
+        QueryResultCache cache = cache();
+        cache.setIndexResolver(name -> "logs".equals(name) ? Arrays.asList("logs-000001", "logs-000002")
+                : Collections.singleton(name));
+        cache.put(cache.key(source("M"), "logs-000001"), response());
+        cache.put(cache.key(source("F"), "logs"), response());
+        cache.put(cache.key(source("M"), "other"), response());
+        // 通过别名写入使直接查询索引的条目失效
+        cache.invalidate("logs");
+        Assert.assertNull(cache.get(cache.key(source("M"), "logs-000001")));
+        Assert.assertNull(cache.get(cache.key(source("F"), "logs")));
+        Assert.assertNotNull(cache.get(cache.key(source("M"), "other")));
+        // 直接写入索引使查询别名的条目失效
+        cache.put(cache.key(source("F"), "logs"), response());
+        cache.invalidate("logs-000002");
+        Assert.assertNull(cache.get(cache.key(source("F"), "logs")));
+    }
+
+    @Test
+    public void unresolvedNamesInvalidatedByAnyWrite() {
+        QueryResultCache cache = cache();
+        cache.setIndexResolver(name -> {
+            throw new IllegalStateException("别名尚未加载");
+        });
+        cache.put(cache.key(source("M"), "a"), response());
+        cache.invalidate("b");
+        Assert.assertNull(cache.get(cache.key(source("M"), "a")));
+    }
+
+}
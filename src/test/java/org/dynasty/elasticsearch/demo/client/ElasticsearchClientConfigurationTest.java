@@ -0,0 +1,64 @@
+package org.dynasty.elasticsearch.demo.client;
+
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.bulk.BulkResult;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 23:00:00
+ */
+public class ElasticsearchClientConfigurationTest {
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri(),
+                "--easy-es.client.compression.enabled=true",
+                "--easy-es.client.compression.min-size=1KB");
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @Test
+    public void lowLevelClientSharesConnectionPool() {
+        Assert.assertSame(context.getBean(RestHighLevelClient.class).getLowLevelClient(),
+                context.getBean(RestClient.class));
+    }
+
+    @Test
+    public void largeBodiesAreCompressed() throws Exception {
+        ElasticsearchRepository repository = context.getBean(ElasticsearchRepository.class);
+        ElasticsearchMetrics metrics = context.getBean(ElasticsearchMetrics.class);
+        long gzipRequests = server.getGzipRequests();
+
+        BulkResult result = repository.bulkIndex("compressed", LoadTestHarness.documents(0, 500));
+        Assert.assertEquals(500, result.getSucceeded());
+        Assert.assertEquals(500, server.count("compressed"));
+        Assert.assertEquals(gzipRequests + 1, server.getGzipRequests());
+        Assert.assertTrue(metrics.getCompressionSavedBytes() > 0);
+
+        // 小于阈值的请求不压缩
+        repository.createIndex("small");
+        Assert.assertTrue(server.hasIndex("small"));
+        Assert.assertEquals(gzipRequests + 1, server.getGzipRequests());
+    }
+
+}
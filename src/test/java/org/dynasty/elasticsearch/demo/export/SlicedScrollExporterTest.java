@@ -0,0 +1,121 @@
+package org.dynasty.elasticsearch.demo.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-20 12:30:00
+ */
+public class SlicedScrollExporterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    private static ElasticsearchRepository repository;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri());
+        repository = context.getBean(ElasticsearchRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @Before
+    public void index() {
+        server.reset();
+        repository.bulkIndex("export", LoadTestHarness.documents(0, 500));
+    }
+
+    @After
+    public void reset() {
+        server.latency(Duration.ZERO, Duration.ZERO);
+    }
+
+    @Test
+    public void slicesRunInParallelAndCoverEveryDocumentOnce() throws Exception {
+        server.latency(Duration.ofMillis(20), Duration.ZERO);
+        Path dir = folder.getRoot().toPath();
+
+        ExportResult result = new SlicedScrollExporter(repository.getClient()).pageSize(40)
+                .export("export", QueryBuilders.matchAllQuery(), 4, dir);
+
+        Assert.assertEquals(4, result.getSlices().size());
+        Assert.assertEquals(500, result.getDocs());
+        Set<String> ids = new HashSet<>();
+        for (SliceStats slice : result.getSlices()) {
+            Assert.assertEquals(dir.resolve("export-slice-" + slice.getSlice() + ".ndjson"), slice.getFile());
+            List<String> sliceIds = ids(slice.getFile());
+            // 每个slice都分到了数据，且统计与文件内容一致
+            Assert.assertTrue(sliceIds.size() > 0);
+            Assert.assertEquals(slice.getDocs(), sliceIds.size());
+            Assert.assertEquals(Files.size(slice.getFile()), slice.getBytes());
+            for (String id : sliceIds) {
+                Assert.assertTrue("重复导出:" + id, ids.add(id));
+            }
+        }
+        Assert.assertEquals(500, ids.size());
+        // slice并行拉取，并且全部释放了scroll上下文
+        Assert.assertTrue(server.getMaxInFlightSearches() > 1);
+        Assert.assertTrue(server.getMaxInFlightSearches() <= 4);
+        Assert.assertEquals(0, server.getOpenScrolls());
+    }
+
+    @Test
+    public void singleSliceAppliesQuery() throws Exception {
+        Path dir = folder.getRoot().toPath();
+
+        ExportResult result = new SlicedScrollExporter(repository.getClient()).pageSize(3)
+                .export("export", QueryBuilders.idsQuery().addIds("1", "2", "3", "4", "5", "6", "7"), 1, dir);
+
+        Assert.assertEquals(1, result.getSlices().size());
+        Assert.assertEquals(7, result.getDocs());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("1", "2", "3", "4", "5", "6", "7")),
+                new HashSet<>(ids(dir.resolve("export-slice-0.ndjson"))));
+        Assert.assertEquals(0, server.getOpenScrolls());
+    }
+
+    private static List<String> ids(Path file) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            ids.add(MAPPER.readTree(line).path("mysqlId").asText());
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.dynasty.elasticsearch.demo.fake;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * 内存中的文档
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 22:10:00
+ */
+final class FakeDocument {
+
+    private final String id;
+
+    private final ObjectNode source;
+
+    private final long version;
+
+    private final long seqNo;
+
+    FakeDocument(String id, ObjectNode source, long version, long seqNo) {
+        this.id = id;
+        this.source = source;
+        this.version = version;
+        this.seqNo = seqNo;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    ObjectNode getSource() {
+        return source;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    long getSeqNo() {
+        return seqNo;
+    }
+
+}
@@ -0,0 +1,1559 @@
+package org.dynasty.elasticsearch.demo.fake;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.unit.TimeValue;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 进程内的Elasticsearch替身，基于JDK自带的HttpServer，实现repository用到的REST API子集：
+ * 索引的创建/删除/存在判断、settings/mapping、别名和_rollover、单条写入/获取、_mget、_bulk、
+ * _delete_by_query（含后台任务和_tasks）、_search、_msearch和scroll。
+ * 请求体按Content-Type解析JSON/SMILE/CBOR，响应按Accept编码。
+ * <p>
+ * 可配置响应延迟、按条目随机拒绝（429）的比例和每秒写入文档数上限（超出的条目返回429），
+ * 用于在没有集群的情况下做集成测试、压测和429风暴复现。数据只保存在内存中。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 22:10:00
+ */
+public class FakeElasticsearchServer implements AutoCloseable {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static {
+        // 默认开启Nagle，与客户端的延迟ACK叠加后每个请求多出约40ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(FakeElasticsearchServer.class);
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final Map<String, FakeIndex> indices = new ConcurrentHashMap<>();
+
+    private final Map<String, Scroll> scrolls = new ConcurrentHashMap<>();
+
+    private final Map<String, FakeTask> tasks = new ConcurrentHashMap<>();
+
+    private final AtomicLong taskSequence = new AtomicLong();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong bulkRequests = new AtomicLong();
+
+    private final AtomicLong writtenDocs = new AtomicLong();
+
+    private final AtomicLong rejectedItems = new AtomicLong();
+
+    private final AtomicLong gzipRequests = new AtomicLong();
+
+    private final AtomicLong binaryRequests = new AtomicLong();
+
+    private final AtomicLong binaryResponses = new AtomicLong();
+
+    private final AtomicLong refreshRequests = new AtomicLong();
+
+    private final AtomicLong forceMergeRequests = new AtomicLong();
+
+    private final AtomicLong getRequests = new AtomicLong();
+
+    private final AtomicLong multiGetRequests = new AtomicLong();
+
+    private final AtomicLong multiSearchRequests = new AtomicLong();
+
+    private final AtomicInteger inFlightBulks = new AtomicInteger();
+
+    private final AtomicInteger maxInFlightBulks = new AtomicInteger();
+
+    private final AtomicInteger inFlightSearches = new AtomicInteger();
+
+    private final AtomicInteger maxInFlightSearches = new AtomicInteger();
+
+    private volatile JsonNode lastSearchSort;
+
+    private volatile String lastSearchTimeout;
+
+    private volatile long latencyNanos;
+
+    private volatile long latencyJitterNanos;
+
+    private volatile double rejectionRate;
+
+    private volatile long forceMergeNanos;
+
+    private volatile double maxDocsPerSecond;
+
+    private double tokens;
+
+    private long lastRefillNanos = System.nanoTime();
+
+    public FakeElasticsearchServer() throws IOException {
+        this(0);
+    }
+
+    public FakeElasticsearchServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        // 延迟通过阻塞处理线程实现，使用不限大小的线程池避免延迟变成并发上限
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "fake-es");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getUri() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * 每个请求的固定延迟和在此基础上的随机抖动
+     */
+    public FakeElasticsearchServer latency(Duration latency, Duration jitter) {
+        this.latencyNanos = latency.toNanos();
+        this.latencyJitterNanos = jitter.toNanos();
+        return this;
+    }
+
+    /**
+     * force merge请求的处理时间（在每个请求的固定延迟之外）
+     */
+    public FakeElasticsearchServer forceMergeDuration(Duration duration) {
+        this.forceMergeNanos = duration.toNanos();
+        return this;
+    }
+
+    /**
+     * bulk条目被随机拒绝（429）的比例，单条写入整体拒绝
+     *
+     * @param rejectionRate 0~1
+     */
+    public FakeElasticsearchServer rejectionRate(double rejectionRate) {
+        this.rejectionRate = rejectionRate;
+        return this;
+    }
+
+    /**
+     * 每秒最多接收的写入条目数，超出部分返回429，小于等于0表示不限制
+     */
+    public FakeElasticsearchServer maxDocsPerSecond(double maxDocsPerSecond) {
+        synchronized (this) {
+            this.maxDocsPerSecond = maxDocsPerSecond;
+            this.tokens = maxDocsPerSecond;
+            this.lastRefillNanos = System.nanoTime();
+        }
+        return this;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getBulkRequests() {
+        return bulkRequests.get();
+    }
+
+    public long getWrittenDocs() {
+        return writtenDocs.get();
+    }
+
+    public long getRejectedItems() {
+        return rejectedItems.get();
+    }
+
+    /**
+     * 请求体为gzip压缩的请求数
+     */
+    public long getGzipRequests() {
+        return gzipRequests.get();
+    }
+
+    /**
+     * 请求体为SMILE/CBOR的请求数
+     */
+    public long getBinaryRequests() {
+        return binaryRequests.get();
+    }
+
+    /**
+     * 按Accept以SMILE/CBOR返回的响应数
+     */
+    public long getBinaryResponses() {
+        return binaryResponses.get();
+    }
+
+    public long getRefreshRequests() {
+        return refreshRequests.get();
+    }
+
+    public long getForceMergeRequests() {
+        return forceMergeRequests.get();
+    }
+
+    /**
+     * 单条GET请求数
+     */
+    public long getGetRequests() {
+        return getRequests.get();
+    }
+
+    public long getMultiGetRequests() {
+        return multiGetRequests.get();
+    }
+
+    public long getMultiSearchRequests() {
+        return multiSearchRequests.get();
+    }
+
+    /**
+     * 同时处理中的bulk请求数的最大值
+     */
+    public int getMaxInFlightBulks() {
+        return maxInFlightBulks.get();
+    }
+
+    /**
+     * 同时处理中的查询（包括scroll）请求数的最大值
+     */
+    public int getMaxInFlightSearches() {
+        return maxInFlightSearches.get();
+    }
+
+    /**
+     * 尚未释放的scroll上下文数
+     */
+    public int getOpenScrolls() {
+        return scrolls.size();
+    }
+
+    /**
+     * 最近一次查询请求的sort，没有排序时为null
+     */
+    public JsonNode getLastSearchSort() {
+        return lastSearchSort;
+    }
+
+    /**
+     * 最近一次查询请求体中的timeout，没有设置时为null
+     *
+     * @return java.lang.String
+     */
+    public String getLastSearchTimeout() {
+        return lastSearchTimeout;
+    }
+
+    public boolean hasIndex(String index) {
+        return indices.containsKey(index);
+    }
+
+    /**
+     * 索引当前的文档数，索引不存在时返回0
+     */
+    public int count(String index) {
+        FakeIndex fakeIndex = indices.get(index);
+        return fakeIndex == null ? 0 : fakeIndex.size();
+    }
+
+    /**
+     * 获取文档_source，不存在时返回null
+     */
+    public JsonNode get(String index, String id) {
+        FakeIndex fakeIndex = indices.get(index);
+        FakeDocument doc = fakeIndex == null ? null : fakeIndex.get(id);
+        return doc == null ? null : doc.getSource();
+    }
+
+    /**
+     * 索引的settings（index.*为key的平铺形式）
+     */
+    public Map<String, String> getSettings(String index) {
+        FakeIndex fakeIndex = indices.get(index);
+        return fakeIndex == null ? Collections.emptyMap() : fakeIndex.settings();
+    }
+
+    /**
+     * 清空数据和统计，保留延迟/拒绝配置
+     */
+    public void reset() {
+        indices.clear();
+        scrolls.clear();
+        tasks.values().forEach(task -> task.cancelled = true);
+        tasks.clear();
+        requests.set(0);
+        bulkRequests.set(0);
+        writtenDocs.set(0);
+        rejectedItems.set(0);
+        gzipRequests.set(0);
+        binaryRequests.set(0);
+        binaryResponses.set(0);
+        refreshRequests.set(0);
+        forceMergeRequests.set(0);
+        getRequests.set(0);
+        multiGetRequests.set(0);
+        multiSearchRequests.set(0);
+        maxInFlightBulks.set(0);
+        maxInFlightSearches.set(0);
+        lastSearchSort = null;
+        lastSearchTimeout = null;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        Format accept = Format.of(exchange.getRequestHeaders().getFirst("Accept"));
+        if (accept != Format.JSON) {
+            binaryResponses.incrementAndGet();
+        }
+        try {
+            Request request = new Request(exchange);
+            if (request.gzip) {
+                gzipRequests.incrementAndGet();
+            }
+            if (request.format != Format.JSON && request.body.length > 0) {
+                binaryRequests.incrementAndGet();
+            }
+            Response response = routeDelayed(request);
+            send(exchange, response, accept);
+        } catch (FakeException e) {
+            send(exchange, error(e.status, e.type, e.getMessage()), accept);
+        } catch (Exception e) {
+            LOGGER.error("处理请求失败:{} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            send(exchange, error(500, "exception", e.toString()), accept);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 延迟计入请求处理时间，bulk和查询请求在发送响应之前结束计数
+     */
+    private Response routeDelayed(Request request) throws IOException {
+        boolean bulk = !request.path.isEmpty() && "_bulk".equals(request.path.get(request.path.size() - 1));
+        boolean search = request.path.contains("_search") && !"DELETE".equals(request.method);
+        if (bulk) {
+            maxInFlightBulks.accumulateAndGet(inFlightBulks.incrementAndGet(), Math::max);
+        }
+        if (search) {
+            maxInFlightSearches.accumulateAndGet(inFlightSearches.incrementAndGet(), Math::max);
+        }
+        try {
+            delay();
+            return route(request);
+        } finally {
+            if (bulk) {
+                inFlightBulks.decrementAndGet();
+            }
+            if (search) {
+                inFlightSearches.decrementAndGet();
+            }
+        }
+    }
+
+    private Response route(Request request) throws IOException {
+        List<String> path = request.path;
+        String method = request.method;
+        if (path.isEmpty()) {
+            ObjectNode info = MAPPER.createObjectNode();
+            info.put("name", "fake-es");
+            info.put("cluster_name", "fake-es");
+            info.putObject("version").put("number", "7.6.1");
+            info.put("tagline", "You Know, for Search");
+            return ok(info);
+        }
+        String first = path.get(0);
+        if (path.size() == 1 && "_bulk".equals(first)) {
+            return bulk(request, null);
+        }
+        if (path.size() == 1 && "_mget".equals(first)) {
+            return multiGet(request, null);
+        }
+        if (path.size() == 1 && "_msearch".equals(first)) {
+            return multiSearch(request, "_all");
+        }
+        if ("_search".equals(first)) {
+            if (path.size() == 2 && "scroll".equals(path.get(1))) {
+                return "DELETE".equals(method) ? clearScroll(request) : scroll(request);
+            }
+            return search(request, "_all");
+        }
+        if ("_refresh".equals(first)) {
+            return refresh("_all");
+        }
+        if ("_tasks".equals(first) && path.size() > 1) {
+            return path.size() > 2 && "_cancel".equals(path.get(2)) ? cancelTask(path.get(1)) : task(path.get(1));
+        }
+        if ("_tasks".equals(first)) {
+            return listTasks(request.params.getOrDefault("actions", "*"), request.params.get("group_by"));
+        }
+        if ("_alias".equals(first) && path.size() == 1) {
+            return aliases();
+        }
+        if ("_alias".equals(first) && path.size() == 2) {
+            return alias(path.get(1));
+        }
+        if ("_cluster".equals(first) && path.size() > 1 && "health".equals(path.get(1))) {
+            return health(path.size() > 2 ? path.get(2) : "_all", request.params);
+        }
+        if (first.startsWith("_")) {
+            throw new FakeException(400, "illegal_argument_exception", "不支持的请求:" + method + " /" + first);
+        }
+        if (path.size() == 1) {
+            switch (method) {
+                case "HEAD":
+                    return new Response(resolve(first, false).isEmpty() ? 404 : 200, null);
+                case "PUT":
+                    return createIndex(first, request.json());
+                case "DELETE":
+                    return deleteIndex(first);
+                default:
+                    break;
+            }
+        }
+        String action = path.size() > 1 ? path.get(1) : "";
+        switch (action) {
+            case "_bulk":
+                return bulk(request, first);
+            case "_mget":
+                return multiGet(request, first);
+            case "_search":
+                return search(request, first);
+            case "_msearch":
+                return multiSearch(request, first);
+            case "_count":
+                return count(request, first);
+            case "_delete_by_query":
+                return "false".equals(request.params.get("wait_for_completion"))
+                        ? submitDeleteByQuery(request, first) : deleteByQuery(request, first);
+            case "_refresh":
+                return refresh(first);
+            case "_forcemerge":
+                return forceMerge(first, request.params);
+            case "_settings":
+                return "GET".equals(method) ? settings(first) : updateSettings(first, request.json());
+            case "_mapping":
+                return mapping(first);
+            case "_doc":
+            case "_create":
+                return document(request, first, path.size() > 2 ? path.get(2) : null, "_create".equals(action));
+            case "_update":
+                return update(request, first, path.get(2));
+            case "_rollover":
+                return rollover(first, path.size() > 2 ? path.get(2) : null, request.json());
+            default:
+                throw new FakeException(400, "illegal_argument_exception",
+                        "不支持的请求:" + method + " " + request.rawPath);
+        }
+    }
+
+    // ---------------------------------------------------------------- 索引
+
+    private Response createIndex(String name, JsonNode body) {
+        FakeIndex created = new FakeIndex(name, body);
+        if (indices.putIfAbsent(name, created) != null) {
+            throw new FakeException(400, "resource_already_exists_exception",
+                    "index [" + name + "/" + created.uuid + "] already exists");
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("acknowledged", true);
+        response.put("shards_acknowledged", true);
+        response.put("index", name);
+        return ok(response);
+    }
+
+    private Response deleteIndex(String expression) {
+        List<FakeIndex> resolved = resolve(expression, true);
+        resolved.forEach(index -> indices.remove(index.name));
+        return ok(MAPPER.createObjectNode().put("acknowledged", true));
+    }
+
+    private Response settings(String expression) {
+        ObjectNode response = MAPPER.createObjectNode();
+        for (FakeIndex index : resolve(expression, true)) {
+            ObjectNode settings = response.putObject(index.name).putObject("settings");
+            index.settings().forEach(settings::put);
+        }
+        return ok(response);
+    }
+
+    private Response updateSettings(String expression, JsonNode body) {
+        for (FakeIndex index : resolve(expression, true)) {
+            index.updateSettings(body);
+        }
+        return ok(MAPPER.createObjectNode().put("acknowledged", true));
+    }
+
+    private Response refresh(String expression) {
+        refreshRequests.incrementAndGet();
+        resolve(expression, true);
+        return ok(MAPPER.createObjectNode().set("_shards", shards()));
+    }
+
+    /**
+     * 单节点集群，副本数为0时green，否则yellow（副本无法分配）
+     */
+    /**
+     * 副本数大于0视为副本未分配（yellow）；指定wait_for_status时，未达到green会等待到timeout才返回
+     */
+    private Response health(String expression, Map<String, String> params) {
+        List<FakeIndex> resolved = resolve(expression, false);
+        int unassigned = 0;
+        for (FakeIndex index : resolved) {
+            unassigned += Integer.parseInt(index.settings().getOrDefault("index.number_of_replicas", "1"));
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("cluster_name", "fake-es");
+        response.put("status", unassigned == 0 ? "green" : "yellow");
+        response.put("timed_out", unassigned > 0);
+        response.put("number_of_nodes", 1);
+        response.put("number_of_data_nodes", 1);
+        response.put("active_primary_shards", resolved.size());
+        response.put("active_shards", resolved.size());
+        response.put("relocating_shards", 0);
+        response.put("initializing_shards", 0);
+        response.put("unassigned_shards", unassigned);
+        response.put("delayed_unassigned_shards", 0);
+        response.put("number_of_pending_tasks", 0);
+        response.put("number_of_in_flight_fetch", 0);
+        response.put("task_max_waiting_in_queue_millis", 0);
+        int total = resolved.size() + unassigned;
+        response.put("active_shards_percent_as_number", total == 0 ? 100.0 : 100.0 * resolved.size() / total);
+        if (unassigned > 0 && params.containsKey("wait_for_status")) {
+            sleep(TimeValue.parseTimeValue(params.getOrDefault("timeout", "30s"), "timeout").nanos());
+        }
+        return new Response(unassigned == 0 ? 200 : 408, response);
+    }
+
+    private Response aliases() {
+        ObjectNode response = MAPPER.createObjectNode();
+        for (FakeIndex index : indices.values()) {
+            ObjectNode aliases = response.putObject(index.name).putObject("aliases");
+            index.aliases.forEach((alias, writeIndex) -> {
+                ObjectNode metadata = aliases.putObject(alias);
+                if (writeIndex) {
+                    metadata.put("is_write_index", true);
+                }
+            });
+        }
+        return ok(response);
+    }
+
+    private Response alias(String alias) {
+        ObjectNode response = MAPPER.createObjectNode();
+        for (FakeIndex index : aliased(alias)) {
+            ObjectNode metadata = response.putObject(index.name).putObject("aliases").putObject(alias);
+            if (index.aliases.get(alias)) {
+                metadata.put("is_write_index", true);
+            }
+        }
+        if (response.size() == 0) {
+            ObjectNode missing = MAPPER.createObjectNode();
+            missing.put("error", "alias [" + alias + "] missing");
+            missing.put("status", 404);
+            return new Response(404, missing);
+        }
+        return ok(response);
+    }
+
+    /**
+     * 条件按写索引当前的文档数、_source估算大小和创建时间判断，没有条件时无条件滚动；
+     * 新索引名由旧索引名末尾的数字加一得到
+     */
+    private synchronized Response rollover(String alias, String newIndexName, JsonNode body) {
+        FakeIndex oldIndex = writeIndex(alias, false);
+        if (oldIndex == null || oldIndex.name.equals(alias)) {
+            throw new FakeException(400, "illegal_argument_exception", "source alias does not exist");
+        }
+        ObjectNode conditions = MAPPER.createObjectNode();
+        boolean met = false;
+        JsonNode requested = body == null ? MAPPER.createObjectNode() : body.path("conditions");
+        if (requested.has("max_docs")) {
+            long maxDocs = requested.get("max_docs").asLong();
+            met |= put(conditions, "[max_docs: " + maxDocs + "]", oldIndex.size() >= maxDocs);
+        }
+        if (requested.has("max_size")) {
+            String maxSize = requested.get("max_size").asText();
+            met |= put(conditions, "[max_size: " + maxSize + "]", oldIndex.sizeInBytes() >= parseBytes(maxSize));
+        }
+        if (requested.has("max_age")) {
+            String maxAge = requested.get("max_age").asText();
+            long age = System.currentTimeMillis() - oldIndex.creationDate();
+            met |= put(conditions, "[max_age: " + maxAge + "]", age >= parseMillis(maxAge));
+        }
+        if (conditions.size() == 0) {
+            met = true;
+        }
+        if (newIndexName == null) {
+            Matcher matcher = Pattern.compile("^(.*-)(\\d+)$").matcher(oldIndex.name);
+            if (!matcher.matches()) {
+                throw new FakeException(400, "illegal_argument_exception",
+                        "index name [" + oldIndex.name + "] does not match pattern '^.*-\\d+$'");
+            }
+            newIndexName = String.format("%s%06d", matcher.group(1), Integer.parseInt(matcher.group(2)) + 1);
+        }
+        if (met) {
+            ObjectNode template = body == null ? MAPPER.createObjectNode() : body.deepCopy();
+            template.remove("conditions");
+            template.putObject("aliases").putObject(alias).put("is_write_index", true);
+            createIndex(newIndexName, template);
+            oldIndex.aliases.put(alias, false);
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("acknowledged", met);
+        response.put("shards_acknowledged", met);
+        response.put("old_index", oldIndex.name);
+        response.put("new_index", newIndexName);
+        response.put("rolled_over", met);
+        response.put("dry_run", false);
+        response.set("conditions", conditions);
+        return ok(response);
+    }
+
+    private static boolean put(ObjectNode conditions, String name, boolean met) {
+        conditions.put(name, met);
+        return met;
+    }
+
+    private static long parseBytes(String value) {
+        String lower = value.toLowerCase();
+        String[] units = {"pb", "tb", "gb", "mb", "kb", "b"};
+        long[] factors = {1L << 50, 1L << 40, 1L << 30, 1L << 20, 1L << 10, 1};
+        for (int i = 0; i < units.length; i++) {
+            if (lower.endsWith(units[i])) {
+                String number = lower.substring(0, lower.length() - units[i].length());
+                return (long) (Double.parseDouble(number) * factors[i]);
+            }
+        }
+        return Long.parseLong(lower);
+    }
+
+    private static long parseMillis(String value) {
+        String[] units = {"ms", "s", "m", "h", "d"};
+        long[] factors = {1, 1000, 60_000, 3_600_000, 86_400_000};
+        for (int i = 0; i < units.length; i++) {
+            if (value.endsWith(units[i])) {
+                return (long) (Double.parseDouble(value.substring(0, value.length() - units[i].length())) * factors[i]);
+            }
+        }
+        return Long.parseLong(value);
+    }
+
+    private Response mapping(String expression) {
+        ObjectNode response = MAPPER.createObjectNode();
+        for (FakeIndex index : resolve(expression, true)) {
+            response.putObject(index.name).set("mappings", index.mappings());
+        }
+        return ok(response);
+    }
+
+    /**
+     * 解析逗号分隔、支持*通配和_all的索引表达式
+     */
+    private List<FakeIndex> resolve(String expression, boolean mustExist) {
+        List<FakeIndex> resolved = new ArrayList<>();
+        for (String part : expression.split(",")) {
+            if ("_all".equals(part) || "*".equals(part)) {
+                resolved.addAll(indices.values());
+            } else if (part.contains("*")) {
+                Pattern pattern = Pattern.compile(Pattern.quote(part).replace("*", "\\E.*\\Q"));
+                indices.values().stream().filter(index -> pattern.matcher(index.name).matches()).forEach(resolved::add);
+            } else {
+                FakeIndex index = indices.get(part);
+                List<FakeIndex> aliased = index == null ? aliased(part) : Collections.emptyList();
+                if (index != null) {
+                    resolved.add(index);
+                } else if (!aliased.isEmpty()) {
+                    resolved.addAll(aliased);
+                } else if (mustExist) {
+                    throw new FakeException(404, "index_not_found_exception", "no such index [" + part + "]");
+                }
+            }
+        }
+        return resolved;
+    }
+
+    private List<FakeIndex> aliased(String alias) {
+        List<FakeIndex> aliased = new ArrayList<>();
+        for (FakeIndex index : indices.values()) {
+            if (index.aliases.containsKey(alias)) {
+                aliased.add(index);
+            }
+        }
+        return aliased;
+    }
+
+    private FakeIndex writeIndex(String name) {
+        return writeIndex(name, true);
+    }
+
+    /**
+     * 名称是别名时取其写索引（只指向一个索引时取该索引），否则取同名索引，不存在时按需自动创建
+     */
+    private FakeIndex writeIndex(String name, boolean autoCreate) {
+        FakeIndex index = indices.get(name);
+        if (index != null) {
+            return index;
+        }
+        List<FakeIndex> aliased = aliased(name);
+        for (FakeIndex candidate : aliased) {
+            if (candidate.aliases.get(name)) {
+                return candidate;
+            }
+        }
+        if (aliased.size() == 1) {
+            return aliased.get(0);
+        }
+        if (aliased.size() > 1) {
+            throw new FakeException(400, "illegal_argument_exception", "no write index is defined for alias [" + name
+                    + "]. The write index may be explicitly disabled using is_write_index=false or the alias points to"
+                    + " multiple indices without one being designated as a write index");
+        }
+        return autoCreate ? indices.computeIfAbsent(name, key -> new FakeIndex(key, null)) : null;
+    }
+
+    // ---------------------------------------------------------------- 写入
+
+    private Response document(Request request, String index, String id, boolean create) throws IOException {
+        if ("GET".equals(request.method)) {
+            getRequests.incrementAndGet();
+            ObjectNode response = getResult(resolve(index, true).get(0), id);
+            return new Response(response.get("found").asBoolean() ? 200 : 404, response);
+        }
+        if (!acquire()) {
+            throw new FakeException(429, "es_rejected_execution_exception", "rejected execution of index request");
+        }
+        String opType = create || "create".equals(request.params.get("op_type")) ? "create" : "index";
+        if ("DELETE".equals(request.method)) {
+            opType = "delete";
+        }
+        ObjectNode item = write(opType, index, id, request.json());
+        int status = item.path("status").asInt();
+        item.remove("status");
+        return new Response(status, item);
+    }
+
+    private Response multiGet(Request request, String defaultIndex) throws IOException {
+        multiGetRequests.incrementAndGet();
+        JsonNode body = request.json();
+        ObjectNode response = MAPPER.createObjectNode();
+        ArrayNode docs = response.putArray("docs");
+        for (JsonNode item : body.path("docs")) {
+            String index = item.path("_index").asText(defaultIndex);
+            String id = item.path("_id").asText();
+            FakeIndex fakeIndex = indices.get(index);
+            List<FakeIndex> aliased = fakeIndex == null ? aliased(index) : Collections.emptyList();
+            if (fakeIndex == null && aliased.size() == 1) {
+                fakeIndex = aliased.get(0);
+            }
+            if (fakeIndex != null) {
+                docs.add(getResult(fakeIndex, id));
+                continue;
+            }
+            ObjectNode failure = docs.addObject();
+            failure.put("_index", index);
+            failure.put("_type", "_doc");
+            failure.put("_id", id);
+            Response error = aliased.isEmpty()
+                    ? error(404, "index_not_found_exception", "no such index [" + index + "]")
+                    : error(400, "illegal_argument_exception", "alias [" + index
+                    + "] has more than one index associated with it, can't execute a single index op");
+            failure.set("error", error.body.get("error"));
+        }
+        return ok(response);
+    }
+
+    private static ObjectNode getResult(FakeIndex index, String id) {
+        FakeDocument doc = index.get(id);
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("_index", index.name);
+        response.put("_type", "_doc");
+        response.put("_id", id);
+        response.put("found", doc != null);
+        if (doc != null) {
+            response.put("_version", doc.getVersion());
+            response.put("_seq_no", doc.getSeqNo());
+            response.put("_primary_term", 1);
+            response.set("_source", doc.getSource());
+        }
+        return response;
+    }
+
+    private Response update(Request request, String index, String id) throws IOException {
+        if (!acquire()) {
+            throw new FakeException(429, "es_rejected_execution_exception", "rejected execution of update request");
+        }
+        ObjectNode item = write("update", index, id, request.json());
+        int status = item.path("status").asInt();
+        item.remove("status");
+        return new Response(status, item);
+    }
+
+    private Response bulk(Request request, String defaultIndex) throws IOException {
+        bulkRequests.incrementAndGet();
+        long start = System.nanoTime();
+        ArrayNode items = MAPPER.createArrayNode();
+        boolean errors = false;
+        Iterator<JsonNode> lines = request.documents().iterator();
+        while (lines.hasNext()) {
+            JsonNode action = lines.next();
+            String opType = action.fieldNames().next();
+            JsonNode meta = action.get(opType);
+            JsonNode source = "delete".equals(opType) || !lines.hasNext() ? null : lines.next();
+            String index = meta.path("_index").asText(defaultIndex);
+            String id = meta.hasNonNull("_id") ? meta.get("_id").asText() : null;
+            ObjectNode result;
+            if (ThreadLocalRandom.current().nextDouble() < rejectionRate || !acquire()) {
+                rejectedItems.incrementAndGet();
+                result = failure(index, id, 429, "es_rejected_execution_exception",
+                        "rejected execution of coordinating operation");
+            } else {
+                try {
+                    result = write(opType, index, id, source);
+                } catch (FakeException e) {
+                    result = failure(index, id, e.status, e.type, e.getMessage());
+                }
+            }
+            errors |= result.has("error");
+            items.addObject().set(opType, result);
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("took", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        response.put("errors", errors);
+        response.set("items", items);
+        return ok(response);
+    }
+
+    private ObjectNode write(String opType, String indexName, String id, JsonNode source) {
+        FakeIndex index = writeIndex(indexName);
+        ObjectNode result;
+        switch (opType) {
+            case "index":
+            case "create":
+                result = index.put(id == null ? UUID.randomUUID().toString() : id, (ObjectNode) source,
+                        "create".equals(opType));
+                break;
+            case "update":
+                result = index.update(id, source);
+                break;
+            case "delete":
+                result = index.delete(id);
+                break;
+            default:
+                throw new FakeException(400, "illegal_argument_exception", "不支持的操作:" + opType);
+        }
+        if (!"noop".equals(result.path("result").asText()) && result.path("status").asInt() < 300) {
+            writtenDocs.incrementAndGet();
+        }
+        return result;
+    }
+
+    private ObjectNode failure(String index, String id, int status, String type, String reason) {
+        ObjectNode result = MAPPER.createObjectNode();
+        result.put("_index", index);
+        result.put("_type", "_doc");
+        result.put("_id", id);
+        result.put("status", status);
+        ObjectNode error = result.putObject("error");
+        error.put("type", type);
+        error.put("reason", reason);
+        return result;
+    }
+
+    /**
+     * 令牌桶，容量为1秒的配额
+     */
+    private synchronized boolean acquire() {
+        if (maxDocsPerSecond <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(maxDocsPerSecond, tokens + (now - lastRefillNanos) * maxDocsPerSecond / 1e9);
+        lastRefillNanos = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    // ---------------------------------------------------------------- 查询
+
+    private Response search(Request request, String expression) throws IOException {
+        JsonNode body = request.json();
+        return ok(search(body == null ? MAPPER.createObjectNode() : body, request.params, expression));
+    }
+
+    private ObjectNode search(JsonNode body, Map<String, String> params, String expression) {
+        long start = System.nanoTime();
+        JsonNode query = body.get("query");
+        JsonNode sort = body.get("sort");
+        JsonNode slice = body.get("slice");
+        JsonNode searchAfter = body.get("search_after");
+        lastSearchSort = sort;
+        lastSearchTimeout = body.has("timeout") ? body.get("timeout").asText() : null;
+        List<Hit> hits = new ArrayList<>();
+        List<FakeIndex> targets = resolve(expression, true);
+        checkSortable(sort, targets);
+        for (FakeIndex index : targets) {
+            for (FakeDocument doc : index.snapshot()) {
+                if (slice != null && Math.floorMod(doc.getId().hashCode(), slice.path("max").asInt())
+                        != slice.path("id").asInt()) {
+                    continue;
+                }
+                if (FakeQuery.matches(query, doc)) {
+                    hits.add(new Hit(index.name, doc, FakeQuery.sortValues(sort, doc)));
+                }
+            }
+        }
+        Comparator<FakeDocument> comparator = FakeQuery.comparator(sort);
+        hits.sort((a, b) -> comparator.compare(a.doc, b.doc));
+        int total = hits.size();
+        if (searchAfter != null && sort != null) {
+            hits.removeIf(hit -> FakeQuery.compareSortValues(sort, hit.sortValues, searchAfter) <= 0);
+        }
+        int from = body.path("from").asInt(Integer.parseInt(params.getOrDefault("from", "0")));
+        int size = body.path("size").asInt(Integer.parseInt(params.getOrDefault("size", "10")));
+        Deque<Hit> remaining = new ArrayDeque<>(hits.subList(Math.min(from, hits.size()), hits.size()));
+        String scrollId = null;
+        if (params.containsKey("scroll")) {
+            scrollId = UUID.randomUUID().toString();
+        }
+        ObjectNode response = searchResponse(start, remaining, size, total, sort != null, scrollId);
+        if (scrollId != null) {
+            scrolls.put(scrollId, new Scroll(remaining, size, total));
+        }
+        return response;
+    }
+
+    /**
+     * 请求体是 header/body 成对的NDJSON，每个子查询独立执行，失败的子查询在对应位置返回error
+     */
+    private Response multiSearch(Request request, String defaultExpression) throws IOException {
+        multiSearchRequests.incrementAndGet();
+        long start = System.nanoTime();
+        List<JsonNode> lines = request.documents();
+        ObjectNode response = MAPPER.createObjectNode();
+        ArrayNode responses = response.putArray("responses");
+        for (int i = 0; i + 1 < lines.size(); i += 2) {
+            JsonNode header = lines.get(i);
+            JsonNode index = header.path("index");
+            String expression = defaultExpression;
+            if (index.isArray() && index.size() > 0) {
+                List<String> names = new ArrayList<>();
+                index.forEach(name -> names.add(name.asText()));
+                expression = String.join(",", names);
+            } else if (index.isTextual()) {
+                expression = index.asText();
+            }
+            try {
+                responses.add(search(lines.get(i + 1), Collections.emptyMap(), expression).put("status", 200));
+            } catch (FakeException e) {
+                responses.add(error(e.status, e.type, e.getMessage()).body);
+            }
+        }
+        response.put("took", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return ok(response);
+    }
+
+    private Response scroll(Request request) throws IOException {
+        long start = System.nanoTime();
+        JsonNode body = request.json();
+        String scrollId = body == null ? request.params.get("scroll_id") : body.path("scroll_id").asText();
+        Scroll scroll = scrolls.get(scrollId);
+        if (scroll == null) {
+            throw new FakeException(404, "search_context_missing_exception",
+                    "No search context found for id [" + scrollId + "]");
+        }
+        synchronized (scroll) {
+            return ok(searchResponse(start, scroll.hits, scroll.size, scroll.total, false, scrollId));
+        }
+    }
+
+    private Response clearScroll(Request request) throws IOException {
+        JsonNode body = request.json();
+        int freed = 0;
+        if (body != null) {
+            for (JsonNode id : body.path("scroll_id")) {
+                if (scrolls.remove(id.asText()) != null) {
+                    freed++;
+                }
+            }
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("succeeded", true);
+        response.put("num_freed", freed);
+        return ok(response);
+    }
+
+    private Response count(Request request, String expression) throws IOException {
+        JsonNode body = request.json();
+        JsonNode query = body == null ? null : body.get("query");
+        long count = 0;
+        for (FakeIndex index : resolve(expression, true)) {
+            count += index.snapshot().stream().filter(doc -> FakeQuery.matches(query, doc)).count();
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("count", count);
+        response.set("_shards", shards());
+        return ok(response);
+    }
+
+    /**
+     * 与ES一致，text字段默认没有fielddata，不能排序
+     */
+    private static void checkSortable(JsonNode sort, List<FakeIndex> targets) {
+        if (sort == null) {
+            return;
+        }
+        for (JsonNode clause : sort) {
+            String field = clause.isTextual() ? clause.asText() : clause.fieldNames().next();
+            for (FakeIndex index : targets) {
+                if ("text".equals(index.fieldType(field))) {
+                    throw new FakeException(400, "illegal_argument_exception", "Text fields are not optimised for "
+                            + "operations that require per-document field data like aggregations and sorting, so these "
+                            + "operations are disabled by default. Please use a keyword field instead. Alternatively, "
+                            + "set fielddata=true on [" + field + "] in order to load field data by uninverting the "
+                            + "inverted index. Note that this can use significant memory.");
+                }
+            }
+        }
+    }
+
+    private ObjectNode searchResponse(long start, Deque<Hit> remaining, int size, int total, boolean sorted,
+                                      String scrollId) {
+        ObjectNode response = MAPPER.createObjectNode();
+        if (scrollId != null) {
+            response.put("_scroll_id", scrollId);
+        }
+        response.put("took", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        response.put("timed_out", false);
+        response.set("_shards", shards());
+        ObjectNode hits = response.putObject("hits");
+        ObjectNode totalNode = hits.putObject("total");
+        totalNode.put("value", total);
+        totalNode.put("relation", "eq");
+        if (sorted) {
+            hits.putNull("max_score");
+        } else {
+            hits.put("max_score", 1.0);
+        }
+        ArrayNode array = hits.putArray("hits");
+        for (int i = 0; i < size && !remaining.isEmpty(); i++) {
+            Hit hit = remaining.poll();
+            ObjectNode node = array.addObject();
+            node.put("_index", hit.index);
+            node.put("_type", "_doc");
+            node.put("_id", hit.doc.getId());
+            if (sorted) {
+                node.putNull("_score");
+            } else {
+                node.put("_score", 1.0);
+            }
+            node.set("_source", hit.doc.getSource());
+            if (sorted) {
+                ArrayNode sort = node.putArray("sort");
+                hit.sortValues.forEach(sort::add);
+            }
+        }
+        return response;
+    }
+
+    private Response deleteByQuery(Request request, String expression) throws IOException {
+        long start = System.nanoTime();
+        JsonNode body = request.json();
+        JsonNode query = body == null ? null : body.get("query");
+        long deleted = 0;
+        for (FakeIndex index : resolve(expression, true)) {
+            for (FakeDocument doc : index.snapshot()) {
+                if (FakeQuery.matches(query, doc)) {
+                    index.delete(doc.getId());
+                    deleted++;
+                }
+            }
+        }
+        ObjectNode response = byScrollStatus(deleted, deleted, deleted == 0 ? 0 : 1, -1);
+        response.put("took", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        response.put("timed_out", false);
+        response.putArray("failures");
+        return ok(response);
+    }
+
+    /**
+     * wait_for_completion=false：在后台按scroll_size分批删除，requests_per_second大于0时按速率在批次间等待
+     */
+    private Response submitDeleteByQuery(Request request, String expression) throws IOException {
+        JsonNode body = request.json();
+        JsonNode query = body == null ? null : body.get("query");
+        List<FakeIndex> targets = resolve(expression, true);
+        int batchSize = Integer.parseInt(request.params.getOrDefault("scroll_size", "1000"));
+        float requestsPerSecond = Float.parseFloat(request.params.getOrDefault("requests_per_second", "-1"));
+        FakeTask task = new FakeTask("fake-es:" + taskSequence.incrementAndGet(), "indices:data/write/delete/byquery",
+                "delete-by-query [" + expression + "]", requestsPerSecond);
+        tasks.put(task.id, task);
+        executor.execute(() -> runDeleteByQuery(task, targets, query, batchSize));
+        return ok(MAPPER.createObjectNode().put("task", task.id));
+    }
+
+    private void runDeleteByQuery(FakeTask task, List<FakeIndex> targets, JsonNode query, int batchSize) {
+        Map<FakeIndex, List<String>> matched = new LinkedHashMap<>();
+        for (FakeIndex index : targets) {
+            for (FakeDocument doc : index.snapshot()) {
+                if (FakeQuery.matches(query, doc)) {
+                    matched.computeIfAbsent(index, key -> new ArrayList<>()).add(doc.getId());
+                    task.total++;
+                }
+            }
+        }
+        try {
+            for (Map.Entry<FakeIndex, List<String>> entry : matched.entrySet()) {
+                for (String id : entry.getValue()) {
+                    if (task.cancelled) {
+                        return;
+                    }
+                    entry.getKey().delete(id);
+                    if (++task.deleted % batchSize == 0 || task.deleted == task.total) {
+                        task.batches++;
+                        if (task.requestsPerSecond > 0) {
+                            TimeUnit.MILLISECONDS.sleep((long) (batchSize * 1000 / task.requestsPerSecond));
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            task.endNanos = System.nanoTime();
+            task.completed = true;
+        }
+    }
+
+    private Response task(String id) {
+        FakeTask task = tasks.get(id);
+        if (task == null) {
+            throw new FakeException(404, "resource_not_found_exception",
+                    "task [" + id + "] isn't running and hasn't stored its results");
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        boolean completed = task.completed;
+        response.put("completed", completed);
+        response.set("task", task.info());
+        if (completed) {
+            ObjectNode result = task.status();
+            result.put("took", TimeUnit.NANOSECONDS.toMillis(task.runningNanos()));
+            result.put("timed_out", false);
+            result.putArray("failures");
+            response.set("response", result);
+        }
+        return ok(response);
+    }
+
+    /**
+     * force merge在处理期间注册为任务，客户端超时断开后仍会执行完
+     */
+    private Response forceMerge(String expression, Map<String, String> params) {
+        forceMergeRequests.incrementAndGet();
+        List<FakeIndex> targets = resolve(expression, true);
+        FakeTask task = new FakeTask("fake-es:" + taskSequence.incrementAndGet(), "indices:admin/forcemerge",
+                "Force-merge indices " + targets.stream().map(index -> index.name).collect(Collectors.toList())
+                        + ", maxSegments[" + params.getOrDefault("max_num_segments", "-1") + "]", -1);
+        tasks.put(task.id, task);
+        try {
+            sleep(forceMergeNanos);
+        } finally {
+            task.endNanos = System.nanoTime();
+            task.completed = true;
+            tasks.remove(task.id);
+        }
+        return ok(MAPPER.createObjectNode().set("_shards", shards()));
+    }
+
+    /**
+     * 高级客户端使用group_by=none，任务以数组形式返回
+     */
+    private Response listTasks(String actions, String groupBy) {
+        ObjectNode response = MAPPER.createObjectNode();
+        List<FakeTask> running = new ArrayList<>();
+        String[] patterns = actions.split(",");
+        for (FakeTask task : tasks.values()) {
+            if (!task.completed && Regex.simpleMatch(patterns, task.action)) {
+                running.add(task);
+            }
+        }
+        if ("none".equals(groupBy)) {
+            ArrayNode array = response.putArray("tasks");
+            running.forEach(task -> array.add(task.info()));
+            return ok(response);
+        }
+        ObjectNode node = response.putObject("nodes").putObject("fake-es");
+        node.put("name", "fake-es");
+        ObjectNode nodeTasks = node.putObject("tasks");
+        running.forEach(task -> nodeTasks.set(task.id, task.info()));
+        return ok(response);
+    }
+
+    private Response cancelTask(String id) {
+        FakeTask task = tasks.get(id);
+        ObjectNode response = MAPPER.createObjectNode();
+        ObjectNode nodes = response.putObject("nodes");
+        if (task != null && !task.completed) {
+            task.cancelled = true;
+            ObjectNode node = nodes.putObject("fake-es");
+            node.put("name", "fake-es");
+            node.putObject("tasks").set(task.id, task.info());
+        }
+        return ok(response);
+    }
+
+    private static ObjectNode byScrollStatus(long total, long deleted, long batches, float requestsPerSecond) {
+        ObjectNode status = MAPPER.createObjectNode();
+        status.put("total", total);
+        status.put("updated", 0);
+        status.put("created", 0);
+        status.put("deleted", deleted);
+        status.put("batches", batches);
+        status.put("version_conflicts", 0);
+        status.put("noops", 0);
+        ObjectNode retries = status.putObject("retries");
+        retries.put("bulk", 0);
+        retries.put("search", 0);
+        status.put("throttled_millis", 0);
+        status.put("requests_per_second", requestsPerSecond);
+        status.put("throttled_until_millis", 0);
+        return status;
+    }
+
+    // ---------------------------------------------------------------- HTTP
+
+    private void delay() {
+        long nanos = latencyNanos;
+        if (latencyJitterNanos > 0) {
+            nanos += ThreadLocalRandom.current().nextLong(latencyJitterNanos);
+        }
+        sleep(nanos);
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static ObjectNode shards() {
+        ObjectNode shards = MAPPER.createObjectNode();
+        shards.put("total", 1);
+        shards.put("successful", 1);
+        shards.put("skipped", 0);
+        shards.put("failed", 0);
+        return shards;
+    }
+
+    private static Response ok(JsonNode body) {
+        return new Response(200, body);
+    }
+
+    private static Response error(int status, String type, String reason) {
+        ObjectNode response = MAPPER.createObjectNode();
+        ObjectNode error = response.putObject("error");
+        ObjectNode rootCause = error.putArray("root_cause").addObject();
+        rootCause.put("type", type);
+        rootCause.put("reason", reason);
+        error.put("type", type);
+        error.put("reason", reason);
+        response.put("status", status);
+        return new Response(status, response);
+    }
+
+    private static void send(HttpExchange exchange, Response response, Format format) throws IOException {
+        if (response.body == null || "HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(response.status, -1);
+            return;
+        }
+        byte[] bytes = format.mapper.writeValueAsBytes(response.body);
+        exchange.getResponseHeaders().set("Content-Type", format.contentType);
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static final class Request {
+
+        private final String method;
+
+        private final String rawPath;
+
+        private final List<String> path = new ArrayList<>();
+
+        private final Map<String, String> params = new HashMap<>();
+
+        private final byte[] body;
+
+        private final boolean gzip;
+
+        private final Format format;
+
+        Request(HttpExchange exchange) throws IOException {
+            this.method = exchange.getRequestMethod();
+            this.rawPath = exchange.getRequestURI().getRawPath();
+            for (String part : rawPath.split("/")) {
+                if (!part.isEmpty()) {
+                    path.add(decode(part));
+                }
+            }
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                for (String pair : query.split("&")) {
+                    int eq = pair.indexOf('=');
+                    params.put(decode(eq < 0 ? pair : pair.substring(0, eq)), eq < 0 ? "" : decode(pair.substring(eq + 1)));
+                }
+            }
+            InputStream in = exchange.getRequestBody();
+            this.gzip = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            if (gzip) {
+                in = new GZIPInputStream(in);
+            }
+            this.body = readAll(in);
+            this.format = Format.of(exchange.getRequestHeaders().getFirst("Content-Type"));
+        }
+
+        JsonNode json() throws IOException {
+            return body.length == 0 ? null : format.mapper.readTree(body);
+        }
+
+        /**
+         * 按格式的分隔符（JSON为换行，SMILE为0xFF）切分_bulk请求体
+         */
+        List<JsonNode> documents() throws IOException {
+            if (format.separator < 0) {
+                throw new FakeException(400, "illegal_argument_exception", "Unsupported content-type found for request"
+                        + " with content-type [" + format + "], only JSON and SMILE are supported");
+            }
+            List<JsonNode> documents = new ArrayList<>();
+            int begin = 0;
+            for (int i = 0; i <= body.length; i++) {
+                if (i == body.length || body[i] == (byte) format.separator) {
+                    if (i > begin) {
+                        documents.add(format.mapper.readTree(body, begin, i - begin));
+                    }
+                    begin = i + 1;
+                }
+            }
+            return documents;
+        }
+
+        private static String decode(String value) throws UnsupportedEncodingException {
+            return URLDecoder.decode(value, "UTF-8");
+        }
+
+        private static byte[] readAll(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private enum Format {
+
+        JSON("application/json; charset=UTF-8", MAPPER, '\n'),
+
+        SMILE("application/smile", new ObjectMapper(new SmileFactory()), 0xFF),
+
+        CBOR("application/cbor", new ObjectMapper(new CBORFactory()), -1);
+
+        private final String contentType;
+
+        private final ObjectMapper mapper;
+
+        private final int separator;
+
+        Format(String contentType, ObjectMapper mapper, int separator) {
+            this.contentType = contentType;
+            this.mapper = mapper;
+            this.separator = separator;
+        }
+
+        static Format of(String mediaType) {
+            if (mediaType != null) {
+                if (mediaType.startsWith("application/smile")) {
+                    return SMILE;
+                }
+                if (mediaType.startsWith("application/cbor")) {
+                    return CBOR;
+                }
+            }
+            return JSON;
+        }
+    }
+
+    private static final class Response {
+
+        private final int status;
+
+        private final JsonNode body;
+
+        Response(int status, JsonNode body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private static final class Hit {
+
+        private final String index;
+
+        private final FakeDocument doc;
+
+        private final List<JsonNode> sortValues;
+
+        Hit(String index, FakeDocument doc, List<JsonNode> sortValues) {
+            this.index = index;
+            this.doc = doc;
+            this.sortValues = sortValues;
+        }
+    }
+
+    private static final class FakeTask {
+
+        private final String id;
+
+        private final String action;
+
+        private final String description;
+
+        private final float requestsPerSecond;
+
+        private final long startMillis = System.currentTimeMillis();
+
+        private final long startNanos = System.nanoTime();
+
+        private volatile long endNanos;
+
+        private volatile long total;
+
+        private volatile long deleted;
+
+        private volatile long batches;
+
+        private volatile boolean cancelled;
+
+        private volatile boolean completed;
+
+        FakeTask(String id, String action, String description, float requestsPerSecond) {
+            this.id = id;
+            this.action = action;
+            this.description = description;
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        long runningNanos() {
+            return (completed ? endNanos : System.nanoTime()) - startNanos;
+        }
+
+        ObjectNode status() {
+            ObjectNode status = byScrollStatus(total, deleted, batches, requestsPerSecond);
+            if (cancelled) {
+                status.put("canceled", "by user request");
+            }
+            return status;
+        }
+
+        ObjectNode info() {
+            ObjectNode info = MAPPER.createObjectNode();
+            info.put("node", "fake-es");
+            info.put("id", Long.parseLong(id.substring(id.indexOf(':') + 1)));
+            info.put("type", "transport");
+            info.put("action", action);
+            info.set("status", status());
+            info.put("description", description);
+            info.put("start_time_in_millis", startMillis);
+            info.put("running_time_in_nanos", runningNanos());
+            info.put("cancellable", true);
+            info.putObject("headers");
+            return info;
+        }
+    }
+
+    private static final class Scroll {
+
+        private final Deque<Hit> hits;
+
+        private final int size;
+
+        private final int total;
+
+        Scroll(Deque<Hit> hits, int size, int total) {
+            this.hits = hits;
+            this.size = size;
+            this.total = total;
+        }
+    }
+
+    static final class FakeException extends RuntimeException {
+
+        private final int status;
+
+        private final String type;
+
+        FakeException(int status, String type, String reason) {
+            super(reason);
+            this.status = status;
+            this.type = type;
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package org.dynasty.elasticsearch.demo.fake;
+
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.bulk.BulkResult;
+import org.dynasty.elasticsearch.demo.export.ExportResult;
+import org.dynasty.elasticsearch.demo.search.SearchOptions;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * repository对接{@link FakeElasticsearchServer}的集成测试
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 22:10:00
+ */
+public class FakeElasticsearchServerTest {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(FakeElasticsearchServerTest.class);
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    private static ElasticsearchRepository repository;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri(),
+                "--easy-es.bulk.retry.max-retries=50",
+                "--easy-es.bulk.retry.initial-backoff=1ms",
+                "--easy-es.bulk.retry.max-backoff=20ms",
+                "--easy-es.cache.metadata.enabled=false");
+        repository = context.getBean(ElasticsearchRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @Before
+    public void reset() {
+        server.reset();
+        server.rejectionRate(0).maxDocsPerSecond(0).latency(Duration.ZERO, Duration.ZERO);
+    }
+
+    @Test
+    public void repositoryRoundTrip() throws Exception {
+        Assert.assertFalse(repository.indexExists("document"));
+        repository.createIndex("document");
+        Assert.assertTrue(repository.indexExists("document"));
+
+        Assert.assertFalse(repository.bulkIndex("document", LoadTestHarness.documents(0, 250)).hasFailures());
+        Assert.assertEquals(250, server.count("document"));
+        Assert.assertEquals("title 7", server.get("document", "7").path("title").asText());
+
+        try (Stream<Map> stream = repository.search(QueryBuilders.matchAllQuery(), Map.class,
+                new SearchOptions().pageSize(100), "document")) {
+            Assert.assertEquals(250, stream.count());
+        }
+        try (Stream<Map> stream = repository.search(QueryBuilders.rangeQuery("price").gte(0), Map.class,
+                new SearchOptions().pageSize(100).scroll(true), "document")) {
+            Assert.assertEquals(250, stream.count());
+        }
+
+        Path dir = Files.createTempDirectory("fake-es-export");
+        ExportResult export = repository.export("document", null, 3, dir);
+        Assert.assertEquals(250, export.getDocs());
+
+        Assert.assertTrue(repository.deleteByQuery(QueryBuilders.termQuery("mysqlId", "7"), "document"));
+        Assert.assertEquals(249, server.count("document"));
+
+        Assert.assertTrue(repository.deleteIndex("document"));
+        Assert.assertFalse(server.hasIndex("document"));
+    }
+
+    @Test
+    public void rejectedItemsAreRetried() {
+        server.rejectionRate(0.3);
+        BulkResult result = repository.bulkIndex("document", LoadTestHarness.documents(0, 200));
+        Assert.assertEquals(200, result.getSucceeded());
+        Assert.assertTrue(result.getRetried() > 0);
+        Assert.assertEquals(200, server.count("document"));
+        Assert.assertTrue(server.getRejectedItems() > 0);
+    }
+
+    @Test
+    public void loadHarnessReportsThroughput() throws Exception {
+        server.latency(Duration.ofMillis(2), Duration.ofMillis(2)).maxDocsPerSecond(20000);
+        LoadTestHarness.Report report = new LoadTestHarness()
+                .threads(2)
+                .batchSize(200)
+                .duration(Duration.ofSeconds(1))
+                .run(repository, "load-test");
+        LOGGER.info("压测结果:{}", report);
+        Assert.assertFalse(report.getResult().hasFailures());
+        Assert.assertEquals(report.getResult().getSucceeded(), server.count("load-test"));
+        Assert.assertTrue(report.getDocsPerSecond() > 0);
+        Assert.assertTrue(report.getLatencyMillis(0.99) >= report.getLatencyMillis(0.5));
+    }
+
+}
@@ -0,0 +1,268 @@
+package org.dynasty.elasticsearch.demo.fake;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer.MAPPER;
+
+/**
+ * 内存中的索引，所有操作在索引级别串行
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 22:10:00
+ */
+final class FakeIndex {
+
+    final String name;
+
+    final String uuid = UUID.randomUUID().toString();
+
+    private final ObjectNode mappings;
+
+    /**
+     * 别名 -> 是否为该别名的写索引
+     */
+    final Map<String, Boolean> aliases = new ConcurrentHashMap<>();
+
+    private final Map<String, String> settings = new LinkedHashMap<>();
+
+    private final Map<String, FakeDocument> docs = new LinkedHashMap<>();
+
+    private long seqNo;
+
+    FakeIndex(String name, JsonNode body) {
+        this.name = name;
+        settings.put("index.number_of_shards", "1");
+        settings.put("index.number_of_replicas", "1");
+        settings.put("index.refresh_interval", "1s");
+        settings.put("index.provided_name", name);
+        settings.put("index.uuid", uuid);
+        settings.put("index.creation_date", Long.toString(System.currentTimeMillis()));
+        settings.put("index.version.created", "7060199");
+        JsonNode mappings = null;
+        if (body != null) {
+            updateSettings(body.get("settings"));
+            mappings = body.get("mappings");
+            body.path("aliases").fields().forEachRemaining(alias ->
+                    aliases.put(alias.getKey(), alias.getValue().path("is_write_index").asBoolean(false)));
+        }
+        this.mappings = mappings != null && mappings.isObject() ? (ObjectNode) mappings : MAPPER.createObjectNode();
+    }
+
+    synchronized ObjectNode mappings() {
+        return mappings.deepCopy();
+    }
+
+    /**
+     * 字段在mapping中的类型，支持a.b形式的对象字段和text字段的子字段，未映射时返回null
+     */
+    synchronized String fieldType(String field) {
+        JsonNode node = mappings;
+        for (String part : field.split("\\.")) {
+            JsonNode next = node.path("properties").get(part);
+            if (next == null) {
+                next = node.path("fields").get(part);
+            }
+            if (next == null) {
+                return null;
+            }
+            node = next;
+        }
+        return node.has("type") ? node.get("type").asText() : "object";
+    }
+
+    synchronized Map<String, String> settings() {
+        return new LinkedHashMap<>(settings);
+    }
+
+    /**
+     * 接受嵌套（{"index":{"refresh_interval":"1s"}}）或平铺的settings，值为null时恢复默认（删除）
+     */
+    synchronized void updateSettings(JsonNode body) {
+        if (body == null || !body.isObject()) {
+            return;
+        }
+        flatten("", body.has("settings") ? body.get("settings") : body);
+    }
+
+    synchronized int size() {
+        return docs.size();
+    }
+
+    /**
+     * 按_source的JSON长度估算的存储大小
+     */
+    synchronized long sizeInBytes() {
+        long bytes = 0;
+        for (FakeDocument doc : docs.values()) {
+            bytes += doc.getSource().toString().length();
+        }
+        return bytes;
+    }
+
+    synchronized long creationDate() {
+        return Long.parseLong(settings.get("index.creation_date"));
+    }
+
+    synchronized FakeDocument get(String id) {
+        return docs.get(id);
+    }
+
+    synchronized List<FakeDocument> snapshot() {
+        return new ArrayList<>(docs.values());
+    }
+
+    synchronized ObjectNode put(String id, ObjectNode source, boolean create) {
+        FakeDocument existing = docs.get(id);
+        if (create && existing != null) {
+            throw new FakeElasticsearchServer.FakeException(409, "version_conflict_engine_exception",
+                    "[" + id + "]: version conflict, document already exists (current version [" + existing.getVersion() + "])");
+        }
+        FakeDocument doc = store(id, source == null ? MAPPER.createObjectNode() : source, existing);
+        return result(doc, existing == null ? "created" : "updated", existing == null ? 201 : 200);
+    }
+
+    synchronized ObjectNode update(String id, JsonNode body) {
+        FakeDocument existing = docs.get(id);
+        JsonNode partial = body == null ? null : body.get("doc");
+        if (existing == null) {
+            JsonNode upsert = body == null ? null : body.get("upsert");
+            if (upsert == null && body != null && body.path("doc_as_upsert").asBoolean()) {
+                upsert = partial;
+            }
+            if (upsert == null) {
+                throw new FakeElasticsearchServer.FakeException(404, "document_missing_exception",
+                        "[_doc][" + id + "]: document missing");
+            }
+            return result(store(id, ((ObjectNode) upsert).deepCopy(), null), "created", 201);
+        }
+        ObjectNode merged = existing.getSource().deepCopy();
+        if (partial != null) {
+            merge(merged, partial);
+        }
+        if (merged.equals(existing.getSource()) && body.path("detect_noop").asBoolean(true)) {
+            return result(existing, "noop", 200);
+        }
+        return result(store(id, merged, existing), "updated", 200);
+    }
+
+    synchronized ObjectNode delete(String id) {
+        FakeDocument existing = docs.remove(id);
+        if (existing == null) {
+            return result(new FakeDocument(id, null, 1, seqNo++), "not_found", 404);
+        }
+        return result(new FakeDocument(id, null, existing.getVersion() + 1, seqNo++), "deleted", 200);
+    }
+
+    private FakeDocument store(String id, ObjectNode source, FakeDocument existing) {
+        String dynamic = mappings.path("dynamic").asText("true");
+        if (!"strict".equals(dynamic) && !"false".equals(dynamic)) {
+            mapDynamic(mappings, source);
+        }
+        FakeDocument doc = new FakeDocument(id, source, existing == null ? 1 : existing.getVersion() + 1, seqNo++);
+        docs.put(id, doc);
+        return doc;
+    }
+
+    private ObjectNode result(FakeDocument doc, String result, int status) {
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("_index", name);
+        node.put("_type", "_doc");
+        node.put("_id", doc.getId());
+        node.put("_version", doc.getVersion());
+        node.put("result", result);
+        ObjectNode shards = node.putObject("_shards");
+        shards.put("total", 1);
+        shards.put("successful", 1);
+        shards.put("failed", 0);
+        node.put("_seq_no", doc.getSeqNo());
+        node.put("_primary_term", 1);
+        node.put("status", status);
+        return node;
+    }
+
+    /**
+     * 按ES默认的dynamic mapping规则为新字段生成mapping：字符串为text加keyword子字段，整数为long，小数为float
+     */
+    private static void mapDynamic(ObjectNode mapping, JsonNode source) {
+        Iterator<Map.Entry<String, JsonNode>> fields = source.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            if (value.isArray()) {
+                value = value.size() == 0 ? null : value.get(0);
+            }
+            ObjectNode properties = mapping.has("properties") ? (ObjectNode) mapping.get("properties")
+                    : mapping.putObject("properties");
+            if (value == null || value.isNull()) {
+                continue;
+            }
+            if (value.isObject()) {
+                ObjectNode object = properties.has(field.getKey()) ? (ObjectNode) properties.get(field.getKey())
+                        : properties.putObject(field.getKey());
+                mapDynamic(object, value);
+                continue;
+            }
+            if (properties.has(field.getKey())) {
+                continue;
+            }
+            ObjectNode property = properties.putObject(field.getKey());
+            if (value.isTextual()) {
+                property.put("type", "text");
+                ObjectNode keyword = property.putObject("fields").putObject("keyword");
+                keyword.put("type", "keyword");
+                keyword.put("ignore_above", 256);
+            } else if (value.isIntegralNumber()) {
+                property.put("type", "long");
+            } else if (value.isNumber()) {
+                property.put("type", "float");
+            } else if (value.isBoolean()) {
+                property.put("type", "boolean");
+            } else {
+                property.put("type", "binary");
+            }
+        }
+    }
+
+    private void flatten(String prefix, JsonNode node) {
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String key = prefix + field.getKey();
+            if (field.getValue().isObject()) {
+                flatten(key + ".", field.getValue());
+                continue;
+            }
+            if (!key.startsWith("index.")) {
+                key = "index." + key;
+            }
+            if (field.getValue().isNull()) {
+                settings.remove(key);
+            } else {
+                settings.put(key, field.getValue().asText());
+            }
+        }
+    }
+
+    private static void merge(ObjectNode target, JsonNode partial) {
+        Iterator<Map.Entry<String, JsonNode>> fields = partial.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode current = target.get(field.getKey());
+            if (current != null && current.isObject() && field.getValue().isObject()) {
+                merge((ObjectNode) current, field.getValue());
+            } else {
+                target.set(field.getKey(), field.getValue());
+            }
+        }
+    }
+
+}
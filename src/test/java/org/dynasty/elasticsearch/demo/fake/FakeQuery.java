@@ -0,0 +1,301 @@
+package org.dynasty.elasticsearch.demo.fake;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@link FakeElasticsearchServer}支持的查询和排序子集：
+ * match_all、term、terms、ids、match、range、exists、bool，以及按字段/_id/_doc排序
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 22:10:00
+ */
+final class FakeQuery {
+
+    private FakeQuery() {
+    }
+
+    static boolean matches(JsonNode query, FakeDocument doc) {
+        if (query == null || query.isNull() || query.size() == 0) {
+            return true;
+        }
+        Map.Entry<String, JsonNode> clause = query.fields().next();
+        JsonNode body = clause.getValue();
+        switch (clause.getKey()) {
+            case "match_all":
+                return true;
+            case "match_none":
+                return false;
+            case "ids":
+                for (JsonNode id : body.path("values")) {
+                    if (id.asText().equals(doc.getId())) {
+                        return true;
+                    }
+                }
+                return false;
+            case "term": {
+                Map.Entry<String, JsonNode> field = firstField(body);
+                JsonNode expected = field.getValue().isObject() ? field.getValue().path("value") : field.getValue();
+                return equalsAny(value(doc, field.getKey()), expected);
+            }
+            case "terms": {
+                Map.Entry<String, JsonNode> field = firstField(body);
+                JsonNode actual = value(doc, field.getKey());
+                for (JsonNode expected : field.getValue()) {
+                    if (equalsAny(actual, expected)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            case "match": {
+                Map.Entry<String, JsonNode> field = firstField(body);
+                JsonNode text = field.getValue().isObject() ? field.getValue().path("query") : field.getValue();
+                String actual = textOf(value(doc, field.getKey())).toLowerCase(Locale.ROOT);
+                for (String token : text.asText().toLowerCase(Locale.ROOT).split("\\s+")) {
+                    if (!token.isEmpty() && actual.contains(token)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            case "exists": {
+                JsonNode actual = value(doc, body.path("field").asText());
+                return actual != null && !actual.isNull();
+            }
+            case "range":
+                return range(firstField(body), doc);
+            case "bool":
+                return bool(body, doc);
+            default:
+                throw new IllegalArgumentException("不支持的查询类型:" + clause.getKey());
+        }
+    }
+
+    /**
+     * 按sort子句构建比较器，未指定时按写入顺序（_doc）
+     */
+    static Comparator<FakeDocument> comparator(JsonNode sort) {
+        Comparator<FakeDocument> comparator = null;
+        for (JsonNode clause : sort == null ? FakeElasticsearchServer.MAPPER.createArrayNode() : sort) {
+            String field;
+            boolean desc;
+            if (clause.isTextual()) {
+                field = clause.asText();
+                desc = false;
+            } else {
+                Map.Entry<String, JsonNode> entry = firstField(clause);
+                field = entry.getKey();
+                desc = "desc".equals(entry.getValue().path("order").asText(entry.getValue().asText()));
+            }
+            Comparator<FakeDocument> next = Comparator.comparing(doc -> sortValue(doc, field), FakeQuery::compare);
+            if (desc) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        Comparator<FakeDocument> byDoc = Comparator.comparingLong(FakeDocument::getSeqNo);
+        return comparator == null ? byDoc : comparator.thenComparing(byDoc);
+    }
+
+    /**
+     * 命中的sort值，用于响应和search_after比较
+     */
+    static List<JsonNode> sortValues(JsonNode sort, FakeDocument doc) {
+        List<JsonNode> values = new ArrayList<>();
+        if (sort == null) {
+            return values;
+        }
+        for (JsonNode clause : sort) {
+            String field = clause.isTextual() ? clause.asText() : clause.fieldNames().next();
+            values.add(sortValue(doc, field));
+        }
+        return values;
+    }
+
+    static int compareSortValues(JsonNode sort, List<JsonNode> values, JsonNode searchAfter) {
+        int i = 0;
+        for (JsonNode clause : sort) {
+            boolean desc = clause.isObject() && "desc".equals(firstField(clause).getValue().path("order").asText());
+            int result = compare(values.get(i), searchAfter.get(i));
+            if (result != 0) {
+                return desc ? -result : result;
+            }
+            i++;
+        }
+        return 0;
+    }
+
+    static JsonNode value(FakeDocument doc, String field) {
+        if ("_id".equals(field)) {
+            return FakeElasticsearchServer.MAPPER.getNodeFactory().textNode(doc.getId());
+        }
+        JsonNode node = doc.getSource();
+        for (String part : field.split("\\.")) {
+            if (node == null) {
+                return null;
+            }
+            node = node.get(part);
+        }
+        // text字段的.keyword子字段
+        if (node == null && field.endsWith(".keyword")) {
+            return value(doc, field.substring(0, field.length() - ".keyword".length()));
+        }
+        return node;
+    }
+
+    private static JsonNode sortValue(FakeDocument doc, String field) {
+        if ("_doc".equals(field)) {
+            return FakeElasticsearchServer.MAPPER.getNodeFactory().numberNode(doc.getSeqNo());
+        }
+        JsonNode value = value(doc, field);
+        return value == null ? FakeElasticsearchServer.MAPPER.getNodeFactory().nullNode() : value;
+    }
+
+    private static boolean range(Map.Entry<String, JsonNode> field, FakeDocument doc) {
+        JsonNode actual = value(doc, field.getKey());
+        if (actual == null || actual.isNull()) {
+            return false;
+        }
+        JsonNode range = field.getValue();
+        boolean includeLower = range.path("include_lower").asBoolean(true);
+        boolean includeUpper = range.path("include_upper").asBoolean(true);
+        JsonNode lower = first(range, "from", "gte", "gt");
+        JsonNode upper = first(range, "to", "lte", "lt");
+        if (range.has("gt")) {
+            includeLower = false;
+        }
+        if (range.has("lt")) {
+            includeUpper = false;
+        }
+        if (lower != null && !lower.isNull()) {
+            int c = compare(actual, lower);
+            if (c < 0 || (c == 0 && !includeLower)) {
+                return false;
+            }
+        }
+        if (upper != null && !upper.isNull()) {
+            int c = compare(actual, upper);
+            return c < 0 || (c == 0 && includeUpper);
+        }
+        return true;
+    }
+
+    private static boolean bool(JsonNode body, FakeDocument doc) {
+        for (String occur : new String[]{"must", "filter"}) {
+            for (JsonNode clause : clauses(body.get(occur))) {
+                if (!matches(clause, doc)) {
+                    return false;
+                }
+            }
+        }
+        for (JsonNode clause : clauses(body.get("must_not"))) {
+            if (matches(clause, doc)) {
+                return false;
+            }
+        }
+        List<JsonNode> should = clauses(body.get("should"));
+        if (should.isEmpty()) {
+            return true;
+        }
+        boolean scoring = body.has("must") || body.has("filter");
+        int minimum = body.path("minimum_should_match").asInt(scoring ? 0 : 1);
+        int matched = 0;
+        for (JsonNode clause : should) {
+            if (matches(clause, doc)) {
+                matched++;
+            }
+        }
+        return matched >= minimum;
+    }
+
+    private static List<JsonNode> clauses(JsonNode node) {
+        List<JsonNode> clauses = new ArrayList<>();
+        if (node == null) {
+            return clauses;
+        }
+        if (node.isArray()) {
+            node.forEach(clauses::add);
+        } else {
+            clauses.add(node);
+        }
+        return clauses;
+    }
+
+    private static boolean equalsAny(JsonNode actual, JsonNode expected) {
+        if (actual == null) {
+            return false;
+        }
+        if (actual.isArray()) {
+            for (JsonNode item : actual) {
+                if (compare(item, expected) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return compare(actual, expected) == 0;
+    }
+
+    private static int compare(JsonNode a, JsonNode b) {
+        boolean aMissing = a == null || a.isNull();
+        boolean bMissing = b == null || b.isNull();
+        if (aMissing || bMissing) {
+            // 缺失值排在最后
+            return aMissing == bMissing ? 0 : (aMissing ? 1 : -1);
+        }
+        if (a.isNumber() && b.isNumber()) {
+            return Double.compare(a.asDouble(), b.asDouble());
+        }
+        if (a.isNumber() && b.isTextual() || a.isTextual() && b.isNumber()) {
+            try {
+                return Double.compare(Double.parseDouble(a.asText()), Double.parseDouble(b.asText()));
+            } catch (NumberFormatException e) {
+                return a.asText().compareTo(b.asText());
+            }
+        }
+        if (a.isBoolean() && b.isBoolean()) {
+            return Boolean.compare(a.asBoolean(), b.asBoolean());
+        }
+        return a.asText().compareTo(b.asText());
+    }
+
+    private static String textOf(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return "";
+        }
+        if (node.isArray()) {
+            StringBuilder builder = new StringBuilder();
+            node.forEach(item -> builder.append(item.asText()).append(' '));
+            return builder.toString();
+        }
+        return node.asText();
+    }
+
+    private static JsonNode first(JsonNode node, String... names) {
+        for (String name : names) {
+            if (node.has(name)) {
+                return node.get(name);
+            }
+        }
+        return null;
+    }
+
+    private static Map.Entry<String, JsonNode> firstField(JsonNode node) {
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!"boost".equals(field.getKey()) && !"_name".equals(field.getKey())) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("查询缺少字段:" + node);
+    }
+
+}
@@ -0,0 +1,37 @@
+package org.dynasty.elasticsearch.demo.fake;
+
+import lombok.Data;
+import org.dynasty.elasticsearch.demo.annotations.Field;
+import org.dynasty.elasticsearch.demo.annotations.FieldType;
+import org.dynasty.elasticsearch.demo.annotations.Id;
+
+import java.time.LocalDateTime;
+
+/**
+ * LoadTestHarness生成的实体，字段与Document一致，mysqlId作为@Id
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-21 10:40:00
+ */
+@Data
+public class LoadDocument {
+
+    @Id
+    private String mysqlId;
+
+    private LocalDateTime date;
+
+    @Field(type = FieldType.TEXT)
+    private String title;
+
+    @Field(type = FieldType.TEXT, norms = false)
+    private String content;
+
+    @Field(index = false, docValues = false)
+    private String richText;
+
+    private Double price;
+
+    private Integer phone;
+
+}
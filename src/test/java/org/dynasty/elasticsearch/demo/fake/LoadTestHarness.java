@@ -0,0 +1,191 @@
+package org.dynasty.elasticsearch.demo.fake;
+
+import org.dynasty.elasticsearch.demo.ElasticSearchDemoApplication;
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.bulk.BulkResult;
+import org.dynasty.elasticsearch.demo.metrics.Histogram;
+import org.slf4j.Logger;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测：多个线程在指定时长内循环调用{@link ElasticsearchRepository#bulkIndex(String, List)}，
+ * 统计持续写入速率和每次bulkIndex的延迟分位数
+ * <p>
+ * 直接运行main时启动{@link FakeElasticsearchServer}，可通过系统属性调整：
+ * threads、batchSize、seconds、latencyMs、jitterMs、rejectionRate、maxDocsPerSecond；
+ * 指定esUri时改为压测真实集群。
+ *
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 22:10:00
+ */
+public class LoadTestHarness {
+
+    private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(LoadTestHarness.class);
+
+    private int threads = 4;
+
+    private int batchSize = 1000;
+
+    private Duration duration = Duration.ofSeconds(10);
+
+    public LoadTestHarness threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public LoadTestHarness batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public LoadTestHarness duration(Duration duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    public Report run(ElasticsearchRepository repository, String indexName) throws Exception {
+        Histogram latency = new Histogram();
+        AtomicLong sequence = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        try {
+            List<Future<BulkResult>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    BulkResult total = BulkResult.EMPTY;
+                    while (System.nanoTime() < deadline) {
+                        List<LoadDocument> batch = documents(sequence.getAndAdd(batchSize), batchSize);
+                        long begin = System.nanoTime();
+                        BulkResult result = repository.bulkIndex(indexName, batch);
+                        latency.record(System.nanoTime() - begin);
+                        total = total.merge(result);
+                    }
+                    return total;
+                }));
+            }
+            BulkResult total = BulkResult.EMPTY;
+            for (Future<BulkResult> future : futures) {
+                total = total.merge(future.get());
+            }
+            return new Report(total, System.nanoTime() - start, latency);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 启动连接到指定地址的容器
+     *
+     * @param uri
+     * @param args 额外的配置，形如 --easy-es.bulk.retry.max-retries=10
+     */
+    public static ConfigurableApplicationContext context(String uri, String... args) {
+        List<String> arguments = new ArrayList<>(Arrays.asList(
+                "--spring.elasticsearch.rest.uris=" + uri,
+                "--spring.jmx.enabled=false",
+                "--easy-es.metrics.jmx-enabled=false",
+                "--easy-es.bulk.retry.dead-letter-path=target/fake-es-dead-letter.ndjson",
+                "--easy-es.bulk-load.state-dir=target/fake-es-bulk-load-state"));
+        arguments.addAll(Arrays.asList(args));
+        return new SpringApplicationBuilder(ElasticSearchDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments.toArray(new String[0]));
+    }
+
+    public static List<LoadDocument> documents(long first, int size) {
+        LocalDateTime date = LocalDateTime.of(2020, 6, 4, 22, 20);
+        List<LoadDocument> documents = new ArrayList<>(size);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            LoadDocument document = new LoadDocument();
+            document.setMysqlId(Long.toString(first + i));
+            document.setDate(date.plusSeconds(first + i));
+            document.setTitle("title " + (first + i));
+            document.setContent("content " + random.nextLong());
+            document.setPrice(random.nextInt(100000) / 100.0);
+            document.setPhone(random.nextInt(Integer.MAX_VALUE));
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String uri = System.getProperty("esUri");
+        FakeElasticsearchServer server = null;
+        if (uri == null) {
+            server = new FakeElasticsearchServer()
+                    .latency(Duration.ofMillis(Long.getLong("latencyMs", 5)), Duration.ofMillis(Long.getLong("jitterMs", 5)))
+                    .rejectionRate(Double.parseDouble(System.getProperty("rejectionRate", "0")))
+                    .maxDocsPerSecond(Double.parseDouble(System.getProperty("maxDocsPerSecond", "0")));
+            uri = server.getUri();
+        }
+        try (ConfigurableApplicationContext context = context(uri, "--logging.level.org.dynasty=WARN")) {
+            Report report = new LoadTestHarness()
+                    .threads(Integer.getInteger("threads", 4))
+                    .batchSize(Integer.getInteger("batchSize", 1000))
+                    .duration(Duration.ofSeconds(Long.getLong("seconds", 10)))
+                    .run(context.getBean(ElasticsearchRepository.class), "load-test");
+            LOGGER.info("压测结果:{}", report);
+        } finally {
+            if (server != null) {
+                LOGGER.info("fake-es: requests={}, rejectedItems={}", server.getRequests(), server.getRejectedItems());
+                server.close();
+            }
+        }
+    }
+
+    public static final class Report {
+
+        private final BulkResult result;
+
+        private final long elapsedNanos;
+
+        private final Histogram latency;
+
+        Report(BulkResult result, long elapsedNanos, Histogram latency) {
+            this.result = result;
+            this.elapsedNanos = elapsedNanos;
+            this.latency = latency;
+        }
+
+        public BulkResult getResult() {
+            return result;
+        }
+
+        public double getDocsPerSecond() {
+            return result.getSucceeded() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * 单次bulkIndex的延迟分位数（毫秒）
+         */
+        public double getLatencyMillis(double quantile) {
+            return latency.percentile(quantile) / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("docs=%d, succeeded=%d, retried=%d, dead=%d, elapsed=%.1fs, docs/s=%.0f, "
+                            + "bulkIndex latency ms p50=%.1f p90=%.1f p99=%.1f max=%.1f",
+                    result.getTotal(), result.getSucceeded(), result.getRetried(), result.getDead(),
+                    elapsedNanos / 1e9, getDocsPerSecond(), getLatencyMillis(0.5), getLatencyMillis(0.9),
+                    getLatencyMillis(0.99), latency.getMax() / 1e6);
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package org.dynasty.elasticsearch.demo.loader;
+
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.dynasty.elasticsearch.demo.serialization.EntitySerializer;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.client.RequestOptions;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 17:30:00
+ */
+public class MultiGetBatcherTest {
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    private static ElasticsearchRepository repository;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri(), "--easy-es.multi-get.window=100ms");
+        repository = context.getBean(ElasticsearchRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @Before
+    public void reset() {
+        server.reset();
+        repository.bulkIndex("mget", LoadTestHarness.documents(0, 20));
+    }
+
+    @Test
+    public void concurrentLookupsShareOneRequest() throws Exception {
+        int threads = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        List<Future<Map>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String id = i == threads - 1 ? "missing" : Integer.toString(i % 8);
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                ready.await();
+                return repository.getById("mget", id, Map.class);
+            }));
+        }
+        for (int i = 0; i < threads - 1; i++) {
+            Assert.assertEquals("title " + (i % 8), futures.get(i).get().get("title"));
+        }
+        Assert.assertNull(futures.get(threads - 1).get());
+        executor.shutdown();
+        Assert.assertTrue(server.getMultiGetRequests() <= 2);
+        Assert.assertEquals(0, server.getGetRequests());
+    }
+
+    @Test
+    public void deduplicatesAndFlushesWhenFull() throws Exception {
+        MultiGetProperties properties = new MultiGetProperties();
+        properties.setWindow(Duration.ofHours(1));
+        properties.setMaxBatchSize(3);
+        MultiGetBatcher batcher = new MultiGetBatcher(repository.getClient(), RequestOptions.DEFAULT,
+                EntitySerializer.json(), properties, new ElasticsearchMetrics());
+        CompletableFuture<Map> first = batcher.load("mget", "1", Map.class);
+        CompletableFuture<Map> duplicate = batcher.load("mget", "1", Map.class);
+        CompletableFuture<Map> missingIndex = batcher.load("nothing", "1", Map.class);
+        Assert.assertEquals("title 1", first.get().get("title"));
+        Assert.assertEquals(first.get(), duplicate.get());
+        try {
+            missingIndex.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ElasticsearchException);
+        }
+        Assert.assertEquals(3, batcher.getRequested());
+        Assert.assertEquals(2, batcher.getFetched());
+        Assert.assertEquals(1, batcher.getBatches());
+
+        CompletableFuture<Map> waiting = batcher.load("mget", "2", Map.class);
+        Thread.sleep(50);
+        Assert.assertFalse(waiting.isDone());
+        batcher.close();
+        Assert.assertEquals("title 2", waiting.get().get("title"));
+        Assert.assertEquals(2, server.getMultiGetRequests());
+    }
+
+    @Test
+    public void loaderCachesWithinItsScope() throws Exception {
+        DocumentLoader loader = repository.newDocumentLoader();
+        Assert.assertEquals("title 3", loader.load("mget", "3", Map.class).get().get("title"));
+        Assert.assertEquals("title 3", loader.load("mget", "3", Map.class).get().get("title"));
+        Assert.assertEquals(1, server.getMultiGetRequests());
+
+        Map<String, Map> many = loader.loadMany("mget", Arrays.asList("3", "4", "missing"), Map.class).get();
+        Assert.assertEquals(Arrays.asList("3", "4", "missing"), new ArrayList<>(many.keySet()));
+        Assert.assertEquals("title 4", many.get("4").get("title"));
+        Assert.assertNull(many.get("missing"));
+        Assert.assertEquals(2, server.getMultiGetRequests());
+
+        // 新的loader不共享缓存
+        repository.newDocumentLoader().load("mget", "3", Map.class).get();
+        Assert.assertEquals(3, server.getMultiGetRequests());
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.dynasty.elasticsearch.demo.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-18 20:40:00
+ */
+public class ElasticsearchMetricsTest {
+
+    @Test
+    public void histogramPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000, histogram.getMax());
+        Assert.assertEquals(500.5, histogram.getMean(), 0.001);
+        // 桶上界近似：p50落在[256, 511]，p99落在[512, 1023]并以max截断
+        Assert.assertEquals(511, histogram.percentile(0.5));
+        Assert.assertEquals(1000, histogram.percentile(0.99));
+        histogram.reset();
+        Assert.assertEquals(0, histogram.percentile(0.99));
+    }
+
+    @Test
+    public void recordsOperationsAndFansOut() {
+        ElasticsearchMetrics metrics = new ElasticsearchMetrics();
+        long[] docs = new long[1];
+        metrics.addRecorder(new MetricsRecorder() {
+            @Override
+            public void recordBulk(int count, long bytes) {
+                docs[0] += count;
+            }
+        });
+        long begin = metrics.begin("bulk");
+        Assert.assertEquals(1, metrics.getInFlight("bulk"));
+        metrics.end("bulk", begin - TimeUnit.MILLISECONDS.toNanos(5), 3, false);
+        metrics.recordBulk(100, 4096);
+        metrics.recordRejected(2);
+
+        Assert.assertEquals(0, metrics.getInFlight("bulk"));
+        Assert.assertTrue(metrics.getRoundTrip("bulk").getMax() >= TimeUnit.MILLISECONDS.toNanos(5));
+        Assert.assertEquals(3, metrics.getTook("bulk").getMax());
+        Assert.assertEquals(100, docs[0]);
+        Map<String, Double> operations = metrics.getOperations();
+        Assert.assertEquals(1.0, operations.get("bulk.failures"), 0);
+        Assert.assertEquals(2.0, metrics.getBulk().get("rejected"), 0);
+    }
+
+}
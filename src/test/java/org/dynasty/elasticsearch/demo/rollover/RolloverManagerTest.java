@@ -0,0 +1,244 @@
+package org.dynasty.elasticsearch.demo.rollover;
+
+import org.dynasty.elasticsearch.demo.AsyncElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.bulk.BulkProcessorRegistry;
+import org.dynasty.elasticsearch.demo.bulk.BulkResult;
+import org.dynasty.elasticsearch.demo.cache.IndexMetadataCache;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadDocument;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 20:30:00
+ */
+public class RolloverManagerTest {
+
+    private static final String SETTINGS = "{\"number_of_shards\":1,\"number_of_replicas\":0}";
+
+    private static final String MAPPINGS = "{\"properties\":{\"title\":{\"type\":\"text\"}}}";
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    private static ElasticsearchRepository repository;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri());
+        repository = context.getBean(ElasticsearchRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @Before
+    public void reset() {
+        server.reset();
+    }
+
+    @Test
+    public void rollsOverWhenMaxDocsReached() throws Exception {
+        WriteAlias alias = repository.createWriteAlias("logs", SETTINGS, MAPPINGS,
+                RolloverConditions.defaults().maxDocs(10));
+        Assert.assertEquals("logs-000001", alias.getWriteIndex());
+
+        repository.bulkIndex("logs", LoadTestHarness.documents(0, 10));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (alias.getRollovers() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("logs-000002", alias.getWriteIndex());
+        Assert.assertEquals("0", server.getSettings("logs-000002").get("index.number_of_replicas"));
+        Assert.assertTrue(repository.getIndexMappings("logs-000002").toString().contains("title"));
+
+        repository.bulkIndex("logs", LoadTestHarness.documents(10, 5));
+        Assert.assertEquals(10, server.count("logs-000001"));
+        Assert.assertEquals(5, server.count("logs-000002"));
+        Assert.assertEquals(15, repository.cachedSearch(QueryBuilders.matchAllQuery(), 0, "logs")
+                .getHits().getTotalHits().value);
+
+        // 重启后注册已存在的别名，沿用当前写索引
+        RolloverManager restarted = new RolloverManager(repository.getClient(), new RolloverProperties(),
+                context.getBean(IndexMetadataCache.class));
+        Assert.assertEquals("logs-000002", restarted.register("logs", SETTINGS, MAPPINGS,
+                RolloverConditions.defaults()).getWriteIndex());
+        Assert.assertFalse(restarted.maybeRollover("logs"));
+        restarted.destroy();
+    }
+
+    @Test
+    public void asyncWritesCountTowardsRollover() throws Exception {
+        AsyncElasticsearchRepository async = context.getBean(AsyncElasticsearchRepository.class);
+        WriteAlias alias = repository.createWriteAlias("audit", SETTINGS, MAPPINGS,
+                RolloverConditions.defaults().maxDocs(10));
+        Assert.assertEquals(0, repository.cachedSearch(QueryBuilders.matchAllQuery(), 0, "audit")
+                .getHits().getTotalHits().value);
+
+        Assert.assertEquals(9, async.bulkIndex("audit", LoadTestHarness.documents(0, 9)).get().getSucceeded());
+        Assert.assertEquals(0, alias.getInFlight());
+        // 写入后查询缓存失效
+        Assert.assertEquals(9, repository.cachedSearch(QueryBuilders.matchAllQuery(), 0, "audit")
+                .getHits().getTotalHits().value);
+
+        Assert.assertTrue(async.index("audit", LoadTestHarness.documents(9, 1).get(0)).get());
+        Assert.assertEquals(0, alias.getInFlight());
+        Assert.assertEquals(10, repository.cachedSearch(QueryBuilders.matchAllQuery(), 0, "audit")
+                .getHits().getTotalHits().value);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (alias.getRollovers() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("audit-000002", alias.getWriteIndex());
+        Assert.assertEquals(10, server.count("audit-000001"));
+    }
+
+    @Test
+    public void idKeyedWritesFollowDocumentsAcrossRollover() throws Exception {
+        WriteAlias alias = repository.createWriteAlias("orders", SETTINGS, MAPPINGS, RolloverConditions.defaults());
+        List<LoadDocument> documents = LoadTestHarness.documents(0, 5);
+        repository.bulkIndex("orders", documents);
+        Assert.assertTrue(repository.rollover("orders"));
+        Assert.assertEquals("orders-000002", alias.getWriteIndex());
+        Assert.assertTrue(alias.isMultiIndex());
+
+        // 别名指向两个索引，按id读取改为ids查询
+        long mgets = server.getMultiGetRequests();
+        Assert.assertEquals("title 0", repository.getById("orders", "0", Map.class).get("title"));
+        Assert.assertNull(repository.getById("orders", "missing", Map.class));
+        Assert.assertEquals(mgets, server.getMultiGetRequests());
+
+        // 旧文档仍在orders-000001，更新、删除和upsert都要落到旧索引上
+        documents.get(0).setTitle("updated");
+        BulkResult updated = repository.bulkUpdate("orders", documents.subList(0, 1));
+        Assert.assertFalse(updated.hasFailures());
+        Assert.assertEquals("updated", server.get("orders-000001", "0").path("title").asText());
+
+        Assert.assertFalse(repository.bulkDelete("orders", documents.subList(1, 2)).hasFailures());
+        Assert.assertNull(server.get("orders-000001", "1"));
+
+        documents.get(2).setTitle("upserted");
+        List<LoadDocument> upserts = new ArrayList<>(documents.subList(2, 3));
+        upserts.addAll(LoadTestHarness.documents(10, 1));
+        Assert.assertFalse(repository.bulkUpsert("orders", upserts).hasFailures());
+        Assert.assertEquals("upserted", server.get("orders-000001", "2").path("title").asText());
+        // 不存在的文档在写索引上创建
+        Assert.assertEquals(4, server.count("orders-000001"));
+        Assert.assertEquals(1, server.count("orders-000002"));
+        Assert.assertNotNull(server.get("orders-000002", "10"));
+    }
+
+    @Test
+    public void rolloverWaitsForInFlightWrites() throws Exception {
+        WriteAlias alias = repository.createWriteAlias("events", SETTINGS, MAPPINGS, RolloverConditions.defaults());
+        RolloverManager manager = context.getBean(RolloverManager.class);
+        CompletableFuture<Boolean> rolled;
+        try (WriteGuard guard = manager.guard("events")) {
+            rolled = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return repository.rollover("events");
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Thread.sleep(200);
+            Assert.assertFalse(rolled.isDone());
+            Assert.assertEquals("events-000001", alias.getWriteIndex());
+        }
+        Assert.assertTrue(rolled.get());
+        Assert.assertEquals("events-000002", alias.getWriteIndex());
+        Assert.assertTrue(server.hasIndex("events-000002"));
+    }
+
+    @Test
+    public void processorBulksWaitForRollover() throws Exception {
+        WriteAlias alias = repository.createWriteAlias("metrics", SETTINGS, MAPPINGS, RolloverConditions.defaults());
+        RolloverManager manager = context.getBean(RolloverManager.class);
+        CompletableFuture<Boolean> rolled;
+        CompletableFuture<Void> flushed;
+        WriteGuard guard = manager.guard("metrics");
+        rolled = CompletableFuture.supplyAsync(() -> {
+            try {
+                return repository.rollover("metrics");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(200);
+        repository.bulkIndexWithProcessor("metrics", LoadTestHarness.documents(0, 5));
+        flushed = CompletableFuture.runAsync(() -> context.getBean(BulkProcessorRegistry.class).flush("metrics"));
+        Thread.sleep(200);
+        // 滚动在等待在途批次，BulkProcessor的bulk在滚动结束前不发送
+        Assert.assertFalse(flushed.isDone());
+        // guard可以在其他线程上关闭
+        CompletableFuture.runAsync(guard::close).get();
+        Assert.assertTrue(rolled.get());
+        flushed.get();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.count("metrics-000002") < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(5, server.count("metrics-000002"));
+        Assert.assertEquals(0, server.count("metrics-000001"));
+        while (alias.getInFlight() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, alias.getInFlight());
+    }
+
+    @Test
+    public void streamingLoadRollsOverBetweenBatches() throws Exception {
+        WriteAlias alias = repository.createWriteAlias("backfill", SETTINGS, MAPPINGS, RolloverConditions.defaults());
+        Iterator<LoadDocument> documents = LoadTestHarness.documents(0, 3000).iterator();
+        AtomicBoolean rolled = new AtomicBoolean();
+        Iterator<LoadDocument> source = new Iterator<LoadDocument>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return documents.hasNext();
+            }
+
+            @Override
+            public LoadDocument next() {
+                if (next++ == 1500) {
+                    // 流式导入进行中，滚动只需等待在途的批次
+                    try {
+                        rolled.set(repository.rollover("backfill"));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return documents.next();
+            }
+        };
+        Assert.assertEquals(3000, repository.bulkIndex("backfill", source).getSucceeded());
+        Assert.assertTrue(rolled.get());
+        Assert.assertEquals("backfill-000002", alias.getWriteIndex());
+        Assert.assertEquals(1000, server.count("backfill-000001"));
+        Assert.assertEquals(2000, server.count("backfill-000002"));
+    }
+
+}
@@ -0,0 +1,160 @@
+package org.dynasty.elasticsearch.demo.search;
+
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.dynasty.elasticsearch.demo.metrics.ElasticsearchMetrics;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchTimeoutException;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 19:00:00
+ */
+public class MultiSearchBatcherTest {
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    private static ElasticsearchRepository repository;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri(), "--easy-es.multi-search.window=100ms");
+        repository = context.getBean(ElasticsearchRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @Before
+    public void reset() {
+        server.reset();
+        repository.bulkIndex("msearch", LoadTestHarness.documents(0, 20));
+    }
+
+    @Test
+    public void concurrentSearchesShareOneRequest() throws Exception {
+        ElasticsearchMetrics metrics = context.getBean(ElasticsearchMetrics.class);
+        metrics.reset();
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        List<Future<SearchResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String id = Integer.toString(i);
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                ready.await();
+                return repository.batchedSearch(new SearchSourceBuilder().query(QueryBuilders.idsQuery().addIds(id)),
+                        "msearch");
+            }));
+        }
+        for (int i = 0; i < threads; i++) {
+            SearchResponse response = futures.get(i).get();
+            Assert.assertEquals(1, response.getHits().getTotalHits().value);
+            Assert.assertEquals(Integer.toString(i), response.getHits().getAt(0).getId());
+        }
+        executor.shutdown();
+        Assert.assertTrue(server.getMultiSearchRequests() <= 2);
+        Assert.assertEquals(threads, metrics.getBatchSize("msearch").getSum());
+        Assert.assertTrue(metrics.getBatchSize("msearch").getMax() >= threads / 2);
+    }
+
+    @Test
+    public void failureOnlyAffectsItsOwnSearch() throws Exception {
+        MultiSearchProperties properties = new MultiSearchProperties();
+        properties.setWindow(Duration.ofHours(1));
+        properties.setMaxBatchSize(2);
+        MultiSearchBatcher batcher = new MultiSearchBatcher(repository.getClient(), RequestOptions.DEFAULT,
+                properties, new ElasticsearchMetrics());
+        CompletableFuture<SearchResponse> found = batcher.submit(new SearchRequest("msearch")
+                .source(new SearchSourceBuilder().query(QueryBuilders.idsQuery().addIds("3"))));
+        CompletableFuture<SearchResponse> missing = batcher.submit(new SearchRequest("nothing")
+                .source(new SearchSourceBuilder()));
+        Assert.assertEquals("3", found.get().getHits().getAt(0).getId());
+        try {
+            missing.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ElasticsearchException);
+            Assert.assertTrue(e.getCause().getMessage().contains("index_not_found_exception"));
+        }
+        Assert.assertEquals(1, batcher.getBatches());
+        batcher.close();
+    }
+
+    @Test
+    public void flushesBeforeExceedingMaxBytes() throws Exception {
+        MultiSearchProperties properties = new MultiSearchProperties();
+        properties.setWindow(Duration.ofHours(1));
+        properties.setMaxBatchBytes(DataSize.ofBytes(60));
+        MultiSearchBatcher batcher = new MultiSearchBatcher(repository.getClient(), RequestOptions.DEFAULT,
+                properties, new ElasticsearchMetrics());
+        SearchSourceBuilder source = new SearchSourceBuilder().query(QueryBuilders.idsQuery().addIds("1", "2"));
+        CompletableFuture<SearchResponse> first = batcher.submit(new SearchRequest("msearch").source(source));
+        CompletableFuture<SearchResponse> second = batcher.submit(new SearchRequest("msearch").source(source));
+        // 第二个查询放不下，第一个查询先发送
+        Assert.assertEquals(2, first.get().getHits().getTotalHits().value);
+        Assert.assertFalse(second.isDone());
+        batcher.close();
+        Assert.assertEquals(2, second.get().getHits().getTotalHits().value);
+        Assert.assertEquals(2, batcher.getBatches());
+    }
+
+    @Test
+    public void timedOutSearchIsNotSent() throws Exception {
+        MultiSearchProperties properties = new MultiSearchProperties();
+        properties.setWindow(Duration.ofMillis(300));
+        MultiSearchBatcher batcher = new MultiSearchBatcher(repository.getClient(), RequestOptions.DEFAULT,
+                properties, new ElasticsearchMetrics());
+        CompletableFuture<SearchResponse> timedOut = batcher.submit(new SearchRequest("msearch")
+                .source(new SearchSourceBuilder()), Duration.ofMillis(50));
+        SearchSourceBuilder source = new SearchSourceBuilder();
+        CompletableFuture<SearchResponse> patient = batcher.submit(new SearchRequest("msearch").source(source),
+                Duration.ofSeconds(10));
+        try {
+            timedOut.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ElasticsearchTimeoutException);
+        }
+        Assert.assertEquals(20, patient.get().getHits().getTotalHits().value);
+        Assert.assertEquals(1, batcher.getTimedOut());
+        Assert.assertEquals(1, server.getMultiSearchRequests());
+        // 剩余的时间作为服务端timeout发送，调用方的source不被修改
+        long serverTimeout = TimeValue.parseTimeValue(server.getLastSearchTimeout(), "timeout").millis();
+        Assert.assertTrue(serverTimeout > 9000 && serverTimeout < 10000);
+        Assert.assertNull(source.timeout());
+        batcher.close();
+    }
+
+}
@@ -0,0 +1,243 @@
+package org.dynasty.elasticsearch.demo.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.annotations.Field;
+import org.dynasty.elasticsearch.demo.annotations.FieldType;
+import org.dynasty.elasticsearch.demo.annotations.Id;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-20 12:00:00
+ */
+public class SearchHitIteratorTest {
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    private static ElasticsearchRepository repository;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri());
+        repository = context.getBean(ElasticsearchRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @Before
+    public void reset() {
+        server.reset();
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Item item = new Item();
+            item.setCode(String.format("item-%02d", i));
+            // 大量相同的排序值，只靠tiebreaker区分
+            item.setPrice((double) (i % 3));
+            item.setRank(25 - i);
+            items.add(item);
+        }
+        repository.bulkIndex("paging", items);
+    }
+
+    @Test
+    public void pagesWithEntityIdTiebreaker() {
+        SearchOptions options = SearchOptions.defaults().pageSize(10)
+                .sort(SortBuilders.fieldSort("price").order(SortOrder.DESC));
+        List<Item> items;
+        try (Stream<Item> stream = repository.search(QueryBuilders.matchAllQuery(), Item.class, options, "paging")) {
+            items = stream.collect(Collectors.toList());
+        }
+
+        Assert.assertEquals(25, items.size());
+        Set<String> codes = items.stream().map(Item::getCode).collect(Collectors.toCollection(TreeSet::new));
+        Assert.assertEquals(25, codes.size());
+        for (int i = 1; i < items.size(); i++) {
+            Item previous = items.get(i - 1);
+            Item current = items.get(i);
+            Assert.assertTrue(previous.getPrice() > current.getPrice() || previous.getPrice().equals(current.getPrice())
+                    && previous.getCode().compareTo(current.getCode()) < 0);
+        }
+        // 默认按@Id字段而不是_id排序，dynamic mapping下使用keyword子字段，@Id即_id已经唯一，不再追加_id
+        JsonNode sort = server.getLastSearchSort();
+        Assert.assertTrue(sort.toString(), sort.get(sort.size() - 1).has("code.keyword"));
+        sort.forEach(field -> Assert.assertFalse(sort.toString(), field.has("_id")));
+        Assert.assertNull(options.getTiebreaker());
+    }
+
+    @Test
+    public void usesIdFieldDirectlyWithExplicitMapping() {
+        repository.createIndex("typed-paging", Item.class);
+        repository.bulkIndex("typed-paging", Stream.of("b", "a", "c").map(code -> {
+            Item item = new Item();
+            item.setCode(code);
+            return item;
+        }).collect(Collectors.toList()));
+        List<String> codes;
+        try (Stream<Item> stream = repository.search(QueryBuilders.matchAllQuery(), Item.class,
+                SearchOptions.defaults().pageSize(2), "typed-paging")) {
+            codes = stream.map(Item::getCode).collect(Collectors.toList());
+        }
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), codes);
+        JsonNode sort = server.getLastSearchSort();
+        Assert.assertTrue(sort.toString(), sort.get(0).has("code"));
+    }
+
+    @Test
+    public void documentsWithoutIdAreNotSkipped() {
+        List<GeneratedItem> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            GeneratedItem item = new GeneratedItem();
+            item.setRank(i);
+            items.add(item);
+        }
+        repository.bulkIndex("paging", items);
+        long count;
+        try (Stream<GeneratedItem> stream = repository.search(QueryBuilders.matchAllQuery(), GeneratedItem.class,
+                SearchOptions.defaults().pageSize(3), "paging")) {
+            count = stream.count();
+        }
+        Assert.assertEquals(35, count);
+        // @Id可能为空，追加_id区分
+        JsonNode sort = server.getLastSearchSort();
+        Assert.assertTrue(sort.toString(), sort.get(sort.size() - 2).has("code.keyword"));
+        Assert.assertTrue(sort.toString(), sort.get(sort.size() - 1).has("_id"));
+    }
+
+    @Test
+    public void appendsIdOnRequest() {
+        SearchOptions options = SearchOptions.defaults().pageSize(7).tiebreaker("price").idTiebreaker(true);
+        long count;
+        try (Stream<Item> stream = repository.search(QueryBuilders.matchAllQuery(), Item.class, options, "paging")) {
+            count = stream.count();
+        }
+        Assert.assertEquals(25, count);
+        JsonNode sort = server.getLastSearchSort();
+        Assert.assertTrue(sort.toString(), sort.get(sort.size() - 2).has("price"));
+        Assert.assertTrue(sort.toString(), sort.get(sort.size() - 1).has("_id"));
+    }
+
+    @Test
+    public void sortingOnTextFieldIsRejected() {
+        try (Stream<Item> stream = repository.search(QueryBuilders.matchAllQuery(), Item.class,
+                SearchOptions.defaults().tiebreaker("code"), "paging")) {
+            stream.count();
+            Assert.fail("text字段不能排序");
+        } catch (ElasticsearchException e) {
+            Assert.assertEquals(RestStatus.BAD_REQUEST, ((ElasticsearchStatusException) e.getCause()).status());
+        }
+    }
+
+    @Test
+    public void explicitTiebreakerWins() {
+        SearchOptions options = SearchOptions.defaults().pageSize(7).tiebreaker("rank");
+        List<String> codes;
+        try (Stream<Item> stream = repository.search(QueryBuilders.matchAllQuery(), Item.class, options, "paging")) {
+            codes = stream.map(Item::getCode).collect(Collectors.toList());
+        }
+        Assert.assertEquals(25, codes.size());
+        Assert.assertEquals("item-24", codes.get(0));
+        Assert.assertEquals("item-00", codes.get(24));
+        JsonNode sort = server.getLastSearchSort();
+        Assert.assertTrue(sort.toString(), sort.get(sort.size() - 1).has("rank"));
+    }
+
+    @Test
+    public void fallsBackToIdWithoutSortableIdField() {
+        Assert.assertEquals("code", SearchHitIterator.tiebreaker(Item.class));
+        Assert.assertEquals(SearchHitIterator.ID_TIEBREAKER, SearchHitIterator.tiebreaker(NoId.class));
+        Assert.assertEquals(SearchHitIterator.ID_TIEBREAKER, SearchHitIterator.tiebreaker(TextId.class));
+        // 按实际mapping判断
+        Map<String, Object> keyword = mapping("{\"properties\":{\"code\":{\"type\":\"keyword\"}}}");
+        Map<String, Object> dynamic = mapping("{\"properties\":{\"code\":{\"type\":\"text\","
+                + "\"fields\":{\"keyword\":{\"type\":\"keyword\",\"ignore_above\":256}}}}}");
+        Map<String, Object> text = mapping("{\"properties\":{\"code\":{\"type\":\"text\"}}}");
+        Assert.assertEquals("code", SearchHitIterator.tiebreaker(Item.class, index -> keyword, "a"));
+        Assert.assertEquals("code.keyword", SearchHitIterator.tiebreaker(Item.class, index -> dynamic, "a"));
+        Assert.assertEquals(SearchHitIterator.ID_TIEBREAKER, SearchHitIterator.tiebreaker(Item.class, index -> text, "a"));
+        Assert.assertEquals(SearchHitIterator.ID_TIEBREAKER, SearchHitIterator.tiebreaker(Item.class,
+                index -> Collections.emptyMap(), "a"));
+        Assert.assertEquals(SearchHitIterator.ID_TIEBREAKER, SearchHitIterator.tiebreaker(Item.class,
+                index -> "a".equals(index) ? keyword : dynamic, "a", "b"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> mapping(String json) {
+        try {
+            return new ObjectMapper().readValue(json, Map.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Data
+    public static class Item {
+
+        @Id
+        private String code;
+
+        private Double price;
+
+        private Integer rank;
+    }
+
+    @Data
+    public static class GeneratedItem {
+
+        @Id(generated = true)
+        private String code;
+
+        private Double price;
+
+        private Integer rank;
+    }
+
+    @Data
+    static class NoId {
+
+        private String name;
+    }
+
+    @Data
+    static class TextId {
+
+        @Id
+        @Field(type = FieldType.TEXT)
+        private String code;
+    }
+
+}
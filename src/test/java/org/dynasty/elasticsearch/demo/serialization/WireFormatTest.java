@@ -0,0 +1,63 @@
+package org.dynasty.elasticsearch.demo.serialization;
+
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.bulk.BulkResult;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadDocument;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 09:20:00
+ */
+public class WireFormatTest {
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri(), "--easy-es.serialization.format=cbor");
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @Test
+    public void cborDocumentsAndSmileBulk() throws Exception {
+        ElasticsearchRepository repository = context.getBean(ElasticsearchRepository.class);
+        LoadDocument document = LoadTestHarness.documents(0, 1).get(0);
+        long binaryRequests = server.getBinaryRequests();
+
+        Assert.assertTrue(repository.index("binary", document));
+        Assert.assertEquals(binaryRequests + 1, server.getBinaryRequests());
+        Assert.assertEquals(document.getTitle(), server.get("binary", document.getMysqlId()).path("title").asText());
+
+        // _bulk不支持CBOR，退回SMILE
+        BulkResult result = repository.bulkIndex("binary", LoadTestHarness.documents(1, 200));
+        Assert.assertEquals(200, result.getSucceeded());
+        Assert.assertEquals(201, server.count("binary"));
+        Assert.assertEquals(binaryRequests + 2, server.getBinaryRequests());
+
+        long binaryResponses = server.getBinaryResponses();
+        try (Stream<Map> stream = repository.search(QueryBuilders.matchAllQuery(), Map.class, "binary")) {
+            Assert.assertEquals(201, stream.filter(source -> source.get("title") != null).count());
+        }
+        Assert.assertTrue(server.getBinaryResponses() > binaryResponses);
+    }
+
+}
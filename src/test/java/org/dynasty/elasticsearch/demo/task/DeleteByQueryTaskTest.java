@@ -0,0 +1,117 @@
+package org.dynasty.elasticsearch.demo.task;
+
+import org.dynasty.elasticsearch.demo.ElasticsearchRepository;
+import org.dynasty.elasticsearch.demo.fake.FakeElasticsearchServer;
+import org.dynasty.elasticsearch.demo.fake.LoadTestHarness;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+/**
+ * @author dynasty yq.xiong0320@gmail.com
+ * @since 2026-10-19 15:00:00
+ */
+public class DeleteByQueryTaskTest {
+
+    private static FakeElasticsearchServer server;
+
+    private static ConfigurableApplicationContext context;
+
+    private static ElasticsearchRepository repository;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        server = new FakeElasticsearchServer();
+        context = LoadTestHarness.context(server.getUri());
+        repository = context.getBean(ElasticsearchRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        context.close();
+        server.close();
+    }
+
+    @After
+    public void reset() {
+        server.reset();
+    }
+
+    @Test
+    public void runsInBackgroundUntilCompleted() throws Exception {
+        repository.bulkIndex("dbq", LoadTestHarness.documents(0, 300));
+        String[] ids = IntStream.range(0, 100).mapToObj(Integer::toString).toArray(String[]::new);
+
+        DeleteByQueryTask task = repository.submitDeleteByQuery(QueryBuilders.idsQuery().addIds(ids),
+                DeleteByQueryOptions.defaults().batchSize(30), "dbq");
+        Assert.assertTrue(task.getTaskId().startsWith("fake-es:"));
+        TaskProgress progress = task.await(Duration.ofSeconds(10));
+        Assert.assertTrue(progress.isCompleted());
+        Assert.assertTrue(progress.isSucceeded());
+        Assert.assertEquals(100, progress.getTotal());
+        Assert.assertEquals(100, progress.getDeleted());
+        Assert.assertEquals(4, progress.getBatches());
+        Assert.assertEquals(100.0, progress.getPercent(), 0.001);
+        Assert.assertEquals(200, server.count("dbq"));
+        Assert.assertEquals(0, server.getRefreshRequests());
+    }
+
+    @Test
+    public void throttledTaskCanBeCancelled() throws Exception {
+        repository.bulkIndex("throttled", LoadTestHarness.documents(0, 200));
+        DeleteByQueryTask task = repository.submitDeleteByQuery(QueryBuilders.matchAllQuery(),
+                DeleteByQueryOptions.defaults().batchSize(10).requestsPerSecond(100), "throttled");
+
+        TaskProgress running = task.await(Duration.ofMillis(300));
+        Assert.assertFalse(running.isCompleted());
+        Assert.assertEquals(200, running.getTotal());
+        Assert.assertTrue(running.getDeleted() > 0);
+
+        Assert.assertTrue(task.cancel());
+        TaskProgress cancelled = task.await(Duration.ofSeconds(5));
+        Assert.assertTrue(cancelled.isCompleted());
+        Assert.assertTrue(cancelled.isCancelled());
+        Assert.assertFalse(cancelled.isSucceeded());
+        Assert.assertTrue(cancelled.getDeleted() < 200);
+        Assert.assertEquals(200 - cancelled.getDeleted(), server.count("throttled"));
+        Assert.assertFalse(task.cancel());
+    }
+
+    @Test
+    public void completionInvalidatesCacheWithoutPolling() throws Exception {
+        try (ConfigurableApplicationContext cached = LoadTestHarness.context(server.getUri(),
+                "--easy-es.cache.query.enabled=true", "--easy-es.cache.query.refresh-interval=0s")) {
+            ElasticsearchRepository cachedRepository = cached.getBean(ElasticsearchRepository.class);
+            cachedRepository.bulkIndex("unpolled", LoadTestHarness.documents(0, 300));
+            Assert.assertEquals(300, total(cachedRepository, "unpolled"));
+
+            // 提交后不查询进度
+            cachedRepository.submitDeleteByQuery(QueryBuilders.matchAllQuery(),
+                    DeleteByQueryOptions.defaults().batchSize(100), "unpolled");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (total(cachedRepository, "unpolled") > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Assert.assertEquals(0, server.count("unpolled"));
+            Assert.assertEquals(0, total(cachedRepository, "unpolled"));
+        }
+    }
+
+    private static long total(ElasticsearchRepository repository, String indexName) throws Exception {
+        return repository.cachedSearch(QueryBuilders.matchAllQuery(), 0, indexName).getHits().getTotalHits().value;
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void unknownTask() throws Exception {
+        new DeleteByQueryTask(repository.getClient().getLowLevelClient(), "fake-es:404", null).progress();
+    }
+
+}